@@ -0,0 +1,50 @@
+package com.weitzel.trustychain.benchmarks;
+
+import com.weitzel.trustychain.common.service.CryptoService;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CryptoServiceBenchmark {
+    private final CryptoService cryptoService = new CryptoService();
+
+    private String pem;
+    private PublicKey publicKey;
+    private byte[] payload;
+    private String signature;
+
+    @Setup
+    public void setUp() {
+        KeyPair keyPair = Fixtures.rsaKeyPair();
+        pem = Fixtures.pem(keyPair);
+        publicKey = cryptoService.loadPublicKeyFromPem(pem);
+        String data = "BEGIN" + Fixtures.ACTOR + Fixtures.PRODUCT_CODE + "HARVEST" + Fixtures.metadata(0);
+        payload = data.getBytes(StandardCharsets.UTF_8);
+        signature = Fixtures.sign(keyPair, data);
+    }
+
+    @Benchmark
+    public PublicKey loadPublicKeyFromPem() {
+        return cryptoService.loadPublicKeyFromPem(pem);
+    }
+
+    @Benchmark
+    public boolean verifySignature() {
+        return cryptoService.verifySignature(payload, signature, publicKey);
+    }
+
+    // what registerEvent and verifyChainIntegrity pay per event today
+    @Benchmark
+    public boolean loadKeyAndVerifySignature() {
+        return cryptoService.verifySignature(payload, signature, cryptoService.loadPublicKeyFromPem(pem));
+    }
+}
@@ -0,0 +1,163 @@
+package com.weitzel.trustychain.benchmarks;
+
+import com.weitzel.trustychain.chain.ProductChain;
+import com.weitzel.trustychain.chain.TrackingService;
+import com.weitzel.trustychain.chain.dto.ChainLinkDTO;
+import com.weitzel.trustychain.chain.store.ChainStore;
+import com.weitzel.trustychain.common.metrics.ChainMetrics;
+import com.weitzel.trustychain.common.service.HashService;
+import com.weitzel.trustychain.common.service.RsaKeyPairPool;
+import com.weitzel.trustychain.common.service.SignedTimestamp;
+import com.weitzel.trustychain.common.service.TimestampService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+// builds the services the way Spring would, without a context
+final class Fixtures {
+    static final String ACTOR = "Fazenda Boa Vista";
+    static final String PRODUCT_CODE = "CAFE-2024-001";
+
+    private Fixtures() {
+    }
+
+    static KeyPair rsaKeyPair() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            return generator.generateKeyPair();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String pem(KeyPair keyPair) {
+        return "-----BEGIN PUBLIC KEY-----\n"
+                + Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII))
+                        .encodeToString(keyPair.getPublic().getEncoded())
+                + "\n-----END PUBLIC KEY-----";
+    }
+
+    static String sign(KeyPair keyPair, String data) {
+        try {
+            Signature signer = Signature.getInstance("SHA256withRSA");
+            signer.initSign(keyPair.getPrivate());
+            signer.update(data.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(signer.sign());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // no key paths configured, so init() generates a fresh pair like a dev server does
+    static TimestampService timestampService() {
+        TimestampService timestampService = new TimestampService();
+        timestampService.init();
+        return timestampService;
+    }
+
+    static ChainMetrics chainMetrics() {
+        return new ChainMetrics(new SimpleMeterRegistry());
+    }
+
+    // no refill threads, the benchmarks never create actors
+    static RsaKeyPairPool rsaKeyPairPool() {
+        return new RsaKeyPairPool(0, 0, 2048, Duration.ZERO, new SimpleMeterRegistry());
+    }
+
+    static TrackingService trackingService() {
+        TrackingService trackingService = new TrackingService(chainMetrics());
+        setField(trackingService, "baseUrl", "https://trustychain.example.com");
+        return trackingService;
+    }
+
+    // a valid chain exactly as registerEvent would have produced it; signing runs in parallel, hashing can't
+    static List<ChainLinkDTO> chain(int length, KeyPair actorKeys, TimestampService timestampService) {
+        HashService hashService = new HashService();
+        String publicKey = pem(actorKeys);
+        String[] hashes = new String[length];
+        String previous = null;
+        for (int i = 0; i < length; i++) {
+            hashes[i] = hashService.calculateIntegrityHash(previous, ACTOR, PRODUCT_CODE, eventType(i), metadata(i));
+            previous = hashes[i];
+        }
+
+        return IntStream.range(0, length).parallel().mapToObj(i -> {
+            String previousHash = i == 0 ? null : hashes[i - 1];
+            String data = (previousHash == null ? "BEGIN" : previousHash)
+                    + ACTOR + PRODUCT_CODE + eventType(i) + metadata(i);
+            SignedTimestamp timestamp = timestampService.signTimestamp(hashes[i]);
+            return new ChainLinkDTO(ACTOR, PRODUCT_CODE, eventType(i), metadata(i), previousHash, hashes[i],
+                    sign(actorKeys, data), publicKey, timestamp.timestamp(), timestamp.signature());
+        }).toList();
+    }
+
+    // only scan is needed for verifyChainIntegrity
+    static ChainStore inMemoryStore(List<ChainLinkDTO> events) {
+        return new ChainStore() {
+            @Override
+            public Optional<String> findHeadHash(String productCode) {
+                return events.isEmpty() ? Optional.empty() : Optional.of(events.get(events.size() - 1).currentHash());
+            }
+
+            @Override
+            public ProductChain append(ProductChain event) {
+                throw new UnsupportedOperationException("read-only benchmark store");
+            }
+
+            @Override
+            public List<ChainLinkDTO> scan(String productCode) {
+                return PRODUCT_CODE.equals(productCode) ? events : new ArrayList<>();
+            }
+
+            @Override
+            public boolean exists(String productCode) {
+                return PRODUCT_CODE.equals(productCode);
+            }
+
+            @Override
+            public long count(String productCode) {
+                return scan(productCode).size();
+            }
+
+            @Override
+            public void forEachProductCode(Consumer<String> consumer) {
+                consumer.accept(PRODUCT_CODE);
+            }
+        };
+    }
+
+    static String eventType(int index) {
+        return switch (index % 4) {
+            case 0 -> "HARVEST";
+            case 1 -> "PROCESS";
+            case 2 -> "SHIP";
+            default -> "RECEIVE";
+        };
+    }
+
+    static String metadata(int index) {
+        return "{\"lot\":" + index + ",\"temperature\":21.5,\"location\":\"Minas Gerais\"}";
+    }
+
+    private static void setField(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.weitzel.trustychain.benchmarks;
+
+import com.weitzel.trustychain.common.service.HashService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HashServiceBenchmark {
+    private final HashService hashService = new HashService();
+    private final String previousHash = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    @Param({ "0", "64", "1024" })
+    public int metadataLength;
+
+    private String metadata;
+
+    @Setup
+    public void setUp() {
+        metadata = "x".repeat(metadataLength);
+    }
+
+    @Benchmark
+    public String calculateIntegrityHash() {
+        return hashService.calculateIntegrityHash(previousHash, Fixtures.ACTOR, Fixtures.PRODUCT_CODE, "SHIP", metadata);
+    }
+
+    @Benchmark
+    public String calculateGenesisHash() {
+        return hashService.calculateIntegrityHash(null, Fixtures.ACTOR, Fixtures.PRODUCT_CODE, "HARVEST", metadata);
+    }
+}
@@ -0,0 +1,96 @@
+package com.weitzel.trustychain.benchmarks;
+
+import com.weitzel.trustychain.common.service.CryptoBulkhead;
+import com.weitzel.trustychain.common.service.CryptoService;
+import com.weitzel.trustychain.common.service.TimestampService;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A burst of registerEvent-shaped requests (blocking waits standing in for the database, plus one signature
+ * verification and one timestamp signature) under the three request models:
+ * platform = Tomcat's default 200 thread pool, virtual = a virtual thread per request with crypto inline,
+ * virtual-bulkhead = virtual threads with crypto on the CryptoBulkhead pool (spring.threads.virtual.enabled).
+ * End to end numbers against the real app come from tools/LoadGenerator with VIRTUAL_THREADS=true/false.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestModelBenchmark {
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    @Param({ "platform", "virtual", "virtual-bulkhead" })
+    public String model;
+
+    // wait per request, split into two round trips like the actor/head lookups and the insert
+    @Param({ "2", "20" })
+    public int ioMillis;
+
+    @Param({ "1000" })
+    public int requests;
+
+    private final CryptoService cryptoService = new CryptoService();
+    private TimestampService timestampService;
+    private ExecutorService executor;
+    private CryptoBulkhead cryptoBulkhead;
+    private PublicKey publicKey;
+    private byte[] payload;
+    private String signature;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        KeyPair keyPair = Fixtures.rsaKeyPair();
+        publicKey = keyPair.getPublic();
+        String data = "BEGIN" + Fixtures.ACTOR + Fixtures.PRODUCT_CODE + "HARVEST" + Fixtures.metadata(0);
+        payload = data.getBytes(StandardCharsets.UTF_8);
+        signature = Fixtures.sign(keyPair, data);
+        timestampService = Fixtures.timestampService();
+
+        executor = model.equals("platform")
+                ? Executors.newFixedThreadPool(TOMCAT_MAX_THREADS)
+                : Executors.newVirtualThreadPerTaskExecutor();
+        cryptoBulkhead = new CryptoBulkhead(model.equals("virtual-bulkhead"), 0, requests);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+        cryptoBulkhead.destroy();
+    }
+
+    // time for the whole burst, requests / score = throughput
+    @Benchmark
+    public int burst() throws Exception {
+        List<Future<Boolean>> results = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            results.add(executor.submit(this::handle));
+        }
+        int valid = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    private boolean handle() throws InterruptedException {
+        Thread.sleep(ioMillis / 2);
+        boolean valid = cryptoBulkhead.call(() -> cryptoService.verifySignature(payload, signature, publicKey));
+        cryptoBulkhead.call(() -> timestampService.signTimestamp("hash"));
+        Thread.sleep(ioMillis - ioMillis / 2);
+        return valid;
+    }
+}
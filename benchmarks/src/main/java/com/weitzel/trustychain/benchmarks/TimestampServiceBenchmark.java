@@ -0,0 +1,36 @@
+package com.weitzel.trustychain.benchmarks;
+
+import com.weitzel.trustychain.common.service.SignedTimestamp;
+import com.weitzel.trustychain.common.service.TimestampService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimestampServiceBenchmark {
+    private static final String HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    private TimestampService timestampService;
+    private SignedTimestamp signedTimestamp;
+
+    @Setup
+    public void setUp() {
+        timestampService = Fixtures.timestampService();
+        signedTimestamp = timestampService.signTimestamp(HASH);
+    }
+
+    @Benchmark
+    public SignedTimestamp signTimestamp() {
+        return timestampService.signTimestamp(HASH);
+    }
+
+    @Benchmark
+    public boolean verifyTimestamp() {
+        return timestampService.verifyTimestamp(HASH, signedTimestamp);
+    }
+}
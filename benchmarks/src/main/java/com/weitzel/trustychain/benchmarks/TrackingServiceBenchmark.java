@@ -0,0 +1,33 @@
+package com.weitzel.trustychain.benchmarks;
+
+import com.weitzel.trustychain.chain.QrFormat;
+import com.weitzel.trustychain.chain.TrackingService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrackingServiceBenchmark {
+    private TrackingService trackingService;
+
+    @Param({ "150", "300", "600" })
+    public int size;
+
+    @Param({ "PNG", "SVG" })
+    public QrFormat format;
+
+    @Setup
+    public void setUp() {
+        trackingService = Fixtures.trackingService();
+    }
+
+    @Benchmark
+    public byte[] generateQRCode() {
+        return trackingService.generateQRCode(Fixtures.PRODUCT_CODE, size, format);
+    }
+}
@@ -0,0 +1,49 @@
+package com.weitzel.trustychain.benchmarks;
+
+import com.weitzel.trustychain.chain.ProductChainService;
+import com.weitzel.trustychain.chain.store.ProductCodeFilter;
+import com.weitzel.trustychain.common.service.CryptoBulkhead;
+import com.weitzel.trustychain.common.service.CryptoService;
+import com.weitzel.trustychain.common.service.HashService;
+import com.weitzel.trustychain.common.service.TimestampService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// verifyChainIntegrity over an in-memory ChainStore, so only hashing and crypto are measured, not the database
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VerifyChainBenchmark {
+
+    @Param({ "10", "100", "1000", "10000", "100000" })
+    public int chainLength;
+
+    private ProductChainService productChainService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TimestampService timestampService = Fixtures.timestampService();
+        productChainService = new ProductChainService(
+                Fixtures.inMemoryStore(Fixtures.chain(chainLength, Fixtures.rsaKeyPair(), timestampService)),
+                null,
+                new HashService(),
+                new CryptoService(),
+                timestampService,
+                Fixtures.chainMetrics(),
+                new CryptoBulkhead(false, 0, 0),
+                new ProductCodeFilter(null, Fixtures.chainMetrics(), false, 0, 0.01),
+                Fixtures.rsaKeyPairPool());
+        if (!productChainService.verifyChainIntegrity(Fixtures.PRODUCT_CODE)) {
+            throw new IllegalStateException("Generated chain does not verify");
+        }
+    }
+
+    @Benchmark
+    public boolean verifyChainIntegrity() {
+        return productChainService.verifyChainIntegrity(Fixtures.PRODUCT_CODE);
+    }
+}
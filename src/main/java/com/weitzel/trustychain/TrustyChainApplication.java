@@ -2,10 +2,14 @@ package com.weitzel.trustychain;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
 
-@SpringBootApplication
+// R2DBC is wired by R2dbcConfig for the reactive read path only, Boot's version would demand a url and
+// register a second transaction manager next to JPA's
+@SpringBootApplication(exclude = { R2dbcAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class })
 public class TrustyChainApplication {
     public static void main(String[] args) {
         SpringApplication.run(TrustyChainApplication.class, args);
     }
-}
\ No newline at end of file
+}
@@ -1,11 +1,13 @@
 package com.weitzel.trustychain.actor;
 
 import com.weitzel.trustychain.actor.dto.ActorRequest;
+import com.weitzel.trustychain.auth.PrincipalCache;
 import com.weitzel.trustychain.chain.ProductChain;
 import com.weitzel.trustychain.chain.ProductChainRepository;
 import com.weitzel.trustychain.common.exception.Exceptions;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.UUID;
@@ -15,14 +17,17 @@ public class ActorService {
     private final ActorRepository actorRepository;
     private final ProductChainRepository productChainRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PrincipalCache principalCache;
 
     public ActorService(ActorRepository actorRepository, ProductChainRepository productChainRepository,
-            PasswordEncoder passwordEncoder) {
+            PasswordEncoder passwordEncoder, PrincipalCache principalCache) {
         this.actorRepository = actorRepository;
         this.productChainRepository = productChainRepository;
         this.passwordEncoder = passwordEncoder;
+        this.principalCache = principalCache;
     }
 
+    @Transactional
     public Actor registerActor(String name, String username, String password, String role, String publicKey) {
         if (actorRepository.findByName(name).isPresent()) {
             throw new Exceptions.ActorAlreadyExistsException("Actor with this name already exists");
@@ -39,24 +44,30 @@ public class ActorService {
         return actorRepository.save(newActor);
     }
 
+    @Transactional(readOnly = true)
     public List<ProductChain> getEventsByActor(UUID actorId) {
         Actor actor = actorRepository.findById(actorId)
                 .orElseThrow(() -> new Exceptions.ActorNotFoundException("Actor not found"));
         return productChainRepository.findByActor(actor.getName());
     }
 
+    @Transactional(readOnly = true)
     public List<Actor> findAllActors() {
         return actorRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public Actor findActorById(UUID actorId) {
         return actorRepository.findById(actorId)
                 .orElseThrow(() -> new Exceptions.ActorNotFoundException("Actor not found"));
     }
 
+    @Transactional
     public Actor updateActor(UUID actorId, ActorRequest actorDetails) {
         Actor actor = actorRepository.findById(actorId)
                 .orElseThrow(() -> new Exceptions.ActorNotFoundException("Actor not found"));
+        // the old username, it may be changed below
+        principalCache.invalidate(actor.getUsername());
 
         if (actorDetails.name() != null) {
             actorRepository.findByName(actorDetails.name()).ifPresent(existingActor -> {
@@ -88,10 +99,11 @@ public class ActorService {
         return actorRepository.save(actor);
     }
 
+    @Transactional
     public void deleteActor(UUID actorId) {
-        if (!actorRepository.existsById(actorId)) {
-            throw new Exceptions.ActorNotFoundException("Actor not found");
-        }
-        actorRepository.deleteById(actorId);
+        Actor actor = actorRepository.findById(actorId)
+                .orElseThrow(() -> new Exceptions.ActorNotFoundException("Actor not found"));
+        principalCache.invalidate(actor.getUsername());
+        actorRepository.delete(actor);
     }
 }
\ No newline at end of file
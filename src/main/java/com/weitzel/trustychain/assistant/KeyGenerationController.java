@@ -1,26 +1,30 @@
 package com.weitzel.trustychain.assistant;
 
+import com.weitzel.trustychain.common.service.RsaKeyPairPool;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.security.KeyPair;
-import java.security.KeyPairGenerator;
 import java.util.Base64;
 
 @RestController
 @RequestMapping("/api/key-generation")
 @Tag(name = "Key Generation", description = "RSA key generation and signing")
 public class KeyGenerationController {
+    private final RsaKeyPairPool rsaKeyPairPool;
+
+    public KeyGenerationController(RsaKeyPairPool rsaKeyPairPool) {
+        this.rsaKeyPairPool = rsaKeyPairPool;
+    }
 
     @GetMapping
-    @Operation(summary = "Generate RSA key pair", description = "Generates a new 2048-bit RSA key pair in PEM format")
+    @Operation(summary = "Generate RSA key pair", description = "Generates a new RSA key pair in PEM format, trustychain.crypto.key-pool.key-size bits long")
     public ResponseEntity<KeyPairResponse> generateKeyPair() {
         try {
-            KeyPairGenerator keyGen = KeyPairGenerator.getInstance("RSA");
-            keyGen.initialize(2048);
-            KeyPair keyPair = keyGen.generateKeyPair();
+            // every pair is handed out once, the pool never returns the same one twice
+            KeyPair keyPair = rsaKeyPairPool.take();
 
             String publicKeyPem = formatToPem(keyPair.getPublic().getEncoded(), "PUBLIC KEY");
             String privateKeyPem = formatToPem(keyPair.getPrivate().getEncoded(), "PRIVATE KEY");
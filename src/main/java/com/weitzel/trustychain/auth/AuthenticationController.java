@@ -3,9 +3,11 @@ package com.weitzel.trustychain.auth;
 import com.weitzel.trustychain.auth.dto.LoginRequest;
 import com.weitzel.trustychain.auth.dto.LoginResponse;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -24,4 +26,12 @@ public class AuthenticationController {
         String token = authenticationService.authenticate(request.username(), request.password());
         return ResponseEntity.ok(new LoginResponse(token));
     }
-}
\ No newline at end of file
+
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization) {
+        if (authorization.startsWith("Bearer ")) {
+            authenticationService.logout(authorization.substring(7));
+        }
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,5 +1,6 @@
 package com.weitzel.trustychain.auth;
 
+import io.jsonwebtoken.JwtException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -10,15 +11,28 @@ public class AuthenticationService {
 
     private final AuthenticationManager authenticationManager;
     private final JwtService jwtService;
+    private final PasswordHashingExecutor passwordHashing;
 
-    public AuthenticationService(AuthenticationManager authenticationManager, JwtService jwtService) {
+    public AuthenticationService(AuthenticationManager authenticationManager, JwtService jwtService,
+            PasswordHashingExecutor passwordHashing) {
         this.authenticationManager = authenticationManager;
         this.jwtService = jwtService;
+        this.passwordHashing = passwordHashing;
     }
 
     public String authenticate(String username, String password) {
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(username, password));
+        // the bcrypt check runs on the bounded hashing pool, not on the request thread
+        Authentication authentication = passwordHashing.call(() -> authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken(username, password)));
         return jwtService.generateToken(authentication);
     }
-}
\ No newline at end of file
+
+    // the token stops working on this instance right away, other instances accept it until it expires
+    public void logout(String token) {
+        try {
+            jwtService.revoke(token);
+        } catch (JwtException e) {
+            // expired or already revoked, nothing left to do
+        }
+    }
+}
@@ -1,19 +1,35 @@
 package com.weitzel.trustychain.auth;
 
+import com.weitzel.trustychain.actor.Actor;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,7 +43,34 @@ public class JwtService {
     @Value("${jwt.expiration:86400000}")
     private long expiration;
 
+    // verified tokens kept, 0 turns the cache off
+    @Value("${jwt.cache.max-tokens:10000}")
+    private int cacheSize;
+
+    // requests are authenticated from the token claims alone, without loading the actor
+    @Value("${jwt.stateless.enabled:false}")
+    private boolean stateless;
+
+    // token lifetime in stateless mode, kept short since role changes only apply to new tokens
+    @Value("${jwt.stateless.expiration:900000}")
+    private long statelessExpiration;
+
+    // revoked token ids kept until the tokens expire, 0 turns revocation off
+    @Value("${jwt.revocation.max-entries:100000}")
+    private int maxRevocations;
+
+    // token id -> expiry in epoch millis, read without a lock on every request
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    // the same entries soonest expiry first, guarded by itself
+    private final TreeSet<Revocation> revokedByExpiry = new TreeSet<>(
+            Comparator.comparingLong(Revocation::expiresAt).thenComparing(Revocation::tokenId));
+
+    private record Revocation(long expiresAt, String tokenId) {
+    }
+
     private SecretKey secretKey;
+    private JwtParser parser;
+    private TokenCache cache;
 
     @PostConstruct
     public void init() {
@@ -39,31 +82,95 @@ public class JwtService {
             this.secretKey = Keys.hmacShaKeyFor(keyBytes);
             log.info("JWT secret loaded from configuration");
         }
+        // the parser is immutable and thread-safe, one is enough
+        this.parser = Jwts.parser().verifyWith(secretKey).build();
+        this.cache = cacheSize > 0
+                ? new TokenCache(cacheSize, Runtime.getRuntime().availableProcessors() * 16)
+                : null;
     }
 
     public String generateToken(Authentication authentication) {
         Date now = new Date();
-        Date expiryDate = new Date(now.getTime() + expiration);
+        Date expiryDate = new Date(now.getTime() + (stateless ? statelessExpiration : expiration));
 
         String authorities = authentication.getAuthorities().stream()
                 .map(GrantedAuthority::getAuthority)
                 .collect(Collectors.joining(","));
 
-        return Jwts.builder()
+        // the id lets a single token be revoked, the actor id saves stateless requests a lookup
+        var builder = Jwts.builder()
+                .id(UUID.randomUUID().toString())
                 .subject(authentication.getName())
-                .claim("auth", authorities)
+                .claim("auth", authorities);
+        if (authentication.getPrincipal() instanceof Actor actor && actor.getId() != null) {
+            builder.claim("aid", actor.getId().toString());
+        }
+        return builder
                 .issuedAt(now)
                 .expiration(expiryDate)
                 .signWith(secretKey)
                 .compact();
     }
 
+    public boolean isStateless() {
+        return stateless;
+    }
+
+    // the verified claims are trusted as they are, the actor is not loaded
+    public UsernamePasswordAuthenticationToken toAuthentication(Claims claims) {
+        String auth = claims.get("auth", String.class);
+        List<GrantedAuthority> authorities = auth == null || auth.isBlank()
+                ? List.of()
+                : AuthorityUtils.commaSeparatedStringToAuthorityList(auth);
+        String actorId = claims.get("aid", String.class);
+        TokenPrincipal principal = new TokenPrincipal(
+                actorId == null ? null : UUID.fromString(actorId), claims.getSubject());
+        return UsernamePasswordAuthenticationToken.authenticated(principal, null, authorities);
+    }
+
+    // throws JwtException if the token is not valid in the first place. When the set is full the revocation
+    // closest to expiry is dropped, that token is usable again for the shortest time of all
+    public void revoke(String token) {
+        if (maxRevocations <= 0) {
+            return;
+        }
+        Claims claims = getClaims(token);
+        if (claims.getId() == null || claims.getExpiration() == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Revocation revocation = new Revocation(claims.getExpiration().getTime(), claims.getId());
+        synchronized (revokedByExpiry) {
+            while (!revokedByExpiry.isEmpty()
+                    && (revokedByExpiry.first().expiresAt() <= now || revokedByExpiry.size() >= maxRevocations)) {
+                revoked.remove(revokedByExpiry.pollFirst().tokenId());
+            }
+            if (revokedByExpiry.add(revocation)) {
+                revoked.put(revocation.tokenId(), revocation.expiresAt());
+            }
+        }
+    }
+
+    // a token seen before is answered from the cache until it expires, so its signature is checked once
     public Claims getClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(secretKey)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        if (cache == null) {
+            return notRevoked(parser.parseSignedClaims(token).getPayload());
+        }
+        ByteBuffer digest = digest(token);
+        Claims cached = cache.get(digest, System.currentTimeMillis());
+        if (cached != null) {
+            return notRevoked(cached);
+        }
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        cache.put(digest, claims);
+        return notRevoked(claims);
+    }
+
+    private Claims notRevoked(Claims claims) {
+        if (!revoked.isEmpty() && claims.getId() != null && revoked.containsKey(claims.getId())) {
+            throw new JwtException("Token has been revoked");
+        }
+        return claims;
     }
 
     public boolean isTokenValid(String token) {
@@ -74,4 +181,72 @@ public class JwtService {
             return false;
         }
     }
-}
\ No newline at end of file
+
+    // keyed by SHA-256 of the token, so no usable bearer token sits in the heap
+    private static ByteBuffer digest(String token) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // verified claims striped by token digest like TokenBucketRateLimiter, each stripe an LRU under its own
+    // monitor, so concurrent requests rarely wait for each other. An entry is dropped once its token expires
+    private static final class TokenCache {
+        private final Stripe[] stripes;
+
+        TokenCache(int maxTokens, int stripeCount) {
+            // a power of two, so the stripe is picked with a mask
+            int count = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+            int tokensPerStripe = Math.max(16, maxTokens / count);
+            this.stripes = new Stripe[count];
+            for (int i = 0; i < count; i++) {
+                stripes[i] = new Stripe(tokensPerStripe);
+            }
+        }
+
+        Claims get(ByteBuffer digest, long now) {
+            Stripe stripe = stripe(digest);
+            synchronized (stripe) {
+                Claims claims = stripe.get(digest);
+                if (claims != null && claims.getExpiration().getTime() <= now) {
+                    stripe.remove(digest);
+                    return null;
+                }
+                return claims;
+            }
+        }
+
+        void put(ByteBuffer digest, Claims claims) {
+            if (claims.getExpiration() == null) {
+                return;
+            }
+            Stripe stripe = stripe(digest);
+            synchronized (stripe) {
+                stripe.put(digest, claims);
+            }
+        }
+
+        // SHA-256 bits are uniform, the first four bytes pick the stripe
+        private Stripe stripe(ByteBuffer digest) {
+            return stripes[digest.getInt(0) & (stripes.length - 1)];
+        }
+
+        // access-ordered, guarded by its own monitor
+        private static final class Stripe extends LinkedHashMap<ByteBuffer, Claims> {
+            private final int maxTokens;
+
+            Stripe(int maxTokens) {
+                super(64, 0.75f, true);
+                this.maxTokens = maxTokens;
+            }
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Claims> eldest) {
+                return size() > maxTokens;
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.weitzel.trustychain.auth;
+
+import com.weitzel.trustychain.common.exception.Exceptions;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs password checks on a small fixed pool, so a login storm keeps at most {@code threads} cores busy with
+ * bcrypt and at most {@code queue-capacity} request threads waiting for it. Logins beyond that are rejected
+ * right away with 503 and Retry-After, and so are queued logins that waited longer than {@code max-wait}, their
+ * clients have usually given up by then. Tracking and the other endpoints keep their threads and CPU.
+ */
+@Component
+public class PasswordHashingExecutor implements DisposableBean {
+    public static final String LOGIN = "trustychain.auth.login";
+    public static final String QUEUE_TIME = "trustychain.auth.login.queue";
+    public static final String QUEUE_DEPTH = "trustychain.auth.login.queue.depth";
+
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitNanos;
+    private final MeterRegistry registry;
+    private final Timer queueTime;
+
+    public PasswordHashingExecutor(@Value("${trustychain.auth.password-hashing.threads:0}") int threads,
+            @Value("${trustychain.auth.password-hashing.queue-capacity:64}") int queueCapacity,
+            @Value("${trustychain.auth.password-hashing.max-wait:PT5S}") Duration maxWait,
+            MeterRegistry registry) {
+        int size = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), task -> {
+                    Thread thread = new Thread(task, "password-hashing-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.maxWaitNanos = maxWait.toNanos();
+        this.registry = registry;
+        this.queueTime = Timer.builder(QUEUE_TIME)
+                .description("Time a login waited for a password hashing thread")
+                .publishPercentileHistogram()
+                .register(registry);
+        Gauge.builder(QUEUE_DEPTH, executor, e -> e.getQueue().size())
+                .description("Logins waiting for a password hashing thread")
+                .register(registry);
+    }
+
+    // rethrows what the task throws (BadCredentialsException and friends), ServiceBusyException when saturated
+    public <T> T call(Supplier<T> task) {
+        long submitted = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long waited = System.nanoTime() - submitted;
+                queueTime.record(waited, TimeUnit.NANOSECONDS);
+                if (waited > maxWaitNanos) {
+                    throw new Exceptions.ServiceBusyException("Login waited too long, try again");
+                }
+                return task.get();
+            });
+        } catch (RejectedExecutionException e) {
+            record("rejected", submitted);
+            throw new Exceptions.ServiceBusyException("Too many logins in progress, try again");
+        }
+
+        try {
+            T result = future.get();
+            record("success", submitted);
+            return result;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            record(cause instanceof Exceptions.ServiceBusyException ? "rejected" : "failure", submitted);
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a password hashing thread", e);
+        }
+    }
+
+    public int queueDepth() {
+        return executor.getQueue().size();
+    }
+
+    private void record(String outcome, long submitted) {
+        Timer.builder(LOGIN)
+                .description("Login latency including the wait for a password hashing thread")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
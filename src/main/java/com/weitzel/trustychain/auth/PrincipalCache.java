@@ -0,0 +1,124 @@
+package com.weitzel.trustychain.auth;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Principals of recently authenticated actors, so a request with a known token does not load the actor
+ * again. Only the username and authorities are kept, never the entity with its password hash and key.
+ * Entries live for {@code ttl}; ActorService drops them when an actor changes, other instances see the
+ * change once the entry expires.
+ */
+@Component
+public class PrincipalCache {
+    public static final String CACHE = "trustychain.auth.principal.cache";
+    public static final String CACHE_SIZE = "trustychain.auth.principal.cache.size";
+
+    private final UserDetailsService userDetailsService;
+    private final MeterRegistry registry;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final Map<String, Entry> entries;
+    // bumped by every invalidation, a load that overlapped one is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private record Entry(UserDetails principal, long expiresAt) {
+    }
+
+    @Autowired
+    public PrincipalCache(@Lazy UserDetailsService userDetailsService,
+            MeterRegistry registry,
+            @Value("${trustychain.auth.principal-cache.ttl:PT5M}") Duration ttl,
+            @Value("${trustychain.auth.principal-cache.max-entries:10000}") int maxEntries) {
+        this(userDetailsService, registry, ttl, maxEntries, System::nanoTime);
+    }
+
+    public PrincipalCache(UserDetailsService userDetailsService, MeterRegistry registry, Duration ttl,
+            int maxEntries, LongSupplier clock) {
+        this.userDetailsService = userDetailsService;
+        this.registry = registry;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        Gauge.builder(CACHE_SIZE, this, PrincipalCache::size)
+                .description("Authenticated principals held in memory")
+                .register(registry);
+    }
+
+    // throws UsernameNotFoundException like the UserDetailsService, unknown users are not cached
+    public UserDetails get(String username) {
+        long now = clock.getAsLong();
+        synchronized (entries) {
+            Entry entry = entries.get(username);
+            if (entry != null && now - entry.expiresAt() < 0) {
+                registry.counter(CACHE, "result", "hit").increment();
+                return entry.principal();
+            }
+        }
+        registry.counter(CACHE, "result", "miss").increment();
+
+        long loadedIn = generation.get();
+        UserDetails actor = userDetailsService.loadUserByUsername(username);
+        UserDetails principal = User.withUsername(actor.getUsername())
+                .password("")
+                .authorities(actor.getAuthorities())
+                .accountExpired(!actor.isAccountNonExpired())
+                .accountLocked(!actor.isAccountNonLocked())
+                .credentialsExpired(!actor.isCredentialsNonExpired())
+                .disabled(!actor.isEnabled())
+                .build();
+        synchronized (entries) {
+            if (generation.get() == loadedIn) {
+                entries.put(username, new Entry(principal, now + ttlNanos));
+            }
+        }
+        return principal;
+    }
+
+    // right away, and again after the surrounding transaction commits, so a request that loads the actor
+    // in between cannot put the old state back
+    public void invalidate(String username) {
+        evict(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(username);
+                }
+            });
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private void evict(String username) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.remove(username);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.weitzel.trustychain.auth;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+import java.util.UUID;
+
+// principal of a stateless request, taken from the token claims. actorId is null for tokens issued
+// before it was added
+public record TokenPrincipal(UUID actorId, String username) implements AuthenticatedPrincipal {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
@@ -0,0 +1,42 @@
+package com.weitzel.trustychain.chain;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// keeps monthly product_chain partitions created ahead of time (see V4 migration). There is no default
+// partition, an insert past the last one fails, so months-ahead has to cover the longest possible outage
+@Component
+@ConditionalOnProperty(name = "trustychain.partitioning.maintenance-enabled", havingValue = "true")
+public class PartitionMaintenanceJob {
+    private static final Logger log = LoggerFactory.getLogger(PartitionMaintenanceJob.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int monthsAhead;
+
+    public PartitionMaintenanceJob(JdbcTemplate jdbcTemplate,
+            @Value("${trustychain.partitioning.months-ahead:3}") int monthsAhead) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = monthsAhead;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${trustychain.partitioning.cron:0 0 3 * * *}")
+    public void createUpcomingPartitions() {
+        try {
+            Integer created = jdbcTemplate.queryForObject(
+                    "SELECT create_product_chain_partitions(CURRENT_DATE, ?)", Integer.class, monthsAhead);
+            if (created != null && created > 0) {
+                log.info("Created {} product_chain partition(s)", created);
+            }
+        } catch (Exception e) {
+            log.error("Failed to create product_chain partitions", e);
+        }
+    }
+}
@@ -36,10 +36,10 @@ public class ProductChain {
     @Column(name = "current_hash", nullable = false)
     private String currentHash;
 
-    @Column(name = "signature", nullable = false)
+    @Column(name = "signature", nullable = false, columnDefinition = "TEXT")
     private String signature;
 
-    @Column(name = "public_key_snapshot", nullable = false)
+    @Column(name = "public_key_snapshot", nullable = false, columnDefinition = "TEXT")
     private String publicKeySnapshot;
 
     @Column(name = "created_at", nullable = false)
@@ -48,7 +48,7 @@ public class ProductChain {
     @Column(name = "trusted_timestamp", nullable = false)
     private LocalDateTime trustedTimestamp;
 
-    @Column(name = "timestamp_signature", nullable = false)
+    @Column(name = "timestamp_signature", nullable = false, columnDefinition = "TEXT")
     private String timestampSignature;
 
     // new event, timestamp grants proof of time
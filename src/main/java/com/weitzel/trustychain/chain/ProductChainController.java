@@ -3,29 +3,38 @@ package com.weitzel.trustychain.chain;
 import com.weitzel.trustychain.chain.dto.EventChainRequest;
 import com.weitzel.trustychain.chain.dto.TrackingResponse;
 import com.weitzel.trustychain.chain.dto.TrackingResponse.ChainEventDTO;
+import com.weitzel.trustychain.common.ratelimit.RateLimitInterceptor;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Duration;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/product-chain")
 @Tag(name = "Product Chain", description = "Product chain management and tracking")
 public class ProductChainController {
+    // the image for a product and size never changes, only a new base URL would change it (and its ETag)
+    public static final CacheControl QR_CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(30)).cachePublic();
+    // tracking and verify may be stored but have to be revalidated, which costs one head lookup
+    static final CacheControl CHAIN_CACHE_CONTROL = CacheControl.noCache().cachePublic();
 
     private final ProductChainService productChainService;
-    private final ProductChainRepository productChainRepository;
     private final TrackingService trackingService;
 
     public ProductChainController(ProductChainService productChainService,
-                                  ProductChainRepository productChainRepository,
                                   TrackingService trackingService) {
         this.productChainService = productChainService;
-        this.productChainRepository = productChainRepository;
         this.trackingService = trackingService;
     }
 
@@ -42,63 +51,110 @@ public class ProductChainController {
     }
 
     @GetMapping("/{productCode}")
-    @Operation(summary = "Get product tracking history", description = "Returns the complete chain history for a product")
-    public ResponseEntity<TrackingResponse> getProductTracking(@PathVariable String productCode) {
-        List<ProductChain> events = productChainRepository.findByProductCodeOrderByCreatedAtAsc(productCode);
+    @Operation(summary = "Get product tracking history", description = "Returns the complete chain history for a product, the ETag is the chain head hash")
+    public ResponseEntity<TrackingResponse> getProductTracking(@PathVariable String productCode, WebRequest request) {
+        String eTag = chainETag(productCode);
+        if (eTag != null && request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(CHAIN_CACHE_CONTROL).build();
+        }
+
+        List<ChainEventDTO> eventDTOs = productChainService.getTrackingEvents(productCode);
 
-        if (events.isEmpty()) {
+        if (eventDTOs.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
         boolean isValid = productChainService.verifyChainIntegrity(productCode);
-
-        List<ChainEventDTO> eventDTOs = events.stream()
-                .map(event -> new ChainEventDTO(
-                        event.getActor(),
-                        event.getEventType(),
-                        event.getMetadata(),
-                        event.getTrustedTimestamp(),
-                        event.getCurrentHash()))
-                .toList();
+        request.setAttribute(RateLimitInterceptor.VERIFIED_EVENTS, eventDTOs.size(), WebRequest.SCOPE_REQUEST);
 
         String qrCodeUrl = trackingService.generateQRCodeUrl(productCode);
 
-        return ResponseEntity.ok(new TrackingResponse(productCode, isValid, eventDTOs, qrCodeUrl));
+        return withETag(eTag).body(new TrackingResponse(productCode, isValid, eventDTOs, qrCodeUrl));
     }
 
     @GetMapping("/{productCode}/qr")
-    @Operation(summary = "Get QR code image", description = "Returns a QR code PNG image that links to the product tracking page")
+    @Operation(summary = "Get QR code image", description = "Returns a QR code PNG (or SVG with format=svg) that links to the product tracking page, size is one of trustychain.qr.sizes")
     public ResponseEntity<byte[]> getQRCode(
             @PathVariable String productCode,
-            @RequestParam(defaultValue = "300") int size) {
+            @RequestParam(defaultValue = "300") int size,
+            @RequestParam(defaultValue = "png") String format,
+            WebRequest request) {
+
+        QrFormat qrFormat = QrFormat.of(format);
+        trackingService.checkQRCodeSize(size);
+        // a matching ETag means the client saw the product before, chains are never deleted
+        String eTag = trackingService.qrCodeETag(productCode, size, qrFormat);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(QR_CACHE_CONTROL).build();
+        }
 
-        List<ProductChain> events = productChainRepository.findByProductCodeOrderByCreatedAtAsc(productCode);
-        if (events.isEmpty()) {
+        if (!productChainService.productExists(productCode)) {
             return ResponseEntity.notFound().build();
         }
 
-        byte[] qrCode = trackingService.generateQRCode(productCode, size, size);
+        byte[] qrCode = trackingService.qrCode(productCode, size, qrFormat);
 
         return ResponseEntity.ok()
-                .contentType(MediaType.IMAGE_PNG)
+                .contentType(qrFormat.mediaType())
+                .eTag(eTag)
+                .cacheControl(QR_CACHE_CONTROL)
                 .body(qrCode);
     }
 
+    @GetMapping("/{productCode}/bundle")
+    @Operation(summary = "Export proof bundle", description = "Streams a compact CBOR bundle with every event, the actor keys and the timestamp key for offline verification")
+    public ResponseEntity<StreamingResponseBody> getProofBundle(@PathVariable String productCode) {
+        if (!productChainService.productExists(productCode)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        StreamingResponseBody body = out -> productChainService.writeProofBundle(productCode, out);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ProofBundleWriter.MEDIA_TYPE))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(productCode + ".cbor").build().toString())
+                .body(body);
+    }
+
     @GetMapping("/{productCode}/verify")
-    @Operation(summary = "Verify chain integrity", description = "Verifies the integrity of the entire product chain")
-    public ResponseEntity<VerificationResult> verifyChain(@PathVariable String productCode) {
-        List<ProductChain> events = productChainRepository.findByProductCodeOrderByCreatedAtAsc(productCode);
+    @Operation(summary = "Verify chain integrity", description = "Verifies the integrity of the entire product chain, the ETag is the chain head hash")
+    public ResponseEntity<VerificationResult> verifyChain(@PathVariable String productCode, WebRequest request) {
+        String eTag = chainETag(productCode);
+        if (eTag != null && request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(CHAIN_CACHE_CONTROL).build();
+        }
 
-        if (events.isEmpty()) {
+        long eventCount = productChainService.countEvents(productCode);
+
+        if (eventCount == 0) {
             return ResponseEntity.notFound().build();
         }
 
         boolean isValid = productChainService.verifyChainIntegrity(productCode);
-        int eventCount = events.size();
+        request.setAttribute(RateLimitInterceptor.VERIFIED_EVENTS, eventCount, WebRequest.SCOPE_REQUEST);
 
-        return ResponseEntity.ok(new VerificationResult(productCode, isValid, eventCount));
+        long legacyUnsigned = productChainService.countLegacyUnsignedEvents(productCode);
+        return withETag(eTag).body(new VerificationResult(productCode, isValid, eventCount, legacyUnsigned));
+    }
+
+    // the head hash covers every event before it, so it changes exactly when the chain does.
+    // Read before the chain itself: an append in between only costs the client one extra download.
+    private String chainETag(String productCode) {
+        return productChainService.findHeadHash(productCode)
+                .map(headHash -> '"' + headHash + '"')
+                .orElse(null);
+    }
+
+    private static ResponseEntity.BodyBuilder withETag(String eTag) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (eTag != null) {
+            response.eTag(eTag).cacheControl(CHAIN_CACHE_CONTROL);
+        }
+        return response;
     }
 
-    public record VerificationResult(String productCode, boolean isValid, int eventCount) {
+    // legacyUnsignedEvents were backfilled without an actor signature, see BackfillChainBuilder
+    public record VerificationResult(String productCode, boolean isValid, long eventCount, long legacyUnsignedEvents) {
     }
 }
\ No newline at end of file
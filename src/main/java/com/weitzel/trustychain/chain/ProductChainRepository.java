@@ -1,17 +1,101 @@
 package com.weitzel.trustychain.chain;
 
+import com.weitzel.trustychain.chain.dto.ChainLinkDTO;
+import com.weitzel.trustychain.chain.dto.TrackingResponse.ChainEventDTO;
 import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductChainRepository extends JpaRepository<ProductChain, UUID> {
-    Optional<ProductChain> findTopByProductCodeOrderByCreatedAtDesc(String productCode);
-
     List<ProductChain> findByProductCodeOrderByCreatedAtAsc(String productCode);
 
     List<ProductChain> findByActor(String actor);
-}
\ No newline at end of file
+
+    boolean existsByProductCode(String productCode);
+
+    long countByProductCode(String productCode);
+
+    long countByProductCodeAndSignature(String productCode, String signature);
+
+    // serializes appends to a chain until the transaction ends. Codes share 1024 lock buckets, so an import
+    // batch fits into the lock table. BackfillImporter.lockChains takes the same keys
+    @Query(value = "SELECT count(*) FROM pg_advisory_xact_lock(7321, hashtext(:productCode) & 1023)",
+            nativeQuery = true)
+    long lockChain(@Param("productCode") String productCode);
+
+    // one round trip: the recent window lets postgres prune the older trusted_timestamp partitions,
+    // the unbounded lookup only runs when the window had no row
+    @Query(value = """
+            SELECT COALESCE(
+                (SELECT current_hash FROM product_chain
+                 WHERE product_code = :productCode AND trusted_timestamp >= :since
+                 ORDER BY created_at DESC LIMIT 1),
+                (SELECT current_hash FROM product_chain
+                 WHERE product_code = :productCode
+                 ORDER BY created_at DESC LIMIT 1))
+            """, nativeQuery = true)
+    Optional<String> findHeadHash(@Param("productCode") String productCode,
+            @Param("since") LocalDateTime since);
+
+    // products whose latest event is one of the terminal types and older than sealedBefore
+    @Query(value = """
+            SELECT heads.product_code FROM (
+                SELECT DISTINCT ON (product_code) product_code, event_type, created_at
+                FROM product_chain
+                ORDER BY product_code, created_at DESC
+            ) heads
+            WHERE LOWER(heads.event_type) IN (:terminalEventTypes) AND heads.created_at < :sealedBefore
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<String> findSealedProductCodes(@Param("terminalEventTypes") Collection<String> terminalEventTypes,
+            @Param("sealedBefore") LocalDateTime sealedBefore,
+            @Param("limit") int limit);
+
+    // read-only projections: rows come back as plain records, never enter the persistence context
+    @Query("""
+            SELECT new com.weitzel.trustychain.chain.dto.TrackingResponse$ChainEventDTO(
+                p.actor, p.eventType, p.metadata, p.trustedTimestamp, p.currentHash)
+            FROM ProductChain p
+            WHERE p.productCode = :productCode
+            ORDER BY p.createdAt ASC
+            """)
+    List<ChainEventDTO> findTrackingEvents(@Param("productCode") String productCode);
+
+    @Query("""
+            SELECT new com.weitzel.trustychain.chain.dto.ChainLinkDTO(
+                p.actor, p.productCode, p.eventType, p.metadata, p.previousHash, p.currentHash,
+                p.signature, p.publicKeySnapshot, p.trustedTimestamp, p.timestampSignature)
+            FROM ProductChain p
+            WHERE p.productCode = :productCode
+            ORDER BY p.createdAt ASC
+            """)
+    List<ChainLinkDTO> findChainLinks(@Param("productCode") String productCode);
+
+    // walks the (product_code, created_at) index, fetched in large pages so a few million codes stream quickly
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+    @Query("SELECT DISTINCT p.productCode FROM ProductChain p")
+    Stream<String> streamProductCodes();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+            SELECT new com.weitzel.trustychain.chain.dto.ChainLinkDTO(
+                p.actor, p.productCode, p.eventType, p.metadata, p.previousHash, p.currentHash,
+                p.signature, p.publicKeySnapshot, p.trustedTimestamp, p.timestampSignature)
+            FROM ProductChain p
+            WHERE p.productCode = :productCode
+            ORDER BY p.createdAt ASC
+            """)
+    Stream<ChainLinkDTO> streamChainLinks(@Param("productCode") String productCode);
+}
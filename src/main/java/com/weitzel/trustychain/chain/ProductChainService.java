@@ -2,48 +2,74 @@ package com.weitzel.trustychain.chain;
 
 import com.weitzel.trustychain.actor.Actor;
 import com.weitzel.trustychain.actor.ActorRepository;
+import com.weitzel.trustychain.chain.backfill.BackfillChainBuilder;
+import com.weitzel.trustychain.chain.dto.ChainLinkDTO;
+import com.weitzel.trustychain.chain.dto.TrackingResponse.ChainEventDTO;
+import com.weitzel.trustychain.chain.store.ChainStore;
+import com.weitzel.trustychain.chain.store.ProductCodeFilter;
 import com.weitzel.trustychain.common.exception.Exceptions;
+import com.weitzel.trustychain.common.metrics.ChainMetrics;
+import com.weitzel.trustychain.common.service.CryptoBulkhead;
 import com.weitzel.trustychain.common.service.CryptoService;
 import com.weitzel.trustychain.common.service.HashService;
+import com.weitzel.trustychain.common.service.RsaKeyPairPool;
 import com.weitzel.trustychain.common.service.SignedTimestamp;
 import com.weitzel.trustychain.common.service.TimestampService;
-import jakarta.transaction.Transactional;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.security.PublicKey;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 
 @Service
 public class ProductChainService {
-    private final ProductChainRepository productChainRepository;
+    private final ChainStore chainStore;
     private final ActorRepository actorRepository;
     private final HashService hashService;
     private final CryptoService cryptoService;
     private final TimestampService timestampService;
+    private final ChainMetrics chainMetrics;
+    private final CryptoBulkhead cryptoBulkhead;
+    private final ProductCodeFilter productCodeFilter;
+    private final RsaKeyPairPool rsaKeyPairPool;
 
-    public ProductChainService(ProductChainRepository productChainRepository,
+    public ProductChainService(ChainStore chainStore,
             ActorRepository actorRepository,
             HashService hashService,
             CryptoService cryptoService,
-            TimestampService timestampService) {
-        this.productChainRepository = productChainRepository;
+            TimestampService timestampService,
+            ChainMetrics chainMetrics,
+            CryptoBulkhead cryptoBulkhead,
+            ProductCodeFilter productCodeFilter,
+            RsaKeyPairPool rsaKeyPairPool) {
+        this.chainStore = chainStore;
         this.actorRepository = actorRepository;
         this.hashService = hashService;
         this.cryptoService = cryptoService;
         this.timestampService = timestampService;
+        this.chainMetrics = chainMetrics;
+        this.cryptoBulkhead = cryptoBulkhead;
+        this.productCodeFilter = productCodeFilter;
+        this.rsaKeyPairPool = rsaKeyPairPool;
     }
 
     @Transactional
     public ProductChain registerEvent(String actorName, String productCode, String eventType,
             String metadata, String signatureBase64) {
-        Actor actor = actorRepository.findByName(actorName)
-                .orElseGet(() -> createDefaultActor(actorName));
+        Actor actor = chainMetrics.registerPhase("actor_lookup", () -> actorRepository.findByName(actorName)
+                .orElseGet(() -> createDefaultActor(actorName)));
 
-        String lastHash = productChainRepository.findTopByProductCodeOrderByCreatedAtDesc(productCode)
-                .map(ProductChain::getCurrentHash)
-                .orElse(null);
+        // a concurrent append or backfill import would otherwise link to the same head and fork the chain
+        String lastHash = chainMetrics.registerPhase("head_lookup", () -> {
+            chainStore.lockChain(productCode);
+            return chainStore.findHeadHash(productCode).orElse(null);
+        });
 
         String data = (lastHash == null ? "BEGIN" : lastHash)
                 + actorName
@@ -52,11 +78,12 @@ public class ProductChainService {
                 + metadata;
 
         PublicKey publicKey = cryptoService.loadPublicKeyFromPem(actor.getPublicKey());
-        
+
         // Bypass signature check for manual entry during testing
         if (!"manual-entry-v1".equals(signatureBase64)) {
-            boolean validSignature = cryptoService.verifySignature(
-                    data.getBytes(StandardCharsets.UTF_8), signatureBase64, publicKey);
+            boolean validSignature = chainMetrics.registerPhase("signature_verification",
+                    () -> cryptoBulkhead.call(() -> cryptoService.verifySignature(
+                            data.getBytes(StandardCharsets.UTF_8), signatureBase64, publicKey)));
 
             if (!validSignature) {
                 throw new Exceptions.InvalidSignatureException(
@@ -64,24 +91,30 @@ public class ProductChainService {
             }
         }
 
-        String currentHash = hashService.calculateIntegrityHash(
-                lastHash, actorName, productCode, eventType, metadata);
+        String currentHash = chainMetrics.registerPhase("hashing", () -> hashService.calculateIntegrityHash(
+                lastHash, actorName, productCode, eventType, metadata));
 
-        SignedTimestamp signedTimestamp = timestampService.signTimestamp(currentHash);
+        SignedTimestamp signedTimestamp = chainMetrics.registerPhase("timestamp_signing",
+                () -> cryptoBulkhead.call(() -> timestampService.signTimestamp(currentHash)));
 
         ProductChain productChain = new ProductChain(
                 actorName, productCode, eventType, metadata,
                 lastHash, signatureBase64, actor.getPublicKey(), currentHash,
                 signedTimestamp.timestamp(), signedTimestamp.signature());
 
-        return productChainRepository.save(productChain);
+        ProductChain saved = chainMetrics.registerPhase("save", () -> chainStore.append(productChain));
+        productCodeFilter.add(productCode);
+        if (lastHash == null) {
+            // a new product, the other instances' filters pick it up on their next refresh
+            chainStore.productCodesAdded();
+        }
+        return saved;
     }
 
     private Actor createDefaultActor(String actorName) {
         try {
-            java.security.KeyPairGenerator kpg = java.security.KeyPairGenerator.getInstance("RSA");
-            kpg.initialize(2048);
-            java.security.KeyPair kp = kpg.generateKeyPair();
+            // a ready pair from the pool, so the registerEvent transaction doesn't wait for key generation
+            java.security.KeyPair kp = rsaKeyPairPool.take();
             String publicKey = java.util.Base64.getEncoder().encodeToString(kp.getPublic().getEncoded());
 
             Actor actor = new Actor();
@@ -97,60 +130,147 @@ public class ProductChainService {
         }
     }
 
+    @Transactional(readOnly = true)
+    public List<ChainEventDTO> getTrackingEvents(String productCode) {
+        if (!productCodeFilter.mightExist(productCode)) {
+            return List.of();
+        }
+        return chainStore.scanTrackingEvents(productCode);
+    }
+
+    // currentHash of the newest event, a single index lookup that changes exactly when the chain does
+    @Transactional(readOnly = true)
+    public Optional<String> findHeadHash(String productCode) {
+        if (!productCodeFilter.mightExist(productCode)) {
+            return Optional.empty();
+        }
+        return chainStore.findHeadHash(productCode);
+    }
+
+    @Transactional(readOnly = true)
+    public boolean productExists(String productCode) {
+        return productCodeFilter.mightExist(productCode) && chainStore.exists(productCode);
+    }
+
+    @Transactional(readOnly = true)
+    public long countEvents(String productCode) {
+        if (!productCodeFilter.mightExist(productCode)) {
+            return 0;
+        }
+        return chainStore.count(productCode);
+    }
+
+    // streams the chain straight from the store into a CBOR bundle, see ProofBundleWriter for the layout
+    @Transactional(readOnly = true)
+    public void writeProofBundle(String productCode, OutputStream out) throws IOException {
+        try (ProofBundleWriter writer = new ProofBundleWriter(out, productCode, timestampService.getPublicKeyPem())) {
+            chainStore.forEachLink(productCode, event -> {
+                try {
+                    writer.writeEvent(event);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // events a backfill imported without a signature, verification accepts them but reports how many there are
+    @Transactional(readOnly = true)
+    public long countLegacyUnsignedEvents(String productCode) {
+        if (!productCodeFilter.mightExist(productCode)) {
+            return 0;
+        }
+        return chainStore.countBySignature(productCode, BackfillChainBuilder.LEGACY_UNSIGNED);
+    }
+
+    @Transactional(readOnly = true)
     public boolean verifyChainIntegrity(String productCode) {
-        List<ProductChain> events = productChainRepository.findByProductCodeOrderByCreatedAtAsc(productCode);
+        return chainMetrics.verification(() -> findIntegrityFailure(productCode));
+    }
+
+    // null when the chain is intact, otherwise the reason, used as a metric tag
+    private String findIntegrityFailure(String productCode) {
+        if (!productCodeFilter.mightExist(productCode)) {
+            return "empty_chain";
+        }
+        List<ChainLinkDTO> events = chainMetrics.verifyPhase("load", () -> chainStore.scan(productCode));
 
         if (events.isEmpty()) {
-            return false;
+            return "empty_chain";
         }
 
+        // one bulkhead hop for the whole chain instead of one per signature
+        return cryptoBulkhead.call(() -> checkEvents(events));
+    }
+
+    private String checkEvents(List<ChainLinkDTO> events) {
         String previousHash = null;
 
-        for (ProductChain event : events) {
-            if (!Objects.equals(event.getPreviousHash(), previousHash)) {
-                return false;
+        for (ChainLinkDTO event : events) {
+            String failure = checkLink(previousHash, event);
+            if (failure != null) {
+                return failure;
             }
+            previousHash = event.currentHash();
+        }
 
-            try {
-                String expectedHash = hashService.calculateIntegrityHash(
-                        previousHash, event.getActor(), event.getProductCode(),
-                        event.getEventType(), event.getMetadata());
+        return null;
+    }
 
-                if (!expectedHash.equals(event.getCurrentHash())) {
-                    return false;
-                }
+    // checks one event against the hash of the one before it (null for the first), null when it holds,
+    // otherwise the failure reason. Also used by the reactive read path, which verifies events as they arrive.
+    public String checkLink(String previousHash, ChainLinkDTO event) {
+        chainMetrics.eventVerified();
+        if (!Objects.equals(event.previousHash(), previousHash)) {
+            return "broken_link";
+        }
 
-                PublicKey publicKey = cryptoService.loadPublicKeyFromPem(event.getPublicKeySnapshot());
-                String data = (previousHash == null ? "BEGIN" : previousHash)
-                        + event.getActor()
-                        + event.getProductCode()
-                        + event.getEventType()
-                        + event.getMetadata();
-
-                boolean validSignature;
-                if ("manual-entry-v1".equals(event.getSignature())) {
-                    validSignature = true;
-                } else {
-                    validSignature = cryptoService.verifySignature(
-                            data.getBytes(StandardCharsets.UTF_8), event.getSignature(), publicKey);
-                }
+        try {
+            String expectedHash = chainMetrics.verifyPhase("hashing", () -> hashService.calculateIntegrityHash(
+                    previousHash, event.actor(), event.productCode(),
+                    event.eventType(), event.metadata()));
 
-                if (!validSignature) {
-                    return false;
-                }
+            if (!expectedHash.equals(event.currentHash())) {
+                return "hash_mismatch";
+            }
 
-                SignedTimestamp signedTimestamp = new SignedTimestamp(
-                        event.getTrustedTimestamp(), event.getTimestampSignature());
-                if (!timestampService.verifyTimestamp(event.getCurrentHash(), signedTimestamp)) {
-                    return false;
-                }
-            } catch (Exception e) {
-                return false;
+            PublicKey publicKey = cryptoService.loadPublicKeyFromPem(event.publicKeySnapshot());
+            String data = (previousHash == null ? "BEGIN" : previousHash)
+                    + event.actor()
+                    + event.productCode()
+                    + event.eventType()
+                    + event.metadata();
+
+            boolean validSignature;
+            if ("manual-entry-v1".equals(event.signature())) {
+                validSignature = true;
+            } else if (BackfillChainBuilder.LEGACY_UNSIGNED.equals(event.signature())) {
+                // imported without a signature, the hash and trusted timestamp still hold it in place
+                chainMetrics.legacyUnsignedEventVerified();
+                validSignature = true;
+            } else {
+                validSignature = chainMetrics.verifyPhase("signature_verification",
+                        () -> cryptoService.verifySignature(
+                                data.getBytes(StandardCharsets.UTF_8), event.signature(), publicKey));
             }
 
-            previousHash = event.getCurrentHash();
+            if (!validSignature) {
+                return "invalid_signature";
+            }
+
+            SignedTimestamp signedTimestamp = new SignedTimestamp(
+                    event.trustedTimestamp(), event.timestampSignature());
+            boolean validTimestamp = chainMetrics.verifyPhase("timestamp_verification",
+                    () -> timestampService.verifyTimestamp(event.currentHash(), signedTimestamp));
+            if (!validTimestamp) {
+                return "invalid_timestamp";
+            }
+        } catch (Exception e) {
+            return "error";
         }
 
-        return true;
+        return null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,25 @@
+package com.weitzel.trustychain.chain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// single row counting the writes that added product codes, see ProductCodeFilter.refresh
+@Entity
+@Table(name = "product_code_generation")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductCodeGeneration {
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+
+    @Column(name = "generation", nullable = false)
+    private long generation;
+}
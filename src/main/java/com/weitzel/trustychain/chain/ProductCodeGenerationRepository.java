@@ -0,0 +1,21 @@
+package com.weitzel.trustychain.chain;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ProductCodeGenerationRepository extends JpaRepository<ProductCodeGeneration, Integer> {
+
+    // part of the transaction that adds the codes, so a reader that sees the new generation also sees the rows
+    @Modifying
+    @Query("UPDATE ProductCodeGeneration g SET g.generation = g.generation + 1 WHERE g.id = "
+            + ProductCodeGeneration.ID)
+    int increment();
+
+    @Query("SELECT g.generation FROM ProductCodeGeneration g WHERE g.id = " + ProductCodeGeneration.ID)
+    Optional<Long> current();
+}
@@ -0,0 +1,146 @@
+package com.weitzel.trustychain.chain;
+
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.weitzel.trustychain.chain.dto.ChainLinkDTO;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Writes a self-contained CBOR proof bundle, one event at a time.
+ * <pre>
+ * {
+ *   "format": "trustychain-bundle", "version": 1, "productCode": text,
+ *   "timestampKey": bytes,                 DER public key of the server timestamp signer
+ *   "events": [                            indefinite length, chain order
+ *     { "a": actor, "t": eventType, "m": metadata or null,
+ *       "p": previousHash or null, "h": currentHash,
+ *       "s": actor signature,
+ *       "k": key index, "K": DER public key, only on the first event using that key,
+ *       "ts": trusted timestamp in microseconds since the epoch (UTC), "tss": timestamp signature }
+ *   ]
+ * }
+ * </pre>
+ * Hashes, signatures and keys are raw bytes when they decode as hex/base64 and text otherwise
+ * (e.g. "manual-entry-v1"). Keys are deduplicated, so a reader that streams the events has every key
+ * by the time it is referenced.
+ */
+public class ProofBundleWriter implements AutoCloseable {
+    public static final String MEDIA_TYPE = "application/cbor";
+    public static final String FORMAT = "trustychain-bundle";
+    public static final int VERSION = 1;
+
+    private static final CBORFactory CBOR_FACTORY = CBORFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .enable(CBORGenerator.Feature.WRITE_MINIMAL_INTS)
+            .build();
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final CBORGenerator generator;
+    private final Map<String, Integer> keyIndexes = new HashMap<>();
+
+    public ProofBundleWriter(OutputStream out, String productCode, String timestampKeyPem) throws IOException {
+        this.generator = (CBORGenerator) CBOR_FACTORY.createGenerator(out);
+        generator.writeStartObject();
+        generator.writeStringField("format", FORMAT);
+        generator.writeNumberField("version", VERSION);
+        generator.writeStringField("productCode", productCode);
+        generator.writeFieldName("timestampKey");
+        writeBase64OrText(normalizeKey(timestampKeyPem));
+        generator.writeFieldName("events");
+        generator.writeStartArray();
+    }
+
+    public void writeEvent(ChainLinkDTO event) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("a", event.actor());
+        generator.writeStringField("t", event.eventType());
+        generator.writeStringField("m", event.metadata());
+        generator.writeFieldName("p");
+        writeHexOrText(event.previousHash());
+        generator.writeFieldName("h");
+        writeHexOrText(event.currentHash());
+        generator.writeFieldName("s");
+        writeBase64OrText(event.signature());
+
+        String key = normalizeKey(event.publicKeySnapshot());
+        Integer index = keyIndexes.get(key);
+        if (index == null) {
+            index = keyIndexes.size();
+            keyIndexes.put(key, index);
+            generator.writeNumberField("k", index);
+            generator.writeFieldName("K");
+            writeBase64OrText(key);
+        } else {
+            generator.writeNumberField("k", index);
+        }
+
+        generator.writeNumberField("ts", toEpochMicros(event.trustedTimestamp()));
+        generator.writeFieldName("tss");
+        writeBase64OrText(event.timestampSignature());
+        generator.writeEndObject();
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.close();
+    }
+
+    static long toEpochMicros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1_000;
+    }
+
+    // same normalization CryptoService.loadPublicKeyFromPem applies before decoding
+    private static String normalizeKey(String pem) {
+        return pem
+                .replace("-----BEGIN PUBLIC KEY-----", "")
+                .replace("-----END PUBLIC KEY-----", "")
+                .replaceAll("\\s", "");
+    }
+
+    private void writeHexOrText(String value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (isLowerHex(value)) {
+            generator.writeBinary(HEX.parseHex(value));
+        } else {
+            generator.writeString(value);
+        }
+    }
+
+    // HashService only emits lowercase hex, anything else is kept verbatim
+    private static boolean isLowerHex(String value) {
+        return value.length() % 2 == 0
+                && value.chars().allMatch(c -> (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'));
+    }
+
+    private void writeBase64OrText(String value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+            return;
+        }
+        byte[] decoded;
+        try {
+            decoded = Base64.getDecoder().decode(value);
+        } catch (IllegalArgumentException e) {
+            generator.writeString(value);
+            return;
+        }
+        // only binary when the value round-trips, otherwise the verifier would rebuild a different string
+        if (Base64.getEncoder().encodeToString(decoded).equals(value)) {
+            generator.writeBinary(decoded);
+        } else {
+            generator.writeString(value);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.weitzel.trustychain.chain;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// rendered QR images by product code, size and format, least recently used ones go first once maxBytes is reached
+public class QrCodeCache {
+    private final long maxBytes;
+    private final LinkedHashMap<Key, byte[]> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+
+    private record Key(String productCode, int size, QrFormat format) {
+    }
+
+    public QrCodeCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized byte[] get(String productCode, int size, QrFormat format) {
+        return entries.get(new Key(productCode, size, format));
+    }
+
+    public synchronized void put(String productCode, int size, QrFormat format, byte[] image) {
+        if (image.length > maxBytes) {
+            return;
+        }
+        byte[] previous = entries.put(new Key(productCode, size, format), image);
+        bytes += image.length - (previous == null ? 0 : previous.length);
+
+        Iterator<Map.Entry<Key, byte[]>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().getValue().length;
+            eldest.remove();
+        }
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
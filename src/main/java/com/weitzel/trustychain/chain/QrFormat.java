@@ -0,0 +1,34 @@
+package com.weitzel.trustychain.chain;
+
+import com.weitzel.trustychain.common.exception.Exceptions;
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+public enum QrFormat {
+    PNG(MediaType.IMAGE_PNG),
+    SVG(MediaType.valueOf("image/svg+xml"));
+
+    private final MediaType mediaType;
+
+    QrFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    public String extension() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static QrFormat of(String name) {
+        for (QrFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new Exceptions.InvalidQrRequestException("Unsupported QR code format " + name + ", use png or svg");
+    }
+}
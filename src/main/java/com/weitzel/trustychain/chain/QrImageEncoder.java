@@ -0,0 +1,147 @@
+package com.weitzel.trustychain.chain;
+
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.google.zxing.qrcode.encoder.Encoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+
+// writes QR codes straight from the module matrix instead of going through BufferedImage and ImageIO.
+// Same layout as zxing's QRCodeWriter: error correction L, a 4 module quiet zone, modules scaled by the
+// largest whole multiple that fits and the rest split evenly as white padding.
+final class QrImageEncoder {
+    private static final int QUIET_ZONE = 4;
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    // palette index 0 is white and 1 black, so a set bit is a dark module
+    private static final byte[] PALETTE = {(byte) 0xff, (byte) 0xff, (byte) 0xff, 0, 0, 0};
+
+    private QrImageEncoder() {
+    }
+
+    static ByteMatrix modules(String contents) throws WriterException {
+        return Encoder.encode(contents, ErrorCorrectionLevel.L).getMatrix();
+    }
+
+    // 1-bit palette PNG, each scanline is built once per module row and repeated, deflate takes care of the rest
+    static byte[] png(ByteMatrix modules, int width, int height) {
+        int count = modules.getWidth();
+        int input = count + 2 * QUIET_ZONE;
+        int outputWidth = Math.max(width, input);
+        int outputHeight = Math.max(height, input);
+        int multiple = Math.min(outputWidth / input, outputHeight / input);
+        int left = (outputWidth - input * multiple) / 2 + QUIET_ZONE * multiple;
+        int top = (outputHeight - input * multiple) / 2 + QUIET_ZONE * multiple;
+
+        // every scanline starts with filter type 0 (none)
+        int lineLength = 1 + (outputWidth + 7) / 8;
+        byte[] blank = new byte[lineLength];
+        byte[] line = new byte[lineLength];
+
+        ByteArrayOutputStream pixels = new ByteArrayOutputStream(lineLength * 4);
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(pixels)) {
+            for (int y = 0; y < top; y++) {
+                deflater.write(blank);
+            }
+            for (int row = 0; row < count; row++) {
+                Arrays.fill(line, (byte) 0);
+                for (int column = 0; column < count; column++) {
+                    if (modules.get(column, row) == 1) {
+                        setBits(line, left + column * multiple, multiple);
+                    }
+                }
+                for (int repeat = 0; repeat < multiple; repeat++) {
+                    deflater.write(line);
+                }
+            }
+            for (int y = top + count * multiple; y < outputHeight; y++) {
+                deflater.write(blank);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to deflate QR code", e);
+        }
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream(pixels.size() + 80);
+        try {
+            png.write(PNG_SIGNATURE);
+            ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+            DataOutputStream headerData = new DataOutputStream(header);
+            headerData.writeInt(outputWidth);
+            headerData.writeInt(outputHeight);
+            headerData.writeByte(1); // bit depth
+            headerData.writeByte(3); // indexed colour
+            headerData.writeByte(0); // deflate
+            headerData.writeByte(0); // adaptive filtering
+            headerData.writeByte(0); // no interlace
+            writeChunk(png, "IHDR", header.toByteArray());
+            writeChunk(png, "PLTE", PALETTE);
+            writeChunk(png, "IDAT", pixels.toByteArray());
+            writeChunk(png, "IEND", new byte[0]);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write QR code", e);
+        }
+        return png.toByteArray();
+    }
+
+    // one stroked path with a horizontal line per run of dark modules, in module units scaled by the viewBox.
+    // Runs after the first in a row are relative moves, a tracking URL code is about 2 KB, 600 bytes gzipped.
+    static byte[] svg(ByteMatrix modules, int size) {
+        int count = modules.getWidth();
+        int input = count + 2 * QUIET_ZONE;
+        StringBuilder svg = new StringBuilder(4096)
+                .append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(size)
+                .append("\" height=\"").append(size)
+                .append("\" viewBox=\"0 0 ").append(input).append(' ').append(input)
+                .append("\" shape-rendering=\"crispEdges\"><rect width=\"").append(input)
+                .append("\" height=\"").append(input).append("\" fill=\"#fff\"/><path stroke=\"#000\" d=\"");
+        for (int row = 0; row < count; row++) {
+            int end = -1;
+            int column = 0;
+            while (column < count) {
+                if (modules.get(column, row) != 1) {
+                    column++;
+                    continue;
+                }
+                int start = column;
+                while (column < count && modules.get(column, row) == 1) {
+                    column++;
+                }
+                if (end < 0) {
+                    svg.append('M').append(start + QUIET_ZONE).append(' ').append(row + QUIET_ZONE).append(".5");
+                } else {
+                    svg.append('m').append(start - end).append(" 0");
+                }
+                svg.append('h').append(column - start);
+                end = column;
+            }
+        }
+        svg.append("\"/></svg>");
+        return svg.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // sets length bits starting at pixel x, the first pixel is the high bit of the byte after the filter byte
+    private static void setBits(byte[] line, int x, int length) {
+        for (int pixel = x; pixel < x + length; pixel++) {
+            line[1 + (pixel >> 3)] |= (byte) (0x80 >>> (pixel & 7));
+        }
+    }
+
+    private static void writeChunk(OutputStream out, String type, byte[] data) throws IOException {
+        DataOutputStream chunk = new DataOutputStream(out);
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        chunk.writeInt(data.length);
+        chunk.write(typeBytes);
+        chunk.write(data);
+        chunk.writeInt((int) crc.getValue());
+    }
+}
@@ -1,34 +1,102 @@
 package com.weitzel.trustychain.chain;
 
-import com.google.zxing.BarcodeFormat;
 import com.google.zxing.WriterException;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
-import com.google.zxing.common.BitMatrix;
-import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.weitzel.trustychain.common.exception.Exceptions;
+import com.weitzel.trustychain.common.metrics.ChainMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
 
 @Service
 public class TrackingService {
+    private final ChainMetrics chainMetrics;
+    private final int[] qrSizes;
+    private final QrCodeCache qrCodeCache;
 
     @Value("${trustychain.base-url:http://localhost:8080}")
     private String baseUrl;
 
     private static final int DEFAULT_QR_SIZE = 300;
+    private static final int[] DEFAULT_QR_SIZES = {150, 300, 600, 1000};
+    private static final long DEFAULT_QR_CACHE_BYTES = 16 * 1024 * 1024;
+    // part of the ETag, bump it when the rendering changes so clients drop their copies
+    private static final String QR_RENDERING = "v2";
+
+    public TrackingService(ChainMetrics chainMetrics) {
+        this(chainMetrics, DEFAULT_QR_SIZES, DEFAULT_QR_CACHE_BYTES);
+    }
+
+    @Autowired
+    public TrackingService(ChainMetrics chainMetrics,
+            @Value("${trustychain.qr.sizes:150,300,600,1000}") int[] qrSizes,
+            @Value("${trustychain.qr.cache.max-bytes:16777216}") long qrCacheMaxBytes) {
+        this.chainMetrics = chainMetrics;
+        this.qrSizes = qrSizes.clone();
+        Arrays.sort(this.qrSizes);
+        this.qrCodeCache = new QrCodeCache(qrCacheMaxBytes);
+        chainMetrics.monitorQrCache(qrCodeCache);
+    }
+
+    // the image for one of the configured sizes, rendered once and then served from memory
+    public byte[] qrCode(String productCode, int size, QrFormat format) {
+        checkQRCodeSize(size);
+        byte[] image = qrCodeCache.get(productCode, size, format);
+        chainMetrics.qrCacheLookup(image != null);
+        if (image == null) {
+            image = generateQRCode(productCode, size, format);
+            qrCodeCache.put(productCode, size, format, image);
+        }
+        return image;
+    }
+
+    // the image only depends on the tracking URL, the size and the format, so the tag is known without rendering it
+    public String qrCodeETag(String productCode, int size, QrFormat format) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((QR_RENDERING + '|' + format + '|' + size + '|'
+                    + generateTrackingUrl(productCode)).getBytes(StandardCharsets.UTF_8));
+            return '"' + HexFormat.of().formatHex(hash, 0, 16) + '"';
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public void checkQRCodeSize(int size) {
+        if (Arrays.binarySearch(qrSizes, size) < 0) {
+            throw new Exceptions.InvalidQrRequestException(
+                    "Unsupported QR code size " + size + ", use one of " + Arrays.toString(qrSizes));
+        }
+    }
 
     public byte[] generateQRCode(String productCode, int width, int height) {
+        return chainMetrics.qrGeneration(() -> QrImageEncoder.png(encodeQRCode(productCode), width, height));
+    }
+
+    public byte[] generateQRCode(String productCode, int size, QrFormat format) {
+        return chainMetrics.qrGeneration(() -> {
+            ByteMatrix modules = encodeQRCode(productCode);
+            return format == QrFormat.SVG
+                    ? QrImageEncoder.svg(modules, size)
+                    : QrImageEncoder.png(modules, size, size);
+        });
+    }
+
+    // the module matrix of the tracking URL, without quiet zone, for callers that lay out labels themselves
+    public ByteMatrix qrModules(String productCode) {
+        return chainMetrics.qrGeneration(() -> encodeQRCode(productCode));
+    }
+
+    private ByteMatrix encodeQRCode(String productCode) {
         try {
-            String trackingUrl = generateTrackingUrl(productCode);
-            QRCodeWriter qrCodeWriter = new QRCodeWriter();
-            BitMatrix bitMatrix = qrCodeWriter.encode(trackingUrl, BarcodeFormat.QR_CODE, width, height);
-
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            MatrixToImageWriter.writeToStream(bitMatrix, "PNG", outputStream);
-            return outputStream.toByteArray();
-        } catch (WriterException | IOException e) {
+            return QrImageEncoder.modules(generateTrackingUrl(productCode));
+        } catch (WriterException e) {
             throw new RuntimeException("Failed to generate QR code for product: " + productCode, e);
         }
     }
@@ -0,0 +1,141 @@
+package com.weitzel.trustychain.chain.archive;
+
+import com.weitzel.trustychain.chain.ProductChainRepository;
+import com.weitzel.trustychain.chain.ProductChainService;
+import com.weitzel.trustychain.chain.dto.ChainLinkDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+// moves chains whose last event is terminal (delivered, recycled, ...) out of postgres into the ChainArchive
+@Component
+@ConditionalOnProperty(name = "trustychain.archive.enabled", havingValue = "true")
+public class ArchivalJob {
+    private static final Logger log = LoggerFactory.getLogger(ArchivalJob.class);
+
+    private final ProductChainRepository productChainRepository;
+    private final ProductChainService productChainService;
+    private final ChainArchive chainArchive;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<String> terminalEventTypes;
+    private final Duration minAge;
+    private final int batchSize;
+
+    public ArchivalJob(ProductChainRepository productChainRepository,
+            ProductChainService productChainService,
+            ChainArchive chainArchive,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${trustychain.archive.terminal-event-types:delivered,recycled}") List<String> terminalEventTypes,
+            @Value("${trustychain.archive.min-age:P30D}") Duration minAge,
+            @Value("${trustychain.archive.batch-size:500}") int batchSize) {
+        this.productChainRepository = productChainRepository;
+        this.productChainService = productChainService;
+        this.chainArchive = chainArchive;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.terminalEventTypes = terminalEventTypes.stream()
+                .map(type -> type.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+        this.minAge = minAge;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(cron = "${trustychain.archive.cron:0 30 2 * * *}")
+    public void archiveSealedChains() {
+        LocalDateTime sealedBefore = LocalDateTime.now().minus(minAge);
+        int total = 0;
+        try {
+            while (true) {
+                // read-write, so the read-only lookups inside join it on the primary instead of the replica
+                Batch batch = transactionTemplate.execute(status -> archiveBatch(sealedBefore));
+                total += batch.archived();
+                // a batch made only of chains that failed verification would be selected again forever
+                if (batch.archived() == 0 || batch.selected() < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Archival run failed after {} chain(s)", total, e);
+            return;
+        }
+        if (total > 0) {
+            log.info("Archival run moved {} chain(s) to the cold tier", total);
+        }
+    }
+
+    private Batch archiveBatch(LocalDateTime sealedBefore) {
+        List<String> productCodes = productChainRepository.findSealedProductCodes(
+                terminalEventTypes, sealedBefore, batchSize);
+        SortedMap<String, List<ChainLinkDTO>> chains = new TreeMap<>();
+        Map<String, String[]> deletes = new LinkedHashMap<>();
+
+        for (String productCode : productCodes) {
+            // registerEvent cannot extend the chain between reading and deleting it
+            productChainRepository.lockChain(productCode);
+            // verified across both tiers, a chain that fails stays in postgres for investigation
+            if (!productChainService.verifyChainIntegrity(productCode)) {
+                log.warn("Not archiving product {}: chain integrity check failed", productCode);
+                continue;
+            }
+
+            // rows left behind by a crashed run are already archived and only need deleting
+            Set<String> alreadyArchived = chainArchive.find(productCode).stream()
+                    .map(ChainLinkDTO::currentHash)
+                    .collect(Collectors.toSet());
+            List<ChainLinkDTO> hot = productChainRepository.findChainLinks(productCode);
+            List<ChainLinkDTO> fresh = hot.stream()
+                    .filter(event -> !alreadyArchived.contains(event.currentHash()))
+                    .toList();
+
+            if (!fresh.isEmpty()) {
+                chains.put(productCode, fresh);
+            }
+            if (!hot.isEmpty()) {
+                deletes.put(productCode, hot.stream().map(ChainLinkDTO::currentHash).toArray(String[]::new));
+            }
+        }
+
+        // durable on disk before anything is removed from postgres. If the delete rolls back, the next run
+        // finds the chains already archived and only deletes them
+        long sequence;
+        try {
+            sequence = chainArchive.append(chains);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        deletes.forEach((productCode, hashes) -> {
+            // the append sequence outlives merges, ChainArchive.locate finds the file holding it
+            long holder = chains.containsKey(productCode)
+                    ? sequence
+                    : chainArchive.sequenceOf(productCode).orElseThrow();
+            // archive_chain_rows (V5) is the only way past the immutability trigger, it audits every call
+            jdbcTemplate.queryForObject("SELECT archive_chain_rows(?, ?, ?)", Integer.class,
+                    Long.toString(holder), productCode, hashes);
+        });
+        return new Batch(productCodes.size(), chains.size());
+    }
+
+    private record Batch(int selected, int archived) {
+    }
+}
@@ -0,0 +1,417 @@
+package com.weitzel.trustychain.chain.archive;
+
+import com.weitzel.trustychain.chain.dto.ChainLinkDTO;
+import com.weitzel.trustychain.chain.store.ScalableBloomFilter;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable, memory-mapped archive segment.
+ * <p>
+ * Layout:
+ * <pre>
+ * magic "TCAS", version byte
+ * block*   codeLen:int code:utf8 eventCount:int rawLen:int compressedLen:int deflate(events)
+ * index    entryCount:int (codeLen:int code:utf8 offset:long)*
+ * footer   indexOffset:long magic "TCAS"
+ * </pre>
+ * Blocks are sorted by product code and the index only holds every {@link #INDEX_INTERVAL}th block,
+ * a lookup binary searches the index and then scans forward at most that many block headers. A Bloom
+ * filter of the codes, built when the segment is opened, answers most lookups for other segments' codes.
+ */
+public final class ArchiveSegment {
+    static final int INDEX_INTERVAL = 32;
+    private static final byte[] MAGIC = "TCAS".getBytes(StandardCharsets.US_ASCII);
+    private static final byte VERSION = 1;
+    private static final int FOOTER_SIZE = Long.BYTES + 4;
+    private static final double CODE_FILTER_FALSE_POSITIVE_RATE = 0.01;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final long indexOffset;
+    private final String[] indexCodes;
+    private final long[] indexOffsets;
+    private final ScalableBloomFilter codes;
+
+    private ArchiveSegment(Path path, MappedByteBuffer buffer, long indexOffset,
+            String[] indexCodes, long[] indexOffsets) {
+        this.path = path;
+        this.buffer = buffer;
+        this.indexOffset = indexOffset;
+        this.indexCodes = indexCodes;
+        this.indexOffsets = indexOffsets;
+        // every index entry stands for up to INDEX_INTERVAL blocks
+        this.codes = new ScalableBloomFilter(Math.max(1L, (long) indexCodes.length * INDEX_INTERVAL),
+                CODE_FILTER_FALSE_POSITIVE_RATE);
+        forEachProductCode(codes::add);
+    }
+
+    // the mapping stays valid after the channel is closed
+    public static ArchiveSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < MAGIC.length + 1 + FOOTER_SIZE) {
+                throw new IOException("Archive segment too small: " + path);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Archive segment larger than 2GB: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            ByteBuffer view = buffer.duplicate();
+            checkMagic(view, 0, path);
+            checkMagic(view, (int) size - MAGIC.length, path);
+            long indexOffset = view.getLong((int) size - FOOTER_SIZE);
+
+            view.position((int) indexOffset);
+            int entries = view.getInt();
+            String[] codes = new String[entries];
+            long[] offsets = new long[entries];
+            for (int i = 0; i < entries; i++) {
+                codes[i] = readString(view);
+                offsets[i] = view.getLong();
+            }
+            return new ArchiveSegment(path, buffer, indexOffset, codes, offsets);
+        }
+    }
+
+    /**
+     * Writes the chains into a new segment. The caller is responsible for moving the file into place.
+     */
+    public static void write(Path path, SortedMap<String, List<ChainLinkDTO>> chains) throws IOException {
+        try (Writer writer = writer(path)) {
+            for (Map.Entry<String, List<ChainLinkDTO>> chain : chains.entrySet()) {
+                writer.add(chain.getKey(), chain.getValue());
+            }
+            writer.finish();
+        }
+    }
+
+    // chains have to be added in ascending product code order, each code once
+    public static Writer writer(Path path) throws IOException {
+        return new Writer(path);
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public long size() {
+        return buffer.capacity();
+    }
+
+    public Optional<List<ChainLinkDTO>> find(String productCode) {
+        if (!codes.mightContain(productCode)) {
+            return Optional.empty();
+        }
+        int slot = floorSlot(productCode);
+        if (slot < 0) {
+            return Optional.empty();
+        }
+
+        ByteBuffer view = buffer.duplicate();
+        view.position((int) indexOffsets[slot]);
+        int end = slot + 1 < indexOffsets.length ? (int) indexOffsets[slot + 1] : (int) indexOffset;
+
+        while (view.position() < end) {
+            String code = readString(view);
+            int eventCount = view.getInt();
+            int rawLength = view.getInt();
+            int compressedLength = view.getInt();
+            int compare = code.compareTo(productCode);
+            if (compare == 0) {
+                return Optional.of(decodeEvents(view, eventCount, rawLength, compressedLength));
+            }
+            if (compare > 0) {
+                break;
+            }
+            view.position(view.position() + compressedLength);
+        }
+        return Optional.empty();
+    }
+
+    public boolean contains(String productCode) {
+        if (!codes.mightContain(productCode)) {
+            return false;
+        }
+        int slot = floorSlot(productCode);
+        if (slot < 0) {
+            return false;
+        }
+
+        ByteBuffer view = buffer.duplicate();
+        view.position((int) indexOffsets[slot]);
+        int end = slot + 1 < indexOffsets.length ? (int) indexOffsets[slot + 1] : (int) indexOffset;
+
+        while (view.position() < end) {
+            int compare = readString(view).compareTo(productCode);
+            if (compare >= 0) {
+                return compare == 0;
+            }
+            view.position(view.position() + 2 * Integer.BYTES);
+            int compressedLength = view.getInt();
+            view.position(view.position() + compressedLength);
+        }
+        return false;
+    }
+
+    // calls the consumer for every archived product code, in sorted order
+    public void forEachProductCode(Consumer<String> consumer) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(MAGIC.length + 1);
+        while (view.position() < indexOffset) {
+            consumer.accept(readString(view));
+            view.position(view.position() + 2 * Integer.BYTES);
+            int compressedLength = view.getInt();
+            view.position(view.position() + compressedLength);
+        }
+    }
+
+    // reads the blocks in product code order, used to merge segments
+    public Cursor cursor() {
+        return new Cursor(buffer.duplicate());
+    }
+
+    private int floorSlot(String productCode) {
+        int index = Arrays.binarySearch(indexCodes, productCode);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private static byte[] encodeEvents(List<ChainLinkDTO> events) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(events.size() * 1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (ChainLinkDTO event : events) {
+            writeNullableString(out, event.actor());
+            writeNullableString(out, event.productCode());
+            writeNullableString(out, event.eventType());
+            writeNullableString(out, event.metadata());
+            writeNullableString(out, event.previousHash());
+            writeNullableString(out, event.currentHash());
+            writeNullableString(out, event.signature());
+            writeNullableString(out, event.publicKeySnapshot());
+            out.writeLong(event.trustedTimestamp().toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(event.trustedTimestamp().getNano());
+            writeNullableString(out, event.timestampSignature());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static List<ChainLinkDTO> decodeEvents(ByteBuffer view, int eventCount, int rawLength,
+            int compressedLength) {
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(view.slice(view.position(), compressedLength));
+            inflater.inflate(raw);
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException("Corrupt archive block", e));
+        } finally {
+            inflater.end();
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(raw);
+        List<ChainLinkDTO> events = new ArrayList<>(eventCount);
+        for (int i = 0; i < eventCount; i++) {
+            String actor = readNullableString(in);
+            String productCode = readNullableString(in);
+            String eventType = readNullableString(in);
+            String metadata = readNullableString(in);
+            String previousHash = readNullableString(in);
+            String currentHash = readNullableString(in);
+            String signature = readNullableString(in);
+            String publicKeySnapshot = readNullableString(in);
+            LocalDateTime trustedTimestamp = LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+            String timestampSignature = readNullableString(in);
+            events.add(new ChainLinkDTO(actor, productCode, eventType, metadata, previousHash, currentHash,
+                    signature, publicKeySnapshot, trustedTimestamp, timestampSignature));
+        }
+        return events;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            writeString(out, value);
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String readNullableString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void checkMagic(ByteBuffer view, int offset, Path path) throws IOException {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (view.get(offset + i) != MAGIC[i]) {
+                throw new IOException("Not an archive segment: " + path);
+            }
+        }
+    }
+
+    public final class Cursor {
+        private final ByteBuffer view;
+        private String code;
+        private int eventCount;
+        private int rawLength;
+        private int compressedLength;
+        private int blockData;
+
+        private Cursor(ByteBuffer view) {
+            this.view = view;
+            view.position(MAGIC.length + 1);
+        }
+
+        // moves to the next block, false once all blocks were read
+        public boolean next() {
+            if (code != null) {
+                view.position(blockData + compressedLength);
+            }
+            if (view.position() >= indexOffset) {
+                code = null;
+                return false;
+            }
+            code = readString(view);
+            eventCount = view.getInt();
+            rawLength = view.getInt();
+            compressedLength = view.getInt();
+            blockData = view.position();
+            return true;
+        }
+
+        public String code() {
+            return code;
+        }
+
+        public List<ChainLinkDTO> events() {
+            return decodeEvents(view.duplicate().position(blockData), eventCount, rawLength, compressedLength);
+        }
+    }
+
+    public static final class Writer implements Closeable {
+        private final FileChannel channel;
+        private final CountingOutputStream counting;
+        private final DataOutputStream out;
+        private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        private final List<String> indexCodes = new ArrayList<>();
+        private final List<Long> indexOffsets = new ArrayList<>();
+        private int blockNumber;
+
+        private Writer(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            this.counting = new CountingOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            this.out = new DataOutputStream(counting);
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+        }
+
+        public void add(String productCode, List<ChainLinkDTO> events) throws IOException {
+            if (blockNumber++ % INDEX_INTERVAL == 0) {
+                indexCodes.add(productCode);
+                indexOffsets.add(counting.count);
+            }
+
+            byte[] raw = encodeEvents(events);
+            deflater.reset();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 2 + 64);
+            try (DeflaterOutputStream deflate = new DeflaterOutputStream(compressed, deflater)) {
+                deflate.write(raw);
+            }
+
+            writeString(out, productCode);
+            out.writeInt(events.size());
+            out.writeInt(raw.length);
+            out.writeInt(compressed.size());
+            compressed.writeTo(out);
+        }
+
+        // bytes written so far, without the index
+        public long size() {
+            return counting.count;
+        }
+
+        // writes the index and footer and forces everything to disk
+        public void finish() throws IOException {
+            long indexOffset = counting.count;
+            out.writeInt(indexCodes.size());
+            for (int i = 0; i < indexCodes.size(); i++) {
+                writeString(out, indexCodes.get(i));
+                out.writeLong(indexOffsets.get(i));
+            }
+            out.writeLong(indexOffset);
+            out.write(MAGIC);
+            out.flush();
+            channel.force(true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
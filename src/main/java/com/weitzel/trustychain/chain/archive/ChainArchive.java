@@ -0,0 +1,346 @@
+package com.weitzel.trustychain.chain.archive;
+
+import com.weitzel.trustychain.chain.dto.ChainLinkDTO;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// cold tier for sealed chains: append-only segment files on local disk, read through memory maps
+@Component
+public class ChainArchive {
+    private static final Logger log = LoggerFactory.getLogger(ChainArchive.class);
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    // an append is segment-<seq>-<seq>.seg. Merging the appends from..to writes
+    // segment-<from>-<to>-<part>-<parts>.seg, which replace their inputs only once every part is there
+    private static final Pattern SEGMENT_NAME =
+            Pattern.compile("segment-(\\d{19})-(\\d{19})(?:-(\\d{4})-(\\d{4}))?\\.seg");
+    // neighbouring runs within this factor of each other are merged first
+    private static final int SIMILAR_SIZE_RATIO = 4;
+    // a part may exceed the cap by one chain, mappings stop at 2GB
+    private static final long MAX_SEGMENT_BYTES_LIMIT = 1L << 30;
+
+    private final Path directory;
+    private final int maxSegments;
+    private final long maxSegmentBytes;
+    // oldest first, a product archived more than once is spread over several runs in chain order
+    private volatile List<Run> runs = List.of();
+
+    // the appends from..to, split by product code into parts of at most maxSegmentBytes
+    private record Run(long from, long to, List<ArchiveSegment> parts) {
+        long size() {
+            return parts.stream().mapToLong(ArchiveSegment::size).sum();
+        }
+
+        Optional<ArchiveSegment> partOf(String productCode) {
+            return parts.stream().filter(part -> part.contains(productCode)).findFirst();
+        }
+    }
+
+    private record SegmentName(long from, long to, int part, int parts) {
+    }
+
+    // the next block of one part while merging, order 0 for the older run
+    private record Head(ArchiveSegment.Cursor cursor, int order) {
+    }
+
+    public ChainArchive(@Value("${trustychain.archive.directory:./data/archive}") String directory,
+            @Value("${trustychain.archive.max-segments:8}") int maxSegments,
+            @Value("${trustychain.archive.max-segment-bytes:268435456}") long maxSegmentBytes) {
+        this.directory = Path.of(directory);
+        this.maxSegments = Math.max(2, maxSegments);
+        this.maxSegmentBytes = Math.min(Math.max(1, maxSegmentBytes), MAX_SEGMENT_BYTES_LIMIT);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try {
+            // widest range first, so the inputs of a finished merge come after it
+            Map<SegmentName, List<Path>> byRange = new TreeMap<>(Comparator.comparingLong(SegmentName::from)
+                    .thenComparing(Comparator.comparingLong(SegmentName::to).reversed()));
+            boolean removed = false;
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    String name = file.getFileName().toString();
+                    if (name.endsWith(TEMPORARY_SUFFIX)) {
+                        // an append or merge that crashed before its rename
+                        Files.delete(file);
+                        removed = true;
+                        continue;
+                    }
+                    SegmentName parsed = parse(name);
+                    if (parsed != null) {
+                        byRange.computeIfAbsent(new SegmentName(parsed.from(), parsed.to(), 0, parsed.parts()),
+                                range -> new ArrayList<>()).add(file);
+                    }
+                }
+            }
+
+            List<Run> opened = new ArrayList<>();
+            for (Map.Entry<SegmentName, List<Path>> range : byRange.entrySet()) {
+                boolean incomplete = range.getValue().size() != range.getKey().parts();
+                boolean replaced = !opened.isEmpty() && range.getKey().to() <= opened.get(opened.size() - 1).to();
+                if (incomplete || replaced) {
+                    // a merge that crashed while renaming its parts, or the inputs of one that finished
+                    for (Path file : range.getValue()) {
+                        Files.delete(file);
+                    }
+                    removed = true;
+                    continue;
+                }
+                List<ArchiveSegment> parts = new ArrayList<>();
+                for (Path file : range.getValue()) {
+                    parts.add(ArchiveSegment.open(file));
+                }
+                opened.add(new Run(range.getKey().from(), range.getKey().to(), List.copyOf(parts)));
+            }
+            if (removed) {
+                syncDirectory();
+            }
+            runs = List.copyOf(opened);
+            log.info("Opened {} archive run(s) from {}", opened.size(), directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open chain archive at " + directory, e);
+        }
+    }
+
+    // archived events of a product in chain order, empty if nothing was archived
+    public List<ChainLinkDTO> find(String productCode) {
+        List<ChainLinkDTO> events = new ArrayList<>();
+        for (Run run : runs) {
+            run.partOf(productCode).flatMap(part -> part.find(productCode)).ifPresent(events::addAll);
+        }
+        return events;
+    }
+
+    public boolean contains(String productCode) {
+        for (Run run : runs) {
+            if (run.partOf(productCode).isPresent()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // newest append sequence holding the product, recorded when its rows leave postgres
+    public OptionalLong sequenceOf(String productCode) {
+        List<Run> current = runs;
+        for (int i = current.size() - 1; i >= 0; i--) {
+            if (current.get(i).partOf(productCode).isPresent()) {
+                return OptionalLong.of(current.get(i).to());
+            }
+        }
+        return OptionalLong.empty();
+    }
+
+    // the file now holding the product's events from the given append, merges keep renaming files
+    public Optional<Path> locate(long sequence, String productCode) {
+        for (Run run : runs) {
+            if (run.from() <= sequence && sequence <= run.to()) {
+                return run.partOf(productCode).map(ArchiveSegment::path);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public void forEachProductCode(Consumer<String> consumer) {
+        runs.forEach(run -> run.parts().forEach(part -> part.forEachProductCode(consumer)));
+    }
+
+    public int segmentCount() {
+        return runs.stream().mapToInt(run -> run.parts().size()).sum();
+    }
+
+    // writes the chains into a new segment, only visible to readers once fully synced and renamed.
+    // Returns the append's sequence, a stable id for it, or 0 if there was nothing to write
+    public synchronized long append(SortedMap<String, List<ChainLinkDTO>> chains) throws IOException {
+        if (chains.isEmpty()) {
+            return 0;
+        }
+        Files.createDirectories(directory);
+        List<Run> current = runs;
+        long sequence = Math.max(System.currentTimeMillis(),
+                current.isEmpty() ? 0 : current.get(current.size() - 1).to() + 1);
+        Path target = directory.resolve(String.format("segment-%019d-%019d%s", sequence, sequence, SEGMENT_SUFFIX));
+        Path temporary = temporaryOf(target);
+
+        Files.deleteIfExists(temporary);
+        ArchiveSegment.write(temporary, chains);
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+
+        List<Run> updated = new ArrayList<>(current);
+        updated.add(new Run(sequence, sequence, List.of(ArchiveSegment.open(target))));
+        runs = List.copyOf(updated);
+        log.info("Archived {} chain(s) into {}", chains.size(), target.getFileName());
+
+        for (int first = pickMerge(runs); first >= 0; first = pickMerge(runs)) {
+            merge(first);
+        }
+        return sequence;
+    }
+
+    // first of two neighbouring runs to merge, -1 while at most maxSegments runs are below the size cap.
+    // Similar sizes go first, so a chain is rewritten O(log n) times, and runs at the cap are left alone
+    private int pickMerge(List<Run> current) {
+        if (current.stream().filter(run -> run.size() < maxSegmentBytes).count() <= maxSegments) {
+            return -1;
+        }
+        int best = -1;
+        boolean bestSimilar = false;
+        long bestSize = Long.MAX_VALUE;
+        for (int i = 0; i + 1 < current.size(); i++) {
+            long older = current.get(i).size();
+            long newer = current.get(i + 1).size();
+            if (older >= maxSegmentBytes && newer >= maxSegmentBytes) {
+                continue;
+            }
+            // a run between two full ones can only be folded into one of them, that is the fallback
+            boolean similar = older < maxSegmentBytes && newer < maxSegmentBytes
+                    && Math.max(older, newer) <= SIMILAR_SIZE_RATIO * Math.min(older, newer);
+            long size = older + newer;
+            if (similar && !bestSimilar || similar == bestSimilar && size < bestSize) {
+                best = i;
+                bestSimilar = similar;
+                bestSize = size;
+            }
+        }
+        return best;
+    }
+
+    // merges the run at first with the next one into parts of at most maxSegmentBytes
+    synchronized void merge(int first) throws IOException {
+        List<Run> current = runs;
+        Run older = current.get(first);
+        Run newer = current.get(first + 1);
+
+        PriorityQueue<Head> heads = new PriorityQueue<>(Comparator
+                .comparing((Head head) -> head.cursor().code())
+                .thenComparingInt(Head::order));
+        // the parts of a run hold different codes, only the run decides the order
+        for (ArchiveSegment part : older.parts()) {
+            advance(heads, new Head(part.cursor(), 0));
+        }
+        for (ArchiveSegment part : newer.parts()) {
+            advance(heads, new Head(part.cursor(), 1));
+        }
+
+        List<Path> temporaries = new ArrayList<>();
+        ArchiveSegment.Writer writer = null;
+        try {
+            while (!heads.isEmpty()) {
+                String code = heads.peek().cursor().code();
+                // older run first, that is chain order
+                List<ChainLinkDTO> events = new ArrayList<>();
+                while (!heads.isEmpty() && heads.peek().cursor().code().equals(code)) {
+                    Head head = heads.poll();
+                    events.addAll(head.cursor().events());
+                    advance(heads, head);
+                }
+                if (writer == null) {
+                    Path temporary = temporaryOf(directory.resolve(
+                            String.format("segment-%019d-%019d-%04d", older.from(), newer.to(), temporaries.size())));
+                    Files.deleteIfExists(temporary);
+                    writer = ArchiveSegment.writer(temporary);
+                    temporaries.add(temporary);
+                }
+                writer.add(code, events);
+                if (writer.size() >= maxSegmentBytes) {
+                    writer.finish();
+                    writer.close();
+                    writer = null;
+                }
+            }
+            if (writer != null) {
+                writer.finish();
+                writer.close();
+                writer = null;
+            }
+        } catch (IOException | RuntimeException e) {
+            if (writer != null) {
+                writer.close();
+            }
+            for (Path temporary : temporaries) {
+                Files.deleteIfExists(temporary);
+            }
+            throw e;
+        }
+
+        List<ArchiveSegment> parts = new ArrayList<>();
+        for (int part = 0; part < temporaries.size(); part++) {
+            Path target = directory.resolve(String.format("segment-%019d-%019d-%04d-%04d%s",
+                    older.from(), newer.to(), part, temporaries.size(), SEGMENT_SUFFIX));
+            Files.move(temporaries.get(part), target, StandardCopyOption.ATOMIC_MOVE);
+            parts.add(ArchiveSegment.open(target));
+        }
+        syncDirectory();
+
+        List<Run> updated = new ArrayList<>(current.subList(0, first));
+        updated.add(new Run(older.from(), newer.to(), List.copyOf(parts)));
+        updated.addAll(current.subList(first + 2, current.size()));
+        runs = List.copyOf(updated);
+
+        // readers still holding the old list keep their mappings, unlinking does not invalidate them
+        for (ArchiveSegment part : older.parts()) {
+            Files.delete(part.path());
+        }
+        for (ArchiveSegment part : newer.parts()) {
+            Files.delete(part.path());
+        }
+        syncDirectory();
+        log.info("Merged archive runs {}..{} into {} part(s)", older.from(), newer.to(), parts.size());
+    }
+
+    private static void advance(PriorityQueue<Head> heads, Head head) {
+        if (head.cursor().next()) {
+            heads.add(head);
+        }
+    }
+
+    // a rename is only durable once the directory itself has been synced
+    private void syncDirectory() throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private static SegmentName parse(String name) {
+        Matcher matcher = SEGMENT_NAME.matcher(name);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return new SegmentName(Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2)),
+                matcher.group(3) == null ? 0 : Integer.parseInt(matcher.group(3)),
+                matcher.group(4) == null ? 1 : Integer.parseInt(matcher.group(4)));
+    }
+
+    private static Path temporaryOf(Path segment) {
+        return segment.resolveSibling(segment.getFileName() + TEMPORARY_SUFFIX);
+    }
+}
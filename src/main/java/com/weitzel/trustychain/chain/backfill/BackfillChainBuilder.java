@@ -0,0 +1,115 @@
+package com.weitzel.trustychain.chain.backfill;
+
+import com.weitzel.trustychain.common.exception.Exceptions;
+import com.weitzel.trustychain.common.service.CryptoService;
+import com.weitzel.trustychain.common.service.HashService;
+import com.weitzel.trustychain.common.service.SignedTimestamp;
+import com.weitzel.trustychain.common.service.TimestampService;
+
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// extends product chains with backfilled records and encodes the rows as COPY csv, no database access
+public class BackfillChainBuilder {
+    // records without a signature, verification accepts them but reports them apart from signed events
+    public static final String LEGACY_UNSIGNED = "legacy-unsigned";
+
+    private final HashService hashService;
+    private final CryptoService cryptoService;
+    private final TimestampService timestampService;
+
+    public BackfillChainBuilder(HashService hashService, CryptoService cryptoService,
+            TimestampService timestampService) {
+        this.hashService = hashService;
+        this.cryptoService = cryptoService;
+        this.timestampService = timestampService;
+    }
+
+    // every list in products is one product's records in chain order, heads holds where each chain currently ends
+    public Slice build(List<List<NumberedRecord>> products, Map<String, ChainHead> heads,
+            Map<String, ActorKey> actorKeys, LocalDateTime importTime) {
+        StringBuilder csv = new StringBuilder();
+        Map<String, ChainHead> newHeads = new HashMap<>();
+
+        for (List<NumberedRecord> records : products) {
+            String productCode = records.get(0).value().productCode();
+            ChainHead head = heads.get(productCode);
+            String previousHash = head == null ? null : head.hash();
+            LocalDateTime previousCreatedAt = head == null ? null : head.createdAt();
+
+            for (NumberedRecord numbered : records) {
+                BackfillRecord record = numbered.value();
+                ActorKey actorKey = actorKeys.get(record.actor());
+                String signature = record.signature() == null ? LEGACY_UNSIGNED : record.signature();
+
+                // same check registerEvent does, a legacy signature has to cover the chained payload
+                if (!LEGACY_UNSIGNED.equals(signature)) {
+                    String data = (previousHash == null ? "BEGIN" : previousHash)
+                            + record.actor()
+                            + productCode
+                            + record.eventType()
+                            + record.metadata();
+                    if (!cryptoService.verifySignature(data.getBytes(StandardCharsets.UTF_8), signature,
+                            actorKey.publicKey())) {
+                        throw new Exceptions.InvalidSignatureException(
+                                "Invalid signature on line " + numbered.lineNumber());
+                    }
+                }
+
+                String currentHash = hashService.calculateIntegrityHash(
+                        previousHash, record.actor(), productCode, record.eventType(), record.metadata());
+                SignedTimestamp signedTimestamp = timestampService.signTimestamp(currentHash);
+
+                // chains are read back ordered by created_at, so it has to be strictly increasing per product
+                LocalDateTime createdAt = record.createdAt() == null
+                        ? importTime
+                        : record.createdAt().truncatedTo(ChronoUnit.MICROS);
+                if (previousCreatedAt != null && !createdAt.isAfter(previousCreatedAt)) {
+                    createdAt = previousCreatedAt.plus(1, ChronoUnit.MICROS);
+                }
+
+                appendCsvRow(csv, UUID.randomUUID().toString(), record.actor(), productCode, record.eventType(),
+                        record.metadata(), previousHash, currentHash, signature, actorKey.pem(),
+                        createdAt.toString(), signedTimestamp.timestamp().toString(), signedTimestamp.signature());
+
+                previousHash = currentHash;
+                previousCreatedAt = createdAt;
+            }
+            newHeads.put(productCode, new ChainHead(previousHash, previousCreatedAt));
+        }
+        return new Slice(csv.toString().getBytes(StandardCharsets.UTF_8), newHeads);
+    }
+
+    // CSV as COPY reads it: an unquoted empty field is NULL, everything else is quoted
+    public static void appendCsvRow(StringBuilder csv, String... values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                csv.append(',');
+            }
+            String value = values[i];
+            if (value != null) {
+                csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+            }
+        }
+        csv.append('\n');
+    }
+
+    public record NumberedRecord(long lineNumber, BackfillRecord value) {
+    }
+
+    // createdAt is null for heads that come from the archive
+    public record ChainHead(String hash, LocalDateTime createdAt) {
+    }
+
+    public record ActorKey(String pem, PublicKey publicKey) {
+    }
+
+    public record Slice(byte[] csv, Map<String, ChainHead> heads) {
+    }
+}
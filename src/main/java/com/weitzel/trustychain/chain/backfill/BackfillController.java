@@ -0,0 +1,41 @@
+package com.weitzel.trustychain.chain.backfill;
+
+import com.weitzel.trustychain.chain.backfill.dto.ImportRequest;
+import com.weitzel.trustychain.chain.backfill.dto.ImportStatus;
+import jakarta.validation.Valid;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/admin/imports")
+@PreAuthorize("hasAuthority('ADMIN')")
+@ConditionalOnProperty(name = "trustychain.store.type", havingValue = "jpa", matchIfMissing = true)
+public class BackfillController {
+    private final BackfillImporter backfillImporter;
+
+    public BackfillController(BackfillImporter backfillImporter) {
+        this.backfillImporter = backfillImporter;
+    }
+
+    // starts (or resumes) an import of an NDJSON file from the server's import directory
+    @PostMapping
+    public ResponseEntity<ImportStatus> startImport(@Valid @RequestBody ImportRequest request) {
+        return ResponseEntity.accepted().body(backfillImporter.start(request.source(), request.jobId()));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<ImportStatus>> getImports() {
+        return ResponseEntity.ok(backfillImporter.statuses());
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ImportStatus> getImport(@PathVariable String jobId) {
+        return backfillImporter.status(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
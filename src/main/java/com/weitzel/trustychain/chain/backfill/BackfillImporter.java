@@ -0,0 +1,449 @@
+package com.weitzel.trustychain.chain.backfill;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weitzel.trustychain.actor.Actor;
+import com.weitzel.trustychain.actor.ActorRepository;
+import com.weitzel.trustychain.chain.archive.ChainArchive;
+import com.weitzel.trustychain.chain.backfill.BackfillChainBuilder.ActorKey;
+import com.weitzel.trustychain.chain.backfill.BackfillChainBuilder.ChainHead;
+import com.weitzel.trustychain.chain.backfill.BackfillChainBuilder.NumberedRecord;
+import com.weitzel.trustychain.chain.backfill.BackfillChainBuilder.Slice;
+import com.weitzel.trustychain.chain.backfill.dto.ImportStatus;
+import com.weitzel.trustychain.chain.dto.ChainLinkDTO;
+import com.weitzel.trustychain.chain.store.ProductCodeFilter;
+import com.weitzel.trustychain.common.exception.Exceptions;
+import com.weitzel.trustychain.common.service.CryptoService;
+import com.weitzel.trustychain.common.service.HashService;
+import com.weitzel.trustychain.common.service.TimestampService;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk loads legacy NDJSON (one {@link BackfillRecord} per line) into product_chain.
+ * <p>
+ * The file is read in batches. Per batch the chains are extended in parallel, one product per task,
+ * with the same hash, signature check and trusted timestamp registerEvent applies, and the rows are
+ * streamed to postgres with COPY. The COPY and the job's checkpoint commit in one transaction, which holds
+ * the chain locks registerEvent takes, so a job that is restarted with the same id continues right after
+ * the last committed line.
+ */
+@Service
+@ConditionalOnProperty(name = "trustychain.store.type", havingValue = "jpa", matchIfMissing = true)
+public class BackfillImporter {
+    private static final Logger log = LoggerFactory.getLogger(BackfillImporter.class);
+
+    static final String COPY_SQL = "COPY product_chain (id, actor, product_code, event_type, metadata, "
+            + "previous_hash, current_hash, signature, public_key_snapshot, created_at, trusted_timestamp, "
+            + "timestamp_signature) FROM STDIN WITH (FORMAT csv)";
+    private static final int HEAD_LOOKUP_CHUNK = 1000;
+    private static final int SLICES_PER_WORKER = 4;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ActorRepository actorRepository;
+    private final ChainArchive chainArchive;
+    private final ProductCodeFilter productCodeFilter;
+    private final CryptoService cryptoService;
+    private final BackfillChainBuilder chainBuilder;
+    private final ObjectMapper objectMapper;
+    private final Path importDirectory;
+    private final int batchSize;
+    private final int parallelism;
+
+    private final ExecutorService jobExecutor;
+    private final ExecutorService workers;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public BackfillImporter(DataSource dataSource,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            ActorRepository actorRepository,
+            ChainArchive chainArchive,
+            ProductCodeFilter productCodeFilter,
+            HashService hashService,
+            CryptoService cryptoService,
+            TimestampService timestampService,
+            ObjectMapper objectMapper,
+            @Value("${trustychain.import.directory:./data/import}") Path importDirectory,
+            @Value("${trustychain.import.batch-size:10000}") int batchSize,
+            @Value("${trustychain.import.parallelism:0}") int parallelism) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.actorRepository = actorRepository;
+        this.chainArchive = chainArchive;
+        this.productCodeFilter = productCodeFilter;
+        this.cryptoService = cryptoService;
+        this.chainBuilder = new BackfillChainBuilder(hashService, cryptoService, timestampService);
+        this.objectMapper = objectMapper;
+        this.importDirectory = importDirectory.toAbsolutePath().normalize();
+        this.batchSize = batchSize;
+        // 0 means one worker per core, timestamp signing is the bottleneck
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.jobExecutor = Executors.newSingleThreadExecutor(daemonThreads("backfill-import"));
+        this.workers = Executors.newFixedThreadPool(this.parallelism, daemonThreads("backfill-worker"));
+    }
+
+    public ImportStatus start(String source, String jobId) {
+        Path path = resolveSource(source);
+        String id = jobId == null || jobId.isBlank() ? path.getFileName().toString() : jobId;
+        ImportJob job = new ImportJob(id, path);
+
+        jobs.compute(id, (key, current) -> {
+            if (current != null && current.state == ImportStatus.State.RUNNING) {
+                throw new Exceptions.ImportConflictException("Import job is already running: " + id);
+            }
+            return job;
+        });
+        jobExecutor.execute(() -> run(job));
+        return job.status();
+    }
+
+    public Optional<ImportStatus> status(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(ImportJob::status);
+    }
+
+    public List<ImportStatus> statuses() {
+        return jobs.values().stream().map(ImportJob::status).toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // an interrupted job simply resumes from its last checkpoint next time
+        jobExecutor.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    void run(ImportJob job) {
+        try {
+            Checkpoint checkpoint = loadCheckpoint(job);
+            job.resume(checkpoint.linesCommitted(), checkpoint.rowsImported());
+            if (checkpoint.completed()) {
+                job.finish(null);
+                return;
+            }
+            log.info("Import {} starting at line {} of {}", job.id, checkpoint.linesCommitted(), job.source);
+
+            Map<String, ActorKey> actorKeys = new HashMap<>();
+            try (BufferedReader reader = Files.newBufferedReader(job.source, StandardCharsets.UTF_8)) {
+                long lineNumber = 0;
+                String line;
+                while (lineNumber < checkpoint.linesCommitted() && reader.readLine() != null) {
+                    lineNumber++;
+                }
+
+                List<NumberedRecord> batch = new ArrayList<>(batchSize);
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    batch.add(new NumberedRecord(lineNumber, parse(line, lineNumber)));
+                    if (batch.size() == batchSize) {
+                        commitBatch(job, batch, actorKeys, lineNumber, false);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+                commitBatch(job, batch, actorKeys, lineNumber, true);
+            }
+
+            job.finish(null);
+            log.info("Import {} completed: {} rows at {} rows/s", job.id, job.rowsImported.get(),
+                    String.format(Locale.ROOT, "%.0f", job.status().rowsPerSecond()));
+        } catch (Exception e) {
+            log.error("Import {} failed after line {}", job.id, job.linesCommitted.get(), e);
+            job.finish(e.getMessage());
+        }
+    }
+
+    private void commitBatch(ImportJob job, List<NumberedRecord> batch, Map<String, ActorKey> actorKeys,
+            long lastLine, boolean last) throws InterruptedException {
+        Map<String, List<NumberedRecord>> byProduct = new LinkedHashMap<>();
+        for (NumberedRecord record : batch) {
+            byProduct.computeIfAbsent(record.value().productCode(), code -> new ArrayList<>()).add(record);
+        }
+        resolveActorKeys(batch, actorKeys);
+
+        // signing happens before the locks are taken, they are only held for the head check and the COPY
+        Map<String, ChainHead> heads = findHeads(byProduct.keySet());
+        List<Slice> built = build(byProduct, heads, actorKeys, batch.size());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            lockChains(byProduct.keySet());
+            Map<String, ChainHead> lockedHeads = findHeads(byProduct.keySet());
+            List<Slice> slices = built;
+            if (!lockedHeads.equals(heads)) {
+                // registerEvent extended one of the chains in the meantime
+                try {
+                    slices = build(byProduct, lockedHeads, actorKeys, batch.size());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while rebuilding a batch", e);
+                }
+            }
+            if (!slices.isEmpty()) {
+                copy(slices);
+            }
+            byProduct.keySet().forEach(productCodeFilter::add);
+            if (!lockedHeads.keySet().containsAll(byProduct.keySet())) {
+                // new products, the other instances' filters pick them up on their next refresh
+                jdbcTemplate.update("UPDATE product_code_generation SET generation = generation + 1 WHERE id = 1");
+            }
+            jdbcTemplate.update("UPDATE import_checkpoints SET lines_committed = ?, "
+                    + "rows_imported = rows_imported + ?, completed = ?, updated_at = NOW() WHERE job_id = ?",
+                    lastLine, batch.size(), last, job.id);
+        });
+        job.committed(lastLine, batch.size());
+    }
+
+    private List<Slice> build(Map<String, List<NumberedRecord>> byProduct, Map<String, ChainHead> heads,
+            Map<String, ActorKey> actorKeys, int records) throws InterruptedException {
+        LocalDateTime importTime = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        List<Callable<Slice>> tasks = new ArrayList<>();
+        for (List<List<NumberedRecord>> products : slice(byProduct.values(), records)) {
+            tasks.add(() -> chainBuilder.build(products, heads, actorKeys, importTime));
+        }
+        List<Slice> slices = new ArrayList<>(tasks.size());
+        for (Future<Slice> future : workers.invokeAll(tasks)) {
+            try {
+                slices.add(future.get());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof RuntimeException runtime ? runtime : new IllegalStateException(cause);
+            }
+        }
+        return slices;
+    }
+
+    private void copy(List<Slice> slices) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+            try {
+                for (Slice slice : slices) {
+                    copyIn.writeToCopy(slice.csv(), 0, slice.csv().length);
+                }
+                copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("COPY into product_chain failed: " + e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    // the keys ProductChainRepository.lockChain takes, in bucket order so two imports cannot deadlock
+    private void lockChains(Set<String> productCodes) {
+        jdbcTemplate.queryForObject("SELECT count(*) FROM (SELECT DISTINCT hashtext(code) & 1023 AS bucket "
+                + "FROM unnest(?::text[]) AS code ORDER BY bucket) buckets, "
+                + "LATERAL pg_advisory_xact_lock(7321, buckets.bucket)",
+                Long.class, (Object) productCodes.toArray(String[]::new));
+    }
+
+    // splits the product chains into roughly equal slices without ever splitting a chain
+    private List<List<List<NumberedRecord>>> slice(Collection<List<NumberedRecord>> chains, int totalRecords) {
+        int sliceCount = Math.max(1, Math.min(chains.size(), parallelism * SLICES_PER_WORKER));
+        int targetSize = (totalRecords + sliceCount - 1) / sliceCount;
+        List<List<List<NumberedRecord>>> slices = new ArrayList<>(sliceCount);
+        List<List<NumberedRecord>> current = new ArrayList<>();
+        int currentSize = 0;
+        for (List<NumberedRecord> chain : chains) {
+            current.add(chain);
+            currentSize += chain.size();
+            if (currentSize >= targetSize) {
+                slices.add(current);
+                current = new ArrayList<>();
+                currentSize = 0;
+            }
+        }
+        if (!current.isEmpty()) {
+            slices.add(current);
+        }
+        return slices;
+    }
+
+    private Map<String, ChainHead> findHeads(Set<String> productCodes) {
+        Map<String, ChainHead> heads = new HashMap<>();
+        List<String> unknown = new ArrayList<>(productCodes);
+
+        for (int from = 0; from < unknown.size(); from += HEAD_LOOKUP_CHUNK) {
+            List<String> chunk = unknown.subList(from, Math.min(from + HEAD_LOOKUP_CHUNK, unknown.size()));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            jdbcTemplate.query("SELECT DISTINCT ON (product_code) product_code, current_hash, created_at "
+                    + "FROM product_chain WHERE product_code IN (" + placeholders + ") "
+                    + "ORDER BY product_code, created_at DESC",
+                    rs -> {
+                        heads.put(rs.getString(1), new ChainHead(rs.getString(2),
+                                rs.getObject(3, Timestamp.class).toLocalDateTime()));
+                    },
+                    chunk.toArray());
+        }
+
+        // chains that only live in the cold archive continue from their archived head
+        for (String productCode : unknown) {
+            if (!heads.containsKey(productCode) && chainArchive.contains(productCode)) {
+                List<ChainLinkDTO> archived = chainArchive.find(productCode);
+                ChainLinkDTO last = archived.get(archived.size() - 1);
+                heads.put(productCode, new ChainHead(last.currentHash(), null));
+            }
+        }
+        return heads;
+    }
+
+    private void resolveActorKeys(List<NumberedRecord> batch, Map<String, ActorKey> actorKeys) {
+        for (NumberedRecord record : batch) {
+            String actorName = record.value().actor();
+            if (!actorKeys.containsKey(actorName)) {
+                Actor actor = actorRepository.findByName(actorName)
+                        .orElseThrow(() -> new Exceptions.ActorNotFoundException(
+                                "Unknown actor '" + actorName + "' on line " + record.lineNumber()));
+                actorKeys.put(actorName, new ActorKey(actor.getPublicKey(),
+                        cryptoService.loadPublicKeyFromPem(actor.getPublicKey())));
+            }
+        }
+    }
+
+    private BackfillRecord parse(String line, long lineNumber) {
+        BackfillRecord record;
+        try {
+            record = objectMapper.readValue(line, BackfillRecord.class);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed JSON on line " + lineNumber, e);
+        }
+        if (isBlank(record.actor()) || isBlank(record.productCode()) || isBlank(record.eventType())) {
+            throw new IllegalArgumentException("actor, productCode and eventType are required on line " + lineNumber);
+        }
+        return record;
+    }
+
+    private Checkpoint loadCheckpoint(ImportJob job) {
+        String source = job.source.toString();
+        jdbcTemplate.update("INSERT INTO import_checkpoints (job_id, source) VALUES (?, ?) "
+                + "ON CONFLICT (job_id) DO NOTHING", job.id, source);
+        Checkpoint checkpoint = jdbcTemplate.queryForObject(
+                "SELECT source, lines_committed, rows_imported, completed FROM import_checkpoints WHERE job_id = ?",
+                (rs, rowNum) -> new Checkpoint(rs.getString(1), rs.getLong(2), rs.getLong(3), rs.getBoolean(4)),
+                job.id);
+        if (!source.equals(checkpoint.source())) {
+            throw new IllegalStateException("Job " + job.id + " was started for " + checkpoint.source());
+        }
+        return checkpoint;
+    }
+
+    private Path resolveSource(String source) {
+        Path path = importDirectory.resolve(source).normalize();
+        if (!path.startsWith(importDirectory)) {
+            throw new IllegalArgumentException("Import source must be inside the import directory");
+        }
+        if (!Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("Import source not found: " + source);
+        }
+        return path;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicLong counter = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private record Checkpoint(String source, long linesCommitted, long rowsImported, boolean completed) {
+    }
+
+    static final class ImportJob {
+        private final String id;
+        private final Path source;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final long startedNanos = System.nanoTime();
+        private final AtomicLong linesCommitted = new AtomicLong();
+        private final AtomicLong rowsImported = new AtomicLong();
+        private volatile long rowsAtStart;
+        private volatile long finishedNanos;
+        private volatile LocalDateTime finishedAt;
+        private volatile ImportStatus.State state = ImportStatus.State.RUNNING;
+        private volatile String error;
+
+        ImportJob(String id, Path source) {
+            this.id = id;
+            this.source = source;
+        }
+
+        void resume(long lines, long rows) {
+            linesCommitted.set(lines);
+            rowsImported.set(rows);
+            rowsAtStart = rows;
+        }
+
+        void committed(long lines, long rows) {
+            linesCommitted.set(lines);
+            rowsImported.addAndGet(rows);
+        }
+
+        void finish(String failure) {
+            finishedNanos = System.nanoTime();
+            finishedAt = LocalDateTime.now();
+            error = failure;
+            state = failure == null ? ImportStatus.State.COMPLETED : ImportStatus.State.FAILED;
+        }
+
+        ImportStatus status() {
+            long end = state == ImportStatus.State.RUNNING ? System.nanoTime() : finishedNanos;
+            double seconds = Math.max(end - startedNanos, 1) / 1_000_000_000.0;
+            // rows/s of this run only, rows restored from a checkpoint were not imported now
+            double rowsPerSecond = (rowsImported.get() - rowsAtStart) / seconds;
+            return new ImportStatus(id, source.getFileName().toString(), state, linesCommitted.get(),
+                    rowsImported.get(), rowsPerSecond, startedAt, finishedAt, error);
+        }
+    }
+}
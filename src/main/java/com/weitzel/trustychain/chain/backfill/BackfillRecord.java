@@ -0,0 +1,13 @@
+package com.weitzel.trustychain.chain.backfill;
+
+import java.time.LocalDateTime;
+
+// one line of a legacy NDJSON export, signature and createdAt are optional
+public record BackfillRecord(
+        String actor,
+        String productCode,
+        String eventType,
+        String metadata,
+        String signature,
+        LocalDateTime createdAt) {
+}
@@ -0,0 +1,10 @@
+package com.weitzel.trustychain.chain.backfill.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record ImportRequest(
+        @NotBlank(message = "Source file is required") String source,
+
+        // defaults to the source file name, re-using an id resumes that job
+        String jobId) {
+}
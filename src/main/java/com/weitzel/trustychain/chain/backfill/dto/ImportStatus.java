@@ -0,0 +1,19 @@
+package com.weitzel.trustychain.chain.backfill.dto;
+
+import java.time.LocalDateTime;
+
+public record ImportStatus(
+        String jobId,
+        String source,
+        State state,
+        long linesCommitted,
+        long rowsImported,
+        double rowsPerSecond,
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt,
+        String error) {
+
+    public enum State {
+        RUNNING, COMPLETED, FAILED
+    }
+}
@@ -0,0 +1,17 @@
+package com.weitzel.trustychain.chain.dto;
+
+import java.time.LocalDateTime;
+
+// everything verifyChainIntegrity needs from a row, loaded without a managed entity
+public record ChainLinkDTO(
+        String actor,
+        String productCode,
+        String eventType,
+        String metadata,
+        String previousHash,
+        String currentHash,
+        String signature,
+        String publicKeySnapshot,
+        LocalDateTime trustedTimestamp,
+        String timestampSignature) {
+}
@@ -0,0 +1,36 @@
+package com.weitzel.trustychain.chain.labels;
+
+import com.weitzel.trustychain.chain.labels.dto.LabelRequest;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+// bulk labels are for authenticated actors only, unlike the single public QR image
+@RestController
+@RequestMapping("/api/labels")
+@Tag(name = "Labels", description = "Bulk QR label generation for production runs")
+public class LabelController {
+    private final LabelService labelService;
+
+    public LabelController(LabelService labelService) {
+        this.labelService = labelService;
+    }
+
+    @PostMapping("/qr")
+    @Operation(summary = "Generate QR labels", description = "Streams a ZIP of PNG or SVG files, or A4 PDF print sheets, for a list or range of product codes")
+    public ResponseEntity<StreamingResponseBody> generateLabels(@RequestBody LabelRequest request) {
+        LabelService.Labels labels = labelService.prepare(request);
+
+        StreamingResponseBody body = out -> labelService.write(labels, out);
+
+        return ResponseEntity.ok()
+                .contentType(labels.format().mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(labels.format().fileName()).build().toString())
+                .body(body);
+    }
+}
@@ -0,0 +1,53 @@
+package com.weitzel.trustychain.chain.labels;
+
+import com.weitzel.trustychain.chain.QrFormat;
+import com.weitzel.trustychain.common.exception.Exceptions;
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+public enum LabelFormat {
+    PNG(QrFormat.PNG, "application/zip", "qr-labels.zip"),
+    SVG(QrFormat.SVG, "application/zip", "qr-labels.zip"),
+    PDF(null, "application/pdf", "qr-labels.pdf");
+
+    private final QrFormat imageFormat;
+    private final MediaType mediaType;
+    private final String fileName;
+
+    LabelFormat(QrFormat imageFormat, String mediaType, String fileName) {
+        this.imageFormat = imageFormat;
+        this.mediaType = MediaType.parseMediaType(mediaType);
+        this.fileName = fileName;
+    }
+
+    // null for PDF, which draws the modules itself
+    public QrFormat imageFormat() {
+        return imageFormat;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    public String fileName() {
+        return fileName;
+    }
+
+    public static LabelFormat of(String name) {
+        if (name == null) {
+            return PNG;
+        }
+        for (LabelFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new Exceptions.InvalidQrRequestException(
+                "Unsupported label format " + name + ", use png, svg or pdf");
+    }
+
+    String extension() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,209 @@
+package com.weitzel.trustychain.chain.labels;
+
+import com.weitzel.trustychain.chain.TrackingService;
+import com.weitzel.trustychain.chain.labels.dto.LabelRequest;
+import com.weitzel.trustychain.common.exception.Exceptions;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Renders QR labels for a whole production run into one stream. Codes are rendered on a fixed pool, at
+ * most {@code window} of them ahead of the one being written, and written in request order, so memory
+ * stays flat no matter how many codes are asked for.
+ */
+@Service
+public class LabelService {
+    private final TrackingService trackingService;
+    private final int maxCodes;
+    private final int window;
+    private final ExecutorService renderers;
+
+    public LabelService(TrackingService trackingService,
+            @Value("${trustychain.labels.max-codes:100000}") int maxCodes,
+            @Value("${trustychain.labels.threads:0}") int threads) {
+        this.trackingService = trackingService;
+        this.maxCodes = maxCodes;
+        // 0 means one renderer per core
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.window = size * 8;
+        this.renderers = Executors.newFixedThreadPool(size, daemonThreads("label-renderer"));
+    }
+
+    public record Labels(LabelFormat format, int size, long count, List<String> productCodes, String prefix,
+            long from, int digits) {
+
+        Iterator<String> codes() {
+            if (productCodes != null) {
+                return productCodes.iterator();
+            }
+            return new Iterator<>() {
+                // from + count overflows for a range ending at Long.MAX_VALUE
+                private long emitted;
+
+                @Override
+                public boolean hasNext() {
+                    return emitted < count;
+                }
+
+                @Override
+                public String next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    String number = Long.toString(from + emitted++);
+                    return prefix + "0".repeat(Math.max(0, digits - number.length())) + number;
+                }
+            };
+        }
+    }
+
+    // checks the request before anything is streamed, so mistakes still get a 400
+    public Labels prepare(LabelRequest request) {
+        LabelFormat format = LabelFormat.of(request.format());
+        int size = request.size() == null ? 300 : request.size();
+        if (format != LabelFormat.PDF) {
+            trackingService.checkQRCodeSize(size);
+        }
+
+        boolean hasList = request.productCodes() != null && !request.productCodes().isEmpty();
+        boolean hasRange = request.from() != null || request.to() != null;
+        if (hasList == hasRange) {
+            throw new Exceptions.InvalidQrRequestException("Give either productCodes or a from/to range");
+        }
+
+        if (hasList) {
+            List<String> codes = request.productCodes();
+            if (codes.stream().anyMatch(code -> code == null || code.isBlank())) {
+                throw new Exceptions.InvalidQrRequestException("Product codes must not be blank");
+            }
+            checkCount(codes.size());
+            return new Labels(format, size, codes.size(), List.copyOf(codes), null, 0, 0);
+        }
+
+        if (request.from() == null || request.to() == null || request.from() < 0 || request.to() < request.from()) {
+            throw new Exceptions.InvalidQrRequestException("A range needs 0 <= from <= to");
+        }
+        long count;
+        try {
+            count = Math.addExact(Math.subtractExact(request.to(), request.from()), 1);
+        } catch (ArithmeticException e) {
+            throw new Exceptions.InvalidQrRequestException(
+                    "At most " + maxCodes + " labels per request, the range is larger");
+        }
+        checkCount(count);
+        String prefix = request.prefix() == null ? "" : request.prefix();
+        int digits = request.digits() == null ? 0 : Math.min(request.digits(), 19);
+        return new Labels(format, size, count, null, prefix, request.from(), digits);
+    }
+
+    public void write(Labels labels, OutputStream out) throws IOException {
+        if (labels.format() == LabelFormat.PDF) {
+            LabelSheetWriter sheets = new LabelSheetWriter(out);
+            render(labels.codes(), trackingService::qrModules, sheets::add);
+            sheets.close();
+            return;
+        }
+
+        ZipOutputStream zip = new ZipOutputStream(out);
+        // numbered in request order, which is also print order, and unique even when codes repeat
+        String nameFormat = "%0" + Long.toString(labels.count()).length() + "d-%s." + labels.format().extension();
+        long[] index = {0};
+        render(labels.codes(),
+                code -> trackingService.generateQRCode(code, labels.size(), labels.format().imageFormat()),
+                (code, image) -> {
+                    ZipEntry entry = new ZipEntry(String.format(nameFormat, ++index[0], fileName(code)));
+                    // PNGs are deflated already, storing them saves the CPU of a second pass
+                    if (labels.format() == LabelFormat.PNG) {
+                        CRC32 crc = new CRC32();
+                        crc.update(image);
+                        entry.setMethod(ZipEntry.STORED);
+                        entry.setSize(image.length);
+                        entry.setCrc(crc.getValue());
+                    }
+                    zip.putNextEntry(entry);
+                    zip.write(image);
+                    zip.closeEntry();
+                });
+        zip.finish();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderers.shutdownNow();
+    }
+
+    interface LabelSink<T> {
+        void accept(String productCode, T rendered) throws IOException;
+    }
+
+    private record Pending<T>(String productCode, Future<T> rendered) {
+    }
+
+    // keeps the pool busy with the next codes while the oldest one is written
+    private <T> void render(Iterator<String> codes, Function<String, T> renderer, LabelSink<T> sink)
+            throws IOException {
+        Deque<Pending<T>> pending = new ArrayDeque<>(window);
+        try {
+            while (codes.hasNext() || !pending.isEmpty()) {
+                while (codes.hasNext() && pending.size() < window) {
+                    String code = codes.next();
+                    pending.add(new Pending<>(code, renderers.submit(() -> renderer.apply(code))));
+                }
+                Pending<T> oldest = pending.poll();
+                sink.accept(oldest.productCode(), oldest.rendered().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while rendering labels");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // a client that went away leaves the rest of the window behind
+            pending.forEach(entry -> entry.rendered().cancel(true));
+        }
+    }
+
+    private void checkCount(long count) {
+        if (count > maxCodes) {
+            throw new Exceptions.InvalidQrRequestException(
+                    "At most " + maxCodes + " labels per request, got " + count);
+        }
+    }
+
+    // product codes are free text, keep the entry names portable
+    static String fileName(String productCode) {
+        return productCode.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
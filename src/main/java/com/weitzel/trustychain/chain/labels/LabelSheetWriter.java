@@ -0,0 +1,196 @@
+package com.weitzel.trustychain.chain.labels;
+
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Streams A4 print sheets of QR labels as a PDF, 4 x 5 labels per page, each a vector QR code with its
+ * product code underneath. A page is written as soon as it is full, only the object offsets for the
+ * cross-reference table are kept until the end:
+ * <pre>
+ * 1 Catalog, 2 Pages (written last, once every page is known), 3 Helvetica,
+ * then per page its content stream and the Page object
+ * </pre>
+ */
+public class LabelSheetWriter implements Closeable {
+    private static final float PAGE_WIDTH = 595.28f;
+    private static final float PAGE_HEIGHT = 841.89f;
+    private static final float MARGIN = 28;
+    private static final int COLUMNS = 4;
+    private static final int ROWS = 5;
+    private static final float QR_SIZE = 112;
+    private static final float FONT_SIZE = 8;
+    // white border around the modules, in modules, as the QR spec asks for
+    private static final int QUIET_ZONE = 4;
+
+    private static final int CATALOG = 1;
+    private static final int PAGES = 2;
+    private static final int FONT = 3;
+
+    private final CountingOutputStream out;
+    private final List<Long> offsets = new ArrayList<>(List.of(0L, 0L, 0L));
+    private final List<Integer> pages = new ArrayList<>();
+    private final StringBuilder content = new StringBuilder(64 * 1024);
+    private int labelsOnPage;
+
+    public LabelSheetWriter(OutputStream out) throws IOException {
+        this.out = new CountingOutputStream(out);
+        // the binary comment line tells transfer tools the file is not text
+        write("%PDF-1.4\n%\u00e2\u00e3\u00cf\u00d3\n");
+        object(CATALOG, "<</Type/Catalog/Pages " + PAGES + " 0 R>>");
+        object(FONT, "<</Type/Font/Subtype/Type1/BaseFont/Helvetica/Encoding/WinAnsiEncoding>>");
+    }
+
+    public void add(String productCode, ByteMatrix modules) throws IOException {
+        float cellWidth = (PAGE_WIDTH - 2 * MARGIN) / COLUMNS;
+        float cellHeight = (PAGE_HEIGHT - 2 * MARGIN) / ROWS;
+        int column = labelsOnPage % COLUMNS;
+        int row = labelsOnPage / COLUMNS;
+        float left = MARGIN + column * cellWidth + (cellWidth - QR_SIZE) / 2;
+        float top = PAGE_HEIGHT - MARGIN - row * cellHeight;
+
+        // one unit per module, y grows upwards in PDF so rows are flipped
+        int count = modules.getWidth();
+        float scale = QR_SIZE / (count + 2 * QUIET_ZONE);
+        float bottom = top - QR_SIZE;
+        content.append("q ").append(number(scale)).append(" 0 0 ").append(number(scale)).append(' ')
+                .append(number(left + QUIET_ZONE * scale)).append(' ')
+                .append(number(bottom + QUIET_ZONE * scale)).append(" cm\n");
+        for (int y = 0; y < count; y++) {
+            int x = 0;
+            while (x < count) {
+                if (modules.get(x, y) != 1) {
+                    x++;
+                    continue;
+                }
+                int start = x;
+                while (x < count && modules.get(x, y) == 1) {
+                    x++;
+                }
+                content.append(start).append(' ').append(count - 1 - y).append(' ')
+                        .append(x - start).append(" 1 re ");
+            }
+        }
+        content.append("f Q\n");
+
+        content.append("BT /F1 ").append(number(FONT_SIZE)).append(" Tf ")
+                .append(number(left + QUIET_ZONE * scale)).append(' ').append(number(bottom - FONT_SIZE))
+                .append(" Td (").append(escape(productCode)).append(") Tj ET\n");
+
+        if (++labelsOnPage == COLUMNS * ROWS) {
+            flushPage();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (labelsOnPage > 0 || pages.isEmpty()) {
+            flushPage();
+        }
+
+        StringBuilder kids = new StringBuilder();
+        for (int page : pages) {
+            kids.append(page).append(" 0 R ");
+        }
+        object(PAGES, "<</Type/Pages/Kids[" + kids.toString().trim() + "]/Count " + pages.size() + ">>");
+
+        long xref = out.count;
+        StringBuilder table = new StringBuilder("xref\n0 ").append(offsets.size() + 1).append('\n')
+                .append("0000000000 65535 f \n");
+        for (long offset : offsets) {
+            table.append(String.format(Locale.ROOT, "%010d 00000 n \n", offset));
+        }
+        table.append("trailer\n<</Size ").append(offsets.size() + 1).append("/Root ").append(CATALOG)
+                .append(" 0 R>>\nstartxref\n").append(xref).append("\n%%EOF\n");
+        write(table.toString());
+        out.flush();
+    }
+
+    private void flushPage() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length() / 3);
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)) {
+            deflater.write(content.toString().getBytes(StandardCharsets.ISO_8859_1));
+        }
+        content.setLength(0);
+        labelsOnPage = 0;
+
+        int contents = nextObject();
+        begin(contents);
+        write("<</Length " + compressed.size() + "/Filter/FlateDecode>>\nstream\n");
+        compressed.writeTo(out);
+        write("\nendstream\nendobj\n");
+
+        int page = nextObject();
+        object(page, "<</Type/Page/Parent " + PAGES + " 0 R/MediaBox[0 0 " + number(PAGE_WIDTH) + ' '
+                + number(PAGE_HEIGHT) + "]/Resources<</Font<</F1 " + FONT + " 0 R>>>>/Contents " + contents + " 0 R>>");
+        pages.add(page);
+    }
+
+    private int nextObject() {
+        offsets.add(0L);
+        return offsets.size();
+    }
+
+    private void object(int number, String body) throws IOException {
+        begin(number);
+        write(body + "\nendobj\n");
+    }
+
+    private void begin(int number) throws IOException {
+        offsets.set(number - 1, out.count);
+        write(number + " 0 obj\n");
+    }
+
+    private void write(String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static String number(float value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    // PDF string literal in WinAnsi, anything outside Latin-1 becomes '?'
+    static String escape(String text) {
+        StringBuilder escaped = new StringBuilder(text.length() + 8);
+        for (char c : text.toCharArray()) {
+            if (c == '(' || c == ')' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20 || c > 0xff) {
+                escaped.append('?');
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
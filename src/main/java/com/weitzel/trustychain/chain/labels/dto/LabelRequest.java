@@ -0,0 +1,22 @@
+package com.weitzel.trustychain.chain.labels.dto;
+
+import java.util.List;
+
+// either productCodes, or prefix + the numbers from..to (inclusive) zero-padded to digits
+public record LabelRequest(
+        List<String> productCodes,
+
+        String prefix,
+
+        Long from,
+
+        Long to,
+
+        Integer digits,
+
+        // png or svg (a ZIP with one file per code) or pdf (A4 print sheets), png by default
+        String format,
+
+        // image size in px for png and svg, one of trustychain.qr.sizes
+        Integer size) {
+}
@@ -0,0 +1,175 @@
+package com.weitzel.trustychain.chain.reactive;
+
+import com.weitzel.trustychain.chain.ProductChainService;
+import com.weitzel.trustychain.chain.QrFormat;
+import com.weitzel.trustychain.chain.TrackingService;
+import com.weitzel.trustychain.chain.archive.ChainArchive;
+import com.weitzel.trustychain.chain.backfill.BackfillChainBuilder;
+import com.weitzel.trustychain.chain.dto.ChainLinkDTO;
+import com.weitzel.trustychain.chain.dto.TrackingResponse;
+import com.weitzel.trustychain.chain.dto.TrackingResponse.ChainEventDTO;
+import com.weitzel.trustychain.chain.store.ChainStore;
+import com.weitzel.trustychain.chain.store.ProductCodeFilter;
+import com.weitzel.trustychain.common.metrics.ChainMetrics;
+import io.r2dbc.spi.Readable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking reads behind the public tracking endpoints. Rows stream from R2DBC and are verified one by one
+ * on the parallel scheduler as they arrive, so a scan spike is served by a few event-loop and CPU threads
+ * instead of one JDBC-bound thread per request. Only the jpa store keeps chains in postgres, and chains that
+ * were moved to the cold archive are read through the blocking ChainStore on boundedElastic.
+ */
+@Service
+@ConditionalOnProperty(name = "trustychain.r2dbc.url")
+public class ReactiveChainService {
+    static final String SELECT_LINKS = """
+            SELECT actor, product_code, event_type, metadata, previous_hash, current_hash, signature,
+                   public_key_snapshot, trusted_timestamp, timestamp_signature
+            FROM product_chain
+            WHERE product_code = $1
+            ORDER BY created_at
+            """;
+    static final String SELECT_EXISTS = "SELECT 1 FROM product_chain WHERE product_code = $1 LIMIT 1";
+
+    private final DatabaseClient databaseClient;
+    private final ChainStore chainStore;
+    private final ChainArchive chainArchive;
+    private final ProductChainService productChainService;
+    private final TrackingService trackingService;
+    private final ChainMetrics chainMetrics;
+    private final ProductCodeFilter productCodeFilter;
+
+    public ReactiveChainService(DatabaseClient databaseClient,
+            ChainStore chainStore,
+            ChainArchive chainArchive,
+            ProductChainService productChainService,
+            TrackingService trackingService,
+            ChainMetrics chainMetrics,
+            ProductCodeFilter productCodeFilter) {
+        this.databaseClient = databaseClient;
+        this.chainStore = chainStore;
+        this.chainArchive = chainArchive;
+        this.productChainService = productChainService;
+        this.trackingService = trackingService;
+        this.chainMetrics = chainMetrics;
+        this.productCodeFilter = productCodeFilter;
+    }
+
+    // every event of the product in chain order
+    public Flux<ChainLinkDTO> scan(String productCode) {
+        if (!productCodeFilter.mightExist(productCode)) {
+            return Flux.empty();
+        }
+        if (chainArchive.contains(productCode)) {
+            return Flux.defer(() -> Flux.fromIterable(chainStore.scan(productCode)))
+                    .subscribeOn(Schedulers.boundedElastic());
+        }
+        return databaseClient.sql(SELECT_LINKS)
+                .bind(0, productCode)
+                .map(ReactiveChainService::toLink)
+                .all();
+    }
+
+    public Flux<ChainEventDTO> events(String productCode) {
+        return scan(productCode).map(ReactiveChainService::toEvent);
+    }
+
+    public Mono<Boolean> exists(String productCode) {
+        if (!productCodeFilter.mightExist(productCode)) {
+            return Mono.just(false);
+        }
+        if (chainArchive.contains(productCode)) {
+            return Mono.just(true);
+        }
+        return databaseClient.sql(SELECT_EXISTS)
+                .bind(0, productCode)
+                .map(row -> true)
+                .first()
+                .defaultIfEmpty(false);
+    }
+
+    // empty when the product has no events
+    public Mono<Verification> verify(String productCode) {
+        return verify(productCode, event -> {
+        });
+    }
+
+    public Mono<TrackingResponse> tracking(String productCode) {
+        return Mono.defer(() -> {
+            List<ChainEventDTO> events = new ArrayList<>();
+            return verify(productCode, event -> events.add(toEvent(event)))
+                    .map(verification -> new TrackingResponse(productCode, verification.valid(), events,
+                            trackingService.generateQRCodeUrl(productCode)));
+        });
+    }
+
+    // empty for an unknown product, an image that is not cached yet is rendered on the parallel scheduler
+    public Mono<byte[]> qrCode(String productCode, int size, QrFormat format) {
+        return exists(productCode)
+                .filter(Boolean::booleanValue)
+                .publishOn(Schedulers.parallel())
+                .map(found -> trackingService.qrCode(productCode, size, format));
+    }
+
+    private Mono<Verification> verify(String productCode, Consumer<ChainLinkDTO> onEvent) {
+        return Mono.defer(() -> {
+            long started = System.nanoTime();
+            return scan(productCode)
+                    .publishOn(Schedulers.parallel())
+                    .doOnNext(onEvent)
+                    .reduce(Verification.START, (state, event) -> state.next(event, productChainService))
+                    .filter(state -> state.eventCount() > 0)
+                    .doOnNext(state -> chainMetrics.recordVerification(
+                            Duration.ofNanos(System.nanoTime() - started), state.failure()));
+        });
+    }
+
+    private static ChainLinkDTO toLink(Readable row) {
+        return new ChainLinkDTO(
+                row.get("actor", String.class),
+                row.get("product_code", String.class),
+                row.get("event_type", String.class),
+                row.get("metadata", String.class),
+                row.get("previous_hash", String.class),
+                row.get("current_hash", String.class),
+                row.get("signature", String.class),
+                row.get("public_key_snapshot", String.class),
+                row.get("trusted_timestamp", LocalDateTime.class),
+                row.get("timestamp_signature", String.class));
+    }
+
+    private static ChainEventDTO toEvent(ChainLinkDTO event) {
+        return new ChainEventDTO(event.actor(), event.eventType(), event.metadata(), event.trustedTimestamp(),
+                event.currentHash());
+    }
+
+    // running state of a streamed verification, failure is null while the chain holds
+    public record Verification(String previousHash, long eventCount, long legacyUnsignedEvents, String failure) {
+        static final Verification START = new Verification(null, 0, 0, null);
+
+        // after the first failure the remaining events are only counted
+        Verification next(ChainLinkDTO event, ProductChainService checker) {
+            String result = failure != null ? failure : checker.checkLink(previousHash, event);
+            long legacyUnsigned = BackfillChainBuilder.LEGACY_UNSIGNED.equals(event.signature())
+                    ? legacyUnsignedEvents + 1
+                    : legacyUnsignedEvents;
+            return new Verification(event.currentHash(), eventCount + 1, legacyUnsigned, result);
+        }
+
+        public boolean valid() {
+            return failure == null;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.weitzel.trustychain.chain.reactive;
+
+import com.weitzel.trustychain.chain.ProductChainController;
+import com.weitzel.trustychain.chain.ProductChainController.VerificationResult;
+import com.weitzel.trustychain.chain.QrFormat;
+import com.weitzel.trustychain.chain.TrackingService;
+import com.weitzel.trustychain.chain.dto.TrackingResponse;
+import com.weitzel.trustychain.chain.dto.TrackingResponse.ChainEventDTO;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// same responses as ProductChainController's read endpoints, served without blocking a thread on JDBC
+@RestController
+@RequestMapping("/api/reactive/product-chain")
+@ConditionalOnProperty(name = "trustychain.r2dbc.url")
+@Tag(name = "Product Chain (reactive)", description = "Non-blocking tracking, verification and QR reads")
+public class ReactiveProductChainController {
+
+    private final ReactiveChainService reactiveChainService;
+    private final TrackingService trackingService;
+
+    public ReactiveProductChainController(ReactiveChainService reactiveChainService,
+            TrackingService trackingService) {
+        this.reactiveChainService = reactiveChainService;
+        this.trackingService = trackingService;
+    }
+
+    @GetMapping("/{productCode}")
+    @Operation(summary = "Get product tracking history", description = "Returns the chain history, verified while it is read")
+    public Mono<ResponseEntity<TrackingResponse>> getProductTracking(@PathVariable String productCode) {
+        return reactiveChainService.tracking(productCode)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(value = "/{productCode}/events", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream product events", description = "Streams the events as newline delimited JSON in chain order")
+    public Flux<ChainEventDTO> streamEvents(@PathVariable String productCode) {
+        return reactiveChainService.events(productCode);
+    }
+
+    @GetMapping("/{productCode}/verify")
+    @Operation(summary = "Verify chain integrity", description = "Verifies every event as it is streamed from the database")
+    public Mono<ResponseEntity<VerificationResult>> verifyChain(@PathVariable String productCode) {
+        return reactiveChainService.verify(productCode)
+                .map(verification -> ResponseEntity.ok(
+                        new VerificationResult(productCode, verification.valid(), verification.eventCount(),
+                                verification.legacyUnsignedEvents())))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{productCode}/qr")
+    @Operation(summary = "Get QR code image", description = "Returns a QR code PNG (or SVG with format=svg) that links to the product tracking page")
+    public Mono<ResponseEntity<byte[]>> getQRCode(
+            @PathVariable String productCode,
+            @RequestParam(defaultValue = "300") int size,
+            @RequestParam(defaultValue = "png") String format,
+            WebRequest request) {
+        QrFormat qrFormat = QrFormat.of(format);
+        trackingService.checkQRCodeSize(size);
+        String eTag = trackingService.qrCodeETag(productCode, size, qrFormat);
+        if (request.checkNotModified(eTag)) {
+            return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag)
+                    .cacheControl(ProductChainController.QR_CACHE_CONTROL).build());
+        }
+        return reactiveChainService.qrCode(productCode, size, qrFormat)
+                .map(qrCode -> ResponseEntity.ok()
+                        .contentType(qrFormat.mediaType())
+                        .eTag(eTag)
+                        .cacheControl(ProductChainController.QR_CACHE_CONTROL)
+                        .body(qrCode))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,57 @@
+package com.weitzel.trustychain.chain.store;
+
+import com.weitzel.trustychain.chain.ProductChain;
+import com.weitzel.trustychain.chain.dto.ChainLinkDTO;
+import com.weitzel.trustychain.chain.dto.TrackingResponse.ChainEventDTO;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+// storage engine behind ProductChainService, trustychain.store.type selects jpa (default) or log
+public interface ChainStore {
+
+    // currentHash of the last event of the product, empty for a new product
+    Optional<String> findHeadHash(String productCode);
+
+    // held until the surrounding transaction ends, LogChainStore rejects a stale head in append instead
+    default void lockChain(String productCode) {
+    }
+
+    ProductChain append(ProductChain event);
+
+    // every event of the product in chain order
+    List<ChainLinkDTO> scan(String productCode);
+
+    // same as scan, for callers that stream events out without holding the whole chain
+    default void forEachLink(String productCode, Consumer<ChainLinkDTO> consumer) {
+        scan(productCode).forEach(consumer);
+    }
+
+    default List<ChainEventDTO> scanTrackingEvents(String productCode) {
+        return scan(productCode).stream()
+                .map(event -> new ChainEventDTO(event.actor(), event.eventType(), event.metadata(),
+                        event.trustedTimestamp(), event.currentHash()))
+                .toList();
+    }
+
+    boolean exists(String productCode);
+
+    long count(String productCode);
+
+    default long countBySignature(String productCode, String signature) {
+        return scan(productCode).stream().filter(event -> signature.equals(event.signature())).count();
+    }
+
+    // every product code once, for building in-memory indexes such as the ProductCodeFilter
+    void forEachProductCode(Consumer<String> consumer);
+
+    // moves whenever a write added product codes, on any instance. A single-process store never needs it
+    default long productCodeGeneration() {
+        return 0;
+    }
+
+    // the surrounding transaction adds at least one product code
+    default void productCodesAdded() {
+    }
+}
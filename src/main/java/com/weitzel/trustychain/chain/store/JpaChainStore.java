@@ -0,0 +1,152 @@
+package com.weitzel.trustychain.chain.store;
+
+import com.weitzel.trustychain.chain.ProductChain;
+import com.weitzel.trustychain.chain.ProductChainRepository;
+import com.weitzel.trustychain.chain.ProductCodeGenerationRepository;
+import com.weitzel.trustychain.chain.archive.ChainArchive;
+import com.weitzel.trustychain.chain.dto.ChainLinkDTO;
+import com.weitzel.trustychain.chain.dto.TrackingResponse.ChainEventDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// postgres for hot chains, ChainArchive for the sealed ones the ArchivalJob moved out
+@Component
+@ConditionalOnProperty(name = "trustychain.store.type", havingValue = "jpa", matchIfMissing = true)
+public class JpaChainStore implements ChainStore {
+    private final ProductChainRepository productChainRepository;
+    private final ProductCodeGenerationRepository productCodeGenerationRepository;
+    private final ChainArchive chainArchive;
+    // most appends extend a recently touched chain, so the head is looked up in this window first
+    private final Duration headLookupWindow;
+
+    public JpaChainStore(ProductChainRepository productChainRepository,
+            ProductCodeGenerationRepository productCodeGenerationRepository,
+            ChainArchive chainArchive,
+            @Value("${trustychain.chain.head-lookup-window:P31D}") Duration headLookupWindow) {
+        this.productChainRepository = productChainRepository;
+        this.productCodeGenerationRepository = productCodeGenerationRepository;
+        this.chainArchive = chainArchive;
+        this.headLookupWindow = headLookupWindow;
+    }
+
+    @Override
+    public Optional<String> findHeadHash(String productCode) {
+        LocalDateTime since = LocalDateTime.now().minus(headLookupWindow);
+        return productChainRepository.findHeadHash(productCode, since)
+                .or(() -> archivedHeadHash(productCode));
+    }
+
+    @Override
+    public void lockChain(String productCode) {
+        productChainRepository.lockChain(productCode);
+    }
+
+    @Override
+    public ProductChain append(ProductChain event) {
+        return productChainRepository.save(event);
+    }
+
+    // archived events first, then the ones still in postgres
+    @Override
+    public List<ChainLinkDTO> scan(String productCode) {
+        List<ChainLinkDTO> hot = productChainRepository.findChainLinks(productCode);
+        List<ChainLinkDTO> archived = chainArchive.find(productCode);
+        if (archived.isEmpty()) {
+            return hot;
+        }
+
+        // an interrupted archival run can leave rows in both tiers until its next run deletes them
+        Set<String> archivedHashes = archived.stream()
+                .map(ChainLinkDTO::currentHash)
+                .collect(Collectors.toSet());
+        List<ChainLinkDTO> merged = new ArrayList<>(archived);
+        hot.stream()
+                .filter(event -> !archivedHashes.contains(event.currentHash()))
+                .forEach(merged::add);
+        return merged;
+    }
+
+    // rows are read through a server-side cursor, must be called inside a transaction
+    @Override
+    public void forEachLink(String productCode, Consumer<ChainLinkDTO> consumer) {
+        List<ChainLinkDTO> archived = chainArchive.find(productCode);
+        archived.forEach(consumer);
+        Set<String> archivedHashes = archived.stream()
+                .map(ChainLinkDTO::currentHash)
+                .collect(Collectors.toSet());
+        try (Stream<ChainLinkDTO> hot = productChainRepository.streamChainLinks(productCode)) {
+            hot.filter(event -> !archivedHashes.contains(event.currentHash())).forEach(consumer);
+        }
+    }
+
+    @Override
+    public List<ChainEventDTO> scanTrackingEvents(String productCode) {
+        if (!chainArchive.contains(productCode)) {
+            return productChainRepository.findTrackingEvents(productCode);
+        }
+        return ChainStore.super.scanTrackingEvents(productCode);
+    }
+
+    @Override
+    public boolean exists(String productCode) {
+        return productChainRepository.existsByProductCode(productCode) || chainArchive.contains(productCode);
+    }
+
+    @Override
+    public long count(String productCode) {
+        if (!chainArchive.contains(productCode)) {
+            return productChainRepository.countByProductCode(productCode);
+        }
+        return scan(productCode).size();
+    }
+
+    @Override
+    public long countBySignature(String productCode, String signature) {
+        if (!chainArchive.contains(productCode)) {
+            return productChainRepository.countByProductCodeAndSignature(productCode, signature);
+        }
+        return ChainStore.super.countBySignature(productCode, signature);
+    }
+
+    // hot codes through a server-side cursor, then the archived ones. A code in both tiers is passed twice
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachProductCode(Consumer<String> consumer) {
+        try (Stream<String> codes = productChainRepository.streamProductCodes()) {
+            codes.forEach(consumer);
+        }
+        chainArchive.forEachProductCode(consumer);
+    }
+
+    // read-only like forEachProductCode, so a replica that shows a generation also has its rows
+    @Override
+    @Transactional(readOnly = true)
+    public long productCodeGeneration() {
+        return productCodeGenerationRepository.current().orElse(0L);
+    }
+
+    @Override
+    public void productCodesAdded() {
+        productCodeGenerationRepository.increment();
+    }
+
+    // a sealed chain that was archived can still be extended, the new event links to the archived head
+    private Optional<String> archivedHeadHash(String productCode) {
+        List<ChainLinkDTO> archived = chainArchive.find(productCode);
+        return archived.isEmpty()
+                ? Optional.empty()
+                : Optional.of(archived.get(archived.size() - 1).currentHash());
+    }
+}
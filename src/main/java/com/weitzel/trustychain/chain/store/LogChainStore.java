@@ -0,0 +1,461 @@
+package com.weitzel.trustychain.chain.store;
+
+import com.weitzel.trustychain.chain.ProductChain;
+import com.weitzel.trustychain.chain.dto.ChainLinkDTO;
+import com.weitzel.trustychain.common.exception.Exceptions;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// embedded chain store without postgres: CRC-framed records in segment files, index rebuilt on startup
+@Component
+@ConditionalOnProperty(name = "trustychain.store.type", havingValue = "log")
+public class LogChainStore implements ChainStore {
+    private static final Logger log = LoggerFactory.getLogger(LogChainStore.class);
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int POSITION_BITS = 40;
+
+    private final Path directory;
+    private final long maxSegmentSize;
+    // position in the list is the segment id, channels stay open for positional reads
+    private final List<FileChannel> segments = new CopyOnWriteArrayList<>();
+    // only durable records, readers and head lookups never see a write that an fsync has not covered
+    private final Map<String, ProductIndex> index = new ConcurrentHashMap<>();
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Object syncLock = new Object();
+    private FileChannel active;
+    private long activePosition;
+    // bytes written / fsynced since startup, across all segments
+    private long writtenSequence;
+    private volatile long syncedSequence;
+    // written but not yet synced, in log order, guarded by appendLock
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+    private final Map<String, String> pendingHeads = new HashMap<>();
+    // set once a write or fsync left the log in an unknown state, a restart replays what reached the disk
+    private volatile IOException failure;
+
+    private record Pending(long sequence, String productCode, long location, String currentHash) {
+    }
+
+    public LogChainStore(@Value("${trustychain.store.log.directory:./data/chain-log}") String directory,
+            @Value("${trustychain.store.log.segment-size:67108864}") long maxSegmentSize) throws IOException {
+        this.directory = Path.of(directory);
+        this.maxSegmentSize = maxSegmentSize;
+        recover();
+    }
+
+    @Override
+    public Optional<String> findHeadHash(String productCode) {
+        ProductIndex product = index.get(productCode);
+        return product == null ? Optional.empty() : Optional.ofNullable(product.head);
+    }
+
+    @Override
+    public ProductChain append(ProductChain event) {
+        if (event.getId() == null) {
+            event.setId(UUID.randomUUID());
+        }
+        if (event.getCreatedAt() == null) {
+            event.setCreatedAt(LocalDateTime.now());
+        }
+        byte[] payload = encode(event);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        record.putInt(payload.length).putInt(checksum(payload)).put(payload).flip();
+
+        long sequence;
+        appendLock.lock();
+        try {
+            checkHealthy();
+            // the log is the single writer, so a head that moved since the caller read it is caught here.
+            // A write still waiting for its fsync counts, the caller cannot have read it
+            String head = pendingHeads.get(event.getProductCode());
+            if (head == null) {
+                ProductIndex product = index.get(event.getProductCode());
+                head = product == null ? null : product.head;
+            }
+            if (!Objects.equals(head, event.getPreviousHash())) {
+                throw new Exceptions.ChainIntegrityException(
+                        "Chain head changed concurrently for product: " + event.getProductCode());
+            }
+
+            if (activePosition > 0 && activePosition + record.remaining() > maxSegmentSize) {
+                roll();
+            }
+            long position = activePosition;
+            write(record, position);
+            writtenSequence += activePosition - position;
+            sequence = writtenSequence;
+
+            pending.add(new Pending(sequence, event.getProductCode(), location(segments.size() - 1, position),
+                    event.getCurrentHash()));
+            pendingHeads.put(event.getProductCode(), event.getCurrentHash());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to chain log", e);
+        } finally {
+            appendLock.unlock();
+        }
+
+        awaitDurable(sequence);
+        return event;
+    }
+
+    @Override
+    public List<ChainLinkDTO> scan(String productCode) {
+        ProductIndex product = index.get(productCode);
+        if (product == null) {
+            return List.of();
+        }
+        long[] locations = product.snapshot();
+        List<ChainLinkDTO> events = new ArrayList<>(locations.length);
+        try {
+            for (long location : locations) {
+                events.add(toLink(decode(read(location))));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read chain log", e);
+        }
+        return events;
+    }
+
+    @Override
+    public boolean exists(String productCode) {
+        return index.containsKey(productCode);
+    }
+
+    @Override
+    public long count(String productCode) {
+        ProductIndex product = index.get(productCode);
+        return product == null ? 0 : product.size();
+    }
+
+    @Override
+    public void forEachProductCode(Consumer<String> consumer) {
+        index.keySet().forEach(consumer);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            active.force(false);
+            for (FileChannel segment : segments) {
+                segment.close();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // group commit: the first waiter fsyncs everything written so far and publishes it to the index,
+    // the others find their bytes already synced
+    private void awaitDurable(long sequence) {
+        if (syncedSequence >= sequence) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (syncedSequence >= sequence) {
+                return;
+            }
+            long upTo;
+            FileChannel channel;
+            List<Pending> batch;
+            appendLock.lock();
+            try {
+                checkHealthy();
+                upTo = writtenSequence;
+                channel = active;
+                batch = new ArrayList<>(pending);
+                pending.clear();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Chain log failed earlier, restart to recover", e);
+            } finally {
+                appendLock.unlock();
+            }
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                // the kernel may have dropped the dirty pages, whether the batch is on disk is unknown
+                failure = e;
+                throw new UncheckedIOException("Failed to sync chain log", e);
+            }
+            for (Pending record : batch) {
+                index.computeIfAbsent(record.productCode(), code -> new ProductIndex())
+                        .add(record.location(), record.currentHash());
+            }
+            syncedSequence = upTo;
+
+            appendLock.lock();
+            try {
+                for (Pending record : batch) {
+                    pendingHeads.remove(record.productCode(), record.currentHash());
+                }
+            } finally {
+                appendLock.unlock();
+            }
+        }
+    }
+
+    // caller holds appendLock; a partial record is cut off again so the next append does not land behind it
+    private void write(ByteBuffer record, long position) throws IOException {
+        try {
+            while (record.hasRemaining()) {
+                activePosition += active.write(record, activePosition);
+            }
+        } catch (IOException e) {
+            try {
+                active.truncate(position);
+                activePosition = position;
+            } catch (IOException truncateFailed) {
+                e.addSuppressed(truncateFailed);
+                failure = e;
+            }
+            throw e;
+        }
+    }
+
+    // caller holds appendLock
+    private void checkHealthy() throws IOException {
+        if (failure != null) {
+            throw new IOException("Chain log is unusable after an earlier write or sync failure", failure);
+        }
+    }
+
+    // caller holds appendLock; the old segment is synced so group commit only ever has to force the active one
+    private void roll() throws IOException {
+        active.force(false);
+        active = openSegment(segments.size());
+        segments.add(active);
+        activePosition = 0;
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(f -> f.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+
+        long events = 0;
+        for (int id = 0; id < files.size(); id++) {
+            FileChannel channel = openSegment(id);
+            long valid = replay(channel, id);
+            if (valid < channel.size()) {
+                if (id != files.size() - 1) {
+                    throw new IOException("Corrupt record in the middle of the chain log: " + files.get(id));
+                }
+                log.warn("Truncating torn tail of {} at byte {}", files.get(id).getFileName(), valid);
+                channel.truncate(valid);
+                channel.force(true);
+            }
+            segments.add(channel);
+        }
+        if (segments.isEmpty()) {
+            segments.add(openSegment(0));
+        }
+
+        active = segments.get(segments.size() - 1);
+        activePosition = active.size();
+        for (ProductIndex product : index.values()) {
+            events += product.size();
+        }
+        log.info("Chain log recovered {} event(s) for {} product(s) from {} segment(s)",
+                events, index.size(), segments.size());
+    }
+
+    // rebuilds the index from one segment, returns the length of its valid prefix
+    private long replay(FileChannel channel, int segmentId) throws IOException {
+        long position = 0;
+        long size = channel.size();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel.position(0)), 1 << 16));
+        while (position + HEADER_SIZE <= size) {
+            int length = in.readInt();
+            int crc = in.readInt();
+            if (length <= 0 || position + HEADER_SIZE + length > size) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            if (checksum(payload) != crc) {
+                break;
+            }
+            ProductChain event = decode(payload);
+            index.computeIfAbsent(event.getProductCode(), code -> new ProductIndex())
+                    .add(location(segmentId, position), event.getCurrentHash());
+            position += HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    private byte[] read(long location) throws IOException {
+        FileChannel channel = segments.get((int) (location >>> POSITION_BITS));
+        long position = location & ((1L << POSITION_BITS) - 1);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, position);
+        int length = header.getInt(0);
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(channel, payload, position + HEADER_SIZE);
+        return payload.array();
+    }
+
+    private FileChannel openSegment(int id) throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", id, SEGMENT_SUFFIX));
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Unexpected end of chain log");
+            }
+        }
+    }
+
+    private static long location(int segmentId, long position) {
+        return ((long) segmentId << POSITION_BITS) | position;
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] encode(ProductChain event) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1536);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(event.getId().getMostSignificantBits());
+            out.writeLong(event.getId().getLeastSignificantBits());
+            writeString(out, event.getActor());
+            writeString(out, event.getProductCode());
+            writeString(out, event.getEventType());
+            writeString(out, event.getMetadata());
+            writeString(out, event.getPreviousHash());
+            writeString(out, event.getCurrentHash());
+            writeString(out, event.getSignature());
+            writeString(out, event.getPublicKeySnapshot());
+            writeTime(out, event.getCreatedAt());
+            writeTime(out, event.getTrustedTimestamp());
+            writeString(out, event.getTimestampSignature());
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ProductChain decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        ProductChain event = new ProductChain();
+        event.setId(new UUID(in.readLong(), in.readLong()));
+        event.setActor(readString(in));
+        event.setProductCode(readString(in));
+        event.setEventType(readString(in));
+        event.setMetadata(readString(in));
+        event.setPreviousHash(readString(in));
+        event.setCurrentHash(readString(in));
+        event.setSignature(readString(in));
+        event.setPublicKeySnapshot(readString(in));
+        event.setCreatedAt(readTime(in));
+        event.setTrustedTimestamp(readTime(in));
+        event.setTimestampSignature(readString(in));
+        return event;
+    }
+
+    private static ChainLinkDTO toLink(ProductChain event) {
+        return new ChainLinkDTO(event.getActor(), event.getProductCode(), event.getEventType(),
+                event.getMetadata(), event.getPreviousHash(), event.getCurrentHash(), event.getSignature(),
+                event.getPublicKeySnapshot(), event.getTrustedTimestamp(), event.getTimestampSignature());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time.getNano());
+    }
+
+    private static LocalDateTime readTime(DataInputStream in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    private static final class ProductIndex {
+        private long[] locations = new long[4];
+        private int size;
+        private volatile String head;
+
+        synchronized void add(long location, String currentHash) {
+            if (size == locations.length) {
+                locations = Arrays.copyOf(locations, size * 2);
+            }
+            locations[size++] = location;
+            head = currentHash;
+        }
+
+        synchronized long[] snapshot() {
+            return Arrays.copyOf(locations, size);
+        }
+
+        synchronized int size() {
+            return size;
+        }
+    }
+}
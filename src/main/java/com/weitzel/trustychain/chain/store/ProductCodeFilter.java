@@ -0,0 +1,158 @@
+package com.weitzel.trustychain.chain.store;
+
+import com.weitzel.trustychain.common.metrics.ChainMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Bloom filter of every product code in the ChainStore, unknown codes answer 404 without a query. Writes on
+// other instances, backfills and DatasetGenerator move the store's product code generation, see refresh
+@Component
+public class ProductCodeFilter {
+    private static final Logger log = LoggerFactory.getLogger(ProductCodeFilter.class);
+
+    private final ChainStore chainStore;
+    private final ChainMetrics chainMetrics;
+    private final boolean enabled;
+    private final long expectedCodes;
+    private final double falsePositiveRate;
+
+    private final Object lock = new Object();
+    private volatile ScalableBloomFilter current;
+    // the store's product code generation read before the current filter was built
+    private volatile long builtGeneration;
+    // the filter being rebuilt, guarded by lock
+    private ScalableBloomFilter next;
+
+    public ProductCodeFilter(ChainStore chainStore,
+            ChainMetrics chainMetrics,
+            @Value("${trustychain.product-filter.enabled:true}") boolean enabled,
+            @Value("${trustychain.product-filter.expected-codes:1000000}") long expectedCodes,
+            @Value("${trustychain.product-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.chainStore = chainStore;
+        this.chainMetrics = chainMetrics;
+        this.enabled = enabled;
+        this.expectedCodes = expectedCodes;
+        this.falsePositiveRate = falsePositiveRate;
+        if (enabled) {
+            chainMetrics.monitorProductFilter(this);
+        }
+    }
+
+    // false only when the product certainly has no events, up to refresh-interval after another writer added it
+    public boolean mightExist(String productCode) {
+        ScalableBloomFilter filter = current;
+        if (filter == null) {
+            return true;
+        }
+        boolean mightExist = filter.mightContain(productCode);
+        chainMetrics.productFilterLookup(mightExist);
+        return mightExist;
+    }
+
+    // called for every appended event. Added right away so the product is readable at once, and again after
+    // commit, because a rebuild that started before the commit does not see the row
+    public void add(String productCode) {
+        if (!enabled) {
+            return;
+        }
+        addNow(productCode);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addNow(productCode);
+                }
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${trustychain.product-filter.rebuild-interval:PT10M}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        long generation;
+        try {
+            generation = chainStore.productCodeGeneration();
+        } catch (RuntimeException e) {
+            log.error("Failed to read the product code generation, keeping the previous filter", e);
+            return;
+        }
+        ScalableBloomFilter filter = new ScalableBloomFilter(expectedCodes, falsePositiveRate);
+        synchronized (lock) {
+            next = filter;
+        }
+        try {
+            chainStore.forEachProductCode(filter::add);
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                next = null;
+            }
+            log.error("Failed to build the product code filter, keeping the previous one", e);
+            return;
+        }
+        synchronized (lock) {
+            current = filter;
+            next = null;
+            builtGeneration = generation;
+        }
+        log.info("Product code filter built in {} ms: {} codes, {} KiB in {} stage(s), false-positive rate ~{}",
+                (System.nanoTime() - start) / 1_000_000, filter.size(), filter.sizeInBytes() / 1024,
+                filter.stageCount(), filter.expectedFalsePositiveRate());
+    }
+
+    // one primary key lookup, the full rebuild only runs when some writer added product codes since the last one
+    @Scheduled(fixedDelayString = "${trustychain.product-filter.refresh-interval:PT15S}")
+    public void refresh() {
+        if (!enabled || current == null) {
+            return;
+        }
+        long generation;
+        try {
+            generation = chainStore.productCodeGeneration();
+        } catch (RuntimeException e) {
+            log.warn("Failed to read the product code generation: {}", e.getMessage());
+            return;
+        }
+        if (generation != builtGeneration) {
+            rebuild();
+        }
+    }
+
+    public boolean isReady() {
+        return current != null;
+    }
+
+    public long size() {
+        ScalableBloomFilter filter = current;
+        return filter == null ? 0 : filter.size();
+    }
+
+    public long sizeInBytes() {
+        ScalableBloomFilter filter = current;
+        return filter == null ? 0 : filter.sizeInBytes();
+    }
+
+    public double expectedFalsePositiveRate() {
+        ScalableBloomFilter filter = current;
+        return filter == null ? 0 : filter.expectedFalsePositiveRate();
+    }
+
+    private void addNow(String productCode) {
+        synchronized (lock) {
+            ScalableBloomFilter filter = current;
+            if (filter != null) {
+                filter.add(productCode);
+            }
+            if (next != null) {
+                next.add(productCode);
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.weitzel.trustychain.chain.store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bloom filter that adds larger, tighter stages as it fills (Almeida et al.), so the combined false-positive
+// rate stays below the target. Lookups and adds are lock-free, only adding a stage locks
+public class ScalableBloomFilter {
+    private static final int GROWTH = 2;
+    private static final double TIGHTENING = 0.5;
+
+    private final double targetFalsePositiveRate;
+    private final List<Stage> stages = new CopyOnWriteArrayList<>();
+
+    public ScalableBloomFilter(long initialCapacity, double targetFalsePositiveRate) {
+        this.targetFalsePositiveRate = targetFalsePositiveRate;
+        stages.add(new Stage(Math.max(initialCapacity, 1024), targetFalsePositiveRate * (1 - TIGHTENING)));
+    }
+
+    public void add(String key) {
+        long hash = hash(key);
+        for (Stage stage : stages) {
+            if (stage.mightContain(hash)) {
+                return;
+            }
+        }
+        current().add(hash);
+    }
+
+    // false means the key was never added, true means it probably was
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        for (Stage stage : stages) {
+            if (stage.mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long size() {
+        return stages.stream().mapToLong(stage -> stage.count.get()).sum();
+    }
+
+    public long sizeInBytes() {
+        return stages.stream().mapToLong(stage -> stage.bits.length() * 8L).sum();
+    }
+
+    public int stageCount() {
+        return stages.size();
+    }
+
+    // estimated from how full each stage actually is, not from the targets
+    public double expectedFalsePositiveRate() {
+        double allNegative = 1;
+        for (Stage stage : stages) {
+            allNegative *= 1 - stage.falsePositiveRate();
+        }
+        return 1 - allNegative;
+    }
+
+    private Stage current() {
+        Stage last = stages.get(stages.size() - 1);
+        if (last.count.get() < last.capacity) {
+            return last;
+        }
+        synchronized (stages) {
+            last = stages.get(stages.size() - 1);
+            if (last.count.get() >= last.capacity) {
+                double rate = targetFalsePositiveRate * (1 - TIGHTENING) * Math.pow(TIGHTENING, stages.size());
+                last = new Stage(last.capacity * GROWTH, rate);
+                stages.add(last);
+            }
+            return last;
+        }
+    }
+
+    // FNV-1a over the UTF-8 bytes, then the murmur3 finaliser so both halves are well mixed
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class Stage {
+        private final long capacity;
+        private final long bitCount;
+        private final int hashCount;
+        private final AtomicLongArray bits;
+        private final AtomicLong count = new AtomicLong();
+
+        Stage(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            // optimal size and number of hash functions for the capacity and target rate
+            long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.bits = new AtomicLongArray(Math.toIntExact((optimalBits + 63) / 64));
+            this.bitCount = bits.length() * 64L;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+        }
+
+        boolean mightContain(long hash) {
+            for (int i = 1; i <= hashCount; i++) {
+                long bit = bit(hash, i);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void add(long hash) {
+            boolean changed = false;
+            for (int i = 1; i <= hashCount; i++) {
+                long bit = bit(hash, i);
+                long mask = 1L << bit;
+                int word = (int) (bit >>> 6);
+                if ((bits.getAndAccumulate(word, mask, (current, set) -> current | set) & mask) == 0) {
+                    changed = true;
+                }
+            }
+            if (changed) {
+                count.incrementAndGet();
+            }
+        }
+
+        // double hashing (Kirsch and Mitzenmacher) with the two halves of the 64 bit hash
+        private long bit(long hash, int i) {
+            long h1 = hash & 0xffffffffL;
+            long h2 = hash >>> 32;
+            return ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+        }
+
+        double falsePositiveRate() {
+            return Math.pow(1 - Math.exp(-(double) hashCount * count.get() / bitCount), hashCount);
+        }
+    }
+}
@@ -2,25 +2,24 @@ package com.weitzel.trustychain.common.config;
 
 import com.weitzel.trustychain.actor.Actor;
 import com.weitzel.trustychain.actor.ActorRepository;
+import com.weitzel.trustychain.common.service.RsaKeyPairPool;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.security.KeyPair;
-import java.security.KeyPairGenerator;
 import java.util.Base64;
 
 @Configuration
 public class DataSeeder {
 
     @Bean
-    public CommandLineRunner seedUsers(ActorRepository actorRepository, PasswordEncoder passwordEncoder) {
+    public CommandLineRunner seedUsers(ActorRepository actorRepository, PasswordEncoder passwordEncoder,
+            RsaKeyPairPool rsaKeyPairPool) {
         return args -> {
             if (actorRepository.findByUsername("user").isEmpty()) {
-                KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
-                kpg.initialize(2048);
-                KeyPair kp = kpg.generateKeyPair();
+                KeyPair kp = rsaKeyPairPool.take();
                 String publicKey = Base64.getEncoder().encodeToString(kp.getPublic().getEncoded());
 
                 Actor user = new Actor();
@@ -0,0 +1,67 @@
+package com.weitzel.trustychain.common.config;
+
+import com.weitzel.trustychain.common.ratelimit.RateLimitInterceptor;
+import com.weitzel.trustychain.common.ratelimit.TokenBucketRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// per-client token buckets in front of the public endpoints that burn CPU (crypto, LLM, password hashing),
+// see RateLimitInterceptor
+@Configuration
+public class RateLimitConfig implements WebMvcConfigurer {
+    private final boolean enabled;
+    private final RateLimitInterceptor interceptor;
+
+    public RateLimitConfig(@Value("${trustychain.rate-limit.enabled:true}") boolean enabled,
+            @Value("${trustychain.rate-limit.capacity:100}") double capacity,
+            @Value("${trustychain.rate-limit.refill-per-second:5}") double refillPerSecond,
+            @Value("${trustychain.rate-limit.max-clients:100000}") int maxClients,
+            @Value("${trustychain.rate-limit.cost.default:1}") double defaultCost,
+            @Value("${trustychain.rate-limit.cost.verify:5}") double verifyCost,
+            @Value("${trustychain.rate-limit.cost.verify-events-per-token:50}") double eventsPerToken,
+            @Value("${trustychain.rate-limit.cost.register:10}") double registerCost,
+            @Value("${trustychain.rate-limit.cost.key-generation:20}") double keyGenerationCost,
+            @Value("${trustychain.rate-limit.cost.chat:10}") double chatCost,
+            @Value("${trustychain.rate-limit.cost.login:10}") double loginCost,
+            @Value("${trustychain.rate-limit.cost.sign-up:20}") double signUpCost,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        this.enabled = enabled;
+
+        // first match wins, so /event goes before /{productCode}. Tracking verifies the chain as well
+        PathPatternParser parser = PathPatternParser.defaultInstance;
+        Map<PathPattern, Double> costs = new LinkedHashMap<>();
+        costs.put(parser.parse("/api/product-chain/event"), registerCost);
+        costs.put(parser.parse("/api/key-generation"), keyGenerationCost);
+        costs.put(parser.parse("/api/assistant/chat"), chatCost);
+        costs.put(parser.parse("/api/auth/login"), loginCost);
+        costs.put(parser.parse("/api/actors"), signUpCost);
+        costs.put(parser.parse("/api/product-chain/{productCode}"), verifyCost);
+        costs.put(parser.parse("/api/product-chain/{productCode}/verify"), verifyCost);
+        costs.put(parser.parse("/api/reactive/product-chain/{productCode}"), verifyCost);
+        costs.put(parser.parse("/api/reactive/product-chain/{productCode}/verify"), verifyCost);
+
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(capacity, refillPerSecond, maxClients,
+                Runtime.getRuntime().availableProcessors() * 16, System::nanoTime);
+        this.interceptor = new RateLimitInterceptor(limiter, costs, defaultCost, eventsPerToken,
+                meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (enabled) {
+            registry.addInterceptor(interceptor)
+                    .addPathPatterns("/api/product-chain/**", "/api/reactive/product-chain/**",
+                            "/api/key-generation/**", "/api/assistant/chat", "/api/auth/**", "/api/actors");
+        }
+    }
+}
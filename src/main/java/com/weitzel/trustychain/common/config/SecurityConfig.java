@@ -24,6 +24,23 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 @EnableWebSecurity
 @EnableMethodSecurity
 public class SecurityConfig {
+    // reachable without a token, JwtAuthenticationFilter skips them
+    public static final String[] PUBLIC_PATHS = {
+            "/api/auth/login",
+            "/api/auth/register",
+            "/api/actors",
+            "/api/assistant/chat",
+            "/api/assistant/health",
+            "/api/key-generation/**",
+            "/api/tracking/**",
+            "/api/product-chain/**",
+            "/api/reactive/product-chain/**",
+            "/v3/api-docs/**",
+            "/swagger-ui/**",
+            "/swagger-ui.html",
+            "/actuator/health"
+    };
+
     private final JwtAuthenticationFilter jwtAuthFilter;
 
     public SecurityConfig(@Lazy JwtAuthenticationFilter jwtAuthFilter) {
@@ -36,17 +53,10 @@ public class SecurityConfig {
         http
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/api/auth/login",
-                                "/api/auth/register",
-                                "/api/actors",
-                                "/api/assistant/chat",
-                                "/api/assistant/health",
-                                "/api/key-generation/**",
-                                "/api/tracking/**",
-                                "/api/product-chain/**",
-                                "/v3/api-docs/**",
-                                "/swagger-ui/**",
-                                "/swagger-ui.html")
+                        // Prometheus scrapes with an admin's bearer token
+                        .requestMatchers("/actuator/prometheus", "/actuator/metrics/**")
+                        .hasAuthority("ADMIN")
+                        .requestMatchers(PUBLIC_PATHS)
                         .permitAll()
                         .anyRequest().authenticated())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
@@ -39,4 +39,35 @@ public class Exceptions {
             super(message);
         }
     }
-}
\ No newline at end of file
+
+    public static class ImportConflictException extends RuntimeException {
+        public ImportConflictException(String message) {
+            super(message);
+        }
+    }
+
+    public static class ServiceBusyException extends RuntimeException {
+        public ServiceBusyException(String message) {
+            super(message);
+        }
+    }
+
+    public static class InvalidQrRequestException extends RuntimeException {
+        public InvalidQrRequestException(String message) {
+            super(message);
+        }
+    }
+
+    public static class RateLimitedException extends RuntimeException {
+        private final long retryAfterSeconds;
+
+        public RateLimitedException(String message, long retryAfterSeconds) {
+            super(message);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+}
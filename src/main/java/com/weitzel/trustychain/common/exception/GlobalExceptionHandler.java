@@ -2,8 +2,10 @@ package com.weitzel.trustychain.common.exception;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -63,6 +65,43 @@ public class GlobalExceptionHandler {
                 .body(buildErrorResponse(e.getMessage(), HttpStatus.NOT_FOUND));
     }
 
+    @ExceptionHandler(Exceptions.ImportConflictException.class)
+    public ResponseEntity<Map<String, Object>> handleImportConflict(Exceptions.ImportConflictException e) {
+        log.warn("Import conflict: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(buildErrorResponse(e.getMessage(), HttpStatus.CONFLICT));
+    }
+
+    @ExceptionHandler(Exceptions.ServiceBusyException.class)
+    public ResponseEntity<Map<String, Object>> handleServiceBusy(Exceptions.ServiceBusyException e) {
+        log.warn("Service busy: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(buildErrorResponse(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE));
+    }
+
+    @ExceptionHandler(Exceptions.RateLimitedException.class)
+    public ResponseEntity<Map<String, Object>> handleRateLimited(Exceptions.RateLimitedException e) {
+        log.debug("Rate limited: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()))
+                .body(buildErrorResponse(e.getMessage(), HttpStatus.TOO_MANY_REQUESTS));
+    }
+
+    @ExceptionHandler(Exceptions.InvalidQrRequestException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidQrRequest(Exceptions.InvalidQrRequestException e) {
+        log.warn("Invalid QR request: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(buildErrorResponse(e.getMessage(), HttpStatus.BAD_REQUEST));
+    }
+
+    // method security denials would otherwise end up in the RuntimeException handler as 400
+    @ExceptionHandler(AccessDeniedException.class)
+    public ResponseEntity<Map<String, Object>> handleAccessDenied(AccessDeniedException e) {
+        log.warn("Access denied: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(buildErrorResponse("Access denied", HttpStatus.FORBIDDEN));
+    }
+
     @ExceptionHandler(BadCredentialsException.class)
     public ResponseEntity<Map<String, Object>> handleBadCredentials(BadCredentialsException e) {
         log.warn("Authentication failed: {}", e.getMessage());
@@ -0,0 +1,135 @@
+package com.weitzel.trustychain.common.metrics;
+
+import com.weitzel.trustychain.chain.QrCodeCache;
+import com.weitzel.trustychain.chain.store.ProductCodeFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// timers and counters for the chain hot paths, every timer publishes a histogram so each phase can be tuned on its own
+@Component
+public class ChainMetrics {
+    public static final String REGISTER_PHASE = "trustychain.register.phase";
+    public static final String VERIFY_PHASE = "trustychain.verify.phase";
+    public static final String VERIFY = "trustychain.verify";
+    public static final String VERIFY_EVENTS = "trustychain.verify.events";
+    public static final String VERIFY_LEGACY_UNSIGNED = "trustychain.verify.events.legacy.unsigned";
+    public static final String VERIFY_FAILURES = "trustychain.verify.failures";
+    public static final String QR_GENERATION = "trustychain.qr.generation";
+    public static final String QR_CACHE = "trustychain.qr.cache";
+    public static final String QR_CACHE_BYTES = "trustychain.qr.cache.bytes";
+    public static final String PRODUCT_FILTER = "trustychain.product.filter";
+    public static final String PRODUCT_FILTER_CODES = "trustychain.product.filter.codes";
+    public static final String PRODUCT_FILTER_BYTES = "trustychain.product.filter.bytes";
+    public static final String PRODUCT_FILTER_FPP = "trustychain.product.filter.false.positive.rate";
+
+    private final MeterRegistry registry;
+    private final Counter eventsVerified;
+    private final Counter legacyUnsignedEventsVerified;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public ChainMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.eventsVerified = Counter.builder(VERIFY_EVENTS)
+                .description("Chain events checked by verifyChainIntegrity")
+                .register(registry);
+        this.legacyUnsignedEventsVerified = Counter.builder(VERIFY_LEGACY_UNSIGNED)
+                .description("Backfilled events without an actor signature accepted by verifyChainIntegrity")
+                .register(registry);
+    }
+
+    // actor_lookup, head_lookup, signature_verification, hashing, timestamp_signing, save
+    public <T> T registerPhase(String phase, Supplier<T> step) {
+        return timer(REGISTER_PHASE, "phase", phase).record(step);
+    }
+
+    // load, hashing, signature_verification, timestamp_verification
+    public <T> T verifyPhase(String phase, Supplier<T> step) {
+        return timer(VERIFY_PHASE, "phase", phase).record(step);
+    }
+
+    public <T> T qrGeneration(Supplier<T> step) {
+        return timer(QR_GENERATION, null, null).record(step);
+    }
+
+    public void qrCacheLookup(boolean hit) {
+        registry.counter(QR_CACHE, "result", hit ? "hit" : "miss").increment();
+    }
+
+    public void monitorQrCache(QrCodeCache cache) {
+        Gauge.builder(QR_CACHE_BYTES, cache, QrCodeCache::bytes)
+                .description("Bytes of rendered QR images held in memory")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    // rejected lookups never reached the store
+    public void productFilterLookup(boolean mightExist) {
+        registry.counter(PRODUCT_FILTER, "result", mightExist ? "passed" : "rejected").increment();
+    }
+
+    public void monitorProductFilter(ProductCodeFilter filter) {
+        Gauge.builder(PRODUCT_FILTER_CODES, filter, ProductCodeFilter::size)
+                .description("Product codes in the Bloom filter")
+                .register(registry);
+        Gauge.builder(PRODUCT_FILTER_BYTES, filter, ProductCodeFilter::sizeInBytes)
+                .description("Memory held by the product code Bloom filter")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder(PRODUCT_FILTER_FPP, filter, ProductCodeFilter::expectedFalsePositiveRate)
+                .description("Estimated false-positive rate of the product code Bloom filter")
+                .register(registry);
+    }
+
+    // check returns null for a valid chain, otherwise the failure reason, which becomes a tag
+    public boolean verification(Supplier<String> check) {
+        Timer.Sample sample = Timer.start(registry);
+        String failure;
+        try {
+            failure = check.get();
+        } catch (RuntimeException e) {
+            sample.stop(timer(VERIFY, "result", "error"));
+            throw e;
+        }
+        sample.stop(timer(VERIFY, "result", failure == null ? "valid" : "invalid"));
+        countFailure(failure);
+        return failure == null;
+    }
+
+    // same as verification, for the reactive path where the check completes on another thread
+    public void recordVerification(Duration duration, String failure) {
+        timer(VERIFY, "result", failure == null ? "valid" : "invalid").record(duration);
+        countFailure(failure);
+    }
+
+    public void eventVerified() {
+        eventsVerified.increment();
+    }
+
+    public void legacyUnsignedEventVerified() {
+        legacyUnsignedEventsVerified.increment();
+    }
+
+    private void countFailure(String failure) {
+        if (failure != null) {
+            registry.counter(VERIFY_FAILURES, "reason", failure).increment();
+        }
+    }
+
+    private Timer timer(String name, String tagKey, String tagValue) {
+        return timers.computeIfAbsent(name + '|' + tagValue, key -> {
+            Timer.Builder builder = Timer.builder(name).publishPercentileHistogram();
+            if (tagKey != null) {
+                builder.tag(tagKey, tagValue);
+            }
+            return builder.register(registry);
+        });
+    }
+}
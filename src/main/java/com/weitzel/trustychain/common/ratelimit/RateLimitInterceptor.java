@@ -0,0 +1,95 @@
+package com.weitzel.trustychain.common.ratelimit;
+
+import com.weitzel.trustychain.common.exception.Exceptions;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.pattern.PathPattern;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// token bucket per client IP on the public endpoints, plus one per signed-in user that has to hold the cost as
+// well, so fresh accounts do not bring fresh tokens. Verification is charged by chain length after it ran
+public class RateLimitInterceptor implements HandlerInterceptor {
+    public static final String VERIFIED_EVENTS = RateLimitInterceptor.class.getName() + ".verifiedEvents";
+    public static final String RATE_LIMITED = "trustychain.rate.limited";
+    private static final String CLIENT_KEYS = RateLimitInterceptor.class.getName() + ".clientKeys";
+
+    private final TokenBucketRateLimiter limiter;
+    private final Map<PathPattern, Double> costs;
+    private final double defaultCost;
+    private final double eventsPerToken;
+    private final MeterRegistry registry;
+
+    public RateLimitInterceptor(TokenBucketRateLimiter limiter, Map<PathPattern, Double> costs, double defaultCost,
+            double eventsPerToken, MeterRegistry registry) {
+        this.limiter = limiter;
+        this.costs = costs;
+        this.defaultCost = defaultCost;
+        this.eventsPerToken = eventsPerToken;
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // async requests dispatch again once they complete, they were charged on the first dispatch
+        if (request.getAttribute(CLIENT_KEYS) != null) {
+            return true;
+        }
+        List<String> clients = clientKeys(request);
+        request.setAttribute(CLIENT_KEYS, clients);
+
+        double cost = cost(request);
+        long waitNanos = clients.size() == 1
+                ? limiter.tryAcquire(clients.get(0), cost)
+                : limiter.tryAcquire(clients.get(0), clients.get(1), cost);
+        if (waitNanos > 0) {
+            registry.counter(RATE_LIMITED, "client", clients.size() == 1 ? "ip" : "user").increment();
+            long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999));
+            throw new Exceptions.RateLimitedException(
+                    "Too many requests, retry in " + retryAfter + " s", retryAfter);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        if (request.getAttribute(VERIFIED_EVENTS) instanceof Number events
+                && request.getAttribute(CLIENT_KEYS) instanceof List<?> clients) {
+            for (Object client : clients) {
+                limiter.charge((String) client, events.doubleValue() / eventsPerToken);
+            }
+        }
+    }
+
+    double cost(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(
+                request.getRequestURI().substring(request.getContextPath().length()));
+        for (Map.Entry<PathPattern, Double> entry : costs.entrySet()) {
+            if (entry.getKey().matches(path)) {
+                return entry.getValue();
+            }
+        }
+        return defaultCost;
+    }
+
+    // the client IP first, the user second when signed in
+    static List<String> clientKeys(HttpServletRequest request) {
+        // the client, not the proxy: Tomcat takes it from X-Forwarded-For when the peer is a trusted proxy
+        String ip = "ip:" + request.getRemoteAddr();
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return List.of(ip, "user:" + authentication.getName());
+        }
+        return List.of(ip);
+    }
+}
@@ -0,0 +1,146 @@
+package com.weitzel.trustychain.common.ratelimit;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+// token bucket per client, striped by key hash. A full stripe drops its least recent client, who then starts full
+public class TokenBucketRateLimiter {
+    private final Stripe[] stripes;
+    private final double capacity;
+    private final double tokensPerNano;
+    private final LongSupplier clock;
+
+    public TokenBucketRateLimiter(double capacity, double refillPerSecond, int maxClients, int stripeCount,
+            LongSupplier clock) {
+        if (capacity <= 0 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("capacity and refill rate must be positive");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = refillPerSecond / 1_000_000_000d;
+        this.clock = clock;
+        // a power of two, so the stripe is picked with a mask
+        int count = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        int clientsPerStripe = Math.max(16, maxClients / count);
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(clientsPerStripe);
+        }
+    }
+
+    // 0 when the tokens were taken, otherwise the nanoseconds until they will be there, nothing is taken then.
+    // A cost above the capacity is capped, it would never fit otherwise
+    public long tryAcquire(String key, double cost) {
+        double needed = Math.min(cost, capacity);
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            long now = clock.getAsLong();
+            Bucket bucket = stripe.bucket(key, capacity, now);
+            bucket.refill(now, capacity, tokensPerNano);
+            if (bucket.tokens >= needed) {
+                bucket.tokens -= needed;
+                return 0;
+            }
+            return waitNanos(bucket, needed);
+        }
+    }
+
+    // same for two buckets that both have to hold the cost, it is taken from both or from neither
+    public long tryAcquire(String first, String second, double cost) {
+        double needed = Math.min(cost, capacity);
+        int firstIndex = stripeIndex(first);
+        int secondIndex = stripeIndex(second);
+        // stripes are locked in index order, so two callers never hold each other's second lock
+        Stripe outer = stripes[Math.min(firstIndex, secondIndex)];
+        Stripe inner = stripes[Math.max(firstIndex, secondIndex)];
+        synchronized (outer) {
+            synchronized (inner) {
+                long now = clock.getAsLong();
+                Bucket firstBucket = stripes[firstIndex].bucket(first, capacity, now);
+                firstBucket.refill(now, capacity, tokensPerNano);
+                Bucket secondBucket = stripes[secondIndex].bucket(second, capacity, now);
+                secondBucket.refill(now, capacity, tokensPerNano);
+                if (firstBucket.tokens >= needed && secondBucket.tokens >= needed) {
+                    firstBucket.tokens -= needed;
+                    secondBucket.tokens -= needed;
+                    return 0;
+                }
+                return Math.max(waitNanos(firstBucket, needed), waitNanos(secondBucket, needed));
+            }
+        }
+    }
+
+    // work that only became known while the request ran. The bucket may go below zero, the client's next
+    // requests then wait until the debt is refilled
+    public void charge(String key, double cost) {
+        if (cost <= 0) {
+            return;
+        }
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            long now = clock.getAsLong();
+            Bucket bucket = stripe.bucket(key, capacity, now);
+            bucket.refill(now, capacity, tokensPerNano);
+            bucket.tokens = Math.max(bucket.tokens - cost, -capacity);
+        }
+    }
+
+    public int clientCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                count += stripe.size();
+            }
+        }
+        return count;
+    }
+
+    private Stripe stripe(String key) {
+        return stripes[stripeIndex(key)];
+    }
+
+    private int stripeIndex(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+
+    private long waitNanos(Bucket bucket, double needed) {
+        return bucket.tokens >= needed ? 0 : Math.max(1, (long) Math.ceil((needed - bucket.tokens) / tokensPerNano));
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long updatedAt;
+
+        Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.updatedAt = now;
+        }
+
+        void refill(long now, double capacity, double tokensPerNano) {
+            if (now > updatedAt) {
+                tokens = Math.min(capacity, tokens + (now - updatedAt) * tokensPerNano);
+                updatedAt = now;
+            }
+        }
+    }
+
+    // access-ordered, guarded by its own monitor
+    private static final class Stripe extends LinkedHashMap<String, Bucket> {
+        private final int maxClients;
+
+        Stripe(int maxClients) {
+            super(64, 0.75f, true);
+            this.maxClients = maxClients;
+        }
+
+        Bucket bucket(String key, double capacity, long now) {
+            return computeIfAbsent(key, k -> new Bucket(capacity, now));
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+            return size() > maxClients;
+        }
+    }
+}
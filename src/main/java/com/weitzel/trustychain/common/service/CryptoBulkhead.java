@@ -0,0 +1,80 @@
+package com.weitzel.trustychain.common.service;
+
+import com.weitzel.trustychain.common.exception.Exceptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// with virtual request threads (spring.threads.virtual.enabled) RSA work runs on a fixed pool of platform threads,
+// so a burst of requests can't put more crypto on the CPU than there are cores. Platform request threads run it inline.
+@Service
+public class CryptoBulkhead implements DisposableBean {
+    private final ThreadPoolExecutor executor;
+
+    public CryptoBulkhead(@Value("${spring.threads.virtual.enabled:false}") boolean enabled,
+            @Value("${trustychain.crypto.bulkhead.threads:0}") int threads,
+            @Value("${trustychain.crypto.bulkhead.queue-capacity:10000}") int queueCapacity) {
+        if (!enabled) {
+            this.executor = null;
+            return;
+        }
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), task -> {
+                    Thread thread = new Thread(task, "crypto-bulkhead-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    public <T> T call(Supplier<T> task) {
+        if (executor == null || !Thread.currentThread().isVirtual()) {
+            return task.get();
+        }
+
+        Future<T> future;
+        try {
+            future = executor.submit(task::get);
+        } catch (RejectedExecutionException e) {
+            throw new Exceptions.ServiceBusyException("Too many signature operations queued, try again");
+        }
+
+        // the virtual thread unmounts while it waits, its carrier is free for other requests
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the crypto bulkhead", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
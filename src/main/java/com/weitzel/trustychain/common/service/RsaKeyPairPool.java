@@ -0,0 +1,145 @@
+package com.weitzel.trustychain.common.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// RSA key pairs generated ahead by background threads, an empty pool falls back to generating inline
+@Service
+public class RsaKeyPairPool implements DisposableBean {
+    public static final String DEPTH = "trustychain.crypto.key-pool.depth";
+    public static final String TAKE = "trustychain.crypto.key-pool.take";
+
+    private static final Logger log = LoggerFactory.getLogger(RsaKeyPairPool.class);
+
+    private final int refillThreads;
+    private final int keySize;
+    private final long maxAgeNanos;
+    private final BlockingQueue<Pooled> pool;
+    private final List<Thread> refillers = new ArrayList<>();
+    private final MeterRegistry registry;
+
+    private record Pooled(KeyPair keyPair, long createdAt) {
+    }
+
+    @Autowired
+    public RsaKeyPairPool(@Value("${trustychain.crypto.key-pool.target-size:16}") int targetSize,
+            @Value("${trustychain.crypto.key-pool.refill-threads:1}") int refillThreads,
+            @Value("${trustychain.crypto.key-pool.key-size:2048}") int keySize,
+            @Value("${trustychain.crypto.key-pool.max-age:PT10M}") Duration maxAge,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        this(targetSize, refillThreads, keySize, maxAge, meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    public RsaKeyPairPool(int targetSize, int refillThreads, int keySize, Duration maxAge, MeterRegistry registry) {
+        this.refillThreads = refillThreads;
+        this.keySize = keySize;
+        this.maxAgeNanos = maxAge.toNanos();
+        this.registry = registry;
+        this.pool = targetSize > 0 ? new ArrayBlockingQueue<>(targetSize) : null;
+        Gauge.builder(DEPTH, this, RsaKeyPairPool::depth)
+                .description("RSA key pairs ready to be handed out")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (pool == null || !refillers.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < Math.max(1, refillThreads); i++) {
+            // thread priorities are ignored on Linux, refill-threads is what bounds the CPU the pool takes
+            Thread thread = new Thread(this::refill, "rsa-key-pool-" + (i + 1));
+            thread.setDaemon(true);
+            thread.start();
+            refillers.add(thread);
+        }
+    }
+
+    public KeyPair take() {
+        Pooled pooled;
+        while (pool != null && (pooled = pool.poll()) != null) {
+            if (!expired(pooled, System.nanoTime())) {
+                registry.counter(TAKE, "source", "pool").increment();
+                return pooled.keyPair();
+            }
+        }
+        registry.counter(TAKE, "source", "inline").increment();
+        return generate();
+    }
+
+    public int depth() {
+        return pool == null ? 0 : pool.size();
+    }
+
+    // unused private keys are dropped after max-age, so none stays in the heap for more than about twice that.
+    // Dropping only unreferences them, the key material is gone once it is garbage collected
+    @Scheduled(fixedDelayString = "${trustychain.crypto.key-pool.max-age:PT10M}")
+    public void evictExpired() {
+        if (pool == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        pool.removeIf(pooled -> expired(pooled, now));
+    }
+
+    // blocks in put() while the pool is full, so a full pool costs no CPU
+    private void refill() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                KeyPair keyPair = generate();
+                pool.put(new Pooled(keyPair, System.nanoTime()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("RSA key pool refill stopped, key pairs are generated inline from now on", e);
+        }
+    }
+
+    private boolean expired(Pooled pooled, long now) {
+        return now - pooled.createdAt() > maxAgeNanos;
+    }
+
+    private KeyPair generate() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(keySize);
+            return generator.generateKeyPair();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("RSA is not available", e);
+        }
+    }
+
+    @Override
+    public synchronized void destroy() throws InterruptedException {
+        refillers.forEach(Thread::interrupt);
+        for (Thread refiller : refillers) {
+            // a refiller finishes the pair it is generating before it sees the interrupt
+            refiller.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        refillers.clear();
+        if (pool != null) {
+            pool.clear();
+        }
+    }
+}
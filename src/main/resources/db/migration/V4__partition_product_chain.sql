@@ -0,0 +1,75 @@
+-- V4: Convert product_chain into monthly range partitions on trusted_timestamp
+
+ALTER TABLE product_chain RENAME TO product_chain_legacy;
+DROP TRIGGER enforce_immutability ON product_chain_legacy;
+
+-- the partition key has to be part of the primary key
+CREATE TABLE product_chain (
+    id UUID NOT NULL,
+    actor VARCHAR(255) NOT NULL,
+    product_code VARCHAR(255) NOT NULL,
+    event_type VARCHAR(255) NOT NULL,
+    metadata VARCHAR(255),
+    previous_hash VARCHAR(255),
+    current_hash VARCHAR(255) NOT NULL,
+    signature TEXT NOT NULL,
+    public_key_snapshot TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    trusted_timestamp TIMESTAMP NOT NULL,
+    timestamp_signature TEXT NOT NULL,
+    PRIMARY KEY (id, trusted_timestamp)
+) PARTITION BY RANGE (trusted_timestamp);
+
+-- no DEFAULT partition: rows in it would block creating the partition for their month later on.
+-- trusted_timestamp is always the insert time, PartitionMaintenanceJob keeps months_ahead months ready
+
+-- creates the monthly partitions from the month of start_date up to months_ahead months later,
+-- returns how many were created. Called by the app on startup and daily afterwards.
+CREATE OR REPLACE FUNCTION create_product_chain_partitions(start_date DATE, months_ahead INTEGER)
+RETURNS INTEGER AS $$
+DECLARE
+    month_start DATE;
+    partition_name TEXT;
+    created INTEGER := 0;
+BEGIN
+    FOR i IN 0..months_ahead LOOP
+        month_start := (date_trunc('month', start_date) + make_interval(months => i))::DATE;
+        partition_name := 'product_chain_' || to_char(month_start, 'YYYY_MM');
+        IF to_regclass(partition_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF product_chain FOR VALUES FROM (%L) TO (%L)',
+                    partition_name, month_start, (month_start + INTERVAL '1 month')::DATE);
+            created := created + 1;
+        END IF;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- partitions for the existing history plus the next three months
+DO $$
+DECLARE
+    oldest DATE;
+BEGIN
+    SELECT COALESCE(MIN(trusted_timestamp), NOW())::DATE INTO oldest FROM product_chain_legacy;
+    PERFORM create_product_chain_partitions(oldest,
+            ((EXTRACT(YEAR FROM AGE(date_trunc('month', NOW()), date_trunc('month', oldest))) * 12
+              + EXTRACT(MONTH FROM AGE(date_trunc('month', NOW()), date_trunc('month', oldest))))::INTEGER) + 3);
+END;
+$$;
+
+INSERT INTO product_chain (id, actor, product_code, event_type, metadata, previous_hash, current_hash,
+        signature, public_key_snapshot, created_at, trusted_timestamp, timestamp_signature)
+SELECT id, actor, product_code, event_type, metadata, previous_hash, current_hash,
+        signature, public_key_snapshot, created_at, trusted_timestamp, timestamp_signature
+FROM product_chain_legacy;
+
+DROP TABLE product_chain_legacy;
+
+-- indexes on the parent are created on every partition, current and future
+CREATE INDEX idx_product_chain_product_created ON product_chain (product_code, created_at);
+CREATE INDEX idx_product_chain_actor ON product_chain (actor);
+
+-- re-apply the V3 immutability trigger, it is inherited by every partition
+CREATE TRIGGER enforce_immutability
+BEFORE UPDATE OR DELETE ON product_chain
+FOR EACH ROW EXECUTE FUNCTION prevent_chain_modification();
@@ -0,0 +1,103 @@
+-- V5: Let the archival job remove sealed chains it has already copied to the cold archive.
+-- Rows can only be deleted through archive_chain_rows(), which runs as the NOLOGIN role trustychain_archiver
+-- and records every call in archival_deletions. Only that role (its owner) may EXECUTE it, the login running
+-- ArchivalJob needs: GRANT trustychain_archiver TO <login> (WITH SET FALSE from postgres 16 on, so the login
+-- cannot SET ROLE and delete directly). Every other UPDATE or DELETE is still rejected and logged.
+-- Creating the role needs CREATEROLE, or a DBA creates it before migrating.
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_roles WHERE rolname = 'trustychain_archiver') THEN
+        CREATE ROLE trustychain_archiver NOLOGIN;
+    END IF;
+END;
+$$;
+
+CREATE TABLE archival_deletions (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    product_code VARCHAR(255) NOT NULL,
+    -- the archive append sequence, merges rename files but ChainArchive.locate resolves it
+    segment VARCHAR(255) NOT NULL,
+    row_ids UUID[] NOT NULL,
+    first_hash VARCHAR(255),
+    last_hash VARCHAR(255),
+    deleted_by VARCHAR(255) NOT NULL,
+    deleted_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX idx_archival_deletions_product_code ON archival_deletions(product_code);
+
+CREATE OR REPLACE FUNCTION prevent_chain_modification()
+RETURNS TRIGGER AS $$
+BEGIN
+    -- current_user is trustychain_archiver inside archive_chain_rows, which sets the flag around its own delete
+    IF TG_OP = 'DELETE' AND current_user = 'trustychain_archiver'
+            AND current_setting('trustychain.archiving', true) = 'on' THEN
+        RETURN OLD;
+    END IF;
+
+    INSERT INTO audit_immutability_violations (table_name, operation, old_data, attempted_by)
+    VALUES (TG_TABLE_NAME, TG_OP, row_to_json(OLD), session_user);
+    RAISE EXCEPTION 'Modification of product_chain records is not allowed. Attempt logged.';
+END;
+$$ LANGUAGE plpgsql;
+
+-- deletes the given rows of one product and records them in the same transaction, returns the deleted count
+CREATE FUNCTION archive_chain_rows(p_segment TEXT, p_product_code TEXT, p_hashes TEXT[])
+RETURNS INTEGER
+SECURITY DEFINER
+SET search_path = public, pg_temp
+AS $$
+DECLARE
+    deleted_ids UUID[];
+    deleted_hashes TEXT[];
+BEGIN
+    IF p_segment IS NULL OR p_segment = '' THEN
+        RAISE EXCEPTION 'An archival delete has to name the segment holding the rows';
+    END IF;
+
+    PERFORM set_config('trustychain.archiving', 'on', true);
+    WITH deleted AS (
+        DELETE FROM product_chain
+        WHERE product_code = p_product_code AND current_hash = ANY (p_hashes)
+        RETURNING id, current_hash, created_at
+    )
+    SELECT array_agg(id ORDER BY created_at), array_agg(current_hash ORDER BY created_at)
+    INTO deleted_ids, deleted_hashes
+    FROM deleted;
+    PERFORM set_config('trustychain.archiving', 'off', true);
+
+    IF deleted_ids IS NULL THEN
+        RETURN 0;
+    END IF;
+    INSERT INTO archival_deletions (product_code, segment, row_ids, first_hash, last_hash, deleted_by)
+    VALUES (p_product_code, p_segment, deleted_ids, deleted_hashes[1],
+            deleted_hashes[array_length(deleted_hashes, 1)], session_user);
+    RETURN array_length(deleted_ids, 1);
+END;
+$$ LANGUAGE plpgsql;
+
+REVOKE ALL ON FUNCTION archive_chain_rows(TEXT, TEXT, TEXT[]) FROM PUBLIC;
+GRANT SELECT, DELETE ON product_chain TO trustychain_archiver;
+GRANT INSERT ON archival_deletions TO trustychain_archiver;
+GRANT INSERT ON audit_immutability_violations TO trustychain_archiver;
+
+-- the function runs as trustychain_archiver. Changing the owner needs membership in the role and CREATE on
+-- the schema for it, both are only held for this statement
+DO $$
+DECLARE
+    -- from 16 on the creator of a role administers it but may not SET ROLE to it
+    was_member BOOLEAN := pg_has_role(current_user, 'trustychain_archiver',
+            CASE WHEN current_setting('server_version_num')::INT >= 160000 THEN 'SET' ELSE 'MEMBER' END);
+BEGIN
+    IF NOT was_member THEN
+        GRANT trustychain_archiver TO CURRENT_USER;
+    END IF;
+    GRANT CREATE ON SCHEMA public TO trustychain_archiver;
+    ALTER FUNCTION archive_chain_rows(TEXT, TEXT, TEXT[]) OWNER TO trustychain_archiver;
+    REVOKE CREATE ON SCHEMA public FROM trustychain_archiver;
+    IF NOT was_member THEN
+        REVOKE trustychain_archiver FROM CURRENT_USER;
+    END IF;
+END;
+$$;
@@ -0,0 +1,12 @@
+-- V6: Checkpoints for the admin backfill import (BackfillImporter)
+-- A checkpoint is written in the same transaction as the COPY of its batch,
+-- so lines_committed always matches what is in product_chain and a restarted job resumes right after it.
+
+CREATE TABLE import_checkpoints (
+    job_id VARCHAR(255) PRIMARY KEY,
+    source VARCHAR(1024) NOT NULL,
+    lines_committed BIGINT NOT NULL DEFAULT 0,
+    rows_imported BIGINT NOT NULL DEFAULT 0,
+    completed BOOLEAN NOT NULL DEFAULT FALSE,
+    updated_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
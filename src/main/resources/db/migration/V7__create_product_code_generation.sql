@@ -0,0 +1,11 @@
+-- V7: Shared generation of the product code set, for the per-instance ProductCodeFilter.
+-- Every write that adds product codes (registerEvent for a new product, a backfill batch, DatasetGenerator)
+-- increments it in its own transaction. Instances poll it and rebuild their filter when it moved,
+-- so a filter miss can stay a definite 404.
+
+CREATE TABLE product_code_generation (
+    id INT PRIMARY KEY,
+    generation BIGINT NOT NULL
+);
+
+INSERT INTO product_code_generation (id, generation) VALUES (1, 0);
@@ -1,10 +1,18 @@
 package com.weitzel.trustychain.auth;
 
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class JwtAuthenticationFilterTest {
@@ -20,4 +28,44 @@ class JwtAuthenticationFilterTest {
         JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService, null);
         assertNotNull(filter);
     }
+
+    @Test
+    @DisplayName("Should skip public paths and filter the rest")
+    void shouldSkipPublicPaths() {
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(new JwtService(), null);
+
+        assertTrue(filter.shouldNotFilter(new MockHttpServletRequest("GET", "/api/product-chain/PROD-001/verify")));
+        assertTrue(filter.shouldNotFilter(new MockHttpServletRequest("POST", "/api/auth/login")));
+        assertTrue(filter.shouldNotFilter(new MockHttpServletRequest("GET", "/api/actors")));
+        assertFalse(filter.shouldNotFilter(new MockHttpServletRequest("GET", "/api/actors/42")));
+        assertFalse(filter.shouldNotFilter(new MockHttpServletRequest("POST", "/api/labels/qr")));
+        assertFalse(filter.shouldNotFilter(new MockHttpServletRequest("POST", "/api/admin/imports")));
+    }
+
+    @Test
+    @DisplayName("Should authenticate from the token alone in stateless mode")
+    void shouldAuthenticateStatelessly() throws Exception {
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "jwtSecret", "");
+        ReflectionTestUtils.setField(jwtService, "stateless", true);
+        ReflectionTestUtils.setField(jwtService, "statelessExpiration", 60000L);
+        jwtService.init();
+        String token = jwtService.generateToken(new UsernamePasswordAuthenticationToken(
+                "fazenda", null, List.of(new SimpleGrantedAuthority("PRODUCER"))));
+        // no principal cache, so any actor lookup would fail
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(jwtService, null);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/actors/42");
+        request.addHeader("Authorization", "Bearer " + token);
+
+        try {
+            filter.doFilterInternal(request, new MockHttpServletResponse(), new MockFilterChain());
+
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            assertNotNull(authentication);
+            assertEquals("fazenda", authentication.getName());
+            assertEquals("PRODUCER", authentication.getAuthorities().iterator().next().getAuthority());
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
 }
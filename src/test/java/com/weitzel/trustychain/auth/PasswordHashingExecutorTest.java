@@ -0,0 +1,120 @@
+package com.weitzel.trustychain.auth;
+
+import com.weitzel.trustychain.common.exception.Exceptions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PasswordHashingExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("Should run the check on a hashing thread and time the login")
+    void shouldRunOnHashingThread() {
+        executor = new PasswordHashingExecutor(2, 4, Duration.ofSeconds(5), meterRegistry);
+
+        String thread = executor.call(() -> Thread.currentThread().getName());
+
+        assertTrue(thread.startsWith("password-hashing-"));
+        assertEquals(1, meterRegistry.timer(PasswordHashingExecutor.LOGIN, "outcome", "success").count());
+        assertEquals(1, meterRegistry.timer(PasswordHashingExecutor.QUEUE_TIME).count());
+    }
+
+    @Test
+    @DisplayName("Should rethrow bad credentials and count them as failures")
+    void shouldRethrowBadCredentials() {
+        executor = new PasswordHashingExecutor(1, 4, Duration.ofSeconds(5), meterRegistry);
+
+        assertThrows(BadCredentialsException.class, () -> executor.call(() -> {
+            throw new BadCredentialsException("Bad credentials");
+        }));
+        assertEquals(1, meterRegistry.timer(PasswordHashingExecutor.LOGIN, "outcome", "failure").count());
+    }
+
+    @Test
+    @DisplayName("Should reject logins right away once the queue is full")
+    void shouldRejectWhenSaturated() throws Exception {
+        executor = new PasswordHashingExecutor(1, 1, Duration.ofSeconds(5), meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // one login occupies the only thread, the next one fills the queue
+        Future<Object> running = inBackground(() -> executor.call(() -> {
+            started.countDown();
+            awaitQuietly(release);
+            return null;
+        }));
+        started.await();
+        Future<Object> queued = inBackground(() -> executor.call(() -> null));
+        while (executor.queueDepth() == 0) {
+            Thread.sleep(5);
+        }
+
+        assertThrows(Exceptions.ServiceBusyException.class, () -> executor.call(() -> null));
+        assertEquals(1, meterRegistry.timer(PasswordHashingExecutor.LOGIN, "outcome", "rejected").count());
+
+        release.countDown();
+        running.get();
+        queued.get();
+    }
+
+    @Test
+    @DisplayName("Should drop queued logins that waited longer than max-wait")
+    void shouldDropStaleLogins() throws Exception {
+        executor = new PasswordHashingExecutor(1, 4, Duration.ofMillis(50), meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+
+        Future<Object> running = inBackground(() -> executor.call(() -> {
+            started.countDown();
+            sleepQuietly(200);
+            return null;
+        }));
+        started.await();
+
+        assertThrows(Exceptions.ServiceBusyException.class, () -> executor.call(() -> "too late"));
+        running.get();
+    }
+
+    private static Future<Object> inBackground(Callable<Object> task) {
+        FutureTask<Object> future = new FutureTask<>(task);
+        Thread thread = new Thread(future);
+        thread.setDaemon(true);
+        thread.start();
+        return future;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.weitzel.trustychain.auth;
+
+import com.weitzel.trustychain.actor.Actor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PrincipalCacheTest {
+
+    @Mock
+    private UserDetailsService userDetailsService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong now = new AtomicLong();
+    private PrincipalCache principalCache;
+    private Actor actor;
+
+    @BeforeEach
+    void setUp() {
+        principalCache = new PrincipalCache(userDetailsService, meterRegistry, Duration.ofMinutes(5), 100, now::get);
+        actor = new Actor();
+        actor.setUsername("scanner");
+        actor.setPassword("$2a$10$hash");
+        actor.setRole("PRODUCER");
+        actor.setPublicKey("key");
+    }
+
+    @Test
+    @DisplayName("Should load an actor once and serve the principal from memory afterwards")
+    void shouldCachePrincipal() {
+        when(userDetailsService.loadUserByUsername("scanner")).thenReturn(actor);
+
+        UserDetails first = principalCache.get("scanner");
+        UserDetails second = principalCache.get("scanner");
+
+        assertSame(first, second);
+        assertEquals("scanner", second.getUsername());
+        assertEquals("PRODUCER", second.getAuthorities().iterator().next().getAuthority());
+        // the password hash is not kept around
+        assertEquals("", second.getPassword());
+        verify(userDetailsService, times(1)).loadUserByUsername("scanner");
+        assertEquals(1.0, meterRegistry.counter(PrincipalCache.CACHE, "result", "hit").count());
+        assertEquals(1.0, meterRegistry.counter(PrincipalCache.CACHE, "result", "miss").count());
+    }
+
+    @Test
+    @DisplayName("Should load the actor again once the entry expired")
+    void shouldExpireEntries() {
+        when(userDetailsService.loadUserByUsername("scanner")).thenReturn(actor);
+        principalCache.get("scanner");
+
+        now.addAndGet(Duration.ofMinutes(5).toNanos());
+        principalCache.get("scanner");
+
+        verify(userDetailsService, times(2)).loadUserByUsername("scanner");
+    }
+
+    @Test
+    @DisplayName("Should load the actor again after an invalidation")
+    void shouldInvalidate() {
+        when(userDetailsService.loadUserByUsername("scanner")).thenReturn(actor);
+        principalCache.get("scanner");
+
+        principalCache.invalidate("scanner");
+        principalCache.get("scanner");
+
+        verify(userDetailsService, times(2)).loadUserByUsername("scanner");
+    }
+
+    @Test
+    @DisplayName("Should not cache a load that overlapped an invalidation")
+    void shouldDropLoadOverlappingInvalidation() {
+        when(userDetailsService.loadUserByUsername("scanner")).thenAnswer(invocation -> {
+            // the actor is updated while its old state is being read
+            principalCache.invalidate("scanner");
+            return actor;
+        });
+
+        principalCache.get("scanner");
+
+        assertEquals(0, principalCache.size());
+    }
+
+    @Test
+    @DisplayName("Should not cache unknown users")
+    void shouldNotCacheUnknownUsers() {
+        when(userDetailsService.loadUserByUsername("ghost")).thenThrow(new UsernameNotFoundException("User not found"));
+
+        assertThrows(UsernameNotFoundException.class, () -> principalCache.get("ghost"));
+        assertEquals(0, principalCache.size());
+    }
+}
@@ -0,0 +1,80 @@
+package com.weitzel.trustychain.common;
+
+import com.weitzel.trustychain.common.config.ReadWriteRoutingDataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadWriteRoutingDataSourceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate writeTransaction;
+    private TransactionTemplate readOnlyTransaction;
+
+    @BeforeEach
+    void setUp() {
+        // two separate in-memory databases stand in for primary and replica
+        DataSource primary = database("primary");
+        DataSource replica = database("replica");
+        DataSource routing = new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replica));
+
+        jdbcTemplate = new JdbcTemplate(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+        writeTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Test
+    @DisplayName("Should route read-only transactions to the replica")
+    void shouldRouteReadOnlyToReplica() {
+        String node = readOnlyTransaction.execute(status -> currentNode());
+
+        assertEquals("replica", node);
+    }
+
+    @Test
+    @DisplayName("Should route write transactions to the primary")
+    void shouldRouteWritesToPrimary() {
+        String node = writeTransaction.execute(status -> currentNode());
+
+        assertEquals("primary", node);
+    }
+
+    @Test
+    @DisplayName("Should keep read-only work inside a write transaction on the primary")
+    void shouldKeepJoinedReadOnlyWorkOnPrimary() {
+        String node = writeTransaction.execute(status -> readOnlyTransaction.execute(inner -> currentNode()));
+
+        assertEquals("primary", node);
+    }
+
+    @Test
+    @DisplayName("Should use the primary outside of transactions")
+    void shouldUsePrimaryWithoutTransaction() {
+        assertEquals("primary", currentNode());
+    }
+
+    private String currentNode() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate setup = new JdbcTemplate(dataSource);
+        setup.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(20))");
+        setup.execute("DELETE FROM node");
+        setup.update("INSERT INTO node VALUES (?)", name);
+        return dataSource;
+    }
+}
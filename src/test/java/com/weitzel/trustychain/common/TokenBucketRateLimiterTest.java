@@ -0,0 +1,90 @@
+package com.weitzel.trustychain.common;
+
+import com.weitzel.trustychain.common.ratelimit.TokenBucketRateLimiter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+    // 10 tokens, 2 per second
+    private final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 2, 1000, 4, now::get);
+
+    @Test
+    @DisplayName("Should allow a burst up to the capacity and then ask the client to wait")
+    void shouldAllowBurstThenReject() {
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, limiter.tryAcquire("ip:1.2.3.4", 1));
+        }
+
+        long wait = limiter.tryAcquire("ip:1.2.3.4", 1);
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), wait);
+    }
+
+    @Test
+    @DisplayName("Should refill over time")
+    void shouldRefill() {
+        assertEquals(0, limiter.tryAcquire("ip:1.2.3.4", 10));
+        assertTrue(limiter.tryAcquire("ip:1.2.3.4", 4) > 0);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+
+        assertEquals(0, limiter.tryAcquire("ip:1.2.3.4", 4));
+    }
+
+    @Test
+    @DisplayName("Should keep clients apart")
+    void shouldKeepClientsApart() {
+        assertEquals(0, limiter.tryAcquire("ip:1.2.3.4", 10));
+
+        assertEquals(0, limiter.tryAcquire("ip:5.6.7.8", 10));
+        assertEquals(2, limiter.clientCount());
+    }
+
+    @Test
+    @DisplayName("Should cap costs above the capacity so they still fit a full bucket")
+    void shouldCapExpensiveRequests() {
+        assertEquals(0, limiter.tryAcquire("ip:1.2.3.4", 50));
+        assertTrue(limiter.tryAcquire("ip:1.2.3.4", 50) > 0);
+    }
+
+    @Test
+    @DisplayName("Should make the client wait out work charged after the request")
+    void shouldChargeDebt() {
+        assertEquals(0, limiter.tryAcquire("ip:1.2.3.4", 1));
+        limiter.charge("ip:1.2.3.4", 13);
+
+        // 9 - 13 = -4 tokens, 5 more are needed for the next request
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(2500), limiter.tryAcquire("ip:1.2.3.4", 1));
+    }
+
+    @Test
+    @DisplayName("Should take from both buckets or from neither")
+    void shouldRequireBothBuckets() {
+        assertEquals(0, limiter.tryAcquire("ip:1.2.3.4", "user:first", 10));
+
+        // a fresh account behind the same address brings no fresh tokens
+        assertEquals(TimeUnit.SECONDS.toNanos(2), limiter.tryAcquire("ip:1.2.3.4", "user:second", 4));
+        assertEquals(0, limiter.tryAcquire("ip:5.6.7.8", "user:second", 10));
+        assertEquals(0, limiter.tryAcquire("user:second", 0));
+        assertTrue(limiter.tryAcquire("user:second", 1) > 0);
+    }
+
+    @Test
+    @DisplayName("Should forget the least recently seen clients when full")
+    void shouldBoundClients() {
+        TokenBucketRateLimiter small = new TokenBucketRateLimiter(10, 2, 16, 1, now::get);
+
+        for (int i = 0; i < 1000; i++) {
+            small.tryAcquire("ip:10.0.0." + i, 1);
+        }
+
+        assertTrue(small.clientCount() <= 32);
+    }
+}
@@ -73,4 +73,14 @@ class AuthControllerTest {
                 .content(requestBody))
                 .andExpect(status().isUnauthorized());
     }
+
+    @Test
+    @DisplayName("Should revoke the bearer token on logout")
+    void shouldLogout() throws Exception {
+        mockMvc.perform(post("/api/auth/logout")
+                .header("Authorization", "Bearer jwt.token.here"))
+                .andExpect(status().isNoContent());
+
+        verify(authenticationService).logout("jwt.token.here");
+    }
 }
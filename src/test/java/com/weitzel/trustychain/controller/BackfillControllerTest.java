@@ -0,0 +1,89 @@
+package com.weitzel.trustychain.controller;
+
+import com.weitzel.trustychain.auth.JwtAuthenticationFilter;
+import com.weitzel.trustychain.auth.JwtService;
+import com.weitzel.trustychain.chain.backfill.BackfillController;
+import com.weitzel.trustychain.chain.backfill.BackfillImporter;
+import com.weitzel.trustychain.chain.backfill.dto.ImportStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(BackfillController.class)
+@AutoConfigureMockMvc(addFilters = false)
+@Import(BackfillControllerTest.MethodSecurityConfig.class)
+class BackfillControllerTest {
+
+    // SecurityConfig is not part of the web slice, @PreAuthorize needs method security enabled
+    @TestConfiguration
+    @EnableMethodSecurity
+    static class MethodSecurityConfig {
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private BackfillImporter backfillImporter;
+
+    @MockBean
+    private JwtService jwtService;
+
+    @MockBean
+    private JwtAuthenticationFilter jwtAuthenticationFilter;
+
+    private final ImportStatus running = new ImportStatus("legacy", "legacy.ndjson", ImportStatus.State.RUNNING,
+            20000, 20000, 1234.5, LocalDateTime.now(), null, null);
+
+    @Test
+    @WithMockUser(authorities = "ADMIN")
+    @DisplayName("Should start import")
+    void shouldStartImport() throws Exception {
+        when(backfillImporter.start("legacy.ndjson", null)).thenReturn(running);
+
+        mockMvc.perform(post("/api/admin/imports")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"source\":\"legacy.ndjson\"}"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.jobId").value("legacy"))
+                .andExpect(jsonPath("$.rowsPerSecond").value(1234.5));
+    }
+
+    @Test
+    @WithMockUser(authorities = "USER")
+    @DisplayName("Should forbid import for non admins")
+    void shouldForbidImportForNonAdmins() throws Exception {
+        mockMvc.perform(post("/api/admin/imports")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"source\":\"legacy.ndjson\"}"))
+                .andExpect(status().isForbidden());
+
+        verifyNoInteractions(backfillImporter);
+    }
+
+    @Test
+    @WithMockUser(authorities = "ADMIN")
+    @DisplayName("Should return not found for unknown job")
+    void shouldReturnNotFoundForUnknownJob() throws Exception {
+        when(backfillImporter.status("missing")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/admin/imports/missing"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,118 @@
+package com.weitzel.trustychain.controller;
+
+import com.weitzel.trustychain.auth.JwtService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+// through a real Tomcat, the test client connects from loopback like a proxy on the same network would
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "trustychain.rate-limit.capacity=2",
+        "trustychain.rate-limit.refill-per-second=0.01",
+        "jwt.stateless.enabled=true"
+})
+class ForwardedClientRateLimitTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Test
+    @DisplayName("Should give every client behind a trusted proxy its own bucket")
+    void shouldKeyBucketsByForwardedClient() {
+        assertEquals(HttpStatus.NOT_FOUND, qrCode("203.0.113.1"));
+        assertEquals(HttpStatus.NOT_FOUND, qrCode("203.0.113.1"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, qrCode("203.0.113.1"));
+
+        assertEquals(HttpStatus.NOT_FOUND, qrCode("203.0.113.2"));
+    }
+
+    @Test
+    @DisplayName("Should charge a signed-in user's own bucket as well, wherever they connect from")
+    void shouldKeyBucketsByUser() {
+        assertEquals(HttpStatus.NO_CONTENT, logout("198.51.100.1", token("fazenda")));
+        assertEquals(HttpStatus.NO_CONTENT, logout("198.51.100.2", token("fazenda")));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, logout("198.51.100.3", token("fazenda")));
+
+        assertEquals(HttpStatus.NOT_FOUND, qrCode("198.51.100.3"));
+    }
+
+    @Test
+    @DisplayName("Should still charge the client address of a signed-in user, so new accounts bring no new tokens")
+    void shouldChargeAddressOfSignedInUsers() {
+        assertEquals(HttpStatus.NO_CONTENT, logout("198.51.100.20", token("first")));
+        assertEquals(HttpStatus.NO_CONTENT, logout("198.51.100.20", token("second")));
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, logout("198.51.100.20", token("third")));
+    }
+
+    @Test
+    @DisplayName("Should key public paths by client address, a token sent there is not read")
+    void shouldKeyPublicPathsByAddress() {
+        String token = token("cooperativa");
+
+        assertEquals(HttpStatus.NOT_FOUND, qrCode("198.51.100.40", token));
+        assertEquals(HttpStatus.NOT_FOUND, qrCode("198.51.100.40", token));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, qrCode("198.51.100.40", token));
+
+        assertEquals(HttpStatus.NOT_FOUND, qrCode("198.51.100.41", token));
+    }
+
+    @Test
+    @DisplayName("Should rate limit logins by client address")
+    void shouldRateLimitLogin() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Forwarded-For", "198.51.100.30");
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<String> login = new HttpEntity<>("{\"username\":\"nobody\",\"password\":\"wrong\"}", headers);
+
+        // login costs more than the bucket holds, so it takes the whole bucket
+        assertNotEquals(HttpStatus.TOO_MANY_REQUESTS, restTemplate.postForEntity("/api/auth/login", login,
+                String.class).getStatusCode());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, restTemplate.postForEntity("/api/auth/login", login,
+                String.class).getStatusCode());
+    }
+
+    private HttpStatus logout(String client, String token) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Forwarded-For", client);
+        headers.setBearerAuth(token);
+        return HttpStatus.valueOf(restTemplate.exchange("/api/auth/logout", HttpMethod.POST,
+                new HttpEntity<>(headers), Void.class).getStatusCode().value());
+    }
+
+    private String token(String username) {
+        return jwtService.generateToken(new UsernamePasswordAuthenticationToken(
+                username, null, List.of(new SimpleGrantedAuthority("PRODUCER"))));
+    }
+
+    private HttpStatus qrCode(String client) {
+        return qrCode(client, null);
+    }
+
+    private HttpStatus qrCode(String client, String token) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Forwarded-For", client);
+        if (token != null) {
+            headers.setBearerAuth(token);
+        }
+        return HttpStatus.valueOf(restTemplate.exchange("/api/product-chain/UNKNOWN/qr", HttpMethod.GET,
+                new HttpEntity<>(headers), byte[].class).getStatusCode().value());
+    }
+}
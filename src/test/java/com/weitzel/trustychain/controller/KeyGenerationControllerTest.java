@@ -3,11 +3,13 @@ package com.weitzel.trustychain.controller;
 import com.weitzel.trustychain.assistant.KeyGenerationController;
 import com.weitzel.trustychain.auth.JwtAuthenticationFilter;
 import com.weitzel.trustychain.auth.JwtService;
+import com.weitzel.trustychain.common.service.RsaKeyPairPool;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.web.servlet.MockMvc;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -15,6 +17,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @WebMvcTest(KeyGenerationController.class)
 @AutoConfigureMockMvc(addFilters = false)
+@Import(RsaKeyPairPool.class)
 public class KeyGenerationControllerTest {
 
         @Autowired
@@ -0,0 +1,80 @@
+package com.weitzel.trustychain.controller;
+
+import com.weitzel.trustychain.auth.JwtAuthenticationFilter;
+import com.weitzel.trustychain.auth.JwtService;
+import com.weitzel.trustychain.chain.labels.LabelController;
+import com.weitzel.trustychain.chain.labels.LabelFormat;
+import com.weitzel.trustychain.chain.labels.LabelService;
+import com.weitzel.trustychain.common.exception.Exceptions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.OutputStream;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(LabelController.class)
+@AutoConfigureMockMvc(addFilters = false)
+class LabelControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private LabelService labelService;
+
+    @MockBean
+    private JwtService jwtService;
+
+    @MockBean
+    private JwtAuthenticationFilter jwtAuthenticationFilter;
+
+    @Test
+    @DisplayName("Should stream labels as an attachment")
+    void shouldStreamLabels() throws Exception {
+        LabelService.Labels labels = new LabelService.Labels(LabelFormat.PDF, 300, 2, List.of("A", "B"), null, 0, 0);
+        when(labelService.prepare(any())).thenReturn(labels);
+        doAnswer(inv -> {
+            inv.<OutputStream>getArgument(1).write("%PDF".getBytes());
+            return null;
+        }).when(labelService).write(eq(labels), any());
+
+        MvcResult result = mockMvc.perform(post("/api/labels/qr")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"productCodes\": [\"A\", \"B\"], \"format\": \"pdf\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/pdf"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"qr-labels.pdf\""))
+                .andExpect(content().string("%PDF"));
+    }
+
+    @Test
+    @DisplayName("Should reject invalid label requests before streaming")
+    void shouldRejectInvalidRequest() throws Exception {
+        when(labelService.prepare(any()))
+                .thenThrow(new Exceptions.InvalidQrRequestException("Give either productCodes or a from/to range"));
+
+        mockMvc.perform(post("/api/labels/qr")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Give either productCodes or a from/to range"));
+
+        verify(labelService, never()).write(any(), any());
+    }
+}
@@ -4,9 +4,11 @@ import com.weitzel.trustychain.auth.JwtAuthenticationFilter;
 import com.weitzel.trustychain.auth.JwtService;
 import com.weitzel.trustychain.chain.ProductChain;
 import com.weitzel.trustychain.chain.ProductChainController;
-import com.weitzel.trustychain.chain.ProductChainRepository;
 import com.weitzel.trustychain.chain.ProductChainService;
+import com.weitzel.trustychain.chain.QrFormat;
 import com.weitzel.trustychain.chain.TrackingService;
+import com.weitzel.trustychain.chain.dto.TrackingResponse.ChainEventDTO;
+import com.weitzel.trustychain.common.exception.Exceptions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,9 +17,12 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -34,9 +39,6 @@ class ProductChainControllerTest {
     @MockBean
     private ProductChainService productChainService;
 
-    @MockBean
-    private ProductChainRepository productChainRepository;
-
     @MockBean
     private TrackingService trackingService;
 
@@ -82,15 +84,10 @@ class ProductChainControllerTest {
     @Test
     @DisplayName("Should get product history")
     void shouldGetProductHistory() throws Exception {
-        ProductChain event = new ProductChain();
-        event.setActor("Test Actor");
-        event.setProductCode("PROD-001");
-        event.setEventType("CREATE");
-        event.setMetadata("metadata");
-        event.setCurrentHash("hash123");
-        event.setTrustedTimestamp(LocalDateTime.now());
+        ChainEventDTO event = new ChainEventDTO(
+                "Test Actor", "CREATE", "metadata", LocalDateTime.now(), "hash123");
 
-        when(productChainRepository.findByProductCodeOrderByCreatedAtAsc("PROD-001"))
+        when(productChainService.getTrackingEvents("PROD-001"))
                 .thenReturn(List.of(event));
         when(productChainService.verifyChainIntegrity("PROD-001")).thenReturn(true);
         when(trackingService.generateQRCodeUrl("PROD-001"))
@@ -106,24 +103,157 @@ class ProductChainControllerTest {
     @Test
     @DisplayName("Should verify chain integrity")
     void shouldVerifyChainIntegrity() throws Exception {
-        ProductChain event = new ProductChain();
-        when(productChainRepository.findByProductCodeOrderByCreatedAtAsc("PROD-001"))
-                .thenReturn(List.of(event));
+        when(productChainService.countEvents("PROD-001")).thenReturn(1L);
         when(productChainService.verifyChainIntegrity("PROD-001")).thenReturn(true);
 
         mockMvc.perform(get("/api/product-chain/PROD-001/verify"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.productCode").value("PROD-001"))
-                .andExpect(jsonPath("$.isValid").value(true));
+                .andExpect(jsonPath("$.isValid").value(true))
+                .andExpect(jsonPath("$.eventCount").value(1));
     }
 
     @Test
     @DisplayName("Should return not found for empty product")
     void shouldReturnNotFoundForEmptyProduct() throws Exception {
-        when(productChainRepository.findByProductCodeOrderByCreatedAtAsc("UNKNOWN"))
+        when(productChainService.getTrackingEvents("UNKNOWN"))
                 .thenReturn(List.of());
 
         mockMvc.perform(get("/api/product-chain/UNKNOWN"))
                 .andExpect(status().isNotFound());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should return not found for bundle of unknown product")
+    void shouldReturnNotFoundForUnknownBundle() throws Exception {
+        when(productChainService.productExists("UNKNOWN")).thenReturn(false);
+
+        mockMvc.perform(get("/api/product-chain/UNKNOWN/bundle"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Should stream proof bundle")
+    void shouldStreamProofBundle() throws Exception {
+        when(productChainService.productExists("PROD-001")).thenReturn(true);
+        doAnswer(inv -> {
+            inv.<OutputStream>getArgument(1).write(new byte[] { (byte) 0xbf, (byte) 0xff });
+            return null;
+        }).when(productChainService).writeProofBundle(eq("PROD-001"), any());
+
+        MvcResult result = mockMvc.perform(get("/api/product-chain/PROD-001/bundle"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andExpect(content().bytes(new byte[] { (byte) 0xbf, (byte) 0xff }));
+    }
+
+    @Test
+    @DisplayName("Should serve QR code with ETag and Cache-Control")
+    void shouldServeQRCodeWithETag() throws Exception {
+        byte[] png = new byte[] { (byte) 0x89, 'P', 'N', 'G' };
+        when(productChainService.productExists("PROD-001")).thenReturn(true);
+        when(trackingService.qrCodeETag("PROD-001", 300, QrFormat.PNG)).thenReturn("\"abc\"");
+        when(trackingService.qrCode("PROD-001", 300, QrFormat.PNG)).thenReturn(png);
+
+        mockMvc.perform(get("/api/product-chain/PROD-001/qr"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.IMAGE_PNG))
+                .andExpect(header().string("ETag", "\"abc\""))
+                .andExpect(header().string("Cache-Control", "max-age=2592000, public"))
+                .andExpect(content().bytes(png));
+    }
+
+    @Test
+    @DisplayName("Should answer a matching If-None-Match on the QR code with 304")
+    void shouldReturnNotModifiedForQRCode() throws Exception {
+        when(trackingService.qrCodeETag("PROD-001", 600, QrFormat.PNG)).thenReturn("\"abc\"");
+
+        mockMvc.perform(get("/api/product-chain/PROD-001/qr").param("size", "600")
+                .header("If-None-Match", "\"abc\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"abc\""));
+
+        verify(productChainService, never()).productExists(any());
+        verify(trackingService, never()).qrCode(any(), anyInt(), any());
+    }
+
+    @Test
+    @DisplayName("Should reject unsupported QR code sizes")
+    void shouldRejectUnsupportedQRCodeSize() throws Exception {
+        doThrow(new Exceptions.InvalidQrRequestException("Unsupported QR code size 20000"))
+                .when(trackingService).checkQRCodeSize(20000);
+
+        mockMvc.perform(get("/api/product-chain/PROD-001/qr").param("size", "20000"))
+                .andExpect(status().isBadRequest());
+
+        verify(trackingService, never()).qrCode(any(), anyInt(), any());
+    }
+
+    @Test
+    @DisplayName("Should serve QR code as SVG")
+    void shouldServeQRCodeAsSvg() throws Exception {
+        byte[] svg = "<svg/>".getBytes();
+        when(productChainService.productExists("PROD-001")).thenReturn(true);
+        when(trackingService.qrCodeETag("PROD-001", 300, QrFormat.SVG)).thenReturn("\"svg\"");
+        when(trackingService.qrCode("PROD-001", 300, QrFormat.SVG)).thenReturn(svg);
+
+        mockMvc.perform(get("/api/product-chain/PROD-001/qr").param("format", "svg"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/svg+xml"))
+                .andExpect(content().bytes(svg));
+    }
+
+    @Test
+    @DisplayName("Should reject unknown QR code formats")
+    void shouldRejectUnknownQRCodeFormat() throws Exception {
+        mockMvc.perform(get("/api/product-chain/PROD-001/qr").param("format", "gif"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Should tag tracking responses with the chain head hash")
+    void shouldTagTrackingWithHeadHash() throws Exception {
+        ChainEventDTO event = new ChainEventDTO("Actor", "CREATE", "meta", LocalDateTime.now(), "head123");
+        when(productChainService.findHeadHash("PROD-001")).thenReturn(Optional.of("head123"));
+        when(productChainService.getTrackingEvents("PROD-001")).thenReturn(List.of(event));
+        when(productChainService.verifyChainIntegrity("PROD-001")).thenReturn(true);
+
+        mockMvc.perform(get("/api/product-chain/PROD-001"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"head123\""))
+                .andExpect(header().string("Cache-Control", "no-cache, public"));
+    }
+
+    @Test
+    @DisplayName("Should answer an unchanged chain with 304 after the head lookup only")
+    void shouldReturnNotModifiedForUnchangedChain() throws Exception {
+        when(productChainService.findHeadHash("PROD-001")).thenReturn(Optional.of("head123"));
+
+        mockMvc.perform(get("/api/product-chain/PROD-001").header("If-None-Match", "\"head123\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"head123\""));
+        mockMvc.perform(get("/api/product-chain/PROD-001/verify").header("If-None-Match", "\"head123\""))
+                .andExpect(status().isNotModified());
+
+        verify(productChainService, never()).getTrackingEvents(any());
+        verify(productChainService, never()).countEvents(any());
+        verify(productChainService, never()).verifyChainIntegrity(any());
+    }
+
+    @Test
+    @DisplayName("Should verify again once the chain head moved")
+    void shouldVerifyAgainAfterNewEvent() throws Exception {
+        when(productChainService.findHeadHash("PROD-001")).thenReturn(Optional.of("head456"));
+        when(productChainService.countEvents("PROD-001")).thenReturn(2L);
+        when(productChainService.verifyChainIntegrity("PROD-001")).thenReturn(true);
+
+        mockMvc.perform(get("/api/product-chain/PROD-001/verify").header("If-None-Match", "\"head123\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"head456\""))
+                .andExpect(jsonPath("$.eventCount").value(2));
+    }
+}
@@ -0,0 +1,131 @@
+package com.weitzel.trustychain.controller;
+
+import com.weitzel.trustychain.auth.JwtAuthenticationFilter;
+import com.weitzel.trustychain.auth.JwtService;
+import com.weitzel.trustychain.chain.ProductChainController;
+import com.weitzel.trustychain.chain.ProductChainService;
+import com.weitzel.trustychain.chain.TrackingService;
+import com.weitzel.trustychain.chain.dto.TrackingResponse.ChainEventDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// a bucket that barely refills, so every request in a test spends from the same budget
+@WebMvcTest(ProductChainController.class)
+@AutoConfigureMockMvc(addFilters = false)
+@TestPropertySource(properties = {
+        "trustychain.rate-limit.capacity=10",
+        "trustychain.rate-limit.refill-per-second=0.01",
+        "trustychain.rate-limit.cost.verify=4",
+        "trustychain.rate-limit.cost.verify-events-per-token=10",
+        "trustychain.rate-limit.cost.register=6"
+})
+class RateLimitControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ProductChainService productChainService;
+
+    @MockBean
+    private TrackingService trackingService;
+
+    @MockBean
+    private JwtService jwtService;
+
+    @MockBean
+    private JwtAuthenticationFilter jwtAuthenticationFilter;
+
+    @Test
+    @DisplayName("Should answer 429 with Retry-After once the client's bucket is empty")
+    void shouldRejectWhenBucketIsEmpty() throws Exception {
+        when(productChainService.findHeadHash(anyString())).thenReturn(Optional.empty());
+        when(productChainService.countEvents("PROD-001")).thenReturn(0L);
+
+        // 4 + 4 tokens, the third verify needs 4 of the 2 left
+        mockMvc.perform(get("/api/product-chain/PROD-001/verify").with(remote("10.0.0.1")))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/product-chain/PROD-001/verify").with(remote("10.0.0.1")))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/product-chain/PROD-001/verify").with(remote("10.0.0.1")))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"));
+
+        // another client has its own bucket
+        mockMvc.perform(get("/api/product-chain/PROD-001/verify").with(remote("10.0.0.2")))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Should charge verification by chain length")
+    void shouldChargeByChainLength() throws Exception {
+        List<ChainEventDTO> events = Collections.nCopies(40,
+                new ChainEventDTO("Farm", "CREATE", "{}", LocalDateTime.now(), "hash"));
+        when(productChainService.findHeadHash("LONG")).thenReturn(Optional.of("head"));
+        when(productChainService.getTrackingEvents("LONG")).thenReturn(events);
+        when(productChainService.verifyChainIntegrity("LONG")).thenReturn(true);
+
+        // 4 tokens up front and 40 / 10 after the chain was verified, 2 are left
+        mockMvc.perform(get("/api/product-chain/LONG").with(remote("10.0.0.3")))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/product-chain/LONG").with(remote("10.0.0.3")))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    @DisplayName("Should charge cheap lookups the default single token")
+    void shouldChargeDefaultCost() throws Exception {
+        when(trackingService.qrCodeETag(anyString(), anyInt(), any())).thenReturn("\"qr\"");
+
+        for (int i = 0; i < 10; i++) {
+            mockMvc.perform(get("/api/product-chain/PROD-001/qr").with(remote("10.0.0.4"))
+                    .header("If-None-Match", "\"qr\""))
+                    .andExpect(status().isNotModified());
+        }
+        mockMvc.perform(get("/api/product-chain/PROD-001/qr").with(remote("10.0.0.4")))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    @DisplayName("Should charge registering an event its own weight")
+    void shouldChargeRegisterCost() throws Exception {
+        String event = "{\"productCode\":\"PROD-001\",\"actor\":\"Farm\",\"eventType\":\"CREATE\","
+                + "\"signature\":\"sig\"}";
+
+        // 6 tokens each, the second one only finds 4
+        mockMvc.perform(post("/api/product-chain/event").with(remote("10.0.0.5"))
+                .contentType(MediaType.APPLICATION_JSON).content(event))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/product-chain/event").with(remote("10.0.0.5"))
+                .contentType(MediaType.APPLICATION_JSON).content(event))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    private static RequestPostProcessor remote(String address) {
+        return request -> {
+            request.setRemoteAddr(address);
+            return request;
+        };
+    }
+}
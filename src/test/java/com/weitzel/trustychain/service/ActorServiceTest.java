@@ -3,6 +3,7 @@ package com.weitzel.trustychain.service;
 import com.weitzel.trustychain.actor.Actor;
 import com.weitzel.trustychain.actor.ActorRepository;
 import com.weitzel.trustychain.actor.ActorService;
+import com.weitzel.trustychain.auth.PrincipalCache;
 import com.weitzel.trustychain.chain.ProductChain;
 import com.weitzel.trustychain.chain.ProductChainRepository;
 import com.weitzel.trustychain.common.exception.Exceptions;
@@ -35,6 +36,9 @@ class ActorServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private PrincipalCache principalCache;
+
     @InjectMocks
     private ActorService actorService;
 
@@ -130,23 +134,25 @@ class ActorServiceTest {
     }
 
     @Test
-    @DisplayName("Should delete actor")
+    @DisplayName("Should delete actor and drop its cached principal")
     void shouldDeleteActor() {
-        when(actorRepository.existsById(testActor.getId())).thenReturn(true);
+        when(actorRepository.findById(testActor.getId())).thenReturn(Optional.of(testActor));
 
         actorService.deleteActor(testActor.getId());
 
-        verify(actorRepository).deleteById(testActor.getId());
+        verify(actorRepository).delete(testActor);
+        verify(principalCache).invalidate("testuser");
     }
 
     @Test
     @DisplayName("Should throw exception when deleting non-existent actor")
     void shouldThrowExceptionWhenDeletingNonExistentActor() {
         UUID randomId = UUID.randomUUID();
-        when(actorRepository.existsById(randomId)).thenReturn(false);
+        when(actorRepository.findById(randomId)).thenReturn(Optional.empty());
 
         assertThrows(Exceptions.ActorNotFoundException.class,
                 () -> actorService.deleteActor(randomId));
+        verify(actorRepository, never()).delete(any());
     }
 
     @Test
@@ -175,6 +181,8 @@ class ActorServiceTest {
         Actor result = actorService.updateActor(testActor.getId(), request);
 
         assertEquals("newusername", result.getUsername());
+        // tokens carry the old username, its principal must not outlive the rename
+        verify(principalCache).invalidate("testuser");
     }
 
     @Test
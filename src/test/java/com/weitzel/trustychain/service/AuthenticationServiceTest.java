@@ -2,17 +2,23 @@ package com.weitzel.trustychain.service;
 
 import com.weitzel.trustychain.auth.AuthenticationService;
 import com.weitzel.trustychain.auth.JwtService;
+import com.weitzel.trustychain.auth.PasswordHashingExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 
+import java.time.Duration;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -26,9 +32,18 @@ class AuthenticationServiceTest {
     @Mock
     private JwtService jwtService;
 
+    @Spy
+    private PasswordHashingExecutor passwordHashing =
+            new PasswordHashingExecutor(1, 4, Duration.ofSeconds(5), new SimpleMeterRegistry());
+
     @InjectMocks
     private AuthenticationService authenticationService;
 
+    @AfterEach
+    void tearDown() {
+        passwordHashing.destroy();
+    }
+
     @Test
     @DisplayName("Should authenticate user and return token")
     void shouldAuthenticateUser() {
@@ -42,6 +57,7 @@ class AuthenticationServiceTest {
         assertEquals("jwt.token.here", token);
         verify(authenticationManager).authenticate(any());
         verify(jwtService).generateToken(mockAuth);
+        verify(passwordHashing).call(any());
     }
 
     @Test
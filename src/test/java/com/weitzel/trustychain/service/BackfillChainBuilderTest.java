@@ -0,0 +1,107 @@
+package com.weitzel.trustychain.service;
+
+import com.weitzel.trustychain.chain.backfill.BackfillChainBuilder;
+import com.weitzel.trustychain.chain.backfill.BackfillChainBuilder.ActorKey;
+import com.weitzel.trustychain.chain.backfill.BackfillChainBuilder.ChainHead;
+import com.weitzel.trustychain.chain.backfill.BackfillChainBuilder.NumberedRecord;
+import com.weitzel.trustychain.chain.backfill.BackfillChainBuilder.Slice;
+import com.weitzel.trustychain.chain.backfill.BackfillRecord;
+import com.weitzel.trustychain.common.exception.Exceptions;
+import com.weitzel.trustychain.common.service.CryptoService;
+import com.weitzel.trustychain.common.service.HashService;
+import com.weitzel.trustychain.common.service.SignedTimestamp;
+import com.weitzel.trustychain.common.service.TimestampService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class BackfillChainBuilderTest {
+
+    private final HashService hashService = new HashService();
+    private final CryptoService cryptoService = new CryptoService();
+    private final TimestampService timestampService = mock(TimestampService.class);
+    private final LocalDateTime importTime = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    private BackfillChainBuilder builder;
+    private Map<String, ActorKey> actorKeys;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        builder = new BackfillChainBuilder(hashService, cryptoService, timestampService);
+        when(timestampService.signTimestamp(anyString()))
+                .thenReturn(new SignedTimestamp(importTime, "ts-signature"));
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        String pem = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
+        actorKeys = Map.of("Farm", new ActorKey(pem, cryptoService.loadPublicKeyFromPem(pem)));
+    }
+
+    @Test
+    @DisplayName("Should continue the chain from its current head")
+    void shouldContinueFromHead() {
+        List<NumberedRecord> records = List.of(
+                record(1, "PROD-001", "SHIP", null),
+                record(2, "PROD-001", "DELIVER", "dock 4"));
+        ChainHead head = new ChainHead("abc", LocalDateTime.of(2020, 1, 1, 0, 0));
+
+        Slice slice = builder.build(List.of(records), Map.of("PROD-001", head), actorKeys, importTime);
+
+        String first = hashService.calculateIntegrityHash("abc", "Farm", "PROD-001", "SHIP", null);
+        String second = hashService.calculateIntegrityHash(first, "Farm", "PROD-001", "DELIVER", "dock 4");
+        assertEquals(second, slice.heads().get("PROD-001").hash());
+
+        String[] rows = new String(slice.csv(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, rows.length);
+        assertTrue(rows[0].contains(",,\"abc\",\"" + first + "\",\"" + BackfillChainBuilder.LEGACY_UNSIGNED + "\","));
+    }
+
+    @Test
+    @DisplayName("Should keep created_at strictly increasing per product")
+    void shouldKeepCreatedAtIncreasing() {
+        List<NumberedRecord> records = List.of(
+                record(1, "PROD-001", "SHIP", null),
+                record(2, "PROD-001", "DELIVER", null));
+
+        Slice slice = builder.build(List.of(records), Map.of(), actorKeys, importTime);
+
+        assertEquals(importTime.plusNanos(1_000), slice.heads().get("PROD-001").createdAt());
+    }
+
+    @Test
+    @DisplayName("Should reject a signature that does not cover the chained payload")
+    void shouldRejectInvalidSignature() {
+        BackfillRecord signed = new BackfillRecord("Farm", "PROD-001", "SHIP", null,
+                Base64.getEncoder().encodeToString(new byte[256]), null);
+
+        assertThrows(Exceptions.InvalidSignatureException.class,
+                () -> builder.build(List.of(List.of(new NumberedRecord(7, signed))), Map.of(), actorKeys, importTime));
+    }
+
+    @Test
+    @DisplayName("Should encode nulls as empty fields and escape quotes")
+    void shouldEncodeCsv() {
+        StringBuilder csv = new StringBuilder();
+
+        BackfillChainBuilder.appendCsvRow(csv, "a", null, "say \"hi\"", "");
+
+        assertEquals("\"a\",,\"say \"\"hi\"\"\",\"\"\n", csv.toString());
+    }
+
+    private static NumberedRecord record(long line, String productCode, String eventType, String metadata) {
+        return new NumberedRecord(line, new BackfillRecord("Farm", productCode, eventType, metadata, null, null));
+    }
+}
@@ -0,0 +1,165 @@
+package com.weitzel.trustychain.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weitzel.trustychain.actor.Actor;
+import com.weitzel.trustychain.actor.ActorRepository;
+import com.weitzel.trustychain.chain.archive.ChainArchive;
+import com.weitzel.trustychain.chain.backfill.BackfillChainBuilder;
+import com.weitzel.trustychain.chain.backfill.BackfillImporter;
+import com.weitzel.trustychain.chain.backfill.dto.ImportStatus;
+import com.weitzel.trustychain.chain.store.ProductCodeFilter;
+import com.weitzel.trustychain.common.service.CryptoService;
+import com.weitzel.trustychain.common.service.HashService;
+import com.weitzel.trustychain.common.service.SignedTimestamp;
+import com.weitzel.trustychain.common.service.TimestampService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPairGenerator;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+// runs the COPY path against a real postgres with the Flyway schema, skipped where Docker is not available
+@Testcontainers(disabledWithoutDocker = true)
+class BackfillImporterPostgresTest {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @TempDir
+    Path directory;
+
+    private final TimestampService timestampService = mock(TimestampService.class);
+    private final ActorRepository actorRepository = mock(ActorRepository.class);
+    private final HashService hashService = new HashService();
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private BackfillImporter importer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(),
+                postgres.getPassword());
+        Flyway.configure().dataSource(dataSource).cleanDisabled(false).load().clean();
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        Actor actor = new Actor();
+        actor.setName("Farm");
+        actor.setPublicKey(Base64.getEncoder().encodeToString(generator.generateKeyPair().getPublic().getEncoded()));
+        when(actorRepository.findByName("Farm")).thenReturn(Optional.of(actor));
+        when(timestampService.signTimestamp(anyString())).thenAnswer(invocation ->
+                new SignedTimestamp(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS), "ts-signature"));
+
+        ChainArchive chainArchive = new ChainArchive(directory.resolve("archive").toString(), 8, 1 << 20);
+        chainArchive.init();
+        Files.createDirectories(directory.resolve("import"));
+        importer = new BackfillImporter(dataSource, jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)), actorRepository,
+                chainArchive, mock(ProductCodeFilter.class), hashService, new CryptoService(), timestampService,
+                new ObjectMapper().findAndRegisterModules(), directory.resolve("import"), 2, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        importer.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should COPY unsigned records as legacy-unsigned chains and record the checkpoint")
+    void shouldCopyLegacyUnsignedChains() throws Exception {
+        writeImport("PROD-001", "PROD-002", "PROD-001");
+
+        ImportStatus status = await(importer.start("legacy.ndjson", "job-1"));
+
+        assertEquals(ImportStatus.State.COMPLETED, status.state(), status.error());
+        assertEquals(3, status.rowsImported());
+        assertEquals(List.of(BackfillChainBuilder.LEGACY_UNSIGNED), jdbcTemplate.queryForList(
+                "SELECT DISTINCT signature FROM product_chain", String.class));
+        assertChainLinked("PROD-001", 2);
+        assertEquals(3L, jdbcTemplate.queryForObject(
+                "SELECT lines_committed FROM import_checkpoints WHERE job_id = 'job-1'", Long.class));
+    }
+
+    @Test
+    @DisplayName("Should wait for the chain lock and continue from the head registered meanwhile")
+    void shouldContinueFromHeadRegisteredWhileLocked() throws Exception {
+        writeImport("PROD-001");
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                // what registerEvent holds between reading the head and committing its event
+                statement.execute("SELECT pg_advisory_xact_lock(7321, hashtext('PROD-001') & 1023)");
+                ImportStatus started = importer.start("legacy.ndjson", "job-2");
+                TimeUnit.MILLISECONDS.sleep(500);
+                assertEquals(ImportStatus.State.RUNNING, importer.status(started.jobId()).orElseThrow().state());
+
+                String hash = hashService.calculateIntegrityHash(null, "Farm", "PROD-001", "CREATE", null);
+                statement.execute("INSERT INTO product_chain VALUES (gen_random_uuid(), 'Farm', 'PROD-001', "
+                        + "'CREATE', NULL, NULL, '" + hash + "', 'manual-entry-v1', 'key', NOW(), NOW(), 'tss')");
+            }
+            connection.commit();
+        }
+
+        ImportStatus status = await(importer.status("job-2").orElseThrow());
+
+        assertEquals(ImportStatus.State.COMPLETED, status.state(), status.error());
+        assertChainLinked("PROD-001", 2);
+    }
+
+    private void writeImport(String... productCodes) throws Exception {
+        StringBuilder lines = new StringBuilder();
+        for (String productCode : productCodes) {
+            lines.append("{\"actor\":\"Farm\",\"productCode\":\"").append(productCode)
+                    .append("\",\"eventType\":\"SHIP\"}\n");
+        }
+        Files.writeString(directory.resolve("import/legacy.ndjson"), lines);
+    }
+
+    private void assertChainLinked(String productCode, int length) {
+        List<String[]> links = jdbcTemplate.query(
+                "SELECT previous_hash, current_hash FROM product_chain WHERE product_code = ? ORDER BY created_at",
+                (rs, rowNum) -> new String[] { rs.getString(1), rs.getString(2) }, productCode);
+        assertEquals(length, links.size());
+        assertNull(links.get(0)[0]);
+        for (int i = 1; i < links.size(); i++) {
+            assertEquals(links.get(i - 1)[1], links.get(i)[0]);
+        }
+    }
+
+    private ImportStatus await(ImportStatus started) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        ImportStatus status = started;
+        while (status.state() == ImportStatus.State.RUNNING && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(50);
+            status = importer.status(started.jobId()).orElseThrow();
+        }
+        return status;
+    }
+}
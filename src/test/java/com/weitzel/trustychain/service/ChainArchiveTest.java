@@ -0,0 +1,215 @@
+package com.weitzel.trustychain.service;
+
+import com.weitzel.trustychain.chain.archive.ChainArchive;
+import com.weitzel.trustychain.chain.dto.ChainLinkDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChainArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should find archived chains through the sparse index")
+    void shouldFindArchivedChains() throws Exception {
+        ChainArchive archive = new ChainArchive(directory.toString(), 8, 1 << 20);
+        archive.init();
+
+        SortedMap<String, List<ChainLinkDTO>> chains = new TreeMap<>();
+        for (int i = 0; i < 100; i++) {
+            String code = String.format("PROD-%03d", i);
+            chains.put(code, chain(code, 3));
+        }
+        archive.append(chains);
+
+        assertEquals(3, archive.find("PROD-000").size());
+        assertEquals(chains.get("PROD-057"), archive.find("PROD-057"));
+        assertEquals(chains.get("PROD-099"), archive.find("PROD-099"));
+        assertTrue(archive.contains("PROD-063"));
+        assertFalse(archive.contains("PROD-1000"));
+        assertFalse(archive.contains("AAA"));
+        assertTrue(archive.find("ZZZ").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should reopen segments and concatenate chains in archive order")
+    void shouldReopenSegments() throws Exception {
+        ChainArchive archive = new ChainArchive(directory.toString(), 8, 1 << 20);
+        archive.init();
+
+        List<ChainLinkDTO> events = chain("PROD-001", 4);
+        archive.append(new TreeMap<>(Map.of("PROD-001", events.subList(0, 2))));
+        archive.append(new TreeMap<>(Map.of("PROD-001", events.subList(2, 4))));
+
+        ChainArchive reopened = new ChainArchive(directory.toString(), 8, 1 << 20);
+        reopened.init();
+
+        assertEquals(2, reopened.segmentCount());
+        assertEquals(events, reopened.find("PROD-001"));
+    }
+
+    @Test
+    @DisplayName("Should merge runs once there are too many, keeping chain order and append sequences")
+    void shouldCompactSegments() throws Exception {
+        ChainArchive archive = new ChainArchive(directory.toString(), 2, 1 << 20);
+        archive.init();
+
+        List<ChainLinkDTO> events = chain("PROD-001", 3);
+        long first = archive.append(new TreeMap<>(Map.of("PROD-001", events.subList(0, 1),
+                "PROD-002", chain("PROD-002", 1))));
+        long second = archive.append(new TreeMap<>(Map.of("PROD-001", events.subList(1, 2))));
+        long third = archive.append(new TreeMap<>(Map.of("PROD-001", events.subList(2, 3),
+                "PROD-003", chain("PROD-003", 2))));
+
+        assertEquals(2, runSizes().size());
+        assertEquals(events, archive.find("PROD-001"));
+        assertEquals(chain("PROD-003", 2), archive.find("PROD-003"));
+        assertEquals(third, archive.sequenceOf("PROD-003").orElseThrow());
+        assertTrue(archive.sequenceOf("PROD-404").isEmpty());
+        // every append still resolves to an existing file after the merge renamed them
+        for (long sequence : new long[] { first, second, third }) {
+            assertTrue(Files.exists(archive.locate(sequence, "PROD-001").orElseThrow()));
+        }
+        assertTrue(archive.locate(first, "PROD-003").isEmpty());
+
+        ChainArchive reopened = new ChainArchive(directory.toString(), 2, 1 << 20);
+        reopened.init();
+        assertEquals(events, reopened.find("PROD-001"));
+        assertEquals(chain("PROD-002", 1), reopened.find("PROD-002"));
+    }
+
+    @Test
+    @DisplayName("Should merge runs of similar size, so older data is not rewritten on every merge")
+    void shouldMergeSimilarSizes() throws Exception {
+        ChainArchive archive = new ChainArchive(directory.toString(), 4, 1 << 30);
+        archive.init();
+
+        for (int i = 0; i < 64; i++) {
+            String code = String.format("PROD-%03d", i);
+            archive.append(new TreeMap<>(Map.of(code, chain(code, 4))));
+        }
+
+        List<Long> sizes = runSizes();
+        assertTrue(sizes.size() <= 4, sizes.toString());
+        // oldest first, a newer run is never much larger than the one before it
+        for (int i = 1; i < sizes.size(); i++) {
+            assertTrue(sizes.get(i) <= 4 * sizes.get(i - 1), sizes.toString());
+        }
+        assertEquals(chain("PROD-000", 4), archive.find("PROD-000"));
+        assertEquals(chain("PROD-063", 4), archive.find("PROD-063"));
+    }
+
+    @Test
+    @DisplayName("Should split merged runs into parts no larger than max-segment-bytes")
+    void shouldCapSegmentSize() throws Exception {
+        long maxSegmentBytes = 4096;
+        ChainArchive archive = new ChainArchive(directory.toString(), 2, maxSegmentBytes);
+        archive.init();
+
+        archive.append(new TreeMap<>(Map.of("PROD-000", chain("PROD-000", 4))));
+        // one chain with its segment header, what a part may overshoot the cap by
+        long oneChain = Files.size(directory.resolve(fileNames().get(0)));
+        for (int i = 1; i < 40; i++) {
+            String code = String.format("PROD-%03d", i);
+            archive.append(new TreeMap<>(Map.of(code, chain(code, 4))));
+        }
+        assertTrue(runSizes().size() > 2);
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                assertTrue(Files.size(file) <= maxSegmentBytes + oneChain, file.toString());
+            }
+        }
+        ChainArchive reopened = new ChainArchive(directory.toString(), 2, maxSegmentBytes);
+        reopened.init();
+        for (int i = 0; i < 40; i++) {
+            String code = String.format("PROD-%03d", i);
+            assertEquals(chain(code, 4), reopened.find(code));
+        }
+    }
+
+    @Test
+    @DisplayName("Should drop leftovers of a merge that crashed, before or after renaming all its parts")
+    void shouldCleanUpAfterCrashedCompaction() throws Exception {
+        ChainArchive archive = new ChainArchive(directory.toString(), 2, 1 << 20);
+        archive.init();
+
+        List<ChainLinkDTO> events = chain("PROD-001", 3);
+        long first = archive.append(new TreeMap<>(Map.of("PROD-001", events.subList(0, 1))));
+        long second = archive.append(new TreeMap<>(Map.of("PROD-001", events.subList(1, 2))));
+        Path secondFile = archive.locate(second, "PROD-001").orElseThrow();
+        byte[] secondContent = Files.readAllBytes(secondFile);
+        long third = archive.append(new TreeMap<>(Map.of("PROD-001", events.subList(2, 3))));
+        List<String> merged = fileNames();
+
+        // an input the finished merge did not get to delete
+        Files.write(secondFile, secondContent);
+        // a later merge that renamed only one of its two parts
+        Files.copy(archive.locate(second, "PROD-001").orElseThrow(),
+                directory.resolve(String.format("segment-%019d-%019d-0000-0002.seg", first, third)));
+        Files.writeString(directory.resolve("segment-0000000000000000009-0000000000000000009.seg.tmp"), "partial");
+
+        ChainArchive reopened = new ChainArchive(directory.toString(), 2, 1 << 20);
+        reopened.init();
+
+        assertEquals(2, reopened.segmentCount());
+        assertEquals(events, reopened.find("PROD-001"));
+        assertFalse(Files.exists(secondFile));
+        assertEquals(merged, fileNames());
+    }
+
+    @Test
+    @DisplayName("Should keep null fields and timestamp precision")
+    void shouldRoundTripFields() throws Exception {
+        ChainArchive archive = new ChainArchive(directory.toString(), 8, 1 << 20);
+        archive.init();
+
+        LocalDateTime timestamp = LocalDateTime.of(2024, 5, 1, 10, 15, 30, 123456000);
+        ChainLinkDTO event = new ChainLinkDTO("Actor", "PROD-X", "CREATE", null, null, "hash",
+                "manual-entry-v1", "key", timestamp, "tsig");
+        archive.append(new TreeMap<>(Map.of("PROD-X", List.of(event))));
+
+        assertEquals(List.of(event), archive.find("PROD-X"));
+    }
+
+    private List<String> fileNames() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    // bytes per run, oldest first, the parts of a merged run share its from..to
+    private List<Long> runSizes() throws Exception {
+        Map<String, Long> sizes = new TreeMap<>();
+        for (String name : fileNames()) {
+            sizes.merge(name.substring(0, "segment-".length() + 39), Files.size(directory.resolve(name)), Long::sum);
+        }
+        return List.copyOf(sizes.values());
+    }
+
+    private static List<ChainLinkDTO> chain(String code, int length) {
+        List<ChainLinkDTO> events = new ArrayList<>();
+        String previous = null;
+        for (int i = 0; i < length; i++) {
+            String hash = code + "-hash-" + i;
+            events.add(new ChainLinkDTO("Actor", code, "EVENT" + i, "meta" + i, previous, hash,
+                    "signature", "public-key", LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(i), "tsig"));
+            previous = hash;
+        }
+        return events;
+    }
+}
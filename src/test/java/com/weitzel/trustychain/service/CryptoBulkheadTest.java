@@ -0,0 +1,114 @@
+package com.weitzel.trustychain.service;
+
+import com.weitzel.trustychain.common.exception.Exceptions;
+import com.weitzel.trustychain.common.service.CryptoBulkhead;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CryptoBulkheadTest {
+
+    private CryptoBulkhead bulkhead;
+
+    @AfterEach
+    void tearDown() {
+        if (bulkhead != null) {
+            bulkhead.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("Should run inline when virtual threads are disabled")
+    void shouldRunInlineWhenDisabled() throws Exception {
+        bulkhead = new CryptoBulkhead(false, 2, 10);
+
+        assertFalse(bulkhead.isEnabled());
+        assertEquals(Thread.currentThread().getName(), bulkhead.call(() -> Thread.currentThread().getName()));
+        assertTrue(onVirtualThread(() -> bulkhead.call(() -> Thread.currentThread().isVirtual())));
+    }
+
+    @Test
+    @DisplayName("Should run inline for platform threads even when enabled")
+    void shouldRunInlineForPlatformThreads() {
+        bulkhead = new CryptoBulkhead(true, 2, 10);
+
+        assertEquals(Thread.currentThread().getName(), bulkhead.call(() -> Thread.currentThread().getName()));
+    }
+
+    @Test
+    @DisplayName("Should move work from virtual threads onto the bulkhead pool")
+    void shouldOffloadVirtualThreads() throws Exception {
+        bulkhead = new CryptoBulkhead(true, 2, 10);
+
+        String thread = onVirtualThread(() -> bulkhead.call(() -> Thread.currentThread().getName()));
+
+        assertTrue(thread.startsWith("crypto-bulkhead-"));
+    }
+
+    @Test
+    @DisplayName("Should rethrow runtime exceptions from the task")
+    void shouldRethrowTaskExceptions() throws Exception {
+        bulkhead = new CryptoBulkhead(true, 1, 10);
+
+        Object result = onVirtualThread(() -> {
+            try {
+                return bulkhead.call(() -> {
+                    throw new IllegalArgumentException("bad key");
+                });
+            } catch (IllegalArgumentException e) {
+                return e;
+            }
+        });
+
+        assertInstanceOf(IllegalArgumentException.class, result);
+    }
+
+    @Test
+    @DisplayName("Should reject work with ServiceBusyException when the queue is full")
+    void shouldRejectWhenSaturated() throws Exception {
+        bulkhead = new CryptoBulkhead(true, 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // one task occupies the only thread, the next one fills the queue
+        Thread.ofVirtual().start(() -> bulkhead.call(() -> {
+            started.countDown();
+            awaitQuietly(release);
+            return null;
+        }));
+        started.await();
+        Thread.ofVirtual().start(() -> bulkhead.call(() -> null));
+        Thread.sleep(100);
+
+        Object result = onVirtualThread(() -> {
+            try {
+                return bulkhead.call(() -> "ran");
+            } catch (Exceptions.ServiceBusyException e) {
+                return e;
+            }
+        });
+        release.countDown();
+
+        assertInstanceOf(Exceptions.ServiceBusyException.class, result);
+    }
+
+    private static <T> T onVirtualThread(Supplier<T> task) throws InterruptedException {
+        AtomicReference<T> result = new AtomicReference<>();
+        Thread.ofVirtual().start(() -> result.set(task.get())).join();
+        return result.get();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.weitzel.trustychain.service;
+
+import com.weitzel.trustychain.chain.ProductChainRepository;
+import com.weitzel.trustychain.chain.ProductCodeGenerationRepository;
+import com.weitzel.trustychain.chain.archive.ChainArchive;
+import com.weitzel.trustychain.chain.dto.ChainLinkDTO;
+import com.weitzel.trustychain.chain.store.JpaChainStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JpaChainStoreTest {
+
+    @Mock
+    private ProductChainRepository productChainRepository;
+
+    @Mock
+    private ProductCodeGenerationRepository productCodeGenerationRepository;
+
+    @Mock
+    private ChainArchive chainArchive;
+
+    private JpaChainStore chainStore;
+
+    @BeforeEach
+    void setUp() {
+        chainStore = new JpaChainStore(productChainRepository, productCodeGenerationRepository, chainArchive, Duration.ofDays(31));
+    }
+
+    @Test
+    @DisplayName("Should look up the head with a single query")
+    void shouldLookUpHeadWithSingleQuery() {
+        when(productChainRepository.findHeadHash(eq("PROD-001"), any())).thenReturn(Optional.of("oldHead"));
+
+        assertEquals(Optional.of("oldHead"), chainStore.findHeadHash("PROD-001"));
+        verify(productChainRepository, times(1)).findHeadHash(eq("PROD-001"), any());
+        verifyNoInteractions(chainArchive);
+    }
+
+    @Test
+    @DisplayName("Should use the archived head when the chain left postgres")
+    void shouldUseArchivedHead() {
+        when(productChainRepository.findHeadHash(eq("SEALED"), any())).thenReturn(Optional.empty());
+        when(chainArchive.find("SEALED")).thenReturn(List.of(link("SEALED", null, "h1"), link("SEALED", "h1", "h2")));
+
+        assertEquals(Optional.of("h2"), chainStore.findHeadHash("SEALED"));
+    }
+
+    @Test
+    @DisplayName("Should pass hot and archived product codes")
+    void shouldPassHotAndArchivedProductCodes() {
+        when(productChainRepository.streamProductCodes()).thenReturn(Stream.of("HOT-1", "HOT-2"));
+        doAnswer(invocation -> {
+            Consumer<String> consumer = invocation.getArgument(0);
+            consumer.accept("SEALED");
+            return null;
+        }).when(chainArchive).forEachProductCode(any());
+
+        List<String> codes = new ArrayList<>();
+        chainStore.forEachProductCode(codes::add);
+
+        assertEquals(List.of("HOT-1", "HOT-2", "SEALED"), codes);
+    }
+
+    @Test
+    @DisplayName("Should merge archived and hot events without duplicates")
+    void shouldMergeArchivedAndHotEvents() {
+        ChainLinkDTO first = link("SPLIT", null, "h1");
+        ChainLinkDTO second = link("SPLIT", "h1", "h2");
+        when(chainArchive.find("SPLIT")).thenReturn(List.of(first));
+        // h1 is still in postgres, left behind by an interrupted archival run
+        when(productChainRepository.findChainLinks("SPLIT")).thenReturn(List.of(first, second));
+
+        assertEquals(List.of(first, second), chainStore.scan("SPLIT"));
+    }
+
+    @Test
+    @DisplayName("Should use the tracking projection for chains that were never archived")
+    void shouldUseTrackingProjection() {
+        when(chainArchive.contains("HOT")).thenReturn(false);
+        when(productChainRepository.findTrackingEvents("HOT")).thenReturn(List.of());
+
+        assertTrue(chainStore.scanTrackingEvents("HOT").isEmpty());
+        verify(productChainRepository, never()).findChainLinks(any());
+    }
+
+    @Test
+    @DisplayName("Should report archived products as existing")
+    void shouldReportArchivedProductsAsExisting() {
+        when(productChainRepository.existsByProductCode("SEALED")).thenReturn(false);
+        when(chainArchive.contains("SEALED")).thenReturn(true);
+
+        assertTrue(chainStore.exists("SEALED"));
+    }
+
+    private static ChainLinkDTO link(String productCode, String previousHash, String currentHash) {
+        return new ChainLinkDTO("Actor", productCode, "EVENT", "meta", previousHash, currentHash,
+                "sig", "key", LocalDateTime.now(), "tsig");
+    }
+}
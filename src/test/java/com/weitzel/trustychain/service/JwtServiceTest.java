@@ -1,7 +1,10 @@
 package com.weitzel.trustychain.service;
 
+import com.weitzel.trustychain.actor.Actor;
 import com.weitzel.trustychain.auth.JwtService;
+import com.weitzel.trustychain.auth.TokenPrincipal;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -10,7 +13,12 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -132,6 +140,136 @@ class JwtServiceTest {
         assertFalse(valid);
     }
 
+    @Test
+    @DisplayName("Should answer a repeated token from the cache")
+    void shouldCacheVerifiedTokens() {
+        ReflectionTestUtils.setField(jwtService, "cacheSize", 100);
+        jwtService.init();
+        String token = jwtService.generateToken(new UsernamePasswordAuthenticationToken(
+                "scanner", "pass", List.of(new SimpleGrantedAuthority("USER"))));
+
+        Claims first = jwtService.getClaims(token);
+        Claims second = jwtService.getClaims(token);
+
+        assertSame(first, second);
+        assertEquals("scanner", second.getSubject());
+    }
+
+    @Test
+    @DisplayName("Should serve cached tokens to concurrent requests")
+    void shouldCacheTokensConcurrently() throws Exception {
+        ReflectionTestUtils.setField(jwtService, "cacheSize", 10_000);
+        jwtService.init();
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            tokens.add(jwtService.generateToken(new UsernamePasswordAuthenticationToken(
+                    "scanner-" + i, "pass", List.of(new SimpleGrantedAuthority("USER")))));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < tokens.size(); i++) {
+                    assertEquals("scanner-" + i, jwtService.getClaims(tokens.get(i)).getSubject());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertSame(jwtService.getClaims(tokens.get(0)), jwtService.getClaims(tokens.get(0)));
+    }
+
+    @Test
+    @DisplayName("Should still reject a tampered token while its original is cached")
+    void shouldRejectTamperedTokenWithCache() {
+        ReflectionTestUtils.setField(jwtService, "cacheSize", 100);
+        jwtService.init();
+        String token = jwtService.generateToken(new UsernamePasswordAuthenticationToken(
+                "scanner", "pass", List.of(new SimpleGrantedAuthority("USER"))));
+        assertTrue(jwtService.isTokenValid(token));
+
+        String[] parts = token.split("\\.");
+        String tampered = parts[0] + "." + parts[1] + "." + new StringBuilder(parts[2]).reverse();
+
+        assertFalse(jwtService.isTokenValid(tampered));
+    }
+
+    @Test
+    @DisplayName("Should never cache expired tokens")
+    void shouldNotCacheExpiredTokens() {
+        ReflectionTestUtils.setField(jwtService, "cacheSize", 100);
+        ReflectionTestUtils.setField(jwtService, "expiration", -1000L);
+        jwtService.init();
+        String token = jwtService.generateToken(new UsernamePasswordAuthenticationToken(
+                "scanner", "pass", List.of(new SimpleGrantedAuthority("USER"))));
+
+        assertFalse(jwtService.isTokenValid(token));
+        assertFalse(jwtService.isTokenValid(token));
+    }
+
+    @Test
+    @DisplayName("Should build a stateless authentication from the token claims")
+    void shouldAuthenticateFromClaims() {
+        ReflectionTestUtils.setField(jwtService, "stateless", true);
+        ReflectionTestUtils.setField(jwtService, "statelessExpiration", 60000L);
+        Actor actor = new Actor();
+        actor.setId(UUID.randomUUID());
+        actor.setUsername("fazenda");
+        actor.setRole("PRODUCER");
+        String token = jwtService.generateToken(new UsernamePasswordAuthenticationToken(
+                actor, null, actor.getAuthorities()));
+
+        Claims claims = jwtService.getClaims(token);
+        Authentication authentication = jwtService.toAuthentication(claims);
+
+        assertNotNull(claims.getId());
+        assertTrue(claims.getExpiration().getTime() - System.currentTimeMillis() <= 60000L);
+        assertTrue(authentication.isAuthenticated());
+        assertEquals("fazenda", authentication.getName());
+        assertEquals(new TokenPrincipal(actor.getId(), "fazenda"), authentication.getPrincipal());
+        assertEquals("PRODUCER", authentication.getAuthorities().iterator().next().getAuthority());
+    }
+
+    @Test
+    @DisplayName("Should reject a revoked token, cached or not")
+    void shouldRejectRevokedToken() {
+        ReflectionTestUtils.setField(jwtService, "cacheSize", 100);
+        ReflectionTestUtils.setField(jwtService, "maxRevocations", 100);
+        jwtService.init();
+        String token = jwtService.generateToken(new UsernamePasswordAuthenticationToken(
+                "scanner", "pass", List.of(new SimpleGrantedAuthority("USER"))));
+        String other = jwtService.generateToken(new UsernamePasswordAuthenticationToken(
+                "scanner", "pass", List.of(new SimpleGrantedAuthority("USER"))));
+        assertTrue(jwtService.isTokenValid(token));
+
+        jwtService.revoke(token);
+
+        assertFalse(jwtService.isTokenValid(token));
+        assertThrows(JwtException.class, () -> jwtService.getClaims(token));
+        assertTrue(jwtService.isTokenValid(other));
+    }
+
+    @Test
+    @DisplayName("Should drop the revocation closest to expiry when the list is full, never refuse a logout")
+    void shouldEvictRevocationClosestToExpiry() {
+        ReflectionTestUtils.setField(jwtService, "maxRevocations", 2);
+        String later = tokenExpiringIn(120_000L);
+        String soonest = tokenExpiringIn(60_000L);
+        String newest = tokenExpiringIn(90_000L);
+
+        jwtService.revoke(later);
+        jwtService.revoke(soonest);
+        assertDoesNotThrow(() -> jwtService.revoke(newest));
+
+        assertTrue(jwtService.isTokenValid(soonest));
+        assertFalse(jwtService.isTokenValid(later));
+        assertFalse(jwtService.isTokenValid(newest));
+    }
+
     @Test
     @DisplayName("Should initialize with configured secret")
     void shouldInitializeWithConfiguredSecret() {
@@ -142,4 +280,10 @@ class JwtServiceTest {
 
         assertDoesNotThrow(() -> configuredService.init());
     }
+
+    private String tokenExpiringIn(long millis) {
+        ReflectionTestUtils.setField(jwtService, "expiration", millis);
+        return jwtService.generateToken(new UsernamePasswordAuthenticationToken(
+                "scanner", "pass", List.of(new SimpleGrantedAuthority("USER"))));
+    }
 }
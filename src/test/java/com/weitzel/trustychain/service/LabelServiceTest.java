@@ -0,0 +1,152 @@
+package com.weitzel.trustychain.service;
+
+import com.weitzel.trustychain.chain.TrackingService;
+import com.weitzel.trustychain.chain.labels.LabelFormat;
+import com.weitzel.trustychain.chain.labels.LabelService;
+import com.weitzel.trustychain.chain.labels.dto.LabelRequest;
+import com.weitzel.trustychain.common.exception.Exceptions;
+import com.weitzel.trustychain.common.metrics.ChainMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LabelServiceTest {
+
+    private LabelService labelService;
+
+    @BeforeEach
+    void setUp() {
+        TrackingService trackingService = new TrackingService(new ChainMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(trackingService, "baseUrl", "http://localhost:8080");
+        labelService = new LabelService(trackingService, 1000, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        labelService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should stream a ZIP of PNG labels for a range in order")
+    void shouldZipRangeInOrder() throws Exception {
+        LabelService.Labels labels = labelService.prepare(
+                new LabelRequest(null, "CAFE-", 98L, 120L, 4, "png", 150));
+
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(write(labels)))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                names.add(entry.getName());
+                byte[] image = zip.readAllBytes();
+                assertEquals((byte) 0x89, image[0]);
+                assertEquals('P', image[1]);
+            }
+        }
+
+        assertEquals(23, names.size());
+        assertEquals("01-CAFE-0098.png", names.get(0));
+        assertEquals("03-CAFE-0100.png", names.get(2));
+        assertEquals("23-CAFE-0120.png", names.get(22));
+    }
+
+    @Test
+    @DisplayName("Should keep repeated and unusual codes apart in the ZIP")
+    void shouldZipListOfSvgs() throws Exception {
+        LabelService.Labels labels = labelService.prepare(
+                new LabelRequest(List.of("A/1", "A/1", "B 2"), null, null, null, null, "svg", 300));
+
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(write(labels)))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                names.add(entry.getName());
+                assertTrue(new String(zip.readAllBytes(), StandardCharsets.UTF_8).startsWith("<svg"));
+            }
+        }
+
+        assertEquals(List.of("1-A_1.svg", "2-A_1.svg", "3-B_2.svg"), names);
+    }
+
+    @Test
+    @DisplayName("Should write PDF print sheets with a valid cross-reference table")
+    void shouldWritePdfSheets() throws Exception {
+        LabelService.Labels labels = labelService.prepare(
+                new LabelRequest(null, "LOT-(7)-", 1L, 21L, null, "pdf", null));
+
+        byte[] pdf = write(labels);
+        String text = new String(pdf, StandardCharsets.ISO_8859_1);
+
+        assertTrue(text.startsWith("%PDF-1.4"));
+        assertTrue(text.endsWith("%%EOF\n"));
+        assertTrue(text.contains("/Type/Pages/Kids[5 0 R 7 0 R]/Count 2"));
+
+        // every xref entry points at the start of its object
+        Matcher xref = Pattern.compile("startxref\n(\\d+)").matcher(text);
+        assertTrue(xref.find());
+        String[] table = text.substring(Integer.parseInt(xref.group(1))).split("\n");
+        int objects = Integer.parseInt(table[1].split(" ")[1]);
+        assertEquals(8, objects);
+        for (int number = 1; number < objects; number++) {
+            int offset = Integer.parseInt(table[2 + number].substring(0, 10));
+            assertTrue(text.startsWith(number + " 0 obj\n", offset), "object " + number);
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject requests before anything is streamed")
+    void shouldRejectInvalidRequests() {
+        assertThrows(Exceptions.InvalidQrRequestException.class, () -> labelService.prepare(
+                new LabelRequest(List.of("A"), null, 1L, 2L, null, "png", 300)));
+        assertThrows(Exceptions.InvalidQrRequestException.class, () -> labelService.prepare(
+                new LabelRequest(null, null, null, null, null, "png", 300)));
+        assertThrows(Exceptions.InvalidQrRequestException.class, () -> labelService.prepare(
+                new LabelRequest(null, "X", 10L, 1L, null, "png", 300)));
+        assertThrows(Exceptions.InvalidQrRequestException.class, () -> labelService.prepare(
+                new LabelRequest(null, "X", 1L, 1001L, null, "png", 300)));
+        assertThrows(Exceptions.InvalidQrRequestException.class, () -> labelService.prepare(
+                new LabelRequest(List.of("A"), null, null, null, null, "png", 20000)));
+        assertThrows(Exceptions.InvalidQrRequestException.class, () -> labelService.prepare(
+                new LabelRequest(List.of("A"), null, null, null, null, "gif", 300)));
+
+        assertThrows(Exceptions.InvalidQrRequestException.class, () -> labelService.prepare(
+                new LabelRequest(null, "X", 0L, Long.MAX_VALUE, null, "png", 300)));
+
+        assertEquals(LabelFormat.PNG,
+                labelService.prepare(new LabelRequest(List.of("A"), null, null, null, null, null, null)).format());
+    }
+
+    @Test
+    @DisplayName("Should end a range at Long.MAX_VALUE without overflowing")
+    void shouldRenderRangeEndingAtMaxValue() throws Exception {
+        LabelService.Labels labels = labelService.prepare(
+                new LabelRequest(null, "X-", Long.MAX_VALUE - 1, Long.MAX_VALUE, null, "svg", 300));
+
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(write(labels)))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                names.add(entry.getName());
+            }
+        }
+
+        assertEquals(List.of("1-X-" + (Long.MAX_VALUE - 1) + ".svg", "2-X-" + Long.MAX_VALUE + ".svg"), names);
+    }
+
+    private byte[] write(LabelService.Labels labels) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        labelService.write(labels, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,169 @@
+package com.weitzel.trustychain.service;
+
+import com.weitzel.trustychain.chain.ProductChain;
+import com.weitzel.trustychain.chain.store.LogChainStore;
+import com.weitzel.trustychain.common.exception.Exceptions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogChainStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should append, scan and track the head")
+    void shouldAppendAndScan() throws Exception {
+        LogChainStore store = new LogChainStore(directory.toString(), 1 << 20);
+
+        store.append(event("PROD-001", null, "h1"));
+        store.append(event("PROD-001", "h1", "h2"));
+        store.append(event("PROD-002", null, "x1"));
+
+        assertEquals(Optional.of("h2"), store.findHeadHash("PROD-001"));
+        assertEquals(2, store.count("PROD-001"));
+        assertTrue(store.exists("PROD-002"));
+        assertFalse(store.exists("PROD-003"));
+        assertEquals(List.of("h1", "h2"), store.scan("PROD-001").stream().map(e -> e.currentHash()).toList());
+        store.close();
+    }
+
+    @Test
+    @DisplayName("Should reject an append that does not extend the current head")
+    void shouldRejectForkedAppend() throws Exception {
+        LogChainStore store = new LogChainStore(directory.toString(), 1 << 20);
+        store.append(event("PROD-001", null, "h1"));
+
+        assertThrows(Exceptions.ChainIntegrityException.class,
+                () -> store.append(event("PROD-001", null, "other")));
+        store.close();
+    }
+
+    @Test
+    @DisplayName("Should rebuild the index from the log across segments")
+    void shouldRebuildIndexOnRestart() throws Exception {
+        LogChainStore store = new LogChainStore(directory.toString(), 4096);
+        String previous = null;
+        for (int i = 0; i < 50; i++) {
+            store.append(event("PROD-001", previous, "h" + i));
+            previous = "h" + i;
+        }
+        store.close();
+
+        LogChainStore reopened = new LogChainStore(directory.toString(), 4096);
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.count() > 1);
+        }
+        assertEquals(50, reopened.count("PROD-001"));
+        assertEquals(Optional.of("h49"), reopened.findHeadHash("PROD-001"));
+        assertEquals("h25", reopened.scan("PROD-001").get(25).currentHash());
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("Should truncate a torn record at the end of the log")
+    void shouldTruncateTornTail() throws Exception {
+        LogChainStore store = new LogChainStore(directory.toString(), 1 << 20);
+        store.append(event("PROD-001", null, "h1"));
+        store.append(event("PROD-001", "h1", "h2"));
+        store.close();
+
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 10);
+        }
+
+        LogChainStore reopened = new LogChainStore(directory.toString(), 1 << 20);
+        assertEquals(Optional.of("h1"), reopened.findHeadHash("PROD-001"));
+        reopened.append(event("PROD-001", "h1", "h2b"));
+        assertEquals(2, reopened.scan("PROD-001").size());
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("Should keep every chain intact under concurrent appends")
+    void shouldHandleConcurrentAppends() throws Exception {
+        LogChainStore store = new LogChainStore(directory.toString(), 1 << 16);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < 16; p++) {
+            String code = "PROD-" + p;
+            futures.add(executor.submit(() -> {
+                String previous = null;
+                for (int i = 0; i < 100; i++) {
+                    store.append(event(code, previous, code + "-" + i));
+                    previous = code + "-" + i;
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        for (int p = 0; p < 16; p++) {
+            assertEquals(100, store.scan("PROD-" + p).size());
+        }
+        store.close();
+    }
+
+    @Test
+    @DisplayName("Should let only one of several racing appends extend the same head")
+    void shouldRejectForkAgainstUnsyncedHead() throws Exception {
+        LogChainStore store = new LogChainStore(directory.toString(), 1 << 20);
+        store.append(event("PROD-001", null, "h0"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            String hash = "fork-" + i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    store.append(event("PROD-001", "h0", hash));
+                    return true;
+                } catch (Exceptions.ChainIntegrityException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+        int appended = 0;
+        for (Future<Boolean> future : futures) {
+            appended += future.get() ? 1 : 0;
+        }
+        executor.shutdown();
+
+        // a write still waiting for its fsync is not visible to readers, but it still blocks the fork
+        assertEquals(1, appended);
+        assertEquals(2, store.count("PROD-001"));
+        store.close();
+    }
+
+    private static ProductChain event(String productCode, String previousHash, String currentHash) {
+        return new ProductChain("Actor", productCode, "EVENT", "meta", previousHash, "sig", "key",
+                currentHash, LocalDateTime.now(), "tsig");
+    }
+}
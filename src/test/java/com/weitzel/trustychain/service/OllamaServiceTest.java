@@ -17,10 +17,8 @@ class OllamaServiceTest {
 
     @BeforeEach
     void setUp() {
-        ollamaService = new OllamaService(WebClient.builder(), objectMapper);
-        ReflectionTestUtils.setField(ollamaService, "ollamaBaseUrl", "http://localhost:11434");
+        ollamaService = new OllamaService(WebClient.builder(), objectMapper, "http://localhost:11434", "llama3.2");
         ReflectionTestUtils.setField(ollamaService, "defaultModel", "llama3.2");
-        ReflectionTestUtils.setField(ollamaService, "timeoutSeconds", 30);
     }
 
     @Test
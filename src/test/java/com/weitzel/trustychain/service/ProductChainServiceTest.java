@@ -3,25 +3,36 @@ package com.weitzel.trustychain.service;
 import com.weitzel.trustychain.actor.Actor;
 import com.weitzel.trustychain.actor.ActorRepository;
 import com.weitzel.trustychain.chain.ProductChain;
-import com.weitzel.trustychain.chain.ProductChainRepository;
 import com.weitzel.trustychain.chain.ProductChainService;
+import com.weitzel.trustychain.chain.backfill.BackfillChainBuilder;
+import com.weitzel.trustychain.chain.dto.ChainLinkDTO;
+import com.weitzel.trustychain.chain.store.ChainStore;
+import com.weitzel.trustychain.chain.store.ProductCodeFilter;
 import com.weitzel.trustychain.common.exception.Exceptions;
+import com.weitzel.trustychain.common.metrics.ChainMetrics;
+import com.weitzel.trustychain.common.service.CryptoBulkhead;
 import com.weitzel.trustychain.common.service.CryptoService;
 import com.weitzel.trustychain.common.service.HashService;
+import com.weitzel.trustychain.common.service.RsaKeyPairPool;
 import com.weitzel.trustychain.common.service.SignedTimestamp;
 import com.weitzel.trustychain.common.service.TimestampService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.PublicKey;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
@@ -34,7 +45,7 @@ import static org.mockito.Mockito.*;
 class ProductChainServiceTest {
 
         @Mock
-        private ProductChainRepository productChainRepository;
+        private ChainStore chainStore;
 
         @Mock
         private ActorRepository actorRepository;
@@ -48,6 +59,22 @@ class ProductChainServiceTest {
         @Mock
         private TimestampService timestampService;
 
+        private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        @Spy
+        private ChainMetrics chainMetrics = new ChainMetrics(meterRegistry);
+
+        @Spy
+        private CryptoBulkhead cryptoBulkhead = new CryptoBulkhead(false, 0, 0);
+
+        // disabled, every code might exist, so the store is always asked
+        @Spy
+        private ProductCodeFilter productCodeFilter = new ProductCodeFilter(null, chainMetrics, false, 0, 0.01);
+
+        // no refill threads, default actors get their key pair generated inline
+        @Spy
+        private RsaKeyPairPool rsaKeyPairPool = new RsaKeyPairPool(0, 0, 2048, Duration.ZERO, meterRegistry);
+
         @InjectMocks
         private ProductChainService productChainService;
 
@@ -70,15 +97,14 @@ class ProductChainServiceTest {
         @DisplayName("Should register event successfully")
         void shouldRegisterEvent() {
                 when(actorRepository.findByName("Test Actor")).thenReturn(Optional.of(testActor));
-                when(productChainRepository.findTopByProductCodeOrderByCreatedAtDesc("PROD-001"))
-                                .thenReturn(Optional.empty());
+                when(chainStore.findHeadHash("PROD-001")).thenReturn(Optional.empty());
                 when(cryptoService.loadPublicKeyFromPem(anyString())).thenReturn(testPublicKey);
                 when(cryptoService.verifySignature(any(), anyString(), any())).thenReturn(true);
                 when(hashService.calculateIntegrityHash(any(), any(), any(), any(), any()))
                                 .thenReturn("calculatedHash123");
                 when(timestampService.signTimestamp(anyString()))
                                 .thenReturn(new SignedTimestamp(LocalDateTime.now(), "signature"));
-                when(productChainRepository.save(any(ProductChain.class)))
+                when(chainStore.append(any(ProductChain.class)))
                                 .thenAnswer(inv -> inv.getArgument(0));
 
                 ProductChain result = productChainService.registerEvent(
@@ -87,7 +113,28 @@ class ProductChainServiceTest {
                 assertNotNull(result);
                 assertEquals("PROD-001", result.getProductCode());
                 assertEquals("calculatedHash123", result.getCurrentHash());
-                verify(productChainRepository).save(any(ProductChain.class));
+                verify(chainStore).append(any(ProductChain.class));
+                verify(chainStore).productCodesAdded();
+        }
+
+        @Test
+        @DisplayName("Should lock the chain before reading its head")
+        void shouldLockChainBeforeHeadLookup() {
+                when(actorRepository.findByName("Test Actor")).thenReturn(Optional.of(testActor));
+                when(chainStore.findHeadHash("PROD-001")).thenReturn(Optional.of("head"));
+                when(cryptoService.loadPublicKeyFromPem(anyString())).thenReturn(testPublicKey);
+                when(hashService.calculateIntegrityHash(any(), any(), any(), any(), any())).thenReturn("next");
+                when(timestampService.signTimestamp(anyString()))
+                                .thenReturn(new SignedTimestamp(LocalDateTime.now(), "signature"));
+                when(chainStore.append(any(ProductChain.class))).thenAnswer(inv -> inv.getArgument(0));
+
+                productChainService.registerEvent("Test Actor", "PROD-001", "CREATE", null, "manual-entry-v1");
+
+                InOrder order = inOrder(chainStore);
+                order.verify(chainStore).lockChain("PROD-001");
+                order.verify(chainStore).findHeadHash("PROD-001");
+                order.verify(chainStore).append(any(ProductChain.class));
+                verify(chainStore, never()).productCodesAdded();
         }
 
         @Test
@@ -104,8 +151,7 @@ class ProductChainServiceTest {
         @DisplayName("Should throw exception for invalid signature")
         void shouldThrowExceptionForInvalidSignature() {
                 when(actorRepository.findByName("Test Actor")).thenReturn(Optional.of(testActor));
-                when(productChainRepository.findTopByProductCodeOrderByCreatedAtDesc(anyString()))
-                                .thenReturn(Optional.empty());
+                when(chainStore.findHeadHash(anyString())).thenReturn(Optional.empty());
                 when(cryptoService.loadPublicKeyFromPem(anyString())).thenReturn(testPublicKey);
                 when(cryptoService.verifySignature(any(), anyString(), any())).thenReturn(false);
 
@@ -117,19 +163,16 @@ class ProductChainServiceTest {
         @Test
         @DisplayName("Should link event with previous hash")
         void shouldLinkEventWithPreviousHash() {
-                ProductChain previousEvent = new ProductChain();
-                previousEvent.setCurrentHash("previousHash123");
-
                 when(actorRepository.findByName("Test Actor")).thenReturn(Optional.of(testActor));
-                when(productChainRepository.findTopByProductCodeOrderByCreatedAtDesc("PROD-001"))
-                                .thenReturn(Optional.of(previousEvent));
+                when(chainStore.findHeadHash("PROD-001"))
+                                .thenReturn(Optional.of("previousHash123"));
                 when(cryptoService.loadPublicKeyFromPem(anyString())).thenReturn(testPublicKey);
                 when(cryptoService.verifySignature(any(), anyString(), any())).thenReturn(true);
                 when(hashService.calculateIntegrityHash(eq("previousHash123"), any(), any(), any(), any()))
                                 .thenReturn("newHash");
                 when(timestampService.signTimestamp(anyString()))
                                 .thenReturn(new SignedTimestamp(LocalDateTime.now(), "sig"));
-                when(productChainRepository.save(any(ProductChain.class)))
+                when(chainStore.append(any(ProductChain.class)))
                                 .thenAnswer(inv -> inv.getArgument(0));
 
                 ProductChain result = productChainService.registerEvent(
@@ -153,8 +196,8 @@ class ProductChainServiceTest {
                 event.setTrustedTimestamp(LocalDateTime.now());
                 event.setTimestampSignature("tsig");
 
-                when(productChainRepository.findByProductCodeOrderByCreatedAtAsc("PROD-001"))
-                                .thenReturn(List.of(event));
+                when(chainStore.scan("PROD-001"))
+                                .thenReturn(links(event));
                 when(hashService.calculateIntegrityHash(null, "Test Actor", "PROD-001", "CREATE", "meta"))
                                 .thenReturn("hash123");
                 when(cryptoService.loadPublicKeyFromPem(anyString())).thenReturn(testPublicKey);
@@ -166,10 +209,34 @@ class ProductChainServiceTest {
                 assertTrue(result);
         }
 
+        @Test
+        @DisplayName("Should accept legacy-unsigned backfilled events and count them")
+        void shouldAcceptLegacyUnsignedEvents() {
+                ProductChain event = new ProductChain();
+                event.setActor("Test Actor");
+                event.setProductCode("PROD-001");
+                event.setEventType("CREATE");
+                event.setCurrentHash("hash123");
+                event.setSignature(BackfillChainBuilder.LEGACY_UNSIGNED);
+                event.setPublicKeySnapshot(testActor.getPublicKey());
+                event.setTrustedTimestamp(LocalDateTime.now());
+                event.setTimestampSignature("tsig");
+
+                when(chainStore.scan("PROD-001")).thenReturn(links(event));
+                when(hashService.calculateIntegrityHash(null, "Test Actor", "PROD-001", "CREATE", null))
+                                .thenReturn("hash123");
+                when(cryptoService.loadPublicKeyFromPem(anyString())).thenReturn(testPublicKey);
+                when(timestampService.verifyTimestamp(eq("hash123"), any())).thenReturn(true);
+
+                assertTrue(productChainService.verifyChainIntegrity("PROD-001"));
+                verify(cryptoService, never()).verifySignature(any(), anyString(), any());
+                assertEquals(1, meterRegistry.counter(ChainMetrics.VERIFY_LEGACY_UNSIGNED).count());
+        }
+
         @Test
         @DisplayName("Should return false for empty chain")
         void shouldReturnFalseForEmptyChain() {
-                when(productChainRepository.findByProductCodeOrderByCreatedAtAsc("EMPTY"))
+                when(chainStore.scan("EMPTY"))
                                 .thenReturn(List.of());
 
                 boolean result = productChainService.verifyChainIntegrity("EMPTY");
@@ -177,6 +244,20 @@ class ProductChainServiceTest {
                 assertFalse(result);
         }
 
+        @Test
+        @DisplayName("Should count verification failures by reason")
+        void shouldCountVerificationFailuresByReason() {
+                when(chainStore.scan("EMPTY"))
+                                .thenReturn(List.of());
+
+                productChainService.verifyChainIntegrity("EMPTY");
+
+                assertEquals(1, meterRegistry.get(ChainMetrics.VERIFY_FAILURES)
+                                .tag("reason", "empty_chain").counter().count());
+                assertEquals(1, meterRegistry.get(ChainMetrics.VERIFY)
+                                .tag("result", "invalid").timer().count());
+        }
+
         @Test
         @DisplayName("Should return false for broken hash chain")
         void shouldReturnFalseForBrokenHashChain() {
@@ -184,8 +265,8 @@ class ProductChainServiceTest {
                 event.setPreviousHash("wrongPreviousHash"); // Should be null for first event
                 event.setCurrentHash("hash123");
 
-                when(productChainRepository.findByProductCodeOrderByCreatedAtAsc("BROKEN"))
-                                .thenReturn(List.of(event));
+                when(chainStore.scan("BROKEN"))
+                                .thenReturn(links(event));
 
                 boolean result = productChainService.verifyChainIntegrity("BROKEN");
 
@@ -205,8 +286,8 @@ class ProductChainServiceTest {
                 event.setSignature("sig");
                 event.setPublicKeySnapshot(testActor.getPublicKey());
 
-                when(productChainRepository.findByProductCodeOrderByCreatedAtAsc("MISMATCH"))
-                                .thenReturn(List.of(event));
+                when(chainStore.scan("MISMATCH"))
+                                .thenReturn(links(event));
                 when(hashService.calculateIntegrityHash(null, "Test Actor", "PROD-001", "CREATE", "meta"))
                                 .thenReturn("correctHash"); // Different from event hash
 
@@ -230,8 +311,8 @@ class ProductChainServiceTest {
                 event.setTrustedTimestamp(LocalDateTime.now());
                 event.setTimestampSignature("tsig");
 
-                when(productChainRepository.findByProductCodeOrderByCreatedAtAsc("INVALIDSIG"))
-                                .thenReturn(List.of(event));
+                when(chainStore.scan("INVALIDSIG"))
+                                .thenReturn(links(event));
                 when(hashService.calculateIntegrityHash(any(), any(), any(), any(), any()))
                                 .thenReturn("hash123");
                 when(cryptoService.loadPublicKeyFromPem(anyString())).thenReturn(testPublicKey);
@@ -257,8 +338,8 @@ class ProductChainServiceTest {
                 event.setTrustedTimestamp(LocalDateTime.now());
                 event.setTimestampSignature("invalidTsig");
 
-                when(productChainRepository.findByProductCodeOrderByCreatedAtAsc("INVALIDTS"))
-                                .thenReturn(List.of(event));
+                when(chainStore.scan("INVALIDTS"))
+                                .thenReturn(links(event));
                 when(hashService.calculateIntegrityHash(any(), any(), any(), any(), any()))
                                 .thenReturn("hash123");
                 when(cryptoService.loadPublicKeyFromPem(anyString())).thenReturn(testPublicKey);
@@ -297,8 +378,8 @@ class ProductChainServiceTest {
                 event2.setTrustedTimestamp(LocalDateTime.now());
                 event2.setTimestampSignature("tsig2");
 
-                when(productChainRepository.findByProductCodeOrderByCreatedAtAsc("MULTI"))
-                                .thenReturn(List.of(event1, event2));
+                when(chainStore.scan("MULTI"))
+                                .thenReturn(links(event1, event2));
                 when(hashService.calculateIntegrityHash(null, "Actor1", "MULTI", "CREATE", "meta1"))
                                 .thenReturn("hash1");
                 when(hashService.calculateIntegrityHash("hash1", "Actor2", "MULTI", "UPDATE", "meta2"))
@@ -311,4 +392,26 @@ class ProductChainServiceTest {
 
                 assertTrue(result);
         }
+
+        @Test
+        @DisplayName("Should answer unknown products without asking the store")
+        void shouldShortCircuitUnknownProducts() {
+                doReturn(false).when(productCodeFilter).mightExist("UNKNOWN");
+
+                assertTrue(productChainService.getTrackingEvents("UNKNOWN").isEmpty());
+                assertTrue(productChainService.findHeadHash("UNKNOWN").isEmpty());
+                assertFalse(productChainService.productExists("UNKNOWN"));
+                assertEquals(0, productChainService.countEvents("UNKNOWN"));
+                assertFalse(productChainService.verifyChainIntegrity("UNKNOWN"));
+                verifyNoInteractions(chainStore);
+        }
+
+        private static List<ChainLinkDTO> links(ProductChain... events) {
+                return Arrays.stream(events)
+                                .map(e -> new ChainLinkDTO(e.getActor(), e.getProductCode(), e.getEventType(),
+                                                e.getMetadata(), e.getPreviousHash(), e.getCurrentHash(),
+                                                e.getSignature(), e.getPublicKeySnapshot(),
+                                                e.getTrustedTimestamp(), e.getTimestampSignature()))
+                                .toList();
+        }
 }
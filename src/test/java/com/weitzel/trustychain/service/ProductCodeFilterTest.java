@@ -0,0 +1,174 @@
+package com.weitzel.trustychain.service;
+
+import com.weitzel.trustychain.chain.store.ChainStore;
+import com.weitzel.trustychain.chain.store.ProductCodeFilter;
+import com.weitzel.trustychain.chain.store.ScalableBloomFilter;
+import com.weitzel.trustychain.common.metrics.ChainMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductCodeFilterTest {
+
+    @Mock
+    private ChainStore chainStore;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ChainMetrics chainMetrics = new ChainMetrics(meterRegistry);
+
+    @Test
+    @DisplayName("Should never forget an added code while growing past its initial capacity")
+    void shouldHaveNoFalseNegatives() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1024, 0.01);
+
+        for (int i = 0; i < 20_000; i++) {
+            filter.add("PROD-" + i);
+        }
+
+        for (int i = 0; i < 20_000; i++) {
+            assertTrue(filter.mightContain("PROD-" + i));
+        }
+        assertTrue(filter.stageCount() > 1);
+        assertTrue(filter.size() >= 19_000 && filter.size() <= 20_000);
+        assertTrue(filter.sizeInBytes() > 0);
+    }
+
+    @Test
+    @DisplayName("Should keep the false-positive rate near the target after growing")
+    void shouldKeepFalsePositiveRateNearTarget() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1024, 0.01);
+        for (int i = 0; i < 50_000; i++) {
+            filter.add("PROD-" + i);
+        }
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("UNKNOWN-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        double measured = (double) falsePositives / probes;
+        assertTrue(measured < 0.02, "measured false-positive rate " + measured);
+        assertTrue(filter.expectedFalsePositiveRate() < 0.02);
+    }
+
+    @Test
+    @DisplayName("Should let every code through until the first build")
+    void shouldPassEverythingBeforeBuild() {
+        ProductCodeFilter filter = new ProductCodeFilter(chainStore, chainMetrics, true, 1000, 0.01);
+
+        assertFalse(filter.isReady());
+        assertTrue(filter.mightExist("ANYTHING"));
+    }
+
+    @Test
+    @DisplayName("Should reject unknown codes once built from the store")
+    void shouldRejectUnknownCodesAfterBuild() {
+        doAnswer(invocation -> {
+            Consumer<String> consumer = invocation.getArgument(0);
+            consumer.accept("PROD-001");
+            consumer.accept("PROD-002");
+            return null;
+        }).when(chainStore).forEachProductCode(any());
+        ProductCodeFilter filter = new ProductCodeFilter(chainStore, chainMetrics, true, 1000, 0.01);
+
+        filter.rebuild();
+
+        assertTrue(filter.isReady());
+        assertTrue(filter.mightExist("PROD-001"));
+        assertTrue(filter.mightExist("PROD-002"));
+        assertFalse(filter.mightExist("BOT-GUESS-42"));
+        assertEquals(2, filter.size());
+        assertEquals(1.0, meterRegistry.counter(ChainMetrics.PRODUCT_FILTER, "result", "rejected").count());
+        assertTrue(meterRegistry.get(ChainMetrics.PRODUCT_FILTER_BYTES).gauge().value() > 0);
+    }
+
+    @Test
+    @DisplayName("Should know codes appended after the build")
+    void shouldAddAppendedCodes() {
+        ProductCodeFilter filter = new ProductCodeFilter(chainStore, chainMetrics, true, 1000, 0.01);
+        filter.rebuild();
+        assertFalse(filter.mightExist("NEW-001"));
+
+        filter.add("NEW-001");
+
+        assertTrue(filter.mightExist("NEW-001"));
+    }
+
+    @Test
+    @DisplayName("Should rebuild on refresh only once another writer moved the product code generation")
+    void shouldRebuildWhenGenerationMoves() {
+        ProductCodeFilter filter = new ProductCodeFilter(chainStore, chainMetrics, true, 1000, 0.01);
+        when(chainStore.productCodeGeneration()).thenReturn(7L);
+        filter.rebuild();
+        assertFalse(filter.mightExist("OTHER-INSTANCE-001"));
+
+        filter.refresh();
+        verify(chainStore, times(1)).forEachProductCode(any());
+
+        when(chainStore.productCodeGeneration()).thenReturn(8L);
+        doAnswer(invocation -> {
+            Consumer<String> consumer = invocation.getArgument(0);
+            consumer.accept("OTHER-INSTANCE-001");
+            return null;
+        }).when(chainStore).forEachProductCode(any());
+        filter.refresh();
+
+        assertTrue(filter.mightExist("OTHER-INSTANCE-001"));
+        filter.refresh();
+        verify(chainStore, times(2)).forEachProductCode(any());
+    }
+
+    @Test
+    @DisplayName("Should keep codes appended while a rebuild is running")
+    void shouldKeepCodesAppendedDuringRebuild() {
+        ProductCodeFilter filter = new ProductCodeFilter(chainStore, chainMetrics, true, 1000, 0.01);
+        doAnswer(invocation -> {
+            // a register request commits while the store is being walked
+            filter.add("DURING-REBUILD");
+            return null;
+        }).when(chainStore).forEachProductCode(any());
+
+        filter.rebuild();
+
+        assertTrue(filter.mightExist("DURING-REBUILD"));
+    }
+
+    @Test
+    @DisplayName("Should keep the previous filter when a rebuild fails")
+    void shouldKeepPreviousFilterOnFailure() {
+        ProductCodeFilter filter = new ProductCodeFilter(chainStore, chainMetrics, true, 1000, 0.01);
+        filter.rebuild();
+        filter.add("PROD-001");
+        doThrow(new IllegalStateException("database down")).when(chainStore).forEachProductCode(any());
+
+        filter.rebuild();
+
+        assertTrue(filter.mightExist("PROD-001"));
+        assertFalse(filter.mightExist("BOT-GUESS-42"));
+    }
+
+    @Test
+    @DisplayName("Should never touch the store when disabled")
+    void shouldDoNothingWhenDisabled() {
+        ProductCodeFilter filter = new ProductCodeFilter(chainStore, chainMetrics, false, 1000, 0.01);
+
+        filter.rebuild();
+        filter.add("PROD-001");
+
+        assertTrue(filter.mightExist("ANYTHING"));
+        verifyNoInteractions(chainStore);
+    }
+}
@@ -0,0 +1,60 @@
+package com.weitzel.trustychain.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.weitzel.trustychain.chain.ProofBundleWriter;
+import com.weitzel.trustychain.chain.dto.ChainLinkDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.security.KeyPairGenerator;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProofBundleWriterTest {
+
+    private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+
+    @Test
+    @DisplayName("Should write events with deduplicated keys and binary fields")
+    void shouldWriteBundle() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        String actorKey = Base64.getEncoder().encodeToString(generator.generateKeyPair().getPublic().getEncoded());
+        String timestampKey = "-----BEGIN PUBLIC KEY-----\n"
+                + Base64.getEncoder().encodeToString(generator.generateKeyPair().getPublic().getEncoded())
+                + "\n-----END PUBLIC KEY-----";
+        String hash1 = "a".repeat(64);
+        String hash2 = "b".repeat(64);
+        String signature = Base64.getEncoder().encodeToString(new byte[256]);
+        LocalDateTime timestamp = LocalDateTime.of(2024, 3, 1, 12, 0, 0, 123456000);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ProofBundleWriter writer = new ProofBundleWriter(out, "PROD-001", timestampKey)) {
+            writer.writeEvent(new ChainLinkDTO("Farm", "PROD-001", "CREATE", null, null, hash1,
+                    signature, actorKey, timestamp, signature));
+            writer.writeEvent(new ChainLinkDTO("Farm", "PROD-001", "SHIP", "truck", hash1, hash2,
+                    "manual-entry-v1", actorKey, timestamp, signature));
+        }
+
+        JsonNode bundle = cborMapper.readTree(out.toByteArray());
+        assertEquals("trustychain-bundle", bundle.get("format").asText());
+        assertEquals("PROD-001", bundle.get("productCode").asText());
+        assertTrue(bundle.get("timestampKey").isBinary());
+
+        JsonNode events = bundle.get("events");
+        assertEquals(2, events.size());
+        assertTrue(events.get(0).get("p").isNull());
+        assertArrayEquals(HexFormat.of().parseHex(hash1), events.get(0).get("h").binaryValue());
+        assertArrayEquals(Base64.getDecoder().decode(actorKey), events.get(0).get("K").binaryValue());
+        assertEquals(0, events.get(1).get("k").asInt());
+        assertFalse(events.get(1).has("K"));
+        assertEquals("manual-entry-v1", events.get(1).get("s").asText());
+        assertEquals(1709294400123456L, events.get(0).get("ts").asLong());
+    }
+}
@@ -0,0 +1,165 @@
+package com.weitzel.trustychain.service;
+
+import com.weitzel.trustychain.chain.ProductChainService;
+import com.weitzel.trustychain.chain.QrFormat;
+import com.weitzel.trustychain.chain.TrackingService;
+import com.weitzel.trustychain.chain.archive.ChainArchive;
+import com.weitzel.trustychain.chain.dto.ChainLinkDTO;
+import com.weitzel.trustychain.chain.dto.TrackingResponse;
+import com.weitzel.trustychain.chain.reactive.ReactiveChainService;
+import com.weitzel.trustychain.chain.reactive.ReactiveChainService.Verification;
+import com.weitzel.trustychain.chain.store.ChainStore;
+import com.weitzel.trustychain.chain.store.ProductCodeFilter;
+import com.weitzel.trustychain.common.metrics.ChainMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.ConnectionFactories;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ReactiveChainServiceTest {
+
+    private final ChainStore chainStore = mock(ChainStore.class);
+    private final ChainArchive chainArchive = mock(ChainArchive.class);
+    private final ProductChainService productChainService = mock(ProductChainService.class);
+    private final ChainMetrics chainMetrics = new ChainMetrics(new SimpleMeterRegistry());
+
+    private DatabaseClient databaseClient;
+    private ReactiveChainService service;
+
+    @BeforeEach
+    void setUp() {
+        databaseClient = DatabaseClient.create(ConnectionFactories.get(
+                "r2dbc:h2:mem:///" + UUID.randomUUID() + "?options=DB_CLOSE_DELAY=-1"));
+        databaseClient.sql("""
+                CREATE TABLE product_chain (
+                    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                    actor VARCHAR(255), product_code VARCHAR(255), event_type VARCHAR(255), metadata TEXT,
+                    previous_hash VARCHAR(255), current_hash VARCHAR(255), signature TEXT,
+                    public_key_snapshot TEXT, trusted_timestamp TIMESTAMP, timestamp_signature TEXT,
+                    created_at TIMESTAMP)
+                """).then().block();
+
+        TrackingService trackingService = new TrackingService(chainMetrics);
+        service = new ReactiveChainService(databaseClient, chainStore, chainArchive, productChainService,
+                trackingService, chainMetrics, new ProductCodeFilter(chainStore, chainMetrics, false, 0, 0.01));
+        when(productChainService.checkLink(any(), any())).thenReturn(null);
+    }
+
+    @Test
+    @DisplayName("Should stream the events of a product in chain order")
+    void shouldStreamEventsInOrder() {
+        insert("PROD-001", "CREATE", null, "h1", 1);
+        insert("PROD-001", "SHIP", "h1", "h2", 2);
+        insert("PROD-002", "CREATE", null, "x1", 3);
+        insert("PROD-001", "DELIVER", "h2", "h3", 4);
+
+        List<ChainLinkDTO> events = service.scan("PROD-001").collectList().block();
+
+        assertEquals(List.of("h1", "h2", "h3"), events.stream().map(ChainLinkDTO::currentHash).toList());
+        assertEquals("SHIP", events.get(1).eventType());
+        verifyNoInteractions(chainStore);
+    }
+
+    @Test
+    @DisplayName("Should verify every link against the hash before it")
+    void shouldVerifyLinks() {
+        insert("PROD-001", "CREATE", null, "h1", 1);
+        insert("PROD-001", "SHIP", "h1", "h2", 2);
+
+        Verification verification = service.verify("PROD-001").block();
+
+        assertTrue(verification.valid());
+        assertEquals(2, verification.eventCount());
+        verify(productChainService).checkLink(isNull(), argThat(event -> "h1".equals(event.currentHash())));
+        verify(productChainService).checkLink(eq("h1"), argThat(event -> "h2".equals(event.currentHash())));
+    }
+
+    @Test
+    @DisplayName("Should keep the first failure and stop checking after it")
+    void shouldKeepFirstFailure() {
+        insert("PROD-001", "CREATE", null, "h1", 1);
+        insert("PROD-001", "SHIP", "h1", "h2", 2);
+        insert("PROD-001", "DELIVER", "h2", "h3", 3);
+        when(productChainService.checkLink(eq("h1"), any())).thenReturn("hash_mismatch");
+
+        Verification verification = service.verify("PROD-001").block();
+
+        assertFalse(verification.valid());
+        assertEquals("hash_mismatch", verification.failure());
+        assertEquals(3, verification.eventCount());
+        verify(productChainService, times(2)).checkLink(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should return nothing for an unknown product")
+    void shouldReturnEmptyForUnknownProduct() {
+        assertNull(service.verify("UNKNOWN").block());
+        assertNull(service.tracking("UNKNOWN").block());
+        assertNull(service.qrCode("UNKNOWN", 150, QrFormat.PNG).block());
+        assertFalse(service.exists("UNKNOWN").block());
+    }
+
+    @Test
+    @DisplayName("Should build the tracking response from the streamed events")
+    void shouldBuildTrackingResponse() {
+        insert("PROD-001", "CREATE", null, "h1", 1);
+        insert("PROD-001", "SHIP", "h1", "h2", 2);
+
+        TrackingResponse response = service.tracking("PROD-001").block();
+
+        assertEquals("PROD-001", response.productCode());
+        assertTrue(response.isValid());
+        assertEquals(2, response.events().size());
+        assertEquals("h2", response.events().get(1).currentHash());
+        assertTrue(response.qrCodeUrl().endsWith("/api/product-chain/PROD-001/qr"));
+    }
+
+    @Test
+    @DisplayName("Should render a QR code for a known product")
+    void shouldRenderQRCode() {
+        insert("PROD-001", "CREATE", null, "h1", 1);
+
+        byte[] png = service.qrCode("PROD-001", 150, QrFormat.PNG).block();
+
+        assertNotNull(png);
+        assertEquals((byte) 0x89, png[0]);
+        assertEquals('P', png[1]);
+    }
+
+    @Test
+    @DisplayName("Should read archived chains through the chain store")
+    void shouldReadArchivedChainsThroughStore() {
+        ChainLinkDTO archived = new ChainLinkDTO("Farm", "OLD-001", "CREATE", null, null, "a1", "sig", "key",
+                LocalDateTime.of(2020, 1, 1, 0, 0), "ts");
+        when(chainArchive.contains("OLD-001")).thenReturn(true);
+        when(chainStore.scan("OLD-001")).thenReturn(List.of(archived));
+
+        assertEquals(List.of(archived), service.scan("OLD-001").collectList().block());
+        assertTrue(service.exists("OLD-001").block());
+    }
+
+    private void insert(String productCode, String eventType, String previousHash, String currentHash, int minute) {
+        LocalDateTime time = LocalDateTime.of(2025, 1, 1, 0, minute);
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("""
+                INSERT INTO product_chain (actor, product_code, event_type, metadata, previous_hash, current_hash,
+                    signature, public_key_snapshot, trusted_timestamp, timestamp_signature, created_at)
+                VALUES ('Farm', $1, $2, 'meta', $3, $4, 'sig', 'key', $5, 'ts', $5)
+                """)
+                .bind(0, productCode)
+                .bind(1, eventType)
+                .bind(3, currentHash)
+                .bind(4, time);
+        spec = previousHash == null ? spec.bindNull(2, String.class) : spec.bind(2, previousHash);
+        spec.then().block();
+    }
+}
@@ -0,0 +1,101 @@
+package com.weitzel.trustychain.service;
+
+import com.weitzel.trustychain.common.service.RsaKeyPairPool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RsaKeyPairPoolTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private RsaKeyPairPool pool;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (pool != null) {
+            pool.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("Should fill up to the target size in the background and hand out pooled pairs")
+    void shouldFillAndHandOutPooledPairs() throws Exception {
+        pool = new RsaKeyPairPool(2, 1, 1024, Duration.ofMinutes(10), meterRegistry);
+        assertEquals(0, pool.depth());
+        pool.start();
+        awaitDepth(2);
+        assertEquals(2.0, meterRegistry.get(RsaKeyPairPool.DEPTH).gauge().value());
+
+        KeyPair first = pool.take();
+        KeyPair second = pool.take();
+
+        assertNotEquals(first.getPublic(), second.getPublic());
+        assertEquals(2, meterRegistry.counter(RsaKeyPairPool.TAKE, "source", "pool").count());
+    }
+
+    @Test
+    @DisplayName("Should generate inline when the pool is turned off")
+    void shouldGenerateInlineWhenDisabled() {
+        pool = new RsaKeyPairPool(0, 0, 2048, Duration.ZERO, meterRegistry);
+
+        KeyPair keyPair = pool.take();
+
+        assertEquals(2048, ((RSAPublicKey) keyPair.getPublic()).getModulus().bitLength());
+        assertEquals(0, pool.depth());
+        assertEquals(1, meterRegistry.counter(RsaKeyPairPool.TAKE, "source", "inline").count());
+    }
+
+    @Test
+    @DisplayName("Should drop pairs older than max-age instead of handing them out")
+    void shouldDropExpiredPairs() throws Exception {
+        pool = new RsaKeyPairPool(2, 1, 1024, Duration.ofMillis(1), meterRegistry);
+        pool.start();
+        awaitDepth(2);
+        Thread.sleep(5);
+
+        // both pooled pairs are stale, the refiller needs far longer for a new one than take() for two polls
+        pool.take();
+
+        assertEquals(0, meterRegistry.counter(RsaKeyPairPool.TAKE, "source", "pool").count());
+        assertEquals(1, meterRegistry.counter(RsaKeyPairPool.TAKE, "source", "inline").count());
+    }
+
+    @Test
+    @DisplayName("Should stop the refill threads and empty the pool on shutdown")
+    void shouldStopRefillingOnShutdown() throws Exception {
+        // pools of cached Spring contexts run refillers with the same names
+        Set<Thread> before = refillers();
+        pool = new RsaKeyPairPool(1, 2, 1024, Duration.ofMinutes(10), meterRegistry);
+        pool.start();
+        awaitDepth(1);
+        assertTrue(refillers().size() > before.size());
+
+        pool.destroy();
+
+        assertEquals(0, pool.depth());
+        assertTrue(before.containsAll(refillers()));
+    }
+
+    private static Set<Thread> refillers() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("rsa-key-pool-"))
+                .collect(Collectors.toSet());
+    }
+
+    private void awaitDepth(int depth) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (pool.depth() < depth && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(depth, pool.depth());
+    }
+}
@@ -1,20 +1,36 @@
 package com.weitzel.trustychain.service;
 
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import com.weitzel.trustychain.chain.QrCodeCache;
+import com.weitzel.trustychain.chain.QrFormat;
 import com.weitzel.trustychain.chain.TrackingService;
+import com.weitzel.trustychain.common.exception.Exceptions;
+import com.weitzel.trustychain.common.metrics.ChainMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class TrackingServiceTest {
 
     private TrackingService trackingService;
+    private SimpleMeterRegistry meterRegistry;
 
     @BeforeEach
     void setUp() {
-        trackingService = new TrackingService();
+        meterRegistry = new SimpleMeterRegistry();
+        trackingService = new TrackingService(new ChainMetrics(meterRegistry));
         ReflectionTestUtils.setField(trackingService, "baseUrl", "http://localhost:8080");
     }
 
@@ -32,6 +48,14 @@ class TrackingServiceTest {
         assertEquals((byte) 0x47, qrCode[3]); // 'G'
     }
 
+    @Test
+    @DisplayName("Should time QR code generation")
+    void shouldTimeQRCodeGeneration() {
+        trackingService.generateQRCode("PROD-001");
+
+        assertEquals(1, meterRegistry.get(ChainMetrics.QR_GENERATION).timer().count());
+    }
+
     @Test
     @DisplayName("Should generate QR code with custom size")
     void shouldGenerateQRCodeWithCustomSize() {
@@ -66,4 +90,83 @@ class TrackingServiceTest {
 
         assertEquals("https://api.trustychain.com/api/product-chain/PROD-001", url);
     }
+
+    @Test
+    @DisplayName("Should render each QR code size once and serve it from the cache")
+    void shouldCacheQRCode() {
+        byte[] first = trackingService.qrCode("PROD-001", 300, QrFormat.PNG);
+        byte[] second = trackingService.qrCode("PROD-001", 300, QrFormat.PNG);
+        trackingService.qrCode("PROD-001", 150, QrFormat.PNG);
+
+        assertSame(first, second);
+        assertEquals(2, meterRegistry.get(ChainMetrics.QR_GENERATION).timer().count());
+        assertEquals(1, meterRegistry.get(ChainMetrics.QR_CACHE).tag("result", "hit").counter().count());
+        assertEquals(2, meterRegistry.get(ChainMetrics.QR_CACHE).tag("result", "miss").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should reject QR code sizes that are not configured")
+    void shouldRejectUnsupportedQRCodeSize() {
+        assertThrows(Exceptions.InvalidQrRequestException.class,
+                () -> trackingService.qrCode("PROD-001", 20000, QrFormat.PNG));
+        assertDoesNotThrow(() -> trackingService.checkQRCodeSize(600));
+    }
+
+    @Test
+    @DisplayName("Should derive a stable strong ETag from product code and size")
+    void shouldDeriveQRCodeETag() {
+        String eTag = trackingService.qrCodeETag("PROD-001", 300, QrFormat.PNG);
+
+        assertTrue(eTag.matches("\"[0-9a-f]{32}\""));
+        assertEquals(eTag, trackingService.qrCodeETag("PROD-001", 300, QrFormat.PNG));
+        assertNotEquals(eTag, trackingService.qrCodeETag("PROD-001", 600, QrFormat.PNG));
+        assertNotEquals(eTag, trackingService.qrCodeETag("PROD-002", 300, QrFormat.PNG));
+        assertNotEquals(eTag, trackingService.qrCodeETag("PROD-001", 300, QrFormat.SVG));
+    }
+
+    @Test
+    @DisplayName("Should evict least recently used QR codes beyond the byte budget")
+    void shouldEvictLeastRecentlyUsedQRCodes() {
+        QrCodeCache cache = new QrCodeCache(250);
+        cache.put("A", 300, QrFormat.PNG, new byte[100]);
+        cache.put("B", 300, QrFormat.PNG, new byte[100]);
+        cache.get("A", 300, QrFormat.PNG);
+        cache.put("C", 300, QrFormat.PNG, new byte[100]);
+
+        assertNotNull(cache.get("A", 300, QrFormat.PNG));
+        assertNull(cache.get("B", 300, QrFormat.PNG));
+        assertNotNull(cache.get("C", 300, QrFormat.PNG));
+        assertEquals(200, cache.bytes());
+
+        cache.put("D", 300, QrFormat.PNG, new byte[300]);
+        assertNull(cache.get("D", 300, QrFormat.PNG));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    @DisplayName("Should write a 1-bit PNG that decodes to the tracking URL")
+    void shouldWriteDecodablePng() throws Exception {
+        byte[] png = trackingService.generateQRCode("PROD-001", 300, QrFormat.PNG);
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        assertEquals(300, image.getWidth());
+        assertEquals(300, image.getHeight());
+        assertEquals(1, image.getColorModel().getPixelSize());
+        // the quiet zone is white, the finder pattern in the top left corner black
+        assertEquals(0xffffffff, image.getRGB(0, 0));
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image)));
+        assertEquals("http://localhost:8080/api/product-chain/PROD-001",
+                new QRCodeReader().decode(bitmap).getText());
+    }
+
+    @Test
+    @DisplayName("Should write a compact SVG with the requested size")
+    void shouldWriteSvg() {
+        byte[] svg = trackingService.qrCode("PROD-001", 600, QrFormat.SVG);
+
+        String text = new String(svg, StandardCharsets.UTF_8);
+        assertTrue(text.startsWith("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"600\" height=\"600\""));
+        assertTrue(text.endsWith("</svg>"));
+        assertTrue(svg.length < 4096);
+    }
 }
@@ -0,0 +1,25 @@
+package scratch;
+
+import com.weitzel.trustychain.TrustyChainApplication;
+import com.weitzel.trustychain.chain.ProductChain;
+import com.weitzel.trustychain.chain.ProductChainRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import java.time.LocalDateTime;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = TrustyChainApplication.class)
+class ScratchRepoTest {
+    @Autowired ProductChainRepository repo;
+    @Test void q() {
+        repo.save(new ProductChain("a","P1","CREATE",null,null,"s","k","h", LocalDateTime.now(),"t"));
+        assertEquals(1, repo.findTrackingEvents("P1").size());
+        assertEquals("h", repo.findChainLinks("P1").get(0).currentHash());
+        assertTrue(repo.existsByProductCode("P1"));
+        assertEquals(1, repo.countByProductCode("P1"));
+        assertEquals("h", repo.findHeadHash("P1", LocalDateTime.now().minusDays(1)).orElseThrow());
+        assertEquals("h", repo.findHeadHash("P1", LocalDateTime.now().plusDays(1)).orElseThrow());
+        assertTrue(repo.findHeadHash("P2", LocalDateTime.now().minusDays(1)).isEmpty());
+    }
+}
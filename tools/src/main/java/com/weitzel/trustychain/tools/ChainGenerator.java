@@ -0,0 +1,122 @@
+package com.weitzel.trustychain.tools;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Builds valid product chains as product_chain COPY csv: hash links, actor signatures over the chained
+ * payload and timestamp signatures, with trusted_timestamp strictly increasing per product. Every product
+ * is derived from the seed and its index alone, so products can be generated by any thread in any order.
+ */
+final class ChainGenerator {
+    static final String COPY_SQL = "COPY product_chain (id, actor, product_code, event_type, metadata, "
+            + "previous_hash, current_hash, signature, public_key_snapshot, created_at, trusted_timestamp, "
+            + "timestamp_signature) FROM STDIN WITH (FORMAT csv)";
+    private static final String[] EVENT_TYPES = {"shipped", "received", "inspected", "stored", "repacked"};
+    // flush a long chain in pieces instead of holding it in memory as one buffer
+    private static final int FLUSH_BYTES = 8 << 20;
+
+    private final List<LoadActor> actors;
+    private final String[] actorKeys;
+    private final Distribution.Sampler actorSampler;
+    private final TimestampKeys timestampKeys;
+    private final long[] chainLengths;
+    private final String productPrefix;
+    private final long seed;
+    private final LocalDateTime spanStart;
+    private final long spanMicros;
+
+    ChainGenerator(List<LoadActor> actors, Distribution actorDistribution, TimestampKeys timestampKeys,
+            long[] chainLengths, String productPrefix, long seed, LocalDateTime spanStart, LocalDateTime spanEnd) {
+        this.actors = actors;
+        this.actorKeys = actors.stream().map(LoadActor::publicKeyBase64).toArray(String[]::new);
+        this.actorSampler = actorDistribution.sampler(actors.size());
+        this.timestampKeys = timestampKeys;
+        this.chainLengths = chainLengths;
+        this.productPrefix = productPrefix;
+        this.seed = seed;
+        this.spanStart = spanStart.truncatedTo(ChronoUnit.MICROS);
+        this.spanMicros = ChronoUnit.MICROS.between(this.spanStart, spanEnd);
+    }
+
+    String productCode(int product) {
+        return productPrefix + "-" + product;
+    }
+
+    // writes the chains of products [from, to) to out, one or more pieces per call
+    void generate(int from, int to, Consumer<CsvChunk> out) {
+        StringBuilder csv = new StringBuilder();
+        int rows = 0;
+        for (int product = from; product < to; product++) {
+            SplittableRandom random = new SplittableRandom(seed ^ (product * 0x9E3779B97F4A7C15L));
+            String productCode = productCode(product);
+            long[] offsets = timestampOffsets(random, (int) chainLengths[product]);
+            String previousHash = null;
+
+            for (int i = 0; i < offsets.length; i++) {
+                int actor = actorSampler.next(random);
+                String actorName = actors.get(actor).name();
+                String eventType = i == 0 ? "created" : EVENT_TYPES[random.nextInt(EVENT_TYPES.length)];
+                String metadata = "{\"seq\":" + i + ",\"lot\":\"L" + random.nextInt(100_000) + "\"}";
+                String currentHash = ChainPayloads.integrityHash(previousHash, actorName, productCode, eventType,
+                        metadata);
+                String signature = actors.get(actor).sign(ChainPayloads.signingData(previousHash, actorName,
+                        productCode, eventType, metadata));
+                LocalDateTime timestamp = spanStart.plus(offsets[i], ChronoUnit.MICROS);
+
+                appendCsvRow(csv, new UUID(random.nextLong(), random.nextLong()).toString(), actorName,
+                        productCode, eventType, metadata, previousHash, currentHash, signature, actorKeys[actor],
+                        timestamp.toString(), timestamp.toString(), timestampKeys.sign(currentHash, timestamp));
+                rows++;
+                previousHash = currentHash;
+
+                if (csv.length() >= FLUSH_BYTES) {
+                    out.accept(new CsvChunk(csv.toString().getBytes(StandardCharsets.UTF_8), rows));
+                    csv.setLength(0);
+                    rows = 0;
+                }
+            }
+        }
+        if (rows > 0) {
+            out.accept(new CsvChunk(csv.toString().getBytes(StandardCharsets.UTF_8), rows));
+        }
+    }
+
+    // sorted random points in the span, bumped by a microsecond where two collide
+    private long[] timestampOffsets(SplittableRandom random, int length) {
+        long[] offsets = new long[length];
+        for (int i = 0; i < length; i++) {
+            offsets[i] = random.nextLong(Math.max(1, spanMicros - length));
+        }
+        Arrays.sort(offsets);
+        for (int i = 1; i < length; i++) {
+            if (offsets[i] <= offsets[i - 1]) {
+                offsets[i] = offsets[i - 1] + 1;
+            }
+        }
+        return offsets;
+    }
+
+    // CSV as COPY reads it: an unquoted empty field is NULL, everything else is quoted
+    static void appendCsvRow(StringBuilder csv, String... values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                csv.append(',');
+            }
+            String value = values[i];
+            if (value != null) {
+                csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+            }
+        }
+        csv.append('\n');
+    }
+
+    record CsvChunk(byte[] csv, int rows) {
+    }
+}
@@ -0,0 +1,44 @@
+package com.weitzel.trustychain.tools;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.HexFormat;
+
+// client side of the chain rules, mirrors HashService and the payload registerEvent verifies
+final class ChainPayloads {
+    private static final HexFormat HEX = HexFormat.of();
+
+    private ChainPayloads() {
+    }
+
+    static String signingData(String previousHash, String actor, String productCode, String eventType,
+            String metadata) {
+        return (previousHash == null ? "BEGIN" : previousHash) + actor + productCode + eventType + metadata;
+    }
+
+    static String integrityHash(String previousHash, String actor, String productCode, String eventType,
+            String metadata) {
+        String data = signingData(previousHash, actor, productCode, eventType, metadata == null ? "" : metadata);
+        try {
+            return HEX.formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(data.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
+
+    static String sign(PrivateKey privateKey, String data) {
+        try {
+            Signature signer = Signature.getInstance("SHA256withRSA");
+            signer.initSign(privateKey);
+            signer.update(data.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(signer.sign());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot sign event payload", e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.weitzel.trustychain.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+// writes actors.csv and product_chain.csv for a later \copy, e.g. into a database on another host
+final class CsvDatasetSink implements DatasetSink {
+    private final Path directory;
+    private final PrintStream out;
+    private OutputStream chainRows;
+
+    CsvDatasetSink(Path directory, PrintStream out) {
+        this.directory = directory;
+        this.out = out;
+    }
+
+    @Override
+    public void writeActors(List<LoadActor> actors, String passwordHash) throws IOException {
+        Files.createDirectories(directory);
+        StringBuilder csv = new StringBuilder();
+        for (LoadActor actor : actors) {
+            ChainGenerator.appendCsvRow(csv, UUID.randomUUID().toString(), actor.name(), actor.name(),
+                    passwordHash, "USER", actor.publicKeyBase64());
+        }
+        Files.writeString(directory.resolve("actors.csv"), csv, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void prepare(LocalDateTime from, LocalDateTime to) throws IOException {
+        chainRows = new BufferedOutputStream(Files.newOutputStream(directory.resolve("product_chain.csv")), 1 << 20);
+        out.printf("Before loading, create the partitions: SELECT create_product_chain_partitions('%s', %d);%n",
+                from.toLocalDate(), ChronoUnit.MONTHS.between(YearMonth.from(from), YearMonth.from(to)));
+    }
+
+    @Override
+    public Writer openWriter() {
+        return chunk -> {
+            synchronized (this) {
+                chainRows.write(chunk.csv());
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (chainRows != null) {
+            chainRows.close();
+        }
+        out.println("Load with:");
+        out.println("  \\copy actors (id, name, username, password, role, public_key) FROM '"
+                + directory.resolve("actors.csv").toAbsolutePath() + "' WITH (FORMAT csv)");
+        out.println("  \\copy " + ChainGenerator.COPY_SQL.substring("COPY ".length())
+                .replace("FROM STDIN", "FROM '" + directory.resolve("product_chain.csv").toAbsolutePath() + "'"));
+    }
+}
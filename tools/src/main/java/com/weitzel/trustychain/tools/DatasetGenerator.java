@@ -0,0 +1,209 @@
+package com.weitzel.trustychain.tools;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Seeds a benchmark database with valid chains:
+ * <pre>
+ * java -cp tools/target/trustychain-tools.jar com.weitzel.trustychain.tools.DatasetGenerator
+ *      [--events 1000000] [--products 10000] [--actors 100] [--chain-lengths zipf|uniform]
+ *      [--actor-activity zipf|uniform] [--zipf-exponent 1.0] [--span-days 365] [--threads CORES] [--writers 4]
+ *      [--jdbc-url URL --db-user USER --db-password PASSWORD | --csv-dir DIR]
+ *      [--timestamp-private-key PEM --timestamp-public-key PEM | --key-dir DIR] [--seed N]
+ * </pre>
+ * Rows are signed on --threads platform threads and streamed by --writers connections with COPY into a
+ * database the app has already migrated. Without timestamp keys a new pair is written to --key-dir, start
+ * the app with trustychain.timestamp.private-key-path/public-key-path pointing at it or the timestamp
+ * signatures will not verify. Actors log in with the password "dataset-password".
+ */
+public final class DatasetGenerator {
+    // bcrypt (strength 10) of "dataset-password", what the app's BCryptPasswordEncoder checks logins against
+    static final String PASSWORD_HASH = "$2a$10$5xaYIWCOIFgptZTahscKQun.v6rslExJAu17UUl4RNCnT7TQ4j0Di";
+    private static final long CHUNK_EVENTS = 5_000;
+    private static final ChainGenerator.CsvChunk END = new ChainGenerator.CsvChunk(new byte[0], 0);
+
+    private final DatasetOptions options;
+    private final PrintStream out;
+
+    DatasetGenerator(DatasetOptions options, PrintStream out) {
+        this.options = options;
+        this.out = out;
+    }
+
+    public static void main(String[] args) {
+        DatasetOptions options;
+        try {
+            options = DatasetOptions.parse(args);
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: DatasetGenerator [--events N] [--products N] [--actors N]"
+                    + " [--chain-lengths zipf|uniform] [--actor-activity zipf|uniform] [--zipf-exponent S]"
+                    + " [--span-days N] [--threads N] [--writers N] [--jdbc-url URL] [--db-user U]"
+                    + " [--db-password P] [--csv-dir DIR] [--timestamp-private-key PEM]"
+                    + " [--timestamp-public-key PEM] [--key-dir DIR] [--seed N]");
+            System.exit(2);
+            return;
+        }
+        try {
+            new DatasetGenerator(options, System.out).run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(1);
+        } catch (Exception e) {
+            System.err.println("Generation failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    void run() throws Exception {
+        String runId = HexFormat.of().toHexDigits((int) options.seed());
+        TimestampKeys timestampKeys = timestampKeys();
+        ExecutorService workers = Executors.newFixedThreadPool(options.threads());
+        long started = System.nanoTime();
+
+        try (DatasetSink sink = options.csvDir() != null
+                ? new CsvDatasetSink(options.csvDir(), out)
+                : new PostgresDatasetSink(options.jdbcUrl(), options.dbUser(), options.dbPassword())) {
+            List<Future<LoadActor>> pendingActors = new ArrayList<>();
+            for (int i = 0; i < options.actors(); i++) {
+                String name = "dataset-" + runId + "-" + i;
+                pendingActors.add(workers.submit(() -> LoadActor.generate(name)));
+            }
+            List<LoadActor> actors = new ArrayList<>();
+            for (Future<LoadActor> actor : pendingActors) {
+                actors.add(actor.get());
+            }
+            sink.writeActors(actors, PASSWORD_HASH);
+            out.printf(Locale.ROOT, "Wrote %d actors in %.1fs%n", actors.size(), seconds(System.nanoTime() - started));
+
+            LocalDateTime spanEnd = LocalDateTime.now();
+            LocalDateTime spanStart = spanEnd.minusDays(options.spanDays());
+            sink.prepare(spanStart, spanEnd);
+
+            long[] chainLengths = options.chainLengths().split(options.events(), options.products());
+            ChainGenerator generator = new ChainGenerator(actors, options.actorActivity(), timestampKeys,
+                    chainLengths, "DS-" + runId, options.seed(), spanStart, spanEnd);
+            write(generator, chainLengths, sink, workers);
+        } finally {
+            workers.shutdownNow();
+        }
+
+        long elapsed = System.nanoTime() - started;
+        out.printf(Locale.ROOT, "Generated %d events for %d products in %.1fs (%.0f events/s), seed %d%n",
+                options.events(), options.products(), seconds(elapsed), options.events() / seconds(elapsed),
+                options.seed());
+    }
+
+    // signing runs on the worker pool, the writers drain a bounded queue so memory stays flat
+    private void write(ChainGenerator generator, long[] chainLengths, DatasetSink sink, ExecutorService workers)
+            throws Exception {
+        BlockingQueue<ChainGenerator.CsvChunk> queue = new ArrayBlockingQueue<>(options.threads() * 2);
+        AtomicLong written = new AtomicLong();
+        ExecutorService writerPool = Executors.newFixedThreadPool(options.writers());
+        List<Future<?>> writers = new ArrayList<>();
+        for (int i = 0; i < options.writers(); i++) {
+            writers.add(writerPool.submit(() -> {
+                try (DatasetSink.Writer writer = sink.openWriter()) {
+                    for (ChainGenerator.CsvChunk chunk = queue.take(); chunk != END; chunk = queue.take()) {
+                        writer.write(chunk);
+                        written.addAndGet(chunk.rows());
+                    }
+                }
+                return null;
+            }));
+        }
+
+        List<Future<?>> tasks = new ArrayList<>();
+        int from = 0;
+        long events = 0;
+        for (int product = 0; product < chainLengths.length; product++) {
+            events += chainLengths[product];
+            if (events >= CHUNK_EVENTS || product == chainLengths.length - 1) {
+                int first = from;
+                int last = product + 1;
+                tasks.add(workers.submit(() -> {
+                    generator.generate(first, last, chunk -> {
+                        try {
+                            queue.put(chunk);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new IllegalStateException("Interrupted while queueing rows", e);
+                        }
+                    });
+                    return null;
+                }));
+                from = last;
+                events = 0;
+            }
+        }
+
+        try {
+            long nextReport = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            for (Future<?> task : tasks) {
+                while (true) {
+                    if (System.nanoTime() >= nextReport) {
+                        out.printf(Locale.ROOT, "%,d of %,d events written%n", written.get(), options.events());
+                        nextReport += TimeUnit.SECONDS.toNanos(5);
+                    }
+                    try {
+                        task.get(1, TimeUnit.SECONDS);
+                        break;
+                    } catch (TimeoutException e) {
+                        failOnError(writers);
+                    }
+                }
+            }
+            for (int i = 0; i < options.writers(); i++) {
+                queue.put(END);
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } finally {
+            writerPool.shutdownNow();
+        }
+    }
+
+    // a dead writer would leave the workers blocked on a full queue forever
+    private static void failOnError(List<Future<?>> writers) throws ExecutionException, InterruptedException {
+        for (Future<?> writer : writers) {
+            if (writer.isDone()) {
+                writer.get();
+            }
+        }
+    }
+
+    private TimestampKeys timestampKeys() throws Exception {
+        if (options.timestampPrivateKey() != null) {
+            return TimestampKeys.load(options.timestampPrivateKey(), options.timestampPublicKey());
+        }
+        TimestampKeys keys = TimestampKeys.generate();
+        Path privateKey = options.keyDir().resolve("timestamp-private.pem");
+        Path publicKey = options.keyDir().resolve("timestamp-public.pem");
+        keys.write(privateKey, publicKey);
+        out.println("New timestamp keys, start the app with --trustychain.timestamp.private-key-path="
+                + privateKey.toAbsolutePath() + " --trustychain.timestamp.public-key-path=" + publicKey.toAbsolutePath());
+        return keys;
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1_000_000_000d;
+    }
+}
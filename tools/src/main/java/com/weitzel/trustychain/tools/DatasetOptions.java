@@ -0,0 +1,95 @@
+package com.weitzel.trustychain.tools;
+
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Command line options of {@link DatasetGenerator}. Without --csv-dir the rows go straight into the
+ * database given by --jdbc-url, which defaults to the DB_URL/DB_USERNAME/DB_PASSWORD the app uses.
+ */
+public record DatasetOptions(
+        long events,
+        int products,
+        int actors,
+        Distribution chainLengths,
+        Distribution actorActivity,
+        int spanDays,
+        int threads,
+        int writers,
+        String jdbcUrl,
+        String dbUser,
+        String dbPassword,
+        Path csvDir,
+        Path timestampPrivateKey,
+        Path timestampPublicKey,
+        Path keyDir,
+        long seed) {
+
+    public static DatasetOptions parse(String... args) {
+        long events = 1_000_000;
+        int products = 10_000;
+        int actors = 100;
+        String chainLengths = "zipf";
+        String actorActivity = "zipf";
+        double zipfExponent = 1.0;
+        int spanDays = 365;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int writers = 4;
+        String jdbcUrl = System.getenv("DB_URL");
+        String dbUser = System.getenv("DB_USERNAME");
+        String dbPassword = System.getenv("DB_PASSWORD");
+        Path csvDir = null;
+        Path timestampPrivateKey = null;
+        Path timestampPublicKey = null;
+        Path keyDir = Path.of(".");
+        long seed = ThreadLocalRandom.current().nextLong();
+
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + name);
+            }
+            String value = args[++i];
+            switch (name) {
+                case "--events" -> events = positive(name, Long.parseLong(value));
+                case "--products" -> products = (int) positive(name, Integer.parseInt(value));
+                case "--actors" -> actors = (int) positive(name, Integer.parseInt(value));
+                case "--chain-lengths" -> chainLengths = value;
+                case "--actor-activity" -> actorActivity = value;
+                case "--zipf-exponent" -> zipfExponent = Double.parseDouble(value);
+                case "--span-days" -> spanDays = (int) positive(name, Integer.parseInt(value));
+                case "--threads" -> threads = (int) positive(name, Integer.parseInt(value));
+                case "--writers" -> writers = (int) positive(name, Integer.parseInt(value));
+                case "--jdbc-url" -> jdbcUrl = value;
+                case "--db-user" -> dbUser = value;
+                case "--db-password" -> dbPassword = value;
+                case "--csv-dir" -> csvDir = Path.of(value);
+                case "--timestamp-private-key" -> timestampPrivateKey = Path.of(value);
+                case "--timestamp-public-key" -> timestampPublicKey = Path.of(value);
+                case "--key-dir" -> keyDir = Path.of(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown option " + name);
+            }
+        }
+        if (events < products) {
+            throw new IllegalArgumentException("--events must be at least --products, every chain needs an event");
+        }
+        if ((timestampPrivateKey == null) != (timestampPublicKey == null)) {
+            throw new IllegalArgumentException("--timestamp-private-key and --timestamp-public-key go together");
+        }
+        if (csvDir == null && (jdbcUrl == null || jdbcUrl.isBlank())) {
+            throw new IllegalArgumentException("Either --jdbc-url (or DB_URL) or --csv-dir is required");
+        }
+        return new DatasetOptions(events, products, actors,
+                Distribution.parse(chainLengths, zipfExponent), Distribution.parse(actorActivity, zipfExponent),
+                spanDays, threads, csvDir == null ? writers : 1, jdbcUrl, dbUser, dbPassword, csvDir,
+                timestampPrivateKey, timestampPublicKey, keyDir, seed);
+    }
+
+    private static long positive(String name, long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,24 @@
+package com.weitzel.trustychain.tools;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// where DatasetGenerator puts the actors and the chain rows
+interface DatasetSink extends AutoCloseable {
+
+    void writeActors(List<LoadActor> actors, String passwordHash) throws Exception;
+
+    // called once before any chain rows, with the range of trusted_timestamp that is going to be written
+    void prepare(LocalDateTime from, LocalDateTime to) throws Exception;
+
+    // one per writer thread
+    Writer openWriter() throws Exception;
+
+    interface Writer extends AutoCloseable {
+        void write(ChainGenerator.CsvChunk chunk) throws Exception;
+
+        @Override
+        default void close() throws Exception {
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.weitzel.trustychain.tools;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * How events are spread over products or actors: uniform, or zipf where the n-th item gets a share
+ * proportional to 1/n^exponent (a few very long chains and busy actors, a long tail of small ones).
+ */
+record Distribution(Kind kind, double exponent) {
+
+    enum Kind {
+        UNIFORM, ZIPF
+    }
+
+    static Distribution parse(String value, double exponent) {
+        return new Distribution(Kind.valueOf(value.toUpperCase(Locale.ROOT)), exponent);
+    }
+
+    // splits total into count parts following the distribution, every part gets at least one
+    long[] split(long total, int count) {
+        if (total < count) {
+            throw new IllegalArgumentException("Need at least one event per product, got " + total
+                    + " events for " + count + " products");
+        }
+        long[] parts = new long[count];
+        if (kind == Kind.UNIFORM) {
+            Arrays.fill(parts, total / count);
+            for (int i = 0; i < total % count; i++) {
+                parts[i]++;
+            }
+            return parts;
+        }
+        double[] weights = weights(count);
+        long spread = total - count;
+        long assigned = 0;
+        for (int i = 0; i < count; i++) {
+            parts[i] = 1 + (long) Math.floor(spread * weights[i]);
+            assigned += parts[i];
+        }
+        // rounding leftovers go to the head of the distribution
+        for (int i = 0; assigned < total; i = (i + 1) % count) {
+            parts[i]++;
+            assigned++;
+        }
+        return parts;
+    }
+
+    Sampler sampler(int count) {
+        if (kind == Kind.UNIFORM) {
+            return random -> random.nextInt(count);
+        }
+        double[] cumulative = weights(count);
+        for (int i = 1; i < count; i++) {
+            cumulative[i] += cumulative[i - 1];
+        }
+        return random -> {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * cumulative[count - 1]);
+            return Math.min(index < 0 ? -index - 1 : index, count - 1);
+        };
+    }
+
+    // normalized so the weights sum up to 1
+    private double[] weights(int count) {
+        double[] weights = new double[count];
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            weights[i] = 1 / Math.pow(i + 1, exponent);
+            sum += weights[i];
+        }
+        for (int i = 0; i < count; i++) {
+            weights[i] /= sum;
+        }
+        return weights;
+    }
+
+    @FunctionalInterface
+    interface Sampler {
+        int next(SplittableRandom random);
+    }
+}
@@ -0,0 +1,93 @@
+package com.weitzel.trustychain.tools;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and error counts of one endpoint. Latency is taken from the moment a request was scheduled to
+ * start, not from when it was sent, so a stalled server shows up in the percentiles instead of silently
+ * lowering the request rate (coordinated omission).
+ */
+final class EndpointStats {
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final String name;
+    private final Recorder recorder;
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final Histogram total;
+    private long totalErrors;
+    private long totalDropped;
+    private boolean measuring;
+
+    EndpointStats(String name, long highestLatencyMicros) {
+        this.name = name;
+        this.recorder = new Recorder(highestLatencyMicros, SIGNIFICANT_DIGITS);
+        this.total = new Histogram(highestLatencyMicros, SIGNIFICANT_DIGITS);
+    }
+
+    String name() {
+        return name;
+    }
+
+    void record(long intendedStartNanos, boolean success) {
+        if (success) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStartNanos);
+            recorder.recordValue(Math.min(micros, total.getHighestTrackableValue()));
+        } else {
+            errors.increment();
+        }
+    }
+
+    // the request was never sent because max-in-flight was reached
+    void dropped() {
+        dropped.increment();
+    }
+
+    // drains what was recorded since the last call, it counts towards the result once measuring started
+    synchronized Interval tick() {
+        Histogram interval = recorder.getIntervalHistogram();
+        long intervalErrors = errors.sumThenReset();
+        long intervalDropped = dropped.sumThenReset();
+        if (measuring) {
+            total.add(interval);
+            totalErrors += intervalErrors;
+            totalDropped += intervalDropped;
+        }
+        return new Interval(interval, intervalErrors, intervalDropped);
+    }
+
+    // ends the warmup, everything recorded so far is thrown away
+    synchronized void startMeasuring() {
+        tick();
+        measuring = true;
+    }
+
+    synchronized long failures() {
+        return totalErrors + totalDropped;
+    }
+
+    synchronized void printSummary(PrintStream out, double seconds) {
+        out.printf(Locale.ROOT, "%-9s %9d %7d %7d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                name, total.getTotalCount(), totalErrors, totalDropped, total.getTotalCount() / seconds,
+                millis(total.getValueAtPercentile(50)), millis(total.getValueAtPercentile(99)),
+                millis(total.getValueAtPercentile(99.9)), millis(total.getMaxValue()));
+    }
+
+    static void printSummaryHeader(PrintStream out) {
+        out.printf(Locale.ROOT, "%-9s %9s %7s %7s %10s %9s %9s %9s %9s%n",
+                "endpoint", "ok", "errors", "dropped", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+    }
+
+    static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    record Interval(Histogram latency, long errors, long dropped) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.weitzel.trustychain.tools;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+// an actor of a load run or generated dataset, events are signed with its private key
+record LoadActor(String name, KeyPair keyPair) {
+
+    static LoadActor generate(String name) {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            return new LoadActor(name, generator.generateKeyPair());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("RSA algorithm not available", e);
+        }
+    }
+
+    // base64 DER, the format POST /api/actors stores
+    String publicKeyBase64() {
+        return Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
+    }
+
+    String sign(String data) {
+        return ChainPayloads.sign(keyPair.getPrivate(), data);
+    }
+}
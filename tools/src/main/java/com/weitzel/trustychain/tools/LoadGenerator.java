@@ -0,0 +1,282 @@
+package com.weitzel.trustychain.tools;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Capacity test against a running instance:
+ * <pre>
+ * mvn -Ph2 package && java -jar target/TrustyChain-0.0.1-SNAPSHOT-exec.jar --spring.profiles.active=h2   (or Postgres)
+ * java -jar tools/target/trustychain-tools.jar [--base-url http://localhost:8080] [--actors 10] [--products 100]
+ *      [--event-rate 50] [--tracking-rate 200] [--verify-rate 20] [--warmup 10] [--duration 60]
+ *      [--max-in-flight 10000] [--timeout 30]
+ * </pre>
+ * Registers the actors with fresh RSA key pairs, starts every product with one event and then drives
+ * POST /api/product-chain/event, GET /api/product-chain/{code} and GET /api/product-chain/{code}/verify at
+ * the given rates (per second) until the duration is over. Events are chained and signed on the client, at
+ * most one per product is in flight so the chains never fork. Prints throughput and p50/p99/p999 latency per
+ * endpoint for the measured part of the run. Exit code 0 when nothing failed, 1 when requests failed or were
+ * dropped, 2 on usage or setup errors.
+ */
+public final class LoadGenerator {
+    private static final String[] EVENT_TYPES = {"created", "packed", "shipped", "received", "inspected"};
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final LoadOptions options;
+    private final PrintStream out;
+    private final String runId = HexFormat.of().formatHex(randomBytes(4));
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final TrustyChainClient client;
+    private final List<LoadActor> actors = new ArrayList<>();
+    private final List<LoadProduct> products = new ArrayList<>();
+    private BlockingQueue<LoadProduct> idleProducts;
+
+    LoadGenerator(LoadOptions options, PrintStream out) {
+        this.options = options;
+        this.out = out;
+        this.client = new TrustyChainClient(options.baseUrl(), options.requestTimeout(), executor);
+    }
+
+    public static void main(String[] args) {
+        LoadOptions options;
+        try {
+            options = LoadOptions.parse(args);
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java -jar trustychain-tools.jar [--base-url URL] [--actors N] [--products M]"
+                    + " [--event-rate R] [--tracking-rate R] [--verify-rate R] [--warmup S] [--duration S]"
+                    + " [--max-in-flight N] [--timeout S]");
+            System.exit(2);
+            return;
+        }
+
+        LoadGenerator generator = new LoadGenerator(options, System.out);
+        try {
+            generator.setUp();
+            System.exit(generator.run() ? 0 : 1);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Setup failed: " + e.getMessage());
+            System.exit(2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(2);
+        }
+    }
+
+    void setUp() throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        List<Future<LoadActor>> pending = new ArrayList<>();
+        for (int i = 0; i < options.actors(); i++) {
+            String name = "load-" + runId + "-" + i;
+            pending.add(executor.submit(() -> {
+                LoadActor actor = LoadActor.generate(name);
+                client.createActor(actor, HexFormat.of().formatHex(randomBytes(12)));
+                return actor;
+            }));
+        }
+        for (Future<LoadActor> actor : pending) {
+            actors.add(await(actor));
+        }
+        out.printf(Locale.ROOT, "Registered %d actors (run %s) in %.1fs%n",
+                actors.size(), runId, seconds(System.nanoTime() - started));
+
+        // every product gets its first event up front, so tracking and verify never hit an empty chain
+        started = System.nanoTime();
+        Semaphore setupPermits = new Semaphore(Math.min(options.maxInFlight(), 256));
+        List<Future<Boolean>> seeded = new ArrayList<>();
+        for (int i = 0; i < options.products(); i++) {
+            LoadProduct product = new LoadProduct("LOAD-" + runId + "-" + i);
+            products.add(product);
+            setupPermits.acquire();
+            seeded.add(executor.submit(() -> {
+                try {
+                    return appendEvent(product);
+                } finally {
+                    setupPermits.release();
+                }
+            }));
+        }
+        for (Future<Boolean> result : seeded) {
+            if (!await(result)) {
+                throw new IOException("Starting the product chains failed, is the server rejecting events?");
+            }
+        }
+        idleProducts = new ArrayBlockingQueue<>(products.size(), false, products);
+        out.printf(Locale.ROOT, "Started %d product chains in %.1fs%n",
+                products.size(), seconds(System.nanoTime() - started));
+    }
+
+    boolean run() throws InterruptedException {
+        long highestLatencyMicros = TimeUnit.MILLISECONDS.toMicros(options.requestTimeout().toMillis() * 2);
+        List<EndpointStats> stats = new ArrayList<>();
+        List<Thread> drivers = new ArrayList<>();
+        Semaphore inFlight = new Semaphore(options.maxInFlight());
+
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+
+        addScenario("event", options.eventRate(), this::nextEvent, start, end, highestLatencyMicros, inFlight,
+                stats, drivers);
+        addScenario("tracking", options.trackingRate(), () -> client.tracking(randomProduct().code),
+                start, end, highestLatencyMicros, inFlight, stats, drivers);
+        addScenario("verify", options.verifyRate(), () -> client.verify(randomProduct().code),
+                start, end, highestLatencyMicros, inFlight, stats, drivers);
+
+        boolean measuring = options.warmup().isZero();
+        if (measuring) {
+            stats.forEach(EndpointStats::startMeasuring);
+        }
+        long nextProgress = start + PROGRESS_INTERVAL_NANOS;
+        while (true) {
+            long now = System.nanoTime();
+            if (!measuring && now >= measureFrom) {
+                printProgress(stats, now - start, "warmup");
+                stats.forEach(EndpointStats::startMeasuring);
+                measuring = true;
+                nextProgress = now + PROGRESS_INTERVAL_NANOS;
+                out.println("Warmup done, measuring");
+            }
+            if (now >= end) {
+                break;
+            }
+            if (now >= nextProgress) {
+                printProgress(stats, now - start, measuring ? "measure" : "warmup");
+                nextProgress += PROGRESS_INTERVAL_NANOS;
+            }
+            long wakeUp = Math.min(nextProgress, end);
+            if (!measuring) {
+                wakeUp = Math.min(wakeUp, measureFrom);
+            }
+            LockSupport.parkNanos(wakeUp - System.nanoTime());
+        }
+
+        for (Thread driver : drivers) {
+            driver.join();
+        }
+        // requests started before the end still count, give them until their timeout
+        long drainSeconds = options.requestTimeout().toSeconds() + 5;
+        if (!inFlight.tryAcquire(options.maxInFlight(), drainSeconds, TimeUnit.SECONDS)) {
+            out.println("Some requests were still in flight after " + drainSeconds + "s, they are not counted");
+        }
+        executor.shutdownNow();
+
+        double measuredSeconds = seconds(end - measureFrom);
+        long failures = 0;
+        out.printf(Locale.ROOT, "%nResults over %.0fs (actors=%d, products=%d, rates event/tracking/verify=%s/%s/%s)%n",
+                measuredSeconds, actors.size(), products.size(),
+                rate(options.eventRate()), rate(options.trackingRate()), rate(options.verifyRate()));
+        EndpointStats.printSummaryHeader(out);
+        for (EndpointStats endpoint : stats) {
+            endpoint.tick();
+            failures += endpoint.failures();
+            endpoint.printSummary(out, measuredSeconds);
+        }
+        return failures == 0;
+    }
+
+    private void addScenario(String name, double rate, RateDriver.Request request, long start, long end,
+            long highestLatencyMicros, Semaphore inFlight, List<EndpointStats> stats, List<Thread> drivers) {
+        if (rate <= 0) {
+            return;
+        }
+        EndpointStats endpoint = new EndpointStats(name, highestLatencyMicros);
+        stats.add(endpoint);
+        // the pacing loop stays on a platform thread so it is not delayed behind the request threads
+        drivers.add(Thread.ofPlatform().name("driver-" + name).start(
+                new RateDriver(endpoint, request, rate, start, end, executor, inFlight)));
+    }
+
+    // waits for an idle product, so the wait counts towards the event latency when the server falls behind
+    private boolean nextEvent() throws IOException, InterruptedException {
+        LoadProduct product = idleProducts.take();
+        try {
+            return appendEvent(product);
+        } finally {
+            idleProducts.add(product);
+        }
+    }
+
+    private boolean appendEvent(LoadProduct product) throws IOException, InterruptedException {
+        LoadActor actor = actors.get(ThreadLocalRandom.current().nextInt(actors.size()));
+        String eventType = EVENT_TYPES[(int) (product.events % EVENT_TYPES.length)];
+        String metadata = "{\"run\":\"" + runId + "\",\"seq\":" + product.events + "}";
+        String expectedHash = ChainPayloads.integrityHash(product.head, actor.name(), product.code, eventType,
+                metadata);
+        String signature = actor.sign(ChainPayloads.signingData(product.head, actor.name(), product.code,
+                eventType, metadata));
+
+        String storedHash;
+        try {
+            storedHash = client.registerEvent(product.code, actor.name(), eventType, metadata, signature);
+        } catch (IOException e) {
+            // a timeout does not tell whether the event was stored
+            product.head = client.headHash(product.code);
+            throw e;
+        }
+        if (storedHash == null) {
+            product.head = client.headHash(product.code);
+            return false;
+        }
+        product.head = storedHash;
+        product.events++;
+        return storedHash.equals(expectedHash);
+    }
+
+    private LoadProduct randomProduct() {
+        return products.get(ThreadLocalRandom.current().nextInt(products.size()));
+    }
+
+    private void printProgress(List<EndpointStats> stats, long elapsedNanos, String phase) {
+        StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "[%4.0fs %-7s]",
+                seconds(elapsedNanos), phase));
+        for (EndpointStats endpoint : stats) {
+            EndpointStats.Interval interval = endpoint.tick();
+            line.append(String.format(Locale.ROOT, " %s %d ok p99 %.1fms err %d drop %d |",
+                    endpoint.name(), interval.latency().getTotalCount(),
+                    EndpointStats.millis(interval.latency().getValueAtPercentile(99)),
+                    interval.errors(), interval.dropped()));
+        }
+        line.setLength(line.length() - 2);
+        out.println(line);
+    }
+
+    private static <T> T await(Future<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static String rate(double rate) {
+        return rate == Math.rint(rate) ? String.valueOf((long) rate) : String.valueOf(rate);
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1_000_000_000d;
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        return bytes;
+    }
+}
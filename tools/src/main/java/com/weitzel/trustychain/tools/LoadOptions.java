@@ -0,0 +1,78 @@
+package com.weitzel.trustychain.tools;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Command line options of {@link LoadGenerator}. Rates are requests per second, 0 switches a scenario off.
+ */
+public record LoadOptions(
+        URI baseUrl,
+        int actors,
+        int products,
+        double eventRate,
+        double trackingRate,
+        double verifyRate,
+        Duration warmup,
+        Duration duration,
+        int maxInFlight,
+        Duration requestTimeout) {
+
+    public static LoadOptions parse(String... args) {
+        String baseUrl = "http://localhost:8080";
+        int actors = 10;
+        int products = 100;
+        double eventRate = 50;
+        double trackingRate = 200;
+        double verifyRate = 20;
+        long warmupSeconds = 10;
+        long durationSeconds = 60;
+        int maxInFlight = 10_000;
+        long timeoutSeconds = 30;
+
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + name);
+            }
+            String value = args[++i];
+            switch (name) {
+                case "--base-url" -> baseUrl = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                case "--actors" -> actors = (int) positive(name, Integer.parseInt(value));
+                case "--products" -> products = (int) positive(name, Integer.parseInt(value));
+                case "--event-rate" -> eventRate = rate(name, value);
+                case "--tracking-rate" -> trackingRate = rate(name, value);
+                case "--verify-rate" -> verifyRate = rate(name, value);
+                case "--warmup" -> warmupSeconds = Long.parseLong(value);
+                case "--duration" -> durationSeconds = positive(name, Long.parseLong(value));
+                case "--max-in-flight" -> maxInFlight = (int) positive(name, Integer.parseInt(value));
+                case "--timeout" -> timeoutSeconds = positive(name, Long.parseLong(value));
+                default -> throw new IllegalArgumentException("Unknown option " + name);
+            }
+        }
+        if (eventRate == 0 && trackingRate == 0 && verifyRate == 0) {
+            throw new IllegalArgumentException("At least one of the rates has to be above 0");
+        }
+        if (warmupSeconds < 0) {
+            throw new IllegalArgumentException("--warmup must not be negative");
+        }
+        return new LoadOptions(URI.create(baseUrl), actors, products, eventRate, trackingRate, verifyRate,
+                Duration.ofSeconds(warmupSeconds), Duration.ofSeconds(durationSeconds), maxInFlight,
+                Duration.ofSeconds(timeoutSeconds));
+    }
+
+    private static double rate(String name, String value) {
+        double rate = Double.parseDouble(value);
+        if (rate < 0) {
+            throw new IllegalArgumentException(name + " must not be negative");
+        }
+        return rate;
+    }
+
+    private static long positive(String name, long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,12 @@
+package com.weitzel.trustychain.tools;
+
+// chain state of one product, only touched by the task that took it from the idle queue
+final class LoadProduct {
+    final String code;
+    String head;
+    long events;
+
+    LoadProduct(String code) {
+        this.code = code;
+    }
+}
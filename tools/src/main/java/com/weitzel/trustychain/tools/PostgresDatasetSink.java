@@ -0,0 +1,109 @@
+package com.weitzel.trustychain.tools;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes into a database migrated by the app's Flyway scripts: actors with one batched INSERT, chain rows
+ * with COPY, every chunk in its own transaction. The monthly partitions for the generated range are created
+ * up front with the same function the app uses, there is no default partition to catch rows outside them.
+ */
+final class PostgresDatasetSink implements DatasetSink {
+    private static final int ACTOR_BATCH_SIZE = 1000;
+
+    private final String jdbcUrl;
+    private final String user;
+    private final String password;
+
+    PostgresDatasetSink(String jdbcUrl, String user, String password) {
+        this.jdbcUrl = jdbcUrl;
+        this.user = user;
+        this.password = password;
+    }
+
+    @Override
+    public void writeActors(List<LoadActor> actors, String passwordHash) throws SQLException {
+        try (Connection connection = connect();
+                PreparedStatement insert = connection.prepareStatement(
+                        "INSERT INTO actors (id, name, username, password, role, public_key) "
+                                + "VALUES (?, ?, ?, ?, ?, ?)")) {
+            connection.setAutoCommit(false);
+            for (int i = 0; i < actors.size(); i++) {
+                LoadActor actor = actors.get(i);
+                insert.setObject(1, UUID.randomUUID());
+                insert.setString(2, actor.name());
+                insert.setString(3, actor.name());
+                insert.setString(4, passwordHash);
+                insert.setString(5, "USER");
+                insert.setString(6, actor.publicKeyBase64());
+                insert.addBatch();
+                if ((i + 1) % ACTOR_BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+    }
+
+    @Override
+    public void prepare(LocalDateTime from, LocalDateTime to) throws SQLException {
+        long months = ChronoUnit.MONTHS.between(YearMonth.from(from), YearMonth.from(to));
+        try (Connection connection = connect();
+                PreparedStatement partitions = connection.prepareStatement(
+                        "SELECT create_product_chain_partitions(?, ?)")) {
+            partitions.setObject(1, from.toLocalDate());
+            partitions.setInt(2, (int) months);
+            partitions.execute();
+        }
+    }
+
+    @Override
+    public Writer openWriter() throws SQLException {
+        Connection connection = connect();
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        return new Writer() {
+            @Override
+            public void write(ChainGenerator.CsvChunk chunk) throws SQLException {
+                CopyIn copyIn = pgConnection.getCopyAPI().copyIn(ChainGenerator.COPY_SQL);
+                try {
+                    copyIn.writeToCopy(chunk.csv(), 0, chunk.csv().length);
+                    copyIn.endCopy();
+                } finally {
+                    if (copyIn.isActive()) {
+                        copyIn.cancelCopy();
+                    }
+                }
+                // running instances rebuild their product code filters once the generation moves
+                try (Statement statement = connection.createStatement()) {
+                    statement.executeUpdate(
+                            "UPDATE product_code_generation SET generation = generation + 1 WHERE id = 1");
+                }
+            }
+
+            @Override
+            public void close() throws SQLException {
+                connection.close();
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(jdbcUrl, user, password);
+    }
+}
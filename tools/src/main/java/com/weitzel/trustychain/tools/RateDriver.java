@@ -0,0 +1,65 @@
+package com.weitzel.trustychain.tools;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop driver: starts one request every 1/rate seconds on its own virtual thread, whether or not
+ * earlier ones have finished. Concurrency is only capped by max-in-flight, requests over the cap are
+ * counted as dropped.
+ */
+final class RateDriver implements Runnable {
+    private final EndpointStats stats;
+    private final Request request;
+    private final long intervalNanos;
+    private final long startNanos;
+    private final long endNanos;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+
+    RateDriver(EndpointStats stats, Request request, double rate, long startNanos, long endNanos,
+            ExecutorService executor, Semaphore inFlight) {
+        this.stats = stats;
+        this.request = request;
+        this.intervalNanos = Math.max(1, Math.round(1_000_000_000d / rate));
+        this.startNanos = startNanos;
+        this.endNanos = endNanos;
+        this.executor = executor;
+        this.inFlight = inFlight;
+    }
+
+    @Override
+    public void run() {
+        for (long intended = startNanos; intended < endNanos; intended += intervalNanos) {
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (!inFlight.tryAcquire()) {
+                stats.dropped();
+                continue;
+            }
+            long scheduledAt = intended;
+            executor.execute(() -> {
+                boolean success = false;
+                try {
+                    success = request.execute();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    // counted as an error below
+                } finally {
+                    inFlight.release();
+                }
+                stats.record(scheduledAt, success);
+            });
+        }
+    }
+
+    @FunctionalInterface
+    interface Request {
+        // true when the server answered as expected
+        boolean execute() throws Exception;
+    }
+}
@@ -0,0 +1,76 @@
+package com.weitzel.trustychain.tools;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * The server's timestamp signing key, in the PEM files TimestampService reads from
+ * trustychain.timestamp.private-key-path and trustychain.timestamp.public-key-path.
+ */
+record TimestampKeys(PrivateKey privateKey, PublicKey publicKey) {
+
+    static TimestampKeys load(Path privateKeyPem, Path publicKeyPem) throws IOException {
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+            return new TimestampKeys(
+                    keyFactory.generatePrivate(new PKCS8EncodedKeySpec(decodePem(Files.readString(privateKeyPem)))),
+                    keyFactory.generatePublic(new X509EncodedKeySpec(decodePem(Files.readString(publicKeyPem)))));
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Cannot read timestamp keys: " + e.getMessage(), e);
+        }
+    }
+
+    static TimestampKeys generate() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            KeyPair keyPair = generator.generateKeyPair();
+            return new TimestampKeys(keyPair.getPrivate(), keyPair.getPublic());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("RSA algorithm not available", e);
+        }
+    }
+
+    void write(Path privateKeyPem, Path publicKeyPem) throws IOException {
+        Files.writeString(privateKeyPem, pem("PRIVATE KEY", privateKey.getEncoded()), StandardCharsets.US_ASCII);
+        Files.writeString(publicKeyPem, pem("PUBLIC KEY", publicKey.getEncoded()), StandardCharsets.US_ASCII);
+    }
+
+    // same payload TimestampService.signTimestamp signs
+    String sign(String currentHash, LocalDateTime timestamp) {
+        try {
+            Signature signer = Signature.getInstance("SHA256withRSA");
+            signer.initSign(privateKey);
+            signer.update((currentHash + "|" + timestamp).getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(signer.sign());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot sign timestamp", e);
+        }
+    }
+
+    private static byte[] decodePem(String pem) {
+        return Base64.getDecoder().decode(pem.replaceAll("-----(BEGIN|END) [A-Z ]+-----", "").replaceAll("\\s", ""));
+    }
+
+    private static String pem(String type, byte[] der) {
+        String base64 = Base64.getEncoder().encodeToString(der);
+        StringBuilder pem = new StringBuilder("-----BEGIN " + type + "-----\n");
+        for (int i = 0; i < base64.length(); i += 64) {
+            pem.append(base64, i, Math.min(i + 64, base64.length())).append('\n');
+        }
+        return pem.append("-----END ").append(type).append("-----\n").toString();
+    }
+}
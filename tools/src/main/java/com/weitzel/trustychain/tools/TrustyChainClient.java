@@ -0,0 +1,110 @@
+package com.weitzel.trustychain.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+// blocking calls against the REST API, meant to be used from virtual threads
+final class TrustyChainClient {
+    private final HttpClient http;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final URI baseUrl;
+    private final Duration timeout;
+
+    TrustyChainClient(URI baseUrl, Duration timeout, Executor executor) {
+        this.baseUrl = baseUrl;
+        this.timeout = timeout;
+        // plain HTTP/1.1, an h2c upgrade attempt on every new connection would only add noise
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .executor(executor)
+                .build();
+    }
+
+    void createActor(LoadActor actor, String password) throws IOException, InterruptedException {
+        Map<String, String> body = new LinkedHashMap<>();
+        body.put("name", actor.name());
+        body.put("username", actor.name());
+        body.put("password", password);
+        body.put("role", "USER");
+        body.put("publicKey", actor.publicKeyBase64());
+        HttpResponse<String> response = post("/api/actors", body);
+        if (response.statusCode() != 200) {
+            throw new IOException("Creating actor " + actor.name() + " failed with HTTP " + response.statusCode()
+                    + ": " + response.body());
+        }
+    }
+
+    // the stored event's currentHash, or null when the server rejected it
+    String registerEvent(String productCode, String actor, String eventType, String metadata, String signature)
+            throws IOException, InterruptedException {
+        Map<String, String> body = new LinkedHashMap<>();
+        body.put("productCode", productCode);
+        body.put("actor", actor);
+        body.put("eventType", eventType);
+        body.put("metadata", metadata);
+        body.put("signature", signature);
+        HttpResponse<String> response = post("/api/product-chain/event", body);
+        if (response.statusCode() != 200) {
+            return null;
+        }
+        return objectMapper.readTree(response.body()).path("currentHash").asText(null);
+    }
+
+    boolean tracking(String productCode) throws IOException, InterruptedException {
+        return get("/api/product-chain/" + encode(productCode)).statusCode() == 200;
+    }
+
+    // only a 200 that says the chain is valid counts, a broken chain is an error of the run
+    boolean verify(String productCode) throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/api/product-chain/" + encode(productCode) + "/verify");
+        return response.statusCode() == 200
+                && objectMapper.readTree(response.body()).path("isValid").asBoolean(false);
+    }
+
+    // hash of the last event, used to resync after a failed or timed out registration
+    String headHash(String productCode) throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/api/product-chain/" + encode(productCode));
+        if (response.statusCode() == 404) {
+            return null;
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("Tracking " + productCode + " failed with HTTP " + response.statusCode());
+        }
+        JsonNode events = objectMapper.readTree(response.body()).path("events");
+        return events.isEmpty() ? null : events.get(events.size() - 1).path("currentHash").asText(null);
+    }
+
+    private HttpResponse<String> post(String path, Object body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+        return http.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .GET()
+                .build();
+        return http.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+}
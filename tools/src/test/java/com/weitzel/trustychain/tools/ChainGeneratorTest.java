@@ -0,0 +1,141 @@
+package com.weitzel.trustychain.tools;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Signature;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChainGeneratorTest {
+
+    private static List<LoadActor> actors;
+    private static TimestampKeys timestampKeys;
+
+    @BeforeAll
+    static void generateKeys() {
+        actors = List.of(LoadActor.generate("a0"), LoadActor.generate("a1"), LoadActor.generate("a2"));
+        timestampKeys = TimestampKeys.generate();
+    }
+
+    @Test
+    @DisplayName("Should generate linked chains with valid actor and timestamp signatures")
+    void shouldGenerateValidChains() throws Exception {
+        long[] lengths = Distribution.parse("zipf", 1.0).split(30, 4);
+        LocalDateTime end = LocalDateTime.of(2025, 6, 1, 12, 0);
+        ChainGenerator generator = new ChainGenerator(actors, Distribution.parse("uniform", 1.0), timestampKeys,
+                lengths, "T", 42, end.minusDays(30), end);
+
+        List<String[]> rows = new ArrayList<>();
+        generator.generate(0, lengths.length, chunk -> rows.addAll(parse(chunk.csv())));
+
+        assertEquals(30, rows.size());
+        Map<String, String> heads = new HashMap<>();
+        Map<String, LocalDateTime> lastTimestamps = new HashMap<>();
+        Map<String, LoadActor> actorsByName = new HashMap<>();
+        actors.forEach(actor -> actorsByName.put(actor.name(), actor));
+
+        for (String[] row : rows) {
+            String actor = row[1];
+            String code = row[2];
+            String previousHash = row[5];
+            assertEquals(heads.get(code), previousHash);
+            assertEquals(ChainPayloads.integrityHash(previousHash, actor, code, row[3], row[4]), row[6]);
+            assertTrue(verify(actorsByName.get(actor),
+                    ChainPayloads.signingData(previousHash, actor, code, row[3], row[4]), row[7]));
+            assertEquals(actorsByName.get(actor).publicKeyBase64(), row[8]);
+
+            LocalDateTime timestamp = LocalDateTime.parse(row[10]);
+            assertTrue(lastTimestamps.get(code) == null || timestamp.isAfter(lastTimestamps.get(code)));
+            assertFalse(timestamp.isAfter(end));
+            Signature verifier = Signature.getInstance("SHA256withRSA");
+            verifier.initVerify(timestampKeys.publicKey());
+            verifier.update((row[6] + "|" + timestamp).getBytes(StandardCharsets.UTF_8));
+            assertTrue(verifier.verify(Base64.getDecoder().decode(row[11])));
+
+            heads.put(code, row[6]);
+            lastTimestamps.put(code, timestamp);
+        }
+        assertEquals(4, heads.size());
+    }
+
+    @Test
+    @DisplayName("Should generate the same chains for the same seed regardless of chunking")
+    void shouldBeDeterministic() {
+        long[] lengths = {3, 2, 4};
+        LocalDateTime end = LocalDateTime.of(2025, 6, 1, 12, 0);
+        ChainGenerator generator = new ChainGenerator(actors, Distribution.parse("zipf", 1.0), timestampKeys,
+                lengths, "T", 7, end.minusDays(1), end);
+
+        List<String> whole = new ArrayList<>();
+        generator.generate(0, 3, chunk -> parse(chunk.csv()).forEach(row -> whole.add(row[0] + row[6])));
+        List<String> pieces = new ArrayList<>();
+        for (int product = 0; product < 3; product++) {
+            generator.generate(product, product + 1,
+                    chunk -> parse(chunk.csv()).forEach(row -> pieces.add(row[0] + row[6])));
+        }
+
+        assertEquals(whole, pieces);
+    }
+
+    @Test
+    @DisplayName("Should split events so every product gets one and the zipf head gets the most")
+    void shouldSplitEvents() {
+        long[] uniform = Distribution.parse("uniform", 1.0).split(10, 4);
+        long[] zipf = Distribution.parse("zipf", 1.2).split(1000, 50);
+
+        assertArrayEquals(new long[]{3, 3, 2, 2}, uniform);
+        assertEquals(1000, Arrays.stream(zipf).sum());
+        assertTrue(Arrays.stream(zipf).allMatch(length -> length >= 1));
+        assertEquals(Arrays.stream(zipf).max().orElseThrow(), zipf[0]);
+        assertThrows(IllegalArgumentException.class, () -> Distribution.parse("uniform", 1.0).split(3, 4));
+    }
+
+    private static boolean verify(LoadActor actor, String data, String signature) throws Exception {
+        Signature verifier = Signature.getInstance("SHA256withRSA");
+        verifier.initVerify(actor.keyPair().getPublic());
+        verifier.update(data.getBytes(StandardCharsets.UTF_8));
+        return verifier.verify(Base64.getDecoder().decode(signature));
+    }
+
+    // enough of COPY's csv for what the generator writes: quoted values, "" escapes, empty for NULL
+    static List<String[]> parse(byte[] csv) {
+        List<String[]> rows = new ArrayList<>();
+        for (String line : new String(csv, StandardCharsets.UTF_8).split("\n")) {
+            List<String> values = new ArrayList<>();
+            int i = 0;
+            while (i <= line.length()) {
+                if (i < line.length() && line.charAt(i) == '"') {
+                    StringBuilder value = new StringBuilder();
+                    i++;
+                    while (true) {
+                        if (line.charAt(i) == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                            value.append('"');
+                            i += 2;
+                        } else if (line.charAt(i) == '"') {
+                            i++;
+                            break;
+                        } else {
+                            value.append(line.charAt(i++));
+                        }
+                    }
+                    values.add(value.toString());
+                } else {
+                    values.add(null);
+                }
+                i++;
+            }
+            rows.add(values.toArray(String[]::new));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,40 @@
+package com.weitzel.trustychain.tools;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChainPayloadsTest {
+
+    @Test
+    @DisplayName("Should hash the chained payload like HashService, with BEGIN for the first event")
+    void shouldHashLikeServer() throws Exception {
+        String expected = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest("BEGINaliceP-1created{}".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(expected, ChainPayloads.integrityHash(null, "alice", "P-1", "created", "{}"));
+        assertEquals(ChainPayloads.integrityHash("abc", "alice", "P-1", "created", ""),
+                ChainPayloads.integrityHash("abc", "alice", "P-1", "created", null));
+    }
+
+    @Test
+    @DisplayName("Should sign the payload so the actor's public key verifies it")
+    void shouldSignPayload() throws Exception {
+        LoadActor actor = LoadActor.generate("alice");
+        String data = ChainPayloads.signingData("abc", "alice", "P-1", "shipped", "{}");
+
+        Signature verifier = Signature.getInstance("SHA256withRSA");
+        verifier.initVerify(actor.keyPair().getPublic());
+        verifier.update(data.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("abcaliceP-1shipped{}", data);
+        assertTrue(verifier.verify(Base64.getDecoder().decode(actor.sign(data))));
+    }
+}
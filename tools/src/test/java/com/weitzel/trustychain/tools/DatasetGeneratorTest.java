@@ -0,0 +1,46 @@
+package com.weitzel.trustychain.tools;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatasetGeneratorTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should write actors, chain rows and the timestamp keys in csv mode")
+    void shouldWriteCsvDataset() throws Exception {
+        DatasetOptions options = DatasetOptions.parse("--events", "40", "--products", "6", "--actors", "3",
+                "--threads", "2", "--csv-dir", directory.resolve("out").toString(),
+                "--key-dir", directory.toString(), "--seed", "1");
+
+        new DatasetGenerator(options, new PrintStream(new ByteArrayOutputStream())).run();
+
+        List<String> actors = Files.readAllLines(directory.resolve("out/actors.csv"));
+        List<String[]> rows = ChainGeneratorTest.parse(Files.readAllBytes(directory.resolve("out/product_chain.csv")));
+        assertEquals(3, actors.size());
+        assertTrue(actors.get(0).contains(DatasetGenerator.PASSWORD_HASH));
+        assertEquals(40, rows.size());
+        assertEquals(6, rows.stream().filter(row -> row[5] == null).count());
+        TimestampKeys.load(directory.resolve("timestamp-private.pem"), directory.resolve("timestamp-public.pem"));
+    }
+
+    @Test
+    @DisplayName("Should require a database or an output directory")
+    void shouldRequireTarget() {
+        assertThrows(IllegalArgumentException.class,
+                () -> DatasetOptions.parse("--jdbc-url", "", "--events", "10", "--products", "2"));
+        assertThrows(IllegalArgumentException.class,
+                () -> DatasetOptions.parse("--csv-dir", "x", "--events", "1", "--products", "2"));
+    }
+}
@@ -0,0 +1,46 @@
+package com.weitzel.trustychain.tools;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadOptionsTest {
+
+    @Test
+    @DisplayName("Should use defaults when no options are given")
+    void shouldUseDefaults() {
+        LoadOptions options = LoadOptions.parse();
+
+        assertEquals(URI.create("http://localhost:8080"), options.baseUrl());
+        assertEquals(10, options.actors());
+        assertEquals(100, options.products());
+        assertEquals(Duration.ofSeconds(60), options.duration());
+    }
+
+    @Test
+    @DisplayName("Should parse rates and strip the trailing slash of the base url")
+    void shouldParseOptions() {
+        LoadOptions options = LoadOptions.parse("--base-url", "http://app:9090/", "--event-rate", "12.5",
+                "--tracking-rate", "0", "--products", "3", "--warmup", "0");
+
+        assertEquals(URI.create("http://app:9090"), options.baseUrl());
+        assertEquals(12.5, options.eventRate());
+        assertEquals(0, options.trackingRate());
+        assertEquals(3, options.products());
+        assertTrue(options.warmup().isZero());
+    }
+
+    @Test
+    @DisplayName("Should reject unknown options, missing values and a run without load")
+    void shouldRejectInvalidOptions() {
+        assertThrows(IllegalArgumentException.class, () -> LoadOptions.parse("--threads", "4"));
+        assertThrows(IllegalArgumentException.class, () -> LoadOptions.parse("--actors"));
+        assertThrows(IllegalArgumentException.class, () -> LoadOptions.parse("--actors", "0"));
+        assertThrows(IllegalArgumentException.class, () -> LoadOptions.parse(
+                "--event-rate", "0", "--tracking-rate", "0", "--verify-rate", "0"));
+    }
+}
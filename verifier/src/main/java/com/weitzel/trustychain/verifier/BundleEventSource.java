@@ -0,0 +1,150 @@
+package com.weitzel.trustychain.verifier;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Streams the CBOR proof bundle served by GET /api/product-chain/{code}/bundle.
+ * Binary hashes are turned back into lowercase hex and binary signatures and keys into base64,
+ * so every event is byte for byte what the server hashed and signed.
+ */
+public class BundleEventSource implements EventSource {
+    static final String FORMAT = "trustychain-bundle";
+    static final int VERSION = 1;
+
+    private static final CBORFactory CBOR_FACTORY = new CBORFactory();
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final JsonParser parser;
+    private final List<String> keys = new ArrayList<>();
+    private String productCode;
+    private String timestampKey;
+
+    public BundleEventSource(InputStream in) throws IOException {
+        this.parser = CBOR_FACTORY.createParser(in);
+        readHeader();
+    }
+
+    @Override
+    public String productCode() {
+        return productCode;
+    }
+
+    @Override
+    public String timestampKey() {
+        return timestampKey;
+    }
+
+    @Override
+    public ChainEvent next() throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_ARRAY) {
+            return null;
+        }
+        expect(token, JsonToken.START_OBJECT);
+
+        String actor = null, eventType = null, metadata = null, previousHash = null, currentHash = null;
+        String signature = null, key = null, timestampSignature = null;
+        int keyIndex = -1;
+        LocalDateTime trustedTimestamp = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "a" -> actor = text();
+                case "t" -> eventType = text();
+                case "m" -> metadata = text();
+                case "p" -> previousHash = hex();
+                case "h" -> currentHash = hex();
+                case "s" -> signature = base64();
+                case "k" -> keyIndex = parser.getIntValue();
+                case "K" -> key = base64();
+                case "ts" -> trustedTimestamp = fromEpochMicros(parser.getLongValue());
+                case "tss" -> timestampSignature = base64();
+                default -> parser.skipChildren();
+            }
+        }
+
+        if (key != null) {
+            if (keyIndex != keys.size()) {
+                throw new IOException("Unexpected key index " + keyIndex + " in bundle");
+            }
+            keys.add(key);
+        } else if (keyIndex < 0 || keyIndex >= keys.size()) {
+            throw new IOException("Bundle references unknown key " + keyIndex);
+        }
+
+        return new ChainEvent(actor, productCode, eventType, metadata, previousHash, currentHash,
+                signature, keys.get(keyIndex), trustedTimestamp, timestampSignature);
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    static LocalDateTime fromEpochMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    private void readHeader() throws IOException {
+        expect(parser.nextToken(), JsonToken.START_OBJECT);
+        String format = null;
+        int version = -1;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "format" -> format = text();
+                case "version" -> version = parser.getIntValue();
+                case "productCode" -> productCode = text();
+                case "timestampKey" -> timestampKey = base64();
+                case "events" -> {
+                    expect(parser.currentToken(), JsonToken.START_ARRAY);
+                    if (!FORMAT.equals(format) || version != VERSION) {
+                        throw new IOException("Unsupported bundle format " + format + " v" + version);
+                    }
+                    if (productCode == null || timestampKey == null) {
+                        throw new IOException("Bundle header is incomplete");
+                    }
+                    return;
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        throw new IOException("Bundle has no events");
+    }
+
+    private String text() throws IOException {
+        return parser.currentToken() == JsonToken.VALUE_NULL ? null : parser.getText();
+    }
+
+    private String hex() throws IOException {
+        return parser.currentToken() == JsonToken.VALUE_EMBEDDED_OBJECT
+                ? HEX.formatHex(parser.getBinaryValue())
+                : text();
+    }
+
+    private String base64() throws IOException {
+        return parser.currentToken() == JsonToken.VALUE_EMBEDDED_OBJECT
+                ? Base64.getEncoder().encodeToString(parser.getBinaryValue())
+                : text();
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Malformed bundle, expected " + expected + " but got " + actual);
+        }
+    }
+}
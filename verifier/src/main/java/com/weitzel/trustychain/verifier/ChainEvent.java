@@ -0,0 +1,17 @@
+package com.weitzel.trustychain.verifier;
+
+import java.time.LocalDateTime;
+
+// one exported chain link, field names match the application's ChainLinkDTO
+public record ChainEvent(
+        String actor,
+        String productCode,
+        String eventType,
+        String metadata,
+        String previousHash,
+        String currentHash,
+        String signature,
+        String publicKeySnapshot,
+        LocalDateTime trustedTimestamp,
+        String timestampSignature) {
+}
@@ -0,0 +1,154 @@
+package com.weitzel.trustychain.verifier;
+
+import java.io.IOException;
+import java.security.PublicKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Reproduces ProductChainService.verifyChainIntegrity for exported chains.
+ * <p>
+ * The source is read on the calling thread, which only checks the cheap part: that every
+ * event's previousHash is the currentHash of the event before it. The expensive part, hashing
+ * and RSA verification, only depends on the event itself and is fanned out in batches over a
+ * fixed pool. The number of batches in flight is bounded, so memory stays flat no matter how
+ * large the input is.
+ */
+public class ChainVerifier implements AutoCloseable {
+    private static final int BATCH_SIZE = 256;
+    private static final int BATCHES_PER_THREAD = 4;
+
+    private final PublicKey pinnedTimestampKey;
+    private final int threads;
+    private final ExecutorService executor;
+
+    // pinnedTimestampKey may be null, the source must then carry its own key
+    public ChainVerifier(PublicKey pinnedTimestampKey, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.pinnedTimestampKey = pinnedTimestampKey;
+        this.threads = threads;
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "chain-verifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public VerificationReport verify(EventSource source) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        EventVerifier eventVerifier = new EventVerifier(resolveTimestampKey(source));
+
+        Map<String, ChainHead> heads = new HashMap<>();
+        Map<String, VerificationReport.Failure> failures = new ConcurrentHashMap<>();
+        int maxInFlight = threads * BATCHES_PER_THREAD;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+
+        long events = 0;
+        long legacyUnsigned = 0;
+        List<IndexedEvent> batch = new ArrayList<>(BATCH_SIZE);
+        ChainEvent event;
+        while ((event = source.next()) != null) {
+            events++;
+            if (EventVerifier.LEGACY_UNSIGNED.equals(event.signature())) {
+                legacyUnsigned++;
+            }
+            ChainHead head = heads.computeIfAbsent(event.productCode(), code -> new ChainHead());
+            long index = head.count++;
+            if (!Objects.equals(event.previousHash(), head.hash)) {
+                recordFailure(failures, event.productCode(), index, "broken link to previous event");
+            }
+            head.hash = event.currentHash();
+
+            batch.add(new IndexedEvent(index, event));
+            if (batch.size() == BATCH_SIZE) {
+                submit(batch, eventVerifier, failures, inFlight);
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            submit(batch, eventVerifier, failures, inFlight);
+        }
+        // every batch holds a permit until it is done
+        inFlight.acquire(maxInFlight);
+        inFlight.release(maxInFlight);
+
+        if (source.productCode() != null && heads.isEmpty()) {
+            recordFailure(failures, source.productCode(), 0, "no events");
+        }
+
+        return new VerificationReport(heads.size(), events, legacyUnsigned, new TreeMap<>(failures),
+                pinnedTimestampKey != null,
+                Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private PublicKey resolveTimestampKey(EventSource source) {
+        String carried = source.timestampKey();
+        if (carried == null) {
+            if (pinnedTimestampKey == null) {
+                throw new IllegalStateException("Source carries no timestamp key, one has to be provided");
+            }
+            return pinnedTimestampKey;
+        }
+        PublicKey key = Keys.loadPublicKey(carried);
+        // a bundle vouches for itself, without a pinned key the report can only be UNPINNED
+        if (pinnedTimestampKey != null && !Arrays.equals(key.getEncoded(), pinnedTimestampKey.getEncoded())) {
+            throw new IllegalStateException("Timestamp key of the source does not match the expected key");
+        }
+        return key;
+    }
+
+    private void submit(List<IndexedEvent> batch, EventVerifier eventVerifier,
+            Map<String, VerificationReport.Failure> failures, Semaphore inFlight) throws InterruptedException {
+        inFlight.acquire();
+        try {
+            executor.execute(() -> {
+                try {
+                    for (IndexedEvent indexed : batch) {
+                        String reason = eventVerifier.verify(indexed.event());
+                        if (reason != null) {
+                            recordFailure(failures, indexed.event().productCode(), indexed.index(), reason);
+                        }
+                    }
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    // keeps the earliest failure per product, batches may finish out of order
+    private static void recordFailure(Map<String, VerificationReport.Failure> failures, String productCode,
+            long index, String reason) {
+        VerificationReport.Failure failure = new VerificationReport.Failure(index, reason);
+        failures.merge(productCode, failure,
+                (existing, candidate) -> candidate.eventIndex() < existing.eventIndex() ? candidate : existing);
+    }
+
+    private static final class ChainHead {
+        private String hash;
+        private long count;
+    }
+
+    private record IndexedEvent(long index, ChainEvent event) {
+    }
+}
@@ -0,0 +1,24 @@
+package com.weitzel.trustychain.verifier;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Pull-based stream of exported events. Events of one product must come in chain order,
+ * events of different products may be interleaved.
+ */
+public interface EventSource extends Closeable {
+
+    // next event, or null once the source is exhausted
+    ChainEvent next() throws IOException;
+
+    // timestamp signer key carried by the export itself, null if the format has none
+    default String timestampKey() {
+        return null;
+    }
+
+    // product the whole source belongs to, null if it can hold several
+    default String productCode() {
+        return null;
+    }
+}
@@ -0,0 +1,97 @@
+package com.weitzel.trustychain.verifier;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Checks a single event on its own: integrity hash, actor signature and trusted timestamp.
+ * Mirrors HashService, CryptoService and TimestampService of the application, including the
+ * "manual-entry-v1" and "legacy-unsigned" signature bypasses. Linkage between events is checked by
+ * {@link ChainVerifier}.
+ * Thread-safe.
+ */
+public class EventVerifier {
+    static final String MANUAL_SIGNATURE = "manual-entry-v1";
+    // backfilled without a signature, accepted but counted apart in the report
+    static final String LEGACY_UNSIGNED = "legacy-unsigned";
+    private static final String ALGORITHM = "SHA256withRSA";
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final PublicKey timestampKey;
+    // actors re-use their key for every event, so parse each snapshot once
+    private final Map<String, PublicKey> actorKeys = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    });
+    private final ThreadLocal<Signature> signatures = ThreadLocal.withInitial(() -> {
+        try {
+            return Signature.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " algorithm not available", e);
+        }
+    });
+
+    public EventVerifier(PublicKey timestampKey) {
+        this.timestampKey = timestampKey;
+    }
+
+    // null when the event is valid, otherwise the reason it is not
+    public String verify(ChainEvent event) {
+        String previous = event.previousHash() == null ? "BEGIN" : event.previousHash();
+
+        String hashData = previous + event.actor() + event.productCode() + event.eventType()
+                + (event.metadata() != null ? event.metadata() : "");
+        String expectedHash = HEX.formatHex(digests.get().digest(hashData.getBytes(StandardCharsets.UTF_8)));
+        if (!expectedHash.equals(event.currentHash())) {
+            return "hash mismatch";
+        }
+
+        // loaded for manual entries too, like ProductChainService.checkLink does
+        PublicKey actorKey;
+        try {
+            actorKey = actorKeys.computeIfAbsent(event.publicKeySnapshot(), Keys::loadPublicKey);
+        } catch (RuntimeException e) {
+            return "unreadable actor public key";
+        }
+        if (!MANUAL_SIGNATURE.equals(event.signature()) && !LEGACY_UNSIGNED.equals(event.signature())) {
+            // the application signs the raw metadata, so a missing one is the string "null" here
+            String signedData = previous + event.actor() + event.productCode() + event.eventType()
+                    + event.metadata();
+            if (!verifySignature(signedData, event.signature(), actorKey)) {
+                return "invalid actor signature";
+            }
+        }
+
+        if (event.trustedTimestamp() == null) {
+            return "missing trusted timestamp";
+        }
+        String timestampData = event.currentHash() + "|" + event.trustedTimestamp();
+        if (!verifySignature(timestampData, event.timestampSignature(), timestampKey)) {
+            return "invalid timestamp signature";
+        }
+        return null;
+    }
+
+    private boolean verifySignature(String data, String signatureBase64, PublicKey key) {
+        try {
+            Signature verifier = signatures.get();
+            verifier.initVerify(key);
+            verifier.update(data.getBytes(StandardCharsets.UTF_8));
+            return verifier.verify(Base64.getDecoder().decode(signatureBase64));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
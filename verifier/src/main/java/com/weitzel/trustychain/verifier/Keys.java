@@ -0,0 +1,28 @@
+package com.weitzel.trustychain.verifier;
+
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+
+public final class Keys {
+    private Keys() {
+    }
+
+    // same normalization as the application's CryptoService.loadPublicKeyFromPem
+    public static String normalize(String pem) {
+        return pem
+                .replace("-----BEGIN PUBLIC KEY-----", "")
+                .replace("-----END PUBLIC KEY-----", "")
+                .replaceAll("\\s", "");
+    }
+
+    public static PublicKey loadPublicKey(String pem) {
+        try {
+            byte[] decoded = Base64.getDecoder().decode(normalize(pem));
+            return KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(decoded));
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Failed to load public key", e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.weitzel.trustychain.verifier;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+
+/**
+ * One JSON chain link per line, as the application serializes ChainLinkDTO
+ * (trustedTimestamp as ISO-8601 local date time). Read incrementally, never fully in memory.
+ */
+public class NdjsonEventSource implements EventSource {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final MappingIterator<JsonNode> lines;
+
+    public NdjsonEventSource(InputStream in) throws IOException {
+        this.lines = MAPPER.readerFor(JsonNode.class).readValues(in);
+    }
+
+    @Override
+    public ChainEvent next() throws IOException {
+        if (!lines.hasNextValue()) {
+            return null;
+        }
+        JsonNode node = lines.nextValue();
+        String timestamp = text(node, "trustedTimestamp");
+        return new ChainEvent(
+                text(node, "actor"),
+                text(node, "productCode"),
+                text(node, "eventType"),
+                text(node, "metadata"),
+                text(node, "previousHash"),
+                text(node, "currentHash"),
+                text(node, "signature"),
+                text(node, "publicKeySnapshot"),
+                timestamp == null ? null : LocalDateTime.parse(timestamp),
+                text(node, "timestampSignature"));
+    }
+
+    @Override
+    public void close() throws IOException {
+        lines.close();
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+}
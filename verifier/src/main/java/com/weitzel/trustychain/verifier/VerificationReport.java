@@ -0,0 +1,38 @@
+package com.weitzel.trustychain.verifier;
+
+import java.time.Duration;
+import java.util.SortedMap;
+
+/**
+ * Outcome of verifying one source. Only the first failing event of each product is kept,
+ * everything after it in that chain is untrustworthy anyway.
+ */
+public record VerificationReport(long products, long events, long legacyUnsignedEvents,
+        SortedMap<String, Failure> failures,
+        boolean timestampKeyPinned, Duration elapsed) {
+
+    // UNPINNED: the chains hold up, but only against the timestamp key the bundle brought along
+    public enum Status {
+        VALID, UNPINNED, INVALID
+    }
+
+    public Status status() {
+        if (events == 0 || !failures.isEmpty()) {
+            return Status.INVALID;
+        }
+        return timestampKeyPinned ? Status.VALID : Status.UNPINNED;
+    }
+
+    public boolean valid() {
+        return status() == Status.VALID;
+    }
+
+    public double eventsPerSecond() {
+        long nanos = Math.max(elapsed.toNanos(), 1);
+        return events * 1_000_000_000.0 / nanos;
+    }
+
+    // eventIndex is zero-based within the product's chain
+    public record Failure(long eventIndex, String reason) {
+    }
+}
@@ -0,0 +1,121 @@
+package com.weitzel.trustychain.verifier;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * java -jar trustychain-verifier.jar [--threads N] [--timestamp-key server.pem] [--format bundle|ndjson] FILE...
+ * <p>
+ * Files ending in .cbor are read as proof bundles, everything else as NDJSON; "-" reads stdin.
+ * Exit code 0 when every file verifies, 1 when one does not, 2 on usage errors, 3 when a bundle only verifies
+ * against the timestamp key it carries itself (no --timestamp-key given).
+ */
+public final class VerifierCli {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private VerifierCli() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.in, System.out, System.err));
+    }
+
+    static int run(String[] args, InputStream stdin, PrintStream out, PrintStream err) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        String timestampKeyPath = null;
+        String format = null;
+        List<String> files = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    case "--timestamp-key" -> timestampKeyPath = args[++i];
+                    case "--format" -> format = args[++i].toLowerCase(Locale.ROOT);
+                    case "-h", "--help" -> {
+                        usage(out);
+                        return 0;
+                    }
+                    default -> files.add(args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            usage(err);
+            return 2;
+        }
+        if (files.isEmpty() || (format != null && !format.equals("bundle") && !format.equals("ndjson"))) {
+            usage(err);
+            return 2;
+        }
+
+        PublicKey timestampKey = null;
+        if (timestampKeyPath != null) {
+            try {
+                timestampKey = Keys.loadPublicKey(Files.readString(Path.of(timestampKeyPath)));
+            } catch (IOException | IllegalArgumentException e) {
+                err.println("Cannot read timestamp key " + timestampKeyPath + ": " + e.getMessage());
+                return 2;
+            }
+        }
+
+        VerificationReport.Status worst = VerificationReport.Status.VALID;
+        try (ChainVerifier verifier = new ChainVerifier(timestampKey, threads)) {
+            for (String file : files) {
+                VerificationReport.Status status = verifyFile(verifier, file, format, stdin, out, err);
+                if (status.compareTo(worst) > 0) {
+                    worst = status;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+        return switch (worst) {
+            case VALID -> 0;
+            case UNPINNED -> 3;
+            case INVALID -> 1;
+        };
+    }
+
+    private static VerificationReport.Status verifyFile(ChainVerifier verifier, String file, String format, InputStream stdin,
+            PrintStream out, PrintStream err) throws InterruptedException {
+        boolean bundle = format != null ? format.equals("bundle") : file.endsWith(".cbor");
+        try (InputStream in = new BufferedInputStream(
+                file.equals("-") ? stdin : Files.newInputStream(Path.of(file)), BUFFER_SIZE);
+                EventSource source = bundle ? new BundleEventSource(in) : new NdjsonEventSource(in)) {
+            VerificationReport report = verifier.verify(source);
+            out.printf(Locale.ROOT, "%s: %s, %d products, %d events in %d ms (%.0f events/s)%n",
+                    file, report.status(), report.products(), report.events(),
+                    report.elapsed().toMillis(), report.eventsPerSecond());
+            if (report.legacyUnsignedEvents() > 0) {
+                out.printf(Locale.ROOT, "  %d legacy-unsigned events, imported without an actor signature%n",
+                        report.legacyUnsignedEvents());
+            }
+            for (Map.Entry<String, VerificationReport.Failure> failure : report.failures().entrySet()) {
+                out.printf(Locale.ROOT, "  %s event #%d: %s%n",
+                        failure.getKey(), failure.getValue().eventIndex(), failure.getValue().reason());
+            }
+            return report.status();
+        } catch (IOException | RuntimeException e) {
+            err.println(file + ": " + e.getMessage());
+            return VerificationReport.Status.INVALID;
+        }
+    }
+
+    private static void usage(PrintStream stream) {
+        stream.println("Usage: trustychain-verifier [--threads N] [--timestamp-key server.pem] "
+                + "[--format bundle|ndjson] FILE...");
+        stream.println("  .cbor files are read as proof bundles, anything else as NDJSON, - reads stdin");
+        stream.println("  --timestamp-key is required for NDJSON and pins the key a bundle carries,");
+        stream.println("  a bundle checked without it is reported UNPINNED (exit code 3)");
+    }
+}
@@ -0,0 +1,263 @@
+package com.weitzel.trustychain.verifier;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChainVerifierTest {
+
+    private static KeyPair timestampKeys;
+    private static KeyPair actorKeys;
+    private final ChainVerifier verifier = new ChainVerifier(null, 4);
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @BeforeAll
+    static void generateKeys() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        timestampKeys = generator.generateKeyPair();
+        actorKeys = generator.generateKeyPair();
+    }
+
+    @AfterEach
+    void tearDown() {
+        verifier.close();
+    }
+
+    @Test
+    @DisplayName("Should verify interleaved NDJSON chains")
+    void shouldVerifyInterleavedNdjson() throws Exception {
+        List<ChainEvent> first = chain("PROD-001", 300);
+        List<ChainEvent> second = chain("PROD-002", 300);
+        List<ChainEvent> interleaved = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            interleaved.add(first.get(i));
+            interleaved.add(second.get(i));
+        }
+
+        VerificationReport report = new ChainVerifier(timestampKeys.getPublic(), 4).verify(ndjson(interleaved));
+
+        assertTrue(report.valid(), report.failures().toString());
+        assertEquals(2, report.products());
+        assertEquals(600, report.events());
+    }
+
+    @Test
+    @DisplayName("Should report the first tampered event")
+    void shouldReportTamperedEvent() throws Exception {
+        List<ChainEvent> events = chain("PROD-001", 600);
+        ChainEvent original = events.get(400);
+        events.set(400, new ChainEvent(original.actor(), original.productCode(), original.eventType(),
+                "tampered", original.previousHash(), original.currentHash(), original.signature(),
+                original.publicKeySnapshot(), original.trustedTimestamp(), original.timestampSignature()));
+
+        VerificationReport report = new ChainVerifier(timestampKeys.getPublic(), 4).verify(ndjson(events));
+
+        assertFalse(report.valid());
+        assertEquals(new VerificationReport.Failure(400, "hash mismatch"), report.failures().get("PROD-001"));
+    }
+
+    @Test
+    @DisplayName("Should detect a missing event")
+    void shouldDetectBrokenLink() throws Exception {
+        List<ChainEvent> events = chain("PROD-001", 5);
+        events.remove(2);
+
+        VerificationReport report = new ChainVerifier(timestampKeys.getPublic(), 2).verify(ndjson(events));
+
+        assertEquals(new VerificationReport.Failure(2, "broken link to previous event"),
+                report.failures().get("PROD-001"));
+    }
+
+    @Test
+    @DisplayName("Should require a timestamp key for NDJSON")
+    void shouldRequireTimestampKeyForNdjson() {
+        assertThrows(IllegalStateException.class, () -> verifier.verify(ndjson(chain("PROD-001", 1))));
+    }
+
+    @Test
+    @DisplayName("Should verify a proof bundle against the pinned timestamp key")
+    void shouldVerifyBundle() throws Exception {
+        ChainVerifier pinned = new ChainVerifier(timestampKeys.getPublic(), 4);
+        VerificationReport report = pinned.verify(bundle("PROD-001", chain("PROD-001", 50)));
+        pinned.close();
+
+        assertTrue(report.valid(), report.failures().toString());
+        assertEquals(VerificationReport.Status.VALID, report.status());
+        assertEquals(50, report.events());
+    }
+
+    @Test
+    @DisplayName("Should report a bundle checked only against its own timestamp key as unpinned")
+    void shouldReportUnpinnedBundle() throws Exception {
+        VerificationReport report = verifier.verify(bundle("PROD-001", chain("PROD-001", 5)));
+
+        assertTrue(report.failures().isEmpty(), report.failures().toString());
+        assertEquals(VerificationReport.Status.UNPINNED, report.status());
+        assertFalse(report.valid());
+    }
+
+    @Test
+    @DisplayName("Should accept legacy-unsigned events and count them in the report")
+    void shouldCountLegacyUnsignedEvents() throws Exception {
+        List<ChainEvent> events = chain("PROD-001", 4);
+        for (int i = 0; i < events.size(); i += 3) {
+            ChainEvent manual = events.get(i);
+            events.set(i, new ChainEvent(manual.actor(), manual.productCode(), manual.eventType(), manual.metadata(),
+                    manual.previousHash(), manual.currentHash(), EventVerifier.LEGACY_UNSIGNED,
+                    manual.publicKeySnapshot(), manual.trustedTimestamp(), manual.timestampSignature()));
+        }
+
+        VerificationReport report = new ChainVerifier(timestampKeys.getPublic(), 2).verify(ndjson(events));
+
+        assertTrue(report.valid(), report.failures().toString());
+        assertEquals(2, report.legacyUnsignedEvents());
+    }
+
+    @Test
+    @DisplayName("Should reject a manual entry whose actor key snapshot cannot be read")
+    void shouldRejectManualEntryWithUnreadableKey() throws Exception {
+        List<ChainEvent> events = chain("PROD-001", 1);
+        ChainEvent manual = events.get(0);
+        events.set(0, new ChainEvent(manual.actor(), manual.productCode(), manual.eventType(), manual.metadata(),
+                manual.previousHash(), manual.currentHash(), manual.signature(), "not a key",
+                manual.trustedTimestamp(), manual.timestampSignature()));
+
+        VerificationReport report = new ChainVerifier(timestampKeys.getPublic(), 1).verify(ndjson(events));
+
+        assertEquals(new VerificationReport.Failure(0, "unreadable actor public key"),
+                report.failures().get("PROD-001"));
+    }
+
+    @Test
+    @DisplayName("Should reject a bundle signed by another timestamp key")
+    void shouldRejectBundleWithUnexpectedKey() throws Exception {
+        BundleEventSource source = bundle("PROD-001", chain("PROD-001", 3));
+
+        ChainVerifier pinned = new ChainVerifier(actorKeys.getPublic(), 1);
+
+        assertThrows(IllegalStateException.class, () -> pinned.verify(source));
+        pinned.close();
+    }
+
+    @Test
+    @DisplayName("Should treat an empty bundle as invalid")
+    void shouldRejectEmptyBundle() throws Exception {
+        VerificationReport report = verifier.verify(bundle("PROD-001", List.of()));
+
+        assertFalse(report.valid());
+        assertEquals("no events", report.failures().get("PROD-001").reason());
+    }
+
+    // builds events exactly like ProductChainService.registerEvent, every third one with the manual signature
+    private static List<ChainEvent> chain(String productCode, int length) throws Exception {
+        List<ChainEvent> events = new ArrayList<>();
+        String actorKey = Base64.getEncoder().encodeToString(actorKeys.getPublic().getEncoded());
+        LocalDateTime timestamp = LocalDateTime.of(2024, 3, 1, 12, 0).truncatedTo(ChronoUnit.MICROS);
+        String previous = null;
+        for (int i = 0; i < length; i++) {
+            String metadata = i % 2 == 0 ? null : "step " + i;
+            String data = (previous == null ? "BEGIN" : previous) + "Farm" + productCode + "SHIP" + metadata;
+            String signature = i % 3 == 0 ? EventVerifier.MANUAL_SIGNATURE : sign(actorKeys, data);
+            String hashData = (previous == null ? "BEGIN" : previous) + "Farm" + productCode + "SHIP"
+                    + (metadata != null ? metadata : "");
+            String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(hashData.getBytes(StandardCharsets.UTF_8)));
+            LocalDateTime trustedTimestamp = timestamp.plusNanos(i * 1_000L).plusSeconds(i);
+            events.add(new ChainEvent("Farm", productCode, "SHIP", metadata, previous, hash, signature,
+                    actorKey, trustedTimestamp, sign(timestampKeys, hash + "|" + trustedTimestamp)));
+            previous = hash;
+        }
+        return events;
+    }
+
+    private static String sign(KeyPair keys, String data) throws Exception {
+        Signature signer = Signature.getInstance("SHA256withRSA");
+        signer.initSign(keys.getPrivate());
+        signer.update(data.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(signer.sign());
+    }
+
+    private NdjsonEventSource ndjson(List<ChainEvent> events) throws Exception {
+        StringBuilder lines = new StringBuilder();
+        for (ChainEvent event : events) {
+            ObjectNode node = mapper.createObjectNode();
+            node.put("actor", event.actor());
+            node.put("productCode", event.productCode());
+            node.put("eventType", event.eventType());
+            node.put("metadata", event.metadata());
+            node.put("previousHash", event.previousHash());
+            node.put("currentHash", event.currentHash());
+            node.put("signature", event.signature());
+            node.put("publicKeySnapshot", event.publicKeySnapshot());
+            node.put("trustedTimestamp", event.trustedTimestamp().toString());
+            node.put("timestampSignature", event.timestampSignature());
+            lines.append(mapper.writeValueAsString(node)).append('\n');
+        }
+        return new NdjsonEventSource(new ByteArrayInputStream(lines.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // same layout the application's ProofBundleWriter produces
+    private static BundleEventSource bundle(String productCode, List<ChainEvent> events) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CBORGenerator generator = (CBORGenerator) new CBORFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("format", BundleEventSource.FORMAT);
+            generator.writeNumberField("version", BundleEventSource.VERSION);
+            generator.writeStringField("productCode", productCode);
+            generator.writeBinaryField("timestampKey", timestampKeys.getPublic().getEncoded());
+            generator.writeArrayFieldStart("events");
+            for (int i = 0; i < events.size(); i++) {
+                ChainEvent event = events.get(i);
+                generator.writeStartObject();
+                generator.writeStringField("a", event.actor());
+                generator.writeStringField("t", event.eventType());
+                generator.writeStringField("m", event.metadata());
+                if (event.previousHash() == null) {
+                    generator.writeNullField("p");
+                } else {
+                    generator.writeBinaryField("p", HexFormat.of().parseHex(event.previousHash()));
+                }
+                generator.writeBinaryField("h", HexFormat.of().parseHex(event.currentHash()));
+                if (EventVerifier.MANUAL_SIGNATURE.equals(event.signature())) {
+                    generator.writeStringField("s", event.signature());
+                } else {
+                    generator.writeBinaryField("s", Base64.getDecoder().decode(event.signature()));
+                }
+                generator.writeNumberField("k", 0);
+                if (i == 0) {
+                    generator.writeBinaryField("K", Base64.getDecoder().decode(event.publicKeySnapshot()));
+                }
+                LocalDateTime ts = event.trustedTimestamp();
+                generator.writeNumberField("ts", ts.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + ts.getNano() / 1_000);
+                generator.writeBinaryField("tss", Base64.getDecoder().decode(event.timestampSignature()));
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        return new BundleEventSource(new ByteArrayInputStream(out.toByteArray()));
+    }
+}